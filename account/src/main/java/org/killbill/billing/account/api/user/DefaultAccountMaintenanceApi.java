@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.api.user;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
+import org.killbill.billing.account.api.AccountMaintenanceApi;
+import org.killbill.billing.account.api.DefaultAccount;
+import org.killbill.billing.account.dao.AccountDao;
+import org.killbill.billing.account.dao.AccountModelDao;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.entity.DefaultPagination;
+import org.killbill.billing.util.entity.Pagination;
+
+import com.google.common.collect.ImmutableList;
+
+public class DefaultAccountMaintenanceApi implements AccountMaintenanceApi {
+
+    private final AccountDao accountDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultAccountMaintenanceApi(final AccountDao accountDao,
+                                        final InternalCallContextFactory internalCallContextFactory) {
+        this.accountDao = accountDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public void rebuildSearchTokens(final UUID accountId, final CallContext context) throws AccountApiException {
+        accountDao.rebuildSearchTokens(accountId, internalCallContextFactory.createInternalCallContext(accountId, context));
+    }
+
+    @Override
+    public Pagination<Account> rebuildSearchTokens(final Long offset, final Long limit, final CallContext context) throws AccountApiException {
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(context);
+        // Read the whole page first, to avoid streaming from the database while writing
+        final Pagination<AccountModelDao> page = accountDao.get(offset, limit, internalTenantContext);
+        final List<AccountModelDao> accounts = ImmutableList.<AccountModelDao>copyOf(page);
+
+        final List<Account> rebuiltAccounts = new ArrayList<Account>(accounts.size());
+        for (final AccountModelDao account : accounts) {
+            // One transaction per account, to avoid locking the whole page
+            rebuildSearchTokens(account.getId(), context);
+            rebuiltAccounts.add(new DefaultAccount(account));
+        }
+        return new DefaultPagination<Account>(page, limit, rebuiltAccounts.iterator());
+    }
+}
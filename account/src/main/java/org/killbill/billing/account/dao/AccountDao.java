@@ -50,4 +50,9 @@ public interface AccountDao extends EntityDao<AccountModelDao, Account, AccountA
     public void removeEmail(AccountEmailModelDao email, InternalCallContext context);
 
     public List<AccountEmailModelDao> getEmailsByAccountId(UUID accountId, InternalTenantContext context);
+
+    /**
+     * @throws AccountApiException when the account doesn't exist
+     */
+    public void rebuildSearchTokens(UUID accountId, InternalCallContext context) throws AccountApiException;
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.dao;
+
+import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
+import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+
+// Not an EntitySqlDao on purpose: the search index is neither audited nor part of the history
+@EntitySqlDaoStringTemplate
+public interface AccountSearchTokenSqlDao extends Transactional<AccountSearchTokenSqlDao>, CloseMe {
+
+    @SqlBatch(transactional = false)
+    public void create(@Bind("token") final Iterable<String> tokens,
+                       @Bind("accountRecordId") final Long accountRecordId,
+                       @Bind("tenantRecordId") final Long tenantRecordId);
+
+    @SqlUpdate
+    public void deleteByAccountRecordId(@Bind("accountRecordId") final Long accountRecordId,
+                                        @Bind("tenantRecordId") final Long tenantRecordId);
+}
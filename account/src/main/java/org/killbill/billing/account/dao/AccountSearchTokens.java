@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.dao;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tokens of the account_search_tokens table, used to search accounts by name, email, external key and company name
+ * with an index lookup instead of a scan of the accounts table.
+ * <p/>
+ * For each field, we index the lower-cased value starting at each word, so that a search key matches the accounts
+ * having a field containing it at the beginning of a word (e.g. "doe" or "doe@example" for john.doe@example.com).
+ * <p/>
+ * The tokens are always maintained, but only used for searches if enabled in AccountConfig.
+ */
+final class AccountSearchTokens {
+
+    // Size of the token column
+    static final int MAX_TOKEN_LENGTH = 128;
+
+    private static final Pattern WORD_START = Pattern.compile("(?<![\\p{L}\\p{N}])[\\p{L}\\p{N}]");
+
+    private AccountSearchTokens() {}
+
+    static Set<String> tokenize(final AccountModelDao account) {
+        return tokenize(account.getName(), account.getEmail(), account.getExternalKey(), account.getCompanyName());
+    }
+
+    static Set<String> tokenize(@Nullable final String name, @Nullable final String email, @Nullable final String externalKey, @Nullable final String companyName) {
+        final Set<String> tokens = new LinkedHashSet<String>();
+        addTokens(name, tokens);
+        addTokens(email, tokens);
+        addTokens(externalKey, tokens);
+        addTokens(companyName, tokens);
+        return tokens;
+    }
+
+    // Prefix match on the tokens
+    static String toLikeSearchKey(final String searchKey) {
+        final String normalizedSearchKey = truncate(normalize(searchKey));
+
+        final StringBuilder likeSearchKey = new StringBuilder(normalizedSearchKey.length() + 1);
+        for (int i = 0; i < normalizedSearchKey.length(); i++) {
+            final char c = normalizedSearchKey.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                likeSearchKey.append('\\');
+            }
+            likeSearchKey.append(c);
+        }
+        return likeSearchKey.append('%').toString();
+    }
+
+    private static void addTokens(@Nullable final String value, final Set<String> tokens) {
+        if (value == null) {
+            return;
+        }
+
+        final String normalizedValue = normalize(value);
+        if (normalizedValue.isEmpty()) {
+            return;
+        }
+
+        // The whole value, to match search keys not starting with a letter or a digit
+        tokens.add(truncate(normalizedValue));
+        final Matcher matcher = WORD_START.matcher(normalizedValue);
+        while (matcher.find()) {
+            tokens.add(truncate(normalizedValue.substring(matcher.start())));
+        }
+    }
+
+    private static String normalize(final String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(final String value) {
+        return value.length() > MAX_TOKEN_LENGTH ? value.substring(0, MAX_TOKEN_LENGTH) : value;
+    }
+}
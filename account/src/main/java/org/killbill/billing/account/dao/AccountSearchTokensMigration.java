@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Backfills the account_search_tokens table (see AccountSearchTokens) from the accounts table, for accounts created
+ * before it existed. Run it once the table is created, before setting org.killbill.account.searchTokens.enabled.
+ * <p/>
+ * Accounts are processed by pages of record ids, one transaction per page: Kill Bill can keep running meanwhile, as
+ * the accounts of the current page are locked and accounts created or updated since are indexed by Kill Bill itself.
+ * Running it again is harmless.
+ * <p/>
+ * Usage: AccountSearchTokensMigration jdbcUrl user password
+ */
+public class AccountSearchTokensMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountSearchTokensMigration.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private static final String ACCOUNTS_PAGE_QUERY = "select record_id, name, email, external_key, company_name, tenant_record_id" +
+                                                      " from accounts" +
+                                                      " where record_id > ?" +
+                                                      " order by record_id" +
+                                                      " limit ?" +
+                                                      " for update";
+    private static final String DELETE_TOKENS_QUERY = "delete from account_search_tokens where account_record_id = ?";
+    private static final String INSERT_TOKEN_QUERY = "insert into account_search_tokens (token, account_record_id, tenant_record_id) values (?, ?, ?)";
+
+    private final Connection connection;
+    private final int pageSize;
+
+    public AccountSearchTokensMigration(final Connection connection) {
+        this(connection, DEFAULT_PAGE_SIZE);
+    }
+
+    public AccountSearchTokensMigration(final Connection connection, final int pageSize) {
+        this.connection = connection;
+        this.pageSize = pageSize;
+    }
+
+    public static void main(final String[] args) throws SQLException {
+        if (args.length != 3) {
+            System.err.println("Usage: " + AccountSearchTokensMigration.class.getName() + " jdbcUrl user password");
+            System.exit(1);
+        }
+
+        final Connection connection = DriverManager.getConnection(args[0], args[1], args[2]);
+        try {
+            new AccountSearchTokensMigration(connection).migrate();
+        } finally {
+            connection.close();
+        }
+    }
+
+    public void migrate() throws SQLException {
+        final boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            long lastRecordId = 0L;
+            long nbAccounts = 0L;
+            int nbAccountsInPage;
+            do {
+                final long firstRecordId = lastRecordId;
+                nbAccountsInPage = 0;
+                try {
+                    final PreparedStatement accountsStatement = connection.prepareStatement(ACCOUNTS_PAGE_QUERY);
+                    final PreparedStatement deleteStatement = connection.prepareStatement(DELETE_TOKENS_QUERY);
+                    final PreparedStatement insertStatement = connection.prepareStatement(INSERT_TOKEN_QUERY);
+                    try {
+                        accountsStatement.setLong(1, firstRecordId);
+                        accountsStatement.setInt(2, pageSize);
+                        final ResultSet rs = accountsStatement.executeQuery();
+                        while (rs.next()) {
+                            lastRecordId = rs.getLong(1);
+                            final long tenantRecordId = rs.getLong(6);
+                            final boolean hasTenantRecordId = !rs.wasNull();
+
+                            deleteStatement.setLong(1, lastRecordId);
+                            deleteStatement.addBatch();
+                            for (final String token : AccountSearchTokens.tokenize(rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5))) {
+                                insertStatement.setString(1, token);
+                                insertStatement.setLong(2, lastRecordId);
+                                if (hasTenantRecordId) {
+                                    insertStatement.setLong(3, tenantRecordId);
+                                } else {
+                                    insertStatement.setNull(3, Types.INTEGER);
+                                }
+                                insertStatement.addBatch();
+                            }
+                            nbAccountsInPage++;
+                        }
+                        rs.close();
+
+                        if (nbAccountsInPage > 0) {
+                            deleteStatement.executeBatch();
+                            insertStatement.executeBatch();
+                        }
+                    } finally {
+                        insertStatement.close();
+                        deleteStatement.close();
+                        accountsStatement.close();
+                    }
+                    connection.commit();
+                } catch (final SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+
+                nbAccounts += nbAccountsInPage;
+                log.info("Indexed {} accounts (up to record_id {})", nbAccounts, lastRecordId);
+            } while (nbAccountsInPage == pageSize);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
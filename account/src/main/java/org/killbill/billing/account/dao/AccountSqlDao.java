@@ -16,20 +16,25 @@
 
 package org.killbill.billing.account.dao;
 
+import java.util.Iterator;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
+import org.killbill.billing.util.dao.UUIDMapper;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
+import org.killbill.commons.jdbi.statement.SmartFetchSize;
 
 @EntitySqlDaoStringTemplate
 public interface AccountSqlDao extends EntitySqlDao<AccountModelDao, Account> {
@@ -39,9 +44,31 @@ public interface AccountSqlDao extends EntitySqlDao<AccountModelDao, Account> {
                                            @BindBean final InternalTenantContext context);
 
     @SqlQuery
+    @RegisterMapper(UUIDMapper.class)
     public UUID getIdFromKey(@Bind("externalKey") final String key,
                              @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<AccountModelDao> searchByTokens(@Bind("searchKey") final String searchKey,
+                                                    @Bind("likeSearchKey") final String likeSearchKey,
+                                                    @Bind("offset") final Long offset,
+                                                    @Bind("rowCount") final Long rowCount,
+                                                    @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<AccountModelDao> searchByTokensAfter(@Bind("searchKey") final String searchKey,
+                                                         @Bind("likeSearchKey") final String likeSearchKey,
+                                                         @BindUUID("lastId") final String lastId,
+                                                         @Bind("rowCount") final Long rowCount,
+                                                         @BindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getSearchByTokensCount(@Bind("searchKey") final String searchKey,
+                                       @Bind("likeSearchKey") final String likeSearchKey,
+                                       @BindBean final InternalTenantContext context);
+
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
     public void update(@BindBean final AccountModelDao account,
@@ -49,7 +76,7 @@ public interface AccountSqlDao extends EntitySqlDao<AccountModelDao, Account> {
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void updatePaymentMethod(@Bind("id") String accountId,
-                                    @Bind("paymentMethodId") String paymentMethodId,
+    public void updatePaymentMethod(@BindUUID("id") String accountId,
+                                    @BindUUID("paymentMethodId") String paymentMethodId,
                                     @BindBean final InternalCallContext context);
 }
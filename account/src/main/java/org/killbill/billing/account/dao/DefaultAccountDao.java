@@ -18,9 +18,9 @@ package org.killbill.billing.account.dao;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
-import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +42,8 @@ import org.killbill.billing.events.AccountCreationInternalEvent;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.AccountConfig;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
@@ -51,6 +53,7 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 
 public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, AccountApiException> implements AccountDao {
@@ -59,13 +62,32 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
 
     private final PersistentBus eventBus;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final AccountConfig accountConfig;
 
     @Inject
-    public DefaultAccountDao(final IDBI dbi, final PersistentBus eventBus, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
-                             final InternalCallContextFactory internalCallContextFactory, final NonEntityDao nonEntityDao) {
-        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao), AccountSqlDao.class);
+    public DefaultAccountDao(final DBRouter dbRouter, final PersistentBus eventBus, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
+                             final InternalCallContextFactory internalCallContextFactory, final NonEntityDao nonEntityDao, final MetricRegistry metricRegistry,
+                             final AccountConfig accountConfig) {
+        super(new EntitySqlDaoTransactionalJdbiWrapper(dbRouter, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry), AccountSqlDao.class);
         this.eventBus = eventBus;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.accountConfig = accountConfig;
+    }
+
+    @Override
+    protected EntitySqlDaoTransactionWrapper<Void> getCreateEntitySqlDaoTransactionWrapper(final AccountModelDao account, final InternalCallContext context) {
+        final EntitySqlDaoTransactionWrapper<Void> createEntitySqlDaoTransactionWrapper = super.getCreateEntitySqlDaoTransactionWrapper(account, context);
+        return new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                createEntitySqlDaoTransactionWrapper.inTransaction(entitySqlDaoWrapperFactory);
+
+                final AccountSqlDao transactional = entitySqlDaoWrapperFactory.become(AccountSqlDao.class);
+                final Long recordId = transactional.getRecordId(account.getId().toString(), context);
+                updateSearchTokens(transactional, account, recordId, context);
+                return null;
+            }
+        };
     }
 
     @Override
@@ -108,6 +130,10 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
 
     @Override
     public Pagination<AccountModelDao> searchAccounts(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
+        if (accountConfig.isSearchTokensEnabled()) {
+            return searchAccountsByTokens(searchKey, offset, limit, context);
+        }
+
         return paginationHelper.getPagination(AccountSqlDao.class,
                                               new PaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>() {
                                                   @Override
@@ -119,6 +145,36 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                   public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return accountSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildAfter(final AccountSqlDao accountSqlDao, final String lastId, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchAfter(searchKey, String.format("%%%s%%", searchKey), lastId, limit, context);
+                                                  }
+                                              },
+                                              offset,
+                                              limit,
+                                              context);
+    }
+
+    // Index lookups on account_search_tokens: only the beginning of words is matched, see AccountSearchTokens
+    private Pagination<AccountModelDao> searchAccountsByTokens(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
+        final String likeSearchKey = AccountSearchTokens.toLikeSearchKey(searchKey);
+        return paginationHelper.getPagination(AccountSqlDao.class,
+                                              new PaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>() {
+                                                  @Override
+                                                  public Long getCount(final AccountSqlDao accountSqlDao, final InternalTenantContext context) {
+                                                      return accountSqlDao.getSearchByTokensCount(searchKey, likeSearchKey, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchByTokens(searchKey, likeSearchKey, offset, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildAfter(final AccountSqlDao accountSqlDao, final String lastId, final Long limit, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchByTokensAfter(searchKey, likeSearchKey, lastId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -153,6 +209,9 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                 }
 
                 transactional.update(specifiedAccount, context);
+                // specifiedAccount is merged with the current account by the callers, so it holds the updated values (no need to re-read the row).
+                // The record id is served by the RECORD_ID cache, which the audited update already went through
+                updateSearchTokens(transactional, specifiedAccount, transactional.getRecordId(accountId.toString(), context), context);
 
                 final AccountChangeInternalEvent changeEvent = new DefaultAccountChangeEvent(accountId,
                                                                                              currentAccount,
@@ -248,4 +307,32 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
         });
     }
 
+    @Override
+    public void rebuildSearchTokens(final UUID accountId, final InternalCallContext context) throws AccountApiException {
+        transactionalSqlDao.execute(AccountApiException.class, new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws AccountApiException {
+                final AccountSqlDao transactional = entitySqlDaoWrapperFactory.become(AccountSqlDao.class);
+
+                final AccountModelDao account = transactional.getById(accountId.toString(), context);
+                if (account == null) {
+                    throw new AccountApiException(ErrorCode.ACCOUNT_DOES_NOT_EXIST_FOR_ID, accountId);
+                }
+
+                updateSearchTokens(transactional, account, transactional.getRecordId(accountId.toString(), context), context);
+                return null;
+            }
+        });
+    }
+
+    private void updateSearchTokens(final AccountSqlDao transactional, final AccountModelDao account, final Long accountRecordId, final InternalCallContext context) {
+        // Not part of history and audits on purpose, the tokens can be rebuilt from the accounts table.
+        // Maintained even when searches don't use them, so that they can be enabled without re-indexing everything
+        final AccountSearchTokenSqlDao accountSearchTokenSqlDao = transactional.become(AccountSearchTokenSqlDao.class);
+        accountSearchTokenSqlDao.deleteByAccountRecordId(accountRecordId, context.getTenantRecordId());
+        final Set<String> tokens = AccountSearchTokens.tokenize(account);
+        if (!tokens.isEmpty()) {
+            accountSearchTokenSqlDao.create(tokens, accountRecordId, context.getTenantRecordId());
+        }
+    }
 }
@@ -19,16 +19,20 @@
 package org.killbill.billing.account.glue;
 
 import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.account.api.AccountMaintenanceApi;
 import org.killbill.billing.account.api.AccountService;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.DefaultAccountService;
 import org.killbill.billing.account.api.svcs.DefaultAccountInternalApi;
+import org.killbill.billing.account.api.user.DefaultAccountMaintenanceApi;
 import org.killbill.billing.account.api.user.DefaultAccountUserApi;
 import org.killbill.billing.account.dao.AccountDao;
 import org.killbill.billing.account.dao.DefaultAccountDao;
 import org.killbill.billing.glue.AccountModule;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.AccountConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class DefaultAccountModule extends KillBillModule implements AccountModule {
 
@@ -37,6 +41,8 @@ public class DefaultAccountModule extends KillBillModule implements AccountModul
     }
 
     private void installConfig() {
+        final AccountConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(AccountConfig.class);
+        bind(AccountConfig.class).toInstance(config);
     }
 
     protected void installAccountDao() {
@@ -48,6 +54,10 @@ public class DefaultAccountModule extends KillBillModule implements AccountModul
         bind(AccountUserApi.class).to(DefaultAccountUserApi.class).asEagerSingleton();
     }
 
+    protected void installAccountMaintenanceApi() {
+        bind(AccountMaintenanceApi.class).to(DefaultAccountMaintenanceApi.class).asEagerSingleton();
+    }
+
     @Override
     public void installInternalApi() {
         bind(AccountInternalApi.class).to(DefaultAccountInternalApi.class).asEagerSingleton();
@@ -63,6 +73,7 @@ public class DefaultAccountModule extends KillBillModule implements AccountModul
         installAccountDao();
         installAccountService();
         installAccountUserApi();
+        installAccountMaintenanceApi();
         installInternalApi();
     }
 }
@@ -107,3 +107,17 @@ CREATE TABLE account_email_history (
 ) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
 CREATE INDEX account_email_target_record_id ON account_email_history(target_record_id);
 CREATE INDEX account_email_history_tenant_account_record_id ON account_email_history(tenant_record_id, account_record_id);
+
+-- Search index of the accounts, maintained on account creation and update, and used for searches when
+-- org.killbill.account.searchTokens.enabled is set. When upgrading, create the table then index the existing
+-- accounts with AccountSearchTokensMigration, before enabling it.
+DROP TABLE IF EXISTS account_search_tokens;
+CREATE TABLE account_search_tokens (
+    record_id int(11) unsigned NOT NULL AUTO_INCREMENT,
+    token varchar(128) NOT NULL,
+    account_record_id int(11) unsigned NOT NULL,
+    tenant_record_id int(11) unsigned default null,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE INDEX account_search_tokens_tenant_token ON account_search_tokens(tenant_record_id, token);
+CREATE INDEX account_search_tokens_account_record_id ON account_search_tokens(account_record_id);
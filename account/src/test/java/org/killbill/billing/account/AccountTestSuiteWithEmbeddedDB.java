@@ -21,6 +21,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 
 import org.killbill.billing.GuicyKillbillTestSuiteWithEmbeddedDB;
+import org.killbill.billing.account.api.AccountMaintenanceApi;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.dao.AccountDao;
 import org.killbill.billing.account.glue.TestAccountModuleWithEmbeddedDB;
@@ -45,6 +46,8 @@ public abstract class AccountTestSuiteWithEmbeddedDB extends GuicyKillbillTestSu
     @Inject
     protected AccountUserApi accountUserApi;
     @Inject
+    protected AccountMaintenanceApi accountMaintenanceApi;
+    @Inject
     protected AuditDao auditDao;
     @Inject
     protected CacheControllerDispatcher controllerDispatcher;
@@ -18,8 +18,10 @@ package org.killbill.billing.account.api.user;
 
 import java.util.UUID;
 
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.AccountTestSuiteWithEmbeddedDB;
 import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.DefaultAccount;
 import org.killbill.billing.account.api.DefaultMutableAccountData;
 import org.killbill.billing.account.api.MutableAccountData;
@@ -81,4 +83,15 @@ public class TestDefaultAccountUserApi extends AccountTestSuiteWithEmbeddedDB {
 
         accountUserApi.updateAccount(new DefaultAccount(account.getId(), otherAccount), callContext);
     }
+
+    @Test(groups = "slow", description = "Test rebuilding the search index of an unknown account")
+    public void testRebuildSearchTokensForUnknownAccount() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        try {
+            accountMaintenanceApi.rebuildSearchTokens(accountId, callContext);
+            Assert.fail();
+        } catch (final AccountApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.ACCOUNT_DOES_NOT_EXIST_FOR_ID.getCode());
+        }
+    }
 }
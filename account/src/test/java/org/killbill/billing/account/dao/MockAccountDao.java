@@ -163,4 +163,11 @@ public class MockAccountDao extends MockEntityDaoBase<AccountModelDao, Account,
         }));
     }
 
+    @Override
+    public void rebuildSearchTokens(final UUID accountId, final InternalCallContext context) throws AccountApiException {
+        // Searches aren't indexed
+        if (getById(accountId, context) == null) {
+            throw new AccountApiException(ErrorCode.ACCOUNT_DOES_NOT_EXIST_FOR_ID, accountId);
+        }
+    }
 }
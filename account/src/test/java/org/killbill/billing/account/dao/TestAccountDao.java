@@ -20,6 +20,8 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.joda.time.DateTimeZone;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
@@ -202,6 +204,39 @@ public class TestAccountDao extends AccountTestSuiteWithEmbeddedDB {
         checkAccountsEqual(retrievedAccount, updatedAccount);
     }
 
+    @Test(groups = "slow", description = "Test Account DAO: search")
+    public void testSearch() throws Exception {
+        final AccountModelDao account = createTestAccount();
+        accountDao.create(account, internalCallContext);
+
+        checkSearch(account.getId().toString(), account);
+        checkSearch(account.getExternalKey(), account);
+        checkSearch(account.getEmail(), account);
+        checkSearch(account.getCompanyName(), account);
+        // Any substring of the fields can be searched
+        checkSearch(account.getName().substring(3, 11), account);
+        checkSearch(account.getEmail().substring(2, account.getEmail().indexOf('@')), account);
+        checkSearch(UUID.randomUUID().toString(), null);
+    }
+
+    // Also used by TestAccountDaoWithSearchTokens
+    static void checkSearch(final AccountDao accountDao, final String searchKey, @Nullable final AccountModelDao expectedAccount, final InternalTenantContext context) {
+        final Pagination<AccountModelDao> accounts = accountDao.searchAccounts(searchKey, 0L, 10L, context);
+        final List<AccountModelDao> results = ImmutableList.<AccountModelDao>copyOf(accounts);
+        if (expectedAccount == null) {
+            Assert.assertEquals(results.size(), 0);
+            Assert.assertEquals(accounts.getTotalNbRecords(), (Long) 0L);
+        } else {
+            Assert.assertEquals(results.size(), 1);
+            Assert.assertEquals(accounts.getTotalNbRecords(), (Long) 1L);
+            checkAccountsEqual(results.get(0), expectedAccount);
+        }
+    }
+
+    private void checkSearch(final String searchKey, @Nullable final AccountModelDao expectedAccount) {
+        checkSearch(accountDao, searchKey, expectedAccount, internalCallContext);
+    }
+
     @Test(groups = "slow", description = "Test Account DAO: payment method update")
     public void testUpdatePaymentMethod() throws Exception {
         final AccountModelDao account = createTestAccount();
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.dao;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.account.AccountTestSuiteWithEmbeddedDB;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.DefaultAccount;
+import org.killbill.billing.account.api.MutableAccountData;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.entity.Pagination;
+import org.skife.jdbi.v2.Handle;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import static org.killbill.billing.account.AccountTestUtils.createTestAccount;
+
+public class TestAccountDaoWithSearchTokens extends AccountTestSuiteWithEmbeddedDB {
+
+    @Override
+    protected KillbillConfigSource getConfigSource() {
+        return getConfigSource("/account.properties", ImmutableMap.<String, String>of("org.killbill.account.searchTokens.enabled", "true"));
+    }
+
+    @Test(groups = "slow", description = "Test Account DAO: search through the search index")
+    public void testSearch() throws Exception {
+        final AccountModelDao account = createTestAccount();
+        accountDao.create(account, internalCallContext);
+
+        checkSearch(account.getId().toString(), account);
+        checkSearch(account.getExternalKey(), account);
+        checkSearch(account.getEmail(), account);
+        checkSearch(account.getCompanyName(), account);
+        // Case insensitive, and any word of the fields can be searched
+        checkSearch(account.getName().toUpperCase(), account);
+        checkSearch(account.getName().split("-")[2], account);
+        checkSearch(account.getEmail().substring(account.getEmail().indexOf('@') + 1), account);
+        // LIKE wildcards aren't interpreted
+        checkSearch("%", null);
+        checkSearch(UUID.randomUUID().toString(), null);
+
+        // The search index follows the updates
+        final String newName = UUID.randomUUID().toString();
+        final MutableAccountData otherAccount = new DefaultAccount(account).toMutableAccountData();
+        otherAccount.setName(newName);
+        final AccountModelDao newAccount = new AccountModelDao(account.getId(), otherAccount);
+        accountDao.update(newAccount, internalCallContext);
+
+        checkSearch(account.getName(), null);
+        checkSearch(newName, accountDao.getById(account.getId(), internalCallContext));
+    }
+
+    @Test(groups = "slow", description = "Test rebuilding the search index of the accounts created before it existed, one page at a time")
+    public void testRebuildSearchTokens() throws Exception {
+        final Account account1 = accountUserApi.createAccount(new DefaultAccount(createTestAccount()), callContext);
+        final Account account2 = accountUserApi.createAccount(new DefaultAccount(createTestAccount()), callContext);
+
+        deleteSearchTokens();
+        checkApiSearch(account1.getName(), null);
+        checkApiSearch(account2.getEmail(), null);
+        // The lookup by id doesn't rely on the index
+        checkApiSearch(account1.getId().toString(), account1);
+
+        accountMaintenanceApi.rebuildSearchTokens(account1.getId(), callContext);
+        checkApiSearch(account1.getName(), account1);
+        checkApiSearch(account2.getEmail(), null);
+
+        // Rebuilding is idempotent
+        final Pagination<Account> firstPage = accountMaintenanceApi.rebuildSearchTokens(0L, 1L, callContext);
+        Assert.assertEquals(ImmutableList.<Account>copyOf(firstPage).size(), 1);
+        Assert.assertEquals(firstPage.getNextOffset(), (Long) 1L);
+        checkApiSearch(account2.getEmail(), null);
+
+        final Pagination<Account> secondPage = accountMaintenanceApi.rebuildSearchTokens(firstPage.getNextOffset(), 1L, callContext);
+        Assert.assertEquals(ImmutableList.<Account>copyOf(secondPage).size(), 1);
+        Assert.assertNull(secondPage.getNextOffset());
+        checkApiSearch(account1.getName(), account1);
+        checkApiSearch(account2.getEmail(), account2);
+        checkApiSearch(account2.getExternalKey(), account2);
+    }
+
+    @Test(groups = "slow", description = "Test indexing the existing accounts with AccountSearchTokensMigration")
+    public void testMigration() throws Exception {
+        final AccountModelDao account1 = createTestAccount();
+        accountDao.create(account1, internalCallContext);
+        final AccountModelDao account2 = createTestAccount();
+        accountDao.create(account2, internalCallContext);
+        final AccountModelDao account3 = createTestAccount();
+        accountDao.create(account3, internalCallContext);
+
+        deleteSearchTokens();
+        checkSearch(account1.getName(), null);
+
+        final Connection connection = dataSource.getConnection();
+        try {
+            // Several pages, the last one being partial
+            new AccountSearchTokensMigration(connection, 2).migrate();
+            // Running it again is harmless
+            new AccountSearchTokensMigration(connection, 2).migrate();
+        } finally {
+            connection.close();
+        }
+
+        checkSearch(account1.getName(), accountDao.getById(account1.getId(), internalCallContext));
+        checkSearch(account2.getEmail(), accountDao.getById(account2.getId(), internalCallContext));
+        checkSearch(account3.getCompanyName().toUpperCase(), accountDao.getById(account3.getId(), internalCallContext));
+    }
+
+    private void deleteSearchTokens() {
+        // As for accounts created before the search index existed
+        final Handle handle = dbi.open();
+        try {
+            handle.execute("delete from account_search_tokens");
+        } finally {
+            handle.close();
+        }
+    }
+
+    private void checkSearch(final String searchKey, @Nullable final AccountModelDao expectedAccount) {
+        TestAccountDao.checkSearch(accountDao, searchKey, expectedAccount, internalCallContext);
+    }
+
+    private void checkApiSearch(final String searchKey, @Nullable final Account expectedAccount) {
+        final List<Account> results = ImmutableList.<Account>copyOf(accountUserApi.searchAccounts(searchKey, 0L, 10L, callContext));
+        if (expectedAccount == null) {
+            Assert.assertEquals(results.size(), 0);
+        } else {
+            Assert.assertEquals(results.size(), 1);
+            Assert.assertEquals(results.get(0).getId(), expectedAccount.getId());
+        }
+    }
+}
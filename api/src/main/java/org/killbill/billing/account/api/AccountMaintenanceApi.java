@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.account.api;
+
+import java.util.UUID;
+
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.entity.Pagination;
+
+public interface AccountMaintenanceApi {
+
+    /**
+     * Recompute the search index entries of an account
+     *
+     * @param accountId the account id
+     * @param context   the call context
+     * @throws AccountApiException if the account doesn't exist
+     */
+    public void rebuildSearchTokens(UUID accountId, CallContext context) throws AccountApiException;
+
+    /**
+     * Recompute the search index entries of a page of accounts of the tenant (to index all accounts at once, see AccountSearchTokensMigration)
+     *
+     * @param offset  the offset of the first account
+     * @param limit   the maximum number of accounts to process
+     * @param context the call context
+     * @return the accounts processed (see Pagination#getNextOffset for the next page)
+     * @throws AccountApiException if an account is deleted in the meantime
+     */
+    public Pagination<Account> rebuildSearchTokens(Long offset, Long limit, CallContext context) throws AccountApiException;
+}
@@ -74,4 +74,13 @@ public interface InvoiceInternalApi {
      */
     public void consumeExistingCBAOnAccountWithUnpaidInvoices(final UUID accountId, final InternalCallContext context) throws InvoiceApiException;
 
+    /**
+     * Recompute the materialized balance and CBA of the account from its invoices
+     *
+     * @param accountId account id
+     * @param context the callcontext
+     * @return true if the materialized balance was missing or out of date
+     */
+    public boolean refreshAccountBalance(final UUID accountId, final InternalCallContext context);
+
 }
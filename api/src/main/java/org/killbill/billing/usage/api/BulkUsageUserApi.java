@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api;
+
+import java.util.List;
+import java.util.Map;
+
+import org.killbill.billing.util.callcontext.CallContext;
+
+public interface BulkUsageUserApi {
+
+    /**
+     * Record a batch of usage, in one transaction per subscription
+     * <p/>
+     * A failure (invalid record, unknown subscription, database error) only rejects the records of the subscription
+     * it relates to: the usage of the other subscriptions is still recorded.
+     *
+     * @param usages  the usage to record
+     * @param context the call context
+     * @return the error message for each record which couldn't be recorded, keyed by its position in the batch
+     */
+    public Map<Integer, String> recordRolledUpUsage(List<RolledUpUsage> usages, CallContext context);
+}
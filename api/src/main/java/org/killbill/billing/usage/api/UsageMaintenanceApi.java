@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api;
+
+import java.util.UUID;
+
+import org.killbill.billing.util.callcontext.CallContext;
+
+public interface UsageMaintenanceApi {
+
+    /**
+     * Recompute the daily aggregates of the usage recorded for a subscription
+     *
+     * @param subscriptionId the subscription id
+     * @param context        the call context
+     */
+    public void rebuildDailyRollups(UUID subscriptionId, CallContext context);
+
+    /**
+     * Recompute the daily aggregates of the usage recorded for all subscriptions of the tenant
+     *
+     * @param context the call context
+     */
+    public void rebuildDailyRollups(CallContext context);
+}
@@ -16,6 +16,11 @@
 
 package org.killbill.billing.catalog;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -46,6 +51,9 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
     @XmlElement(name = "plan", required = true)
     private DefaultPlan[] plans;
 
+    // Plans by product name (in the price list order), built lazily and reset when the plans are updated
+    private volatile Map<String, List<DefaultPlan>> plansByProductName;
+
     public DefaultPriceList() {
     }
 
@@ -77,7 +85,14 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
       */
     @Override
     public DefaultPlan findPlan(final Product product, final BillingPeriod period) {
-        for (final DefaultPlan cur : getPlans()) {
+        if (product == null) {
+            return null;
+        }
+        final List<DefaultPlan> candidates = getPlansByProductName().get(product.getName());
+        if (candidates == null) {
+            return null;
+        }
+        for (final DefaultPlan cur : candidates) {
             if (cur.getProduct().equals(product) &&
                     (cur.getRecurringBillingPeriod() == null || cur.getRecurringBillingPeriod().equals(period))) {
                 return cur;
@@ -86,6 +101,27 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
         return null;
     }
 
+    private Map<String, List<DefaultPlan>> getPlansByProductName() {
+        Map<String, List<DefaultPlan>> result = plansByProductName;
+        if (result == null) {
+            // Benign race: concurrent callers would build the same index
+            result = new HashMap<String, List<DefaultPlan>>();
+            for (final DefaultPlan cur : getPlans()) {
+                if (cur.getProduct() == null) {
+                    continue;
+                }
+                List<DefaultPlan> plansForProduct = result.get(cur.getProduct().getName());
+                if (plansForProduct == null) {
+                    plansForProduct = new ArrayList<DefaultPlan>(1);
+                    result.put(cur.getProduct().getName(), plansForProduct);
+                }
+                plansForProduct.add(cur);
+            }
+            plansByProductName = result;
+        }
+        return result;
+    }
+
     @Override
     public ValidationErrors validate(final StandaloneCatalog catalog, final ValidationErrors errors) {
         for (final DefaultPlan cur : getPlans()) {
@@ -123,6 +159,7 @@ public class DefaultPriceList extends ValidatingConfig<StandaloneCatalog> implem
 
     public DefaultPriceList setPlans(final DefaultPlan[] plans) {
         this.plans = plans;
+        this.plansByProductName = null;
         return this;
     }
 
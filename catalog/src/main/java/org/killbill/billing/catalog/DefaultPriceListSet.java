@@ -20,7 +20,9 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.api.BillingPeriod;
@@ -40,6 +42,9 @@ public class DefaultPriceListSet extends ValidatingConfig<StandaloneCatalog> {
     @XmlElement(required = false, name = "childPriceList")
     private DefaultPriceList[] childPriceLists = new DefaultPriceList[0];
 
+    // Child price lists by name, built lazily
+    private volatile Map<String, DefaultPriceList> childPriceListsByName;
+
     public DefaultPriceListSet() {
         if (childPriceLists == null) {
             childPriceLists = new DefaultPriceList[0];
@@ -72,12 +77,25 @@ public class DefaultPriceListSet extends ValidatingConfig<StandaloneCatalog> {
         if (defaultPricelist.getName().equals(priceListName)) {
             return defaultPricelist;
         }
-        for (final DefaultPriceList pl : childPriceLists) {
-            if (pl.getName().equals(priceListName)) {
-                return pl;
+        final DefaultPriceList pl = getChildPriceListsByName().get(priceListName);
+        if (pl == null) {
+            throw new CatalogApiException(ErrorCode.CAT_PRICE_LIST_NOT_FOUND, priceListName);
+        }
+        return pl;
+    }
+
+    private Map<String, DefaultPriceList> getChildPriceListsByName() {
+        Map<String, DefaultPriceList> result = childPriceListsByName;
+        if (result == null) {
+            result = new HashMap<String, DefaultPriceList>();
+            for (final DefaultPriceList pl : childPriceLists) {
+                if (!result.containsKey(pl.getName())) {
+                    result.put(pl.getName(), pl);
+                }
             }
+            childPriceListsByName = result;
         }
-        throw new CatalogApiException(ErrorCode.CAT_PRICE_LIST_NOT_FOUND, priceListName);
+        return result;
     }
 
     @Override
@@ -19,7 +19,9 @@ package org.killbill.billing.catalog;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -86,6 +88,10 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
     @XmlElement(name = "priceLists", required = true)
     private DefaultPriceListSet priceLists;
 
+    // Lookup indexes, built at initialization time (or lazily) and reset when the plans or products are updated
+    private volatile Map<String, DefaultPlan> plansByName;
+    private volatile Map<String, DefaultProduct> productsByName;
+
     public StandaloneCatalog() {
     }
 
@@ -178,12 +184,11 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         if (name == null || plans == null) {
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
         }
-        for (final DefaultPlan p : plans) {
-            if (p.getName().equals(name)) {
-                return p;
-            }
+        final DefaultPlan plan = getPlansByName().get(name);
+        if (plan == null) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PLAN, name);
+        return plan;
     }
 
     @Override
@@ -191,12 +196,11 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         if (name == null || products == null) {
             throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
         }
-        for (final DefaultProduct p : products) {
-            if (p.getName().equals(name)) {
-                return p;
-            }
+        final DefaultProduct product = getProductsByName().get(name);
+        if (product == null) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_SUCH_PRODUCT, name);
+        return product;
     }
 
     @Override
@@ -279,7 +283,52 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
         for (final DefaultPlan p : plans) {
             p.initialize(catalog, sourceURI);
         }
+        plansByName = buildPlansByName();
+        productsByName = buildProductsByName();
+    }
+
+    private Map<String, DefaultPlan> getPlansByName() {
+        Map<String, DefaultPlan> result = plansByName;
+        if (result == null) {
+            // Benign race: concurrent callers would build the same index
+            result = buildPlansByName();
+            plansByName = result;
+        }
+        return result;
+    }
+
+    private Map<String, DefaultProduct> getProductsByName() {
+        Map<String, DefaultProduct> result = productsByName;
+        if (result == null) {
+            result = buildProductsByName();
+            productsByName = result;
+        }
+        return result;
+    }
+
+    private Map<String, DefaultPlan> buildPlansByName() {
+        final Map<String, DefaultPlan> result = new HashMap<String, DefaultPlan>();
+        if (plans != null) {
+            for (final DefaultPlan p : plans) {
+                // First one wins, as in the original array lookup
+                if (!result.containsKey(p.getName())) {
+                    result.put(p.getName(), p);
+                }
+            }
+        }
+        return result;
+    }
 
+    private Map<String, DefaultProduct> buildProductsByName() {
+        final Map<String, DefaultProduct> result = new HashMap<String, DefaultProduct>();
+        if (products != null) {
+            for (final DefaultProduct p : products) {
+                if (!result.containsKey(p.getName())) {
+                    result.put(p.getName(), p);
+                }
+            }
+        }
+        return result;
     }
 
 
@@ -297,6 +346,7 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     protected StandaloneCatalog setProducts(final DefaultProduct[] products) {
         this.products = products;
+        this.productsByName = null;
         return this;
     }
 
@@ -312,6 +362,7 @@ public class StandaloneCatalog extends ValidatingConfig<StandaloneCatalog> imple
 
     protected StandaloneCatalog setPlans(final DefaultPlan[] plans) {
         this.plans = plans;
+        this.plansByName = null;
         return this;
     }
 
@@ -78,23 +78,24 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalog> implem
         return versions.get(indexOfVersionForDate(date.toDate()));
     }
 
-    private List<StandaloneCatalog> versionsBeforeDate(final Date date) throws CatalogApiException {
-        final List<StandaloneCatalog> result = new ArrayList<StandaloneCatalog>();
-        final int index = indexOfVersionForDate(date);
-        for (int i = 0; i <= index; i++) {
-            result.add(versions.get(i));
-        }
-        return result;
-    }
-
+    // Versions are sorted by effective date (see add): binary search for the last one effective strictly before that date
     private int indexOfVersionForDate(final Date date) throws CatalogApiException {
-        for (int i = versions.size() - 1; i >= 0; i--) {
-            final StandaloneCatalog c = versions.get(i);
-            if (c.getEffectiveDate().getTime() < date.getTime()) {
-                return i;
+        int low = 0;
+        int high = versions.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (versions.get(mid).getEffectiveDate().getTime() < date.getTime()) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
             }
         }
-        throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, date.toString());
+        if (result < 0) {
+            throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, date.toString());
+        }
+        return result;
     }
 
     private class PlanRequestWrapper {
@@ -130,13 +131,9 @@ public class VersionedCatalog extends ValidatingConfig<StandaloneCatalog> implem
                           final DateTime requestedDate,
                           final DateTime subscriptionStartDate)
             throws CatalogApiException {
-        final List<StandaloneCatalog> catalogs = versionsBeforeDate(requestedDate.toDate());
-        if (catalogs.size() == 0) {
-            throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, requestedDate.toDate().toString());
-        }
-
-        for (int i = catalogs.size() - 1; i >= 0; i--) { // Working backwards to find the latest applicable plan
-            final StandaloneCatalog c = catalogs.get(i);
+        final int lastIndex = indexOfVersionForDate(requestedDate.toDate());
+        for (int i = lastIndex; i >= 0; i--) { // Working backwards to find the latest applicable plan
+            final StandaloneCatalog c = versions.get(i);
             Plan plan = null;
             try {
                 plan = wrapper.findPlan(c);
@@ -16,6 +16,11 @@
 
 package org.killbill.billing.catalog.rules;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
@@ -35,9 +40,21 @@ import org.killbill.billing.catalog.api.PlanSpecifier;
 import org.killbill.xmlloader.ValidatingConfig;
 import org.killbill.xmlloader.ValidationErrors;
 
+import com.google.common.base.Optional;
+
 @XmlAccessorType(XmlAccessType.NONE)
 public class PlanRules extends ValidatingConfig<StandaloneCatalog> {
 
+    // Upper bound of the number of memoized rule results (the specifiers come from the subscriptions, but are not validated first)
+    private static final int MAX_MEMOIZED_RESULTS = 10000;
+
+    private static final String CREATE_ALIGNMENT = "createAlignment";
+    private static final String CANCEL_POLICY = "cancelPolicy";
+    private static final String BILLING_ALIGNMENT = "billingAlignment";
+    private static final String CHANGE_ALIGNMENT = "changeAlignment";
+    private static final String CHANGE_POLICY = "changePolicy";
+    private static final String PRICE_LIST = "priceList";
+
     @XmlElementWrapper(name = "changePolicy")
     @XmlElement(name = "changePolicyCase", required = false)
     private CaseChangePlanPolicy[] changeCase;
@@ -62,16 +79,34 @@ public class PlanRules extends ValidatingConfig<StandaloneCatalog> {
     @XmlElement(name = "priceListCase", required = false)
     private CasePriceList[] priceListCase;
 
+    // The rules results only depend on the specifiers and the catalog: memoize them (null results included) to avoid scanning the cases each time
+    private final ConcurrentMap<List<Object>, Optional<Object>> memoizedResults = new ConcurrentHashMap<List<Object>, Optional<Object>>();
+
     public PlanAlignmentCreate getPlanCreateAlignment(final PlanSpecifier specifier, final StandaloneCatalog catalog) throws CatalogApiException {
-        return Case.getResult(createAlignmentCase, specifier, catalog);
+        final List<Object> key = ruleKey(CREATE_ALIGNMENT, catalog, specifier);
+        final Optional<Object> memoized = memoizedResults.get(key);
+        if (memoized != null) {
+            return (PlanAlignmentCreate) memoized.orNull();
+        }
+        return memoize(key, Case.getResult(createAlignmentCase, specifier, catalog));
     }
 
     public BillingActionPolicy getPlanCancelPolicy(final PlanPhaseSpecifier planPhase, final StandaloneCatalog catalog) throws CatalogApiException {
-        return CasePhase.getResult(cancelCase, planPhase, catalog);
+        final List<Object> key = ruleKey(CANCEL_POLICY, catalog, planPhase, null);
+        final Optional<Object> memoized = memoizedResults.get(key);
+        if (memoized != null) {
+            return (BillingActionPolicy) memoized.orNull();
+        }
+        return memoize(key, CasePhase.getResult(cancelCase, planPhase, catalog));
     }
 
     public BillingAlignment getBillingAlignment(final PlanPhaseSpecifier planPhase, final StandaloneCatalog catalog) throws CatalogApiException {
-        return CasePhase.getResult(billingAlignmentCase, planPhase, catalog);
+        final List<Object> key = ruleKey(BILLING_ALIGNMENT, catalog, planPhase, null);
+        final Optional<Object> memoized = memoizedResults.get(key);
+        if (memoized != null) {
+            return (BillingAlignment) memoized.orNull();
+        }
+        return memoize(key, CasePhase.getResult(billingAlignmentCase, planPhase, catalog));
     }
 
     public PlanChangeResult planChange(final PlanPhaseSpecifier from, PlanSpecifier to, final StandaloneCatalog catalog) throws CatalogApiException {
@@ -95,7 +130,12 @@ public class PlanRules extends ValidatingConfig<StandaloneCatalog> {
 
     public PlanAlignmentChange getPlanChangeAlignment(final PlanPhaseSpecifier from,
                                                       final PlanSpecifier to, final StandaloneCatalog catalog) throws CatalogApiException {
-        return CaseChange.getResult(changeAlignmentCase, from, to, catalog);
+        final List<Object> key = ruleKey(CHANGE_ALIGNMENT, catalog, from, to);
+        final Optional<Object> memoized = memoizedResults.get(key);
+        if (memoized != null) {
+            return (PlanAlignmentChange) memoized.orNull();
+        }
+        return memoize(key, CaseChange.getResult(changeAlignmentCase, from, to, catalog));
     }
 
     public BillingActionPolicy getPlanChangePolicy(final PlanPhaseSpecifier from,
@@ -107,11 +147,23 @@ public class PlanRules extends ValidatingConfig<StandaloneCatalog> {
         }
         //Plan toPlan = catalog.findPlan()
 
-        return CaseChange.getResult(changeCase, from, to, catalog);
+        final List<Object> key = ruleKey(CHANGE_POLICY, catalog, from, to);
+        final Optional<Object> memoized = memoizedResults.get(key);
+        if (memoized != null) {
+            return (BillingActionPolicy) memoized.orNull();
+        }
+        return memoize(key, CaseChange.getResult(changeCase, from, to, catalog));
     }
 
     private DefaultPriceList findPriceList(final PlanSpecifier specifier, final StandaloneCatalog catalog) throws CatalogApiException {
-        DefaultPriceList result = Case.getResult(priceListCase, specifier, catalog);
+        final List<Object> key = ruleKey(PRICE_LIST, catalog, specifier);
+        final Optional<Object> memoized = memoizedResults.get(key);
+        DefaultPriceList result;
+        if (memoized != null) {
+            result = (DefaultPriceList) memoized.orNull();
+        } else {
+            result = memoize(key, Case.getResult(priceListCase, specifier, catalog));
+        }
         if (result == null) {
             result = catalog.findCurrentPriceList(specifier.getPriceListName());
         }
@@ -119,6 +171,37 @@ public class PlanRules extends ValidatingConfig<StandaloneCatalog> {
     }
 
 
+    private <T> T memoize(final List<Object> key, final T result) {
+        if (memoizedResults.size() < MAX_MEMOIZED_RESULTS) {
+            memoizedResults.put(key, Optional.<Object>fromNullable(result));
+        }
+        return result;
+    }
+
+    // The keys contain all the fields looked at by the cases (the catalog is compared by identity)
+    private List<Object> ruleKey(final String rule, final StandaloneCatalog catalog, final PlanSpecifier specifier) {
+        return Arrays.<Object>asList(rule,
+                                     catalog,
+                                     specifier.getProductName(),
+                                     specifier.getProductCategory(),
+                                     specifier.getBillingPeriod(),
+                                     specifier.getPriceListName());
+    }
+
+    private List<Object> ruleKey(final String rule, final StandaloneCatalog catalog, final PlanPhaseSpecifier from, final PlanSpecifier to) {
+        return Arrays.<Object>asList(rule,
+                                     catalog,
+                                     from.getProductName(),
+                                     from.getProductCategory(),
+                                     from.getBillingPeriod(),
+                                     from.getPriceListName(),
+                                     from.getPhaseType(),
+                                     to == null ? null : to.getProductName(),
+                                     to == null ? null : to.getProductCategory(),
+                                     to == null ? null : to.getBillingPeriod(),
+                                     to == null ? null : to.getPriceListName());
+    }
+
     @Override
     public ValidationErrors validate(final StandaloneCatalog catalog, final ValidationErrors errors) {
         //TODO: MDW - Validation: check that the plan change special case pairs are unique!
@@ -136,33 +219,39 @@ public class PlanRules extends ValidatingConfig<StandaloneCatalog> {
 
     protected PlanRules setChangeCase(final CaseChangePlanPolicy[] changeCase) {
         this.changeCase = changeCase;
+        memoizedResults.clear();
         return this;
     }
 
     protected PlanRules setChangeAlignmentCase(
             final CaseChangePlanAlignment[] changeAlignmentCase) {
         this.changeAlignmentCase = changeAlignmentCase;
+        memoizedResults.clear();
         return this;
     }
 
     protected PlanRules setCancelCase(final CaseCancelPolicy[] cancelCase) {
         this.cancelCase = cancelCase;
+        memoizedResults.clear();
         return this;
     }
 
     protected PlanRules setCreateAlignmentCase(final CaseCreateAlignment[] createAlignmentCase) {
         this.createAlignmentCase = createAlignmentCase;
+        memoizedResults.clear();
         return this;
     }
 
     protected PlanRules setBillingAlignmentCase(
             final CaseBillingAlignment[] billingAlignmentCase) {
         this.billingAlignmentCase = billingAlignmentCase;
+        memoizedResults.clear();
         return this;
     }
 
     protected PlanRules setPriceListCase(final CasePriceList[] priceListCase) {
         this.priceListCase = priceListCase;
+        memoizedResults.clear();
         return this;
     }
 
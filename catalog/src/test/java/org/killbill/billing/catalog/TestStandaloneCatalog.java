@@ -19,6 +19,7 @@ package org.killbill.billing.catalog;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.PhaseType;
 
@@ -45,4 +46,30 @@ public class TestStandaloneCatalog extends CatalogTestSuiteNoDB {
         Assert.assertEquals(cat.findCurrentPhase("TestPlan1-trial"), phaseTrial1);
         Assert.assertEquals(cat.findCurrentPhase("TestPlan2-trial"), phaseTrial2);
     }
+
+    @Test(groups = "fast")
+    public void testFindPlanAndProductAfterUpdate() throws CatalogApiException {
+        final DefaultPlan plan1 = new MockPlan().setName("TestPlan1");
+        final DefaultPlan plan2 = new MockPlan().setName("TestPlan2");
+        final DefaultProduct product1 = new MockProduct().setName("TestProduct1");
+        final DefaultProduct product2 = new MockProduct().setName("TestProduct2");
+
+        final MockCatalog cat = new MockCatalog();
+        cat.setPlans(new DefaultPlan[]{plan1});
+        cat.setProducts(new DefaultProduct[]{product1});
+        Assert.assertEquals(cat.findCurrentPlan("TestPlan1"), plan1);
+        Assert.assertEquals(cat.findCurrentProduct("TestProduct1"), product1);
+
+        // The lookups should reflect the new plans and products
+        cat.setPlans(new DefaultPlan[]{plan1, plan2});
+        cat.setProducts(new DefaultProduct[]{product2});
+        Assert.assertEquals(cat.findCurrentPlan("TestPlan2"), plan2);
+        Assert.assertEquals(cat.findCurrentProduct("TestProduct2"), product2);
+        try {
+            cat.findCurrentProduct("TestProduct1");
+            Assert.fail("TestProduct1 has been removed");
+        } catch (final CatalogApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.CAT_NO_SUCH_PRODUCT.getCode());
+        }
+    }
 }
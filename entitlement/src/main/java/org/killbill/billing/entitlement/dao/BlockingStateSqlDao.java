@@ -37,6 +37,7 @@ import org.killbill.billing.entitlement.api.BlockingState;
 import org.killbill.billing.entitlement.api.BlockingStateType;
 import org.killbill.billing.junction.DefaultBlockingState;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.dao.MapperBase;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
@@ -64,7 +65,7 @@ public interface BlockingStateSqlDao extends EntitySqlDao<BlockingStateModelDao,
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void unactiveEvent(@Bind("id") String id,
+    public void unactiveEvent(@BindUUID("id") String id,
                               @BindBean final InternalCallContext context);
 
     public class BlockingHistorySqlMapper extends MapperBase implements ResultSetMapper<BlockingStateModelDao> {
@@ -85,8 +86,8 @@ public interface BlockingStateSqlDao extends EntitySqlDao<BlockingStateModelDao,
             final DateTime createdDate;
             final BlockingStateType type;
 
-            id = UUID.fromString(r.getString("id"));
-            blockableId = UUID.fromString(r.getString("blockable_id"));
+            id = getUUID(r, "id");
+            blockableId = getUUID(r, "blockable_id");
             stateName = r.getString("state") == null ? DefaultBlockingState.CLEAR_STATE_NAME : r.getString("state");
             service = r.getString("service");
             type = BlockingStateType.valueOf(r.getString("type"));
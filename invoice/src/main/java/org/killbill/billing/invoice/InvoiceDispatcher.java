@@ -70,9 +70,12 @@ import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
 import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoRequestCache;
 import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.billing.util.timezone.DateAndTimeZoneContext;
 import org.killbill.bus.api.PersistentBus;
@@ -102,6 +105,7 @@ public class InvoiceDispatcher {
     private final SubscriptionBaseInternalApi subscriptionApi;
     private final InvoiceDao invoiceDao;
     private final NonEntityDao nonEntityDao;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
     private final InvoiceNotifier invoiceNotifier;
     private final GlobalLocker locker;
     private final PersistentBus eventBus;
@@ -115,6 +119,7 @@ public class InvoiceDispatcher {
                              final SubscriptionBaseInternalApi SubscriptionApi,
                              final InvoiceDao invoiceDao,
                              final NonEntityDao nonEntityDao,
+                             final CacheControllerDispatcher cacheControllerDispatcher,
                              final InvoiceNotifier invoiceNotifier,
                              final GlobalLocker locker,
                              final PersistentBus eventBus,
@@ -126,6 +131,7 @@ public class InvoiceDispatcher {
         this.accountApi = accountApi;
         this.invoiceDao = invoiceDao;
         this.nonEntityDao = nonEntityDao;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.invoiceNotifier = invoiceNotifier;
         this.locker = locker;
         this.eventBus = eventBus;
@@ -156,9 +162,17 @@ public class InvoiceDispatcher {
     public Invoice processAccount(final UUID accountId, final DateTime targetDate,
                                   final boolean dryRun, final InternalCallContext context) throws InvoiceApiException {
         GlobalLock lock = null;
+        boolean requestCacheOpened = false;
         try {
             lock = locker.lockWithNumberOfTries(LockerType.ACCOUNT_FOR_INVOICE_PAYMENTS.toString(), accountId.toString(), NB_LOCK_TRY);
 
+            // The account, subscriptions, tags, etc. are read by several modules during the run (no-op unless enabled).
+            // Only memoize what is read under the lock: if a scope is already open (API request), drop what it read before.
+            requestCacheOpened = EntitySqlDaoRequestCache.open();
+            if (!requestCacheOpened) {
+                EntitySqlDaoRequestCache.invalidate();
+            }
+
             return processAccountWithLock(accountId, targetDate, dryRun, context);
         } catch (final LockFailedException e) {
             // Not good!
@@ -168,6 +182,9 @@ public class InvoiceDispatcher {
             if (lock != null) {
                 lock.release();
             }
+            if (requestCacheOpened) {
+                EntitySqlDaoRequestCache.close();
+            }
         }
         return null;
     }
@@ -301,11 +318,11 @@ public class InvoiceDispatcher {
     }
 
     private TenantContext buildTenantContext(final InternalTenantContext context) {
-        return context.toTenantContext(nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT));
+        return context.toTenantContext(nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT, cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID)));
     }
 
     private CallContext buildCallContext(final InternalCallContext context) {
-        return context.toCallContext(nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT));
+        return context.toCallContext(nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT, cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID)));
     }
 
     private List<InvoicePluginApi> getInvoicePlugins() {
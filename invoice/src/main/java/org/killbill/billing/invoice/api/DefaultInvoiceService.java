@@ -18,25 +18,41 @@
 
 package org.killbill.billing.invoice.api;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
+import org.killbill.billing.invoice.glue.DefaultInvoiceModule;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueAlreadyExists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 
 public class DefaultInvoiceService implements InvoiceService {
 
     public static final String INVOICE_SERVICE_NAME = "invoice-service";
+
+    // Time given to the in-flight invoice runs to merge their subscription trees on shutdown
+    private static final long INVOICE_TREE_EXECUTOR_TERMINATION_TIMEOUT_SEC = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultInvoiceService.class);
+
     private final NextBillingDateNotifier dateNotifier;
     private final InvoiceListener invoiceListener;
     private final InvoiceTagHandler tagHandler;
     private final PersistentBus eventBus;
 
+    private ExecutorService invoiceTreeExecutor;
+
     @Inject
     public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final PersistentBus eventBus, final NextBillingDateNotifier dateNotifier) {
         this.invoiceListener = invoiceListener;
@@ -45,6 +61,12 @@ public class DefaultInvoiceService implements InvoiceService {
         this.dateNotifier = dateNotifier;
     }
 
+    // The executor is only bound when subscription trees are merged in parallel
+    @com.google.inject.Inject(optional = true)
+    public void setInvoiceTreeExecutor(@Named(DefaultInvoiceModule.INVOICE_TREE_EXECUTOR_NAMED) final ExecutorService invoiceTreeExecutor) {
+        this.invoiceTreeExecutor = invoiceTreeExecutor;
+    }
+
     @Override
     public String getName() {
         return INVOICE_SERVICE_NAME;
@@ -75,5 +97,23 @@ public class DefaultInvoiceService implements InvoiceService {
             throw new RuntimeException("Unable to unregister to the EventBus!", e);
         }
         dateNotifier.stop();
+        stopInvoiceTreeExecutor();
+    }
+
+    private void stopInvoiceTreeExecutor() {
+        if (invoiceTreeExecutor == null) {
+            return;
+        }
+
+        invoiceTreeExecutor.shutdown();
+        try {
+            if (!invoiceTreeExecutor.awaitTermination(INVOICE_TREE_EXECUTOR_TERMINATION_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                log.warn("Timed out waiting for the invoice tree threads to terminate");
+                invoiceTreeExecutor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            invoiceTreeExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 }
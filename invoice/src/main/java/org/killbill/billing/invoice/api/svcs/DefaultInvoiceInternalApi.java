@@ -151,4 +151,9 @@ public class DefaultInvoiceInternalApi implements InvoiceInternalApi {
         dao.consumeExstingCBAOnAccountWithUnpaidInvoices(accountId, context);
     }
 
+    @Override
+    public boolean refreshAccountBalance(final UUID accountId, final InternalCallContext context) {
+        return dao.refreshAccountBalance(accountId, context);
+    }
+
 }
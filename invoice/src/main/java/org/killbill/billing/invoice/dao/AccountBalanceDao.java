@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.dao.DuplicateKeys;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+/**
+ * Maintains the invoice_account_balances summary rows, which hold the balance and CBA of each account so that
+ * they can be read without loading all the invoices, items and payments of the account.
+ * <p/>
+ * Write transactions (see DefaultInvoiceDao) add the change of balance of the invoices they touched (see AccountBalanceDelta),
+ * computed per invoice as the balance of an invoice isn't a simple sum of its items (e.g. credits on their own invoice).
+ * The summary is only computed from all the invoices the first time it is stored, and when it is refreshed.
+ * <p/>
+ * Writes made while the materialized balance is disabled don't touch the summary, which goes stale: refresh it
+ * (see refreshAccountBalanceFromTransaction) for each account written to in the meantime before enabling the feature again.
+ */
+public class AccountBalanceDao {
+
+    private static final String ACCOUNT_BALANCE_SAVEPOINT = "invoice_account_balances";
+
+    private final InvoiceDaoHelper invoiceDaoHelper;
+
+    public AccountBalanceDao() {
+        this.invoiceDaoHelper = new InvoiceDaoHelper();
+    }
+
+    /**
+     * @return the materialized balance of the account, or the one computed from its invoices if it hasn't been materialized yet
+     */
+    public AccountBalanceModelDao getAccountBalanceFromTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                                                   final InternalTenantContext context) {
+        if (context.getAccountRecordId() != null) {
+            final AccountBalanceModelDao accountBalance = entitySqlDaoWrapperFactory.transmogrify(AccountBalanceSqlDao.class).getAccountBalance(context);
+            if (accountBalance != null) {
+                return accountBalance;
+            }
+        }
+        return computeAccountBalance(invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context));
+    }
+
+    /**
+     * Add the change of balance made by the transaction to the materialized balance of the account.
+     */
+    public void applyDeltaFromTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                          final AccountBalanceDelta accountBalanceDelta,
+                                          final InternalCallContext context) {
+        if (context.getAccountRecordId() == null) {
+            return;
+        }
+
+        final AccountBalanceModelDao delta = accountBalanceDelta.computeDeltaFromTransaction(entitySqlDaoWrapperFactory, context);
+        if (delta == null || (delta.getBalance().compareTo(BigDecimal.ZERO) == 0 && delta.getCba().compareTo(BigDecimal.ZERO) == 0)) {
+            return;
+        }
+
+        final AccountBalanceSqlDao accountBalanceSqlDao = entitySqlDaoWrapperFactory.transmogrify(AccountBalanceSqlDao.class);
+        if (accountBalanceSqlDao.applyDelta(delta, context) > 0) {
+            return;
+        }
+
+        // First write since the balance is materialized: store the balance computed from all the invoices, including this transaction's writes.
+        // If a concurrent transaction stored it first (without our writes), add our change on top of it instead.
+        final AccountBalanceModelDao computedAccountBalance = computeAccountBalance(invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context));
+        if (!createIfAbsent(accountBalanceSqlDao, computedAccountBalance, context) && accountBalanceSqlDao.applyDelta(delta, context) == 0) {
+            throw new IllegalStateException("Unable to store the balance for accountRecordId " + context.getAccountRecordId());
+        }
+    }
+
+    /**
+     * Recompute the balance of the account from its invoices and store it.
+     *
+     * @return true if the materialized balance was missing or out of date
+     */
+    public boolean refreshAccountBalanceFromTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                                       final InternalCallContext context) {
+        if (context.getAccountRecordId() == null) {
+            return false;
+        }
+
+        final AccountBalanceModelDao computedAccountBalance = computeAccountBalance(invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context));
+
+        final AccountBalanceSqlDao accountBalanceSqlDao = entitySqlDaoWrapperFactory.transmogrify(AccountBalanceSqlDao.class);
+        final AccountBalanceModelDao storedAccountBalance = accountBalanceSqlDao.getAccountBalance(context);
+        if (storedAccountBalance == null) {
+            // If a concurrent write stored it first, it is up to date
+            createIfAbsent(accountBalanceSqlDao, computedAccountBalance, context);
+            return true;
+        } else if (!computedAccountBalance.isSameAs(storedAccountBalance)) {
+            accountBalanceSqlDao.update(computedAccountBalance, context);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    // The unique index on the account guards against concurrent first writes. The savepoint keeps the transaction usable after
+    // the failed insert (required by PostgreSQL).
+    private boolean createIfAbsent(final AccountBalanceSqlDao accountBalanceSqlDao, final AccountBalanceModelDao accountBalance, final InternalCallContext context) {
+        accountBalanceSqlDao.checkpoint(ACCOUNT_BALANCE_SAVEPOINT);
+        try {
+            accountBalanceSqlDao.create(accountBalance, context);
+            accountBalanceSqlDao.release(ACCOUNT_BALANCE_SAVEPOINT);
+            return true;
+        } catch (final UnableToExecuteStatementException e) {
+            if (!DuplicateKeys.isDuplicateKey(e)) {
+                throw e;
+            }
+            accountBalanceSqlDao.rollback(ACCOUNT_BALANCE_SAVEPOINT);
+            return false;
+        }
+    }
+
+    public AccountBalanceModelDao computeAccountBalance(final List<InvoiceModelDao> invoices) {
+        BigDecimal accountBalance = BigDecimal.ZERO;
+        BigDecimal cba = BigDecimal.ZERO;
+        Currency currency = null;
+        for (final InvoiceModelDao cur : invoices) {
+            accountBalance = accountBalance.add(InvoiceModelDaoHelper.getBalance(cur));
+            cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
+            if (currency == null) {
+                currency = cur.getCurrency();
+            }
+        }
+        return new AccountBalanceModelDao(accountBalance.subtract(cba), cba, currency);
+    }
+}
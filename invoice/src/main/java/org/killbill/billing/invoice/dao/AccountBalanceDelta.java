@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tracks the invoices written to in a transaction, to update the materialized account balance with the change of
+ * their balance and CBA (see AccountBalanceDao#applyDeltaFromTransaction) instead of recomputing it from all the invoices.
+ * <p/>
+ * Each invoice has to be registered before its first write in the transaction: only that first snapshot is kept.
+ */
+public class AccountBalanceDelta {
+
+    private final boolean enabled;
+    private final AccountBalanceDao accountBalanceDao;
+    private final InvoiceDaoHelper invoiceDaoHelper;
+    // Balance and CBA of each invoice, before the transaction wrote to it
+    private final Map<UUID, AccountBalanceModelDao> invoiceBalancesBeforeWrite = new LinkedHashMap<UUID, AccountBalanceModelDao>();
+
+    public AccountBalanceDelta(final boolean enabled, final AccountBalanceDao accountBalanceDao, final InvoiceDaoHelper invoiceDaoHelper) {
+        this.enabled = enabled;
+        this.accountBalanceDao = accountBalanceDao;
+        this.invoiceDaoHelper = invoiceDaoHelper;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param invoiceId the invoice about to be written to (it may not exist yet)
+     */
+    public void beforeWrite(@Nullable final UUID invoiceId,
+                            final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                            final InternalTenantContext context) {
+        if (!enabled || invoiceId == null || invoiceBalancesBeforeWrite.containsKey(invoiceId)) {
+            return;
+        }
+        invoiceBalancesBeforeWrite.put(invoiceId, computeInvoiceBalance(getInvoice(invoiceId, entitySqlDaoWrapperFactory, context)));
+    }
+
+    /**
+     * @param invoice the invoice about to be written to, with its items and payments as currently stored
+     */
+    public void beforeWrite(final InvoiceModelDao invoice) {
+        if (!enabled || invoiceBalancesBeforeWrite.containsKey(invoice.getId())) {
+            return;
+        }
+        invoiceBalancesBeforeWrite.put(invoice.getId(), computeInvoiceBalance(invoice));
+    }
+
+    /**
+     * @return the change of the account balance and CBA since the invoices were registered, null if nothing was written
+     */
+    public AccountBalanceModelDao computeDeltaFromTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                                              final InternalTenantContext context) {
+        if (!enabled || invoiceBalancesBeforeWrite.isEmpty()) {
+            return null;
+        }
+
+        BigDecimal balanceDelta = BigDecimal.ZERO;
+        BigDecimal cbaDelta = BigDecimal.ZERO;
+        Currency currency = null;
+        for (final UUID invoiceId : invoiceBalancesBeforeWrite.keySet()) {
+            final AccountBalanceModelDao before = invoiceBalancesBeforeWrite.get(invoiceId);
+            final AccountBalanceModelDao after = computeInvoiceBalance(getInvoice(invoiceId, entitySqlDaoWrapperFactory, context));
+            balanceDelta = balanceDelta.add(after.getBalance()).subtract(before.getBalance());
+            cbaDelta = cbaDelta.add(after.getCba()).subtract(before.getCba());
+            if (currency == null) {
+                currency = after.getCurrency();
+            }
+        }
+        return new AccountBalanceModelDao(balanceDelta, cbaDelta, currency);
+    }
+
+    private InvoiceModelDao getInvoice(final UUID invoiceId, final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        final InvoiceModelDao invoice = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class).getById(invoiceId.toString(), context);
+        if (invoice != null) {
+            invoiceDaoHelper.populateChildren(invoice, entitySqlDaoWrapperFactory, context);
+        }
+        return invoice;
+    }
+
+    private AccountBalanceModelDao computeInvoiceBalance(@Nullable final InvoiceModelDao invoice) {
+        return accountBalanceDao.computeAccountBalance(invoice == null ? ImmutableList.<InvoiceModelDao>of() : ImmutableList.<InvoiceModelDao>of(invoice));
+    }
+}
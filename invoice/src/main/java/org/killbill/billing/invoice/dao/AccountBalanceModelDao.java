@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.currency.KillBillMoney;
+
+/**
+ * Balance and account credit (CBA) of an account, as computed from all its invoices, items and payments.
+ * <p/>
+ * The currency is the one of the invoices (null if the account doesn't have any), and is only used to round
+ * the stored amounts the same way the invoice computations do.
+ */
+public class AccountBalanceModelDao {
+
+    private BigDecimal balance;
+    private BigDecimal cba;
+    private Currency currency;
+
+    public AccountBalanceModelDao() { /* For the DAO mapper */ }
+
+    public AccountBalanceModelDao(final BigDecimal balance, final BigDecimal cba, @Nullable final Currency currency) {
+        this.balance = balance;
+        this.cba = cba;
+        this.currency = currency;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public BigDecimal getCba() {
+        return cba;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setBalance(final BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public void setCba(final BigDecimal cba) {
+        this.cba = cba;
+    }
+
+    public void setCurrency(final Currency currency) {
+        this.currency = currency;
+    }
+
+    public BigDecimal getRoundedBalance() {
+        return round(balance);
+    }
+
+    public BigDecimal getRoundedCba() {
+        return round(cba);
+    }
+
+    private BigDecimal round(final BigDecimal amount) {
+        // Without any invoice, the amounts are zero
+        return currency == null ? BigDecimal.ZERO : KillBillMoney.of(amount, currency);
+    }
+
+    public boolean isSameAs(@Nullable final AccountBalanceModelDao other) {
+        return other != null &&
+               getRoundedBalance().compareTo(other.getRoundedBalance()) == 0 &&
+               getRoundedCba().compareTo(other.getRoundedCba()) == 0 &&
+               currency == other.currency;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AccountBalanceModelDao{");
+        sb.append("balance=").append(balance);
+        sb.append(", cba=").append(cba);
+        sb.append(", currency=").append(currency);
+        sb.append('}');
+        return sb.toString();
+    }
+}
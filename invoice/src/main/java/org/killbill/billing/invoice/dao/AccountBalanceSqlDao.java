@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.util.callcontext.InternalTenantContextBinder;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+@UseStringTemplate3StatementLocator()
+@RegisterMapper(AccountBalanceSqlDao.AccountBalanceModelDaoMapper.class)
+public interface AccountBalanceSqlDao extends Transactional<AccountBalanceSqlDao> {
+
+    @SqlQuery
+    public AccountBalanceModelDao getAccountBalance(@InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlUpdate
+    public int update(@BindBean AccountBalanceModelDao accountBalance,
+                      @InternalTenantContextBinder final InternalCallContext context);
+
+    /**
+     * Atomically add the balance and CBA of the argument to the stored ones.
+     */
+    @SqlUpdate
+    public int applyDelta(@BindBean AccountBalanceModelDao accountBalanceDelta,
+                          @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlUpdate
+    public void create(@BindBean AccountBalanceModelDao accountBalance,
+                       @InternalTenantContextBinder final InternalCallContext context);
+
+    class AccountBalanceModelDaoMapper implements ResultSetMapper<AccountBalanceModelDao> {
+
+        @Override
+        public AccountBalanceModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            final String currency = r.getString("currency");
+            return new AccountBalanceModelDao(r.getBigDecimal("balance"),
+                                              r.getBigDecimal("cba"),
+                                              currency == null ? null : Currency.valueOf(currency));
+        }
+    }
+}
@@ -55,14 +55,15 @@ public class CBADao {
         return cba;
     }
 
-    public void doCBAComplexity(final UUID accountId, final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
+    public void doCBAComplexity(final UUID accountId, final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                final AccountBalanceDelta accountBalanceDelta, final InternalCallContext context) throws EntityPersistenceException, InvoiceApiException {
 
         List<InvoiceModelDao> invoiceItemModelDaos = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
         for (InvoiceModelDao cur : invoiceItemModelDaos) {
-            addCBAIfNeeded(entitySqlDaoWrapperFactory, cur, context);
+            addCBAIfNeeded(entitySqlDaoWrapperFactory, cur, accountBalanceDelta, context);
         }
         invoiceItemModelDaos = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(entitySqlDaoWrapperFactory, context);
-        useExistingCBAFromTransaction(invoiceItemModelDaos, entitySqlDaoWrapperFactory, context);
+        useExistingCBAFromTransaction(invoiceItemModelDaos, entitySqlDaoWrapperFactory, accountBalanceDelta, context);
     }
 
     /**
@@ -70,10 +71,12 @@ public class CBADao {
      *
      * @param entitySqlDaoWrapperFactory the EntitySqlDaoWrapperFactory from the current transaction
      * @param invoice                    the invoice to adjust
+     * @param accountBalanceDelta        the invoices written to in the current transaction
      * @param context                    the call callcontext
      */
     private void addCBAIfNeeded(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
                                 final InvoiceModelDao invoice,
+                                final AccountBalanceDelta accountBalanceDelta,
                                 final InternalCallContext context) throws EntityPersistenceException {
 
         // If invoice balance becomes negative we add some CBA item
@@ -81,12 +84,14 @@ public class CBADao {
         if (balance.compareTo(BigDecimal.ZERO) < 0) {
             final InvoiceItemSqlDao transInvoiceItemDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
             final InvoiceItemModelDao cbaAdjItem = new InvoiceItemModelDao(new CreditBalanceAdjInvoiceItem(invoice.getId(), invoice.getAccountId(), context.getCreatedDate().toLocalDate(), balance.negate(), invoice.getCurrency()));
+            accountBalanceDelta.beforeWrite(invoice);
             transInvoiceItemDao.create(cbaAdjItem, context);
         }
     }
 
 
-    private void useExistingCBAFromTransaction(final List<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory, final InternalCallContext context) throws InvoiceApiException, EntityPersistenceException {
+    private void useExistingCBAFromTransaction(final List<InvoiceModelDao> invoices, final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                               final AccountBalanceDelta accountBalanceDelta, final InternalCallContext context) throws InvoiceApiException, EntityPersistenceException {
 
         final BigDecimal accountCBA = getAccountCBAFromTransaction(invoices);
         if (accountCBA.compareTo(BigDecimal.ZERO) <= 0) {
@@ -111,6 +116,7 @@ public class CBADao {
             final InvoiceItemModelDao cbaAdjItem = new InvoiceItemModelDao(new CreditBalanceAdjInvoiceItem(cur.getId(), cur.getAccountId(), context.getCreatedDate().toLocalDate(), cbaToApplyOnInvoice.negate(), cur.getCurrency()));
 
             final InvoiceItemSqlDao transInvoiceItemDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
+            accountBalanceDelta.beforeWrite(cur);
             transInvoiceItemDao.create(cbaAdjItem, context);
 
             if (remainingAccountCBA.compareTo(BigDecimal.ZERO) <= 0) {
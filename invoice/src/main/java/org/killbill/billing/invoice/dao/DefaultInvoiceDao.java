@@ -42,6 +42,8 @@ import org.killbill.billing.invoice.api.user.DefaultInvoiceAdjustmentEvent;
 import org.killbill.billing.invoice.notification.NextBillingDatePoster;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
@@ -53,10 +55,10 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.killbill.clock.Clock;
-import org.skife.jdbi.v2.IDBI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
@@ -83,21 +85,27 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     private final InternalCallContextFactory internalCallContextFactory;
     private final InvoiceDaoHelper invoiceDaoHelper;
     private final CBADao cbaDao;
+    private final AccountBalanceDao accountBalanceDao;
+    private final InvoiceConfig invoiceConfig;
 
     @Inject
-    public DefaultInvoiceDao(final IDBI dbi,
+    public DefaultInvoiceDao(final DBRouter dbRouter,
                              final NextBillingDatePoster nextBillingDatePoster,
                              final PersistentBus eventBus,
                              final Clock clock,
                              final CacheControllerDispatcher cacheControllerDispatcher,
                              final NonEntityDao nonEntityDao,
-                             final InternalCallContextFactory internalCallContextFactory) {
-        super(new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao), InvoiceSqlDao.class);
+                             final InternalCallContextFactory internalCallContextFactory,
+                             final InvoiceConfig invoiceConfig,
+                             final MetricRegistry metricRegistry) {
+        super(new EntitySqlDaoTransactionalJdbiWrapper(dbRouter, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry), InvoiceSqlDao.class);
         this.nextBillingDatePoster = nextBillingDatePoster;
         this.eventBus = eventBus;
         this.internalCallContextFactory = internalCallContextFactory;
         this.invoiceDaoHelper = new InvoiceDaoHelper();
         this.cbaDao = new CBADao();
+        this.accountBalanceDao = new AccountBalanceDao();
+        this.invoiceConfig = invoiceConfig;
     }
 
     @Override
@@ -215,19 +223,26 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                 final InvoiceModelDao currentInvoice = transactional.getById(invoice.getId().toString(), context);
                 if (currentInvoice == null) {
+                    // Items and payments can target existing invoices
+                    final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                    for (final InvoiceItemModelDao invoiceItem : invoiceItems) {
+                        accountBalanceDelta.beforeWrite(invoiceItem.getInvoiceId(), entitySqlDaoWrapperFactory, context);
+                    }
+                    for (final InvoicePaymentModelDao invoicePayment : invoicePayments) {
+                        accountBalanceDelta.beforeWrite(invoicePayment.getInvoiceId(), entitySqlDaoWrapperFactory, context);
+                    }
+
                     // We only want to insert that invoice if there are real invoiceItems associated to it -- if not, this is just
                     // a shell invoice and we only need to insert the invoiceItems -- for the already existing invoices
                     if (isRealInvoice) {
                         transactional.create(invoice, context);
                     }
 
-                    // Create the invoice items
+                    // Create the invoice items (audit and history rows are inserted in bulk as well)
                     final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
-                    for (final InvoiceItemModelDao invoiceItemModelDao : invoiceItems) {
-                        transInvoiceItemSqlDao.create(invoiceItemModelDao, context);
-                    }
+                    transInvoiceItemSqlDao.batchCreateFromTransaction(invoiceItems, context);
 
-                    cbaDao.doCBAComplexity(invoice.getAccountId(), entitySqlDaoWrapperFactory, context);
+                    cbaDao.doCBAComplexity(invoice.getAccountId(), entitySqlDaoWrapperFactory, accountBalanceDelta, context);
 
                     notifyOfFutureBillingEvents(entitySqlDaoWrapperFactory, invoice.getAccountId(), callbackDateTimePerSubscriptions, context.getUserToken());
 
@@ -235,6 +250,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     final InvoicePaymentSqlDao invoicePaymentSqlDao = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
                     invoicePaymentSqlDao.batchCreateFromTransaction(invoicePayments, context);
 
+                    applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
                 }
                 return null;
             }
@@ -282,6 +298,14 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                           return Iterators.<InvoiceModelDao>emptyIterator();
                                                       }
                                                   }
+
+                                                  @Override
+                                                  public Iterator<InvoiceModelDao> buildAfter(final InvoiceSqlDao invoiceSqlDao, final String lastId, final Long limit, final InternalTenantContext context) {
+                                                      // Searches by invoice number yield a single result
+                                                      return invoiceNumber != null ?
+                                                             Iterators.<InvoiceModelDao>emptyIterator() :
+                                                             invoiceSqlDao.searchAfter(searchKey, String.format("%%%s%%", searchKey), lastId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -294,6 +318,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<BigDecimal>() {
             @Override
             public BigDecimal inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                if (invoiceConfig.isMaterializedAccountBalanceEnabled()) {
+                    return accountBalanceDao.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context).getBalance();
+                }
+
                 BigDecimal cba = BigDecimal.ZERO;
 
                 BigDecimal accountBalance = BigDecimal.ZERO;
@@ -312,11 +340,28 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<BigDecimal>() {
             @Override
             public BigDecimal inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                if (invoiceConfig.isMaterializedAccountBalanceEnabled()) {
+                    return accountBalanceDao.getAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context).getCba();
+                }
                 return cbaDao.getAccountCBAFromTransaction(accountId, entitySqlDaoWrapperFactory, context);
             }
         });
     }
 
+    @Override
+    public boolean refreshAccountBalance(final UUID accountId, final InternalCallContext context) {
+        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Boolean>() {
+            @Override
+            public Boolean inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                final boolean wasOutOfDate = accountBalanceDao.refreshAccountBalanceFromTransaction(entitySqlDaoWrapperFactory, context);
+                if (wasOutOfDate && invoiceConfig.isMaterializedAccountBalanceEnabled()) {
+                    log.warn("Materialized balance for accountId {} was missing or out of date and has been recomputed", accountId);
+                }
+                return wasOutOfDate;
+            }
+        });
+    }
+
     @Override
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountId(final UUID accountId, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<List<InvoiceModelDao>>() {
@@ -397,6 +442,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     return existingRefund;
                 }
 
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                accountBalanceDelta.beforeWrite(payment.getInvoiceId(), entitySqlDaoWrapperFactory, context);
+
                 final InvoicePaymentModelDao refund = new InvoicePaymentModelDao(UUID.randomUUID(), context.getCreatedDate(), InvoicePaymentType.REFUND,
                                                                                  payment.getInvoiceId(), paymentId,
                                                                                  context.getCreatedDate(), requestedPositiveAmount.negate(),
@@ -438,7 +486,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
                 }
 
-                cbaDao.doCBAComplexity(invoice.getAccountId(), entitySqlDaoWrapperFactory, context);
+                cbaDao.doCBAComplexity(invoice.getAccountId(), entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
 
                 // Notify the bus since the balance of the invoice changed
                 notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, invoice.getId(), invoice.getAccountId(), context.getUserToken(), context);
@@ -468,6 +517,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 if (payment == null) {
                     throw new InvoiceApiException(ErrorCode.INVOICE_PAYMENT_NOT_FOUND, invoicePaymentId.toString());
                 }
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                accountBalanceDelta.beforeWrite(payment.getInvoiceId(), entitySqlDaoWrapperFactory, context);
+
                 final InvoicePaymentModelDao chargeBack = new InvoicePaymentModelDao(UUID.randomUUID(), context.getCreatedDate(), InvoicePaymentType.CHARGED_BACK,
                                                                                      payment.getInvoiceId(), payment.getPaymentId(), context.getCreatedDate(),
                                                                                      requestedChargedBackAmount.negate(), payment.getCurrency(), payment.getProcessedCurrency(),
@@ -477,7 +529,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 // Notify the bus since the balance of the invoice changed
                 final UUID accountId = transactional.getAccountIdFromInvoicePaymentId(chargeBack.getId().toString(), context);
 
-                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, context);
+                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
 
                 notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, payment.getInvoiceId(), accountId, context.getUserToken(), context);
 
@@ -566,7 +619,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                accountBalanceDelta.beforeWrite(invoicePayment.getInvoiceId(), entitySqlDaoWrapperFactory, context);
+
                 entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class).create(invoicePayment, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
                 return null;
             }
         });
@@ -587,6 +644,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
                 final List<InvoiceItemModelDao> createdExternalCharges = new LinkedList<InvoiceItemModelDao>();
                 final Collection<UUID> changedInvoices = new HashSet<UUID>();
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
                 for (final InvoiceItemModelDao charge : charges) {
                     UUID invoiceIdForExternalCharge = charge.getInvoiceId();
                     // Create an invoice for that external charge if it doesn't exist
@@ -600,6 +658,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                         invoiceIdForExternalCharge = newInvoicesForExternalCharges.get(currency).getId();
                     }
 
+                    accountBalanceDelta.beforeWrite(invoiceIdForExternalCharge, entitySqlDaoWrapperFactory, context);
                     final InvoiceItemModelDao externalCharge = new InvoiceItemModelDao(context.getCreatedDate(),
                                                                                        InvoiceItemType.EXTERNAL_CHARGE,
                                                                                        invoiceIdForExternalCharge,
@@ -622,7 +681,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     changedInvoices.add(invoiceIdForExternalCharge);
                 }
 
-                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, context);
+                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
 
                 // Notify the bus since the balance of the invoice changed
                 // TODO should we post an InvoiceCreationInternalEvent event instead? Note! This will trigger a payment (see InvoiceHandler)
@@ -666,6 +726,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     invoiceIdForCredit = invoiceForCredit.getId();
                 }
 
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                accountBalanceDelta.beforeWrite(invoiceIdForCredit, entitySqlDaoWrapperFactory, context);
+
                 // Note! The amount is negated here!
                 final InvoiceItemModelDao credit = new InvoiceItemModelDao(context.getCreatedDate(), InvoiceItemType.CREDIT_ADJ, invoiceIdForCredit,
                                                                            accountId, null, null, null, null, null, null, effectiveDate,
@@ -673,7 +736,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                            currency, null);
                 invoiceDaoHelper.insertItem(entitySqlDaoWrapperFactory, credit, context);
 
-                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, context);
+                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
 
                 // Notify the bus since the balance of the invoice changed
                 notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, invoiceId, accountId, context.getUserToken(), context);
@@ -692,9 +756,12 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             public InvoiceItemModelDao inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
                 final InvoiceItemModelDao invoiceItemAdjustment = invoiceDaoHelper.createAdjustmentItem(entitySqlDaoWrapperFactory, invoiceId, invoiceItemId, positiveAdjAmount,
                                                                                                         currency, effectiveDate, context);
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                accountBalanceDelta.beforeWrite(invoiceItemAdjustment.getInvoiceId(), entitySqlDaoWrapperFactory, context);
                 invoiceDaoHelper.insertItem(entitySqlDaoWrapperFactory, invoiceItemAdjustment, context);
 
-                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, context);
+                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
 
                 notifyBusOfInvoiceAdjustment(entitySqlDaoWrapperFactory, invoiceId, accountId, context.getUserToken(), context);
 
@@ -723,6 +790,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     throw new InvoiceApiException(ErrorCode.INVOICE_ITEM_NOT_FOUND, invoiceItemId);
                 }
 
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                accountBalanceDelta.beforeWrite(invoice.getId(), entitySqlDaoWrapperFactory, context);
+
                 // First, adjust the same invoice with the CBA amount to "delete"
                 final InvoiceItemModelDao cbaAdjItem = new InvoiceItemModelDao(context.getCreatedDate(), InvoiceItemType.CBA_ADJ, invoice.getId(), invoice.getAccountId(),
                                                                                null, null, null, null, null, null, context.getCreatedDate().toLocalDate(),
@@ -784,6 +854,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                                                            invoice.getAccountId(), null, null, null, null, null, null,
                                                                                            context.getCreatedDate().toLocalDate(), null,
                                                                                            positiveCBAAdjItemAmount, null, cbaItem.getCurrency(), cbaItem.getId());
+                        accountBalanceDelta.beforeWrite(invoiceFollowing);
                         invoiceItemSqlDao.create(nextCBAAdjItem, context);
                         if (positiveRemainderToAdjust.compareTo(BigDecimal.ZERO) == 0) {
                             break;
@@ -791,6 +862,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                     }
                 }
 
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
                 return null;
             }
         });
@@ -801,12 +873,29 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
                 // In theory we should only have to call useExistingCBAFromTransaction but just to be safe we also check for credit generation
-                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, context);
+                final AccountBalanceDelta accountBalanceDelta = newAccountBalanceDelta();
+                cbaDao.doCBAComplexity(accountId, entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+                applyAccountBalanceDelta(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
                 return null;
             }
         });
     }
 
+    // Invoices written to have to be registered with the delta before their first write in the transaction
+    private AccountBalanceDelta newAccountBalanceDelta() {
+        return new AccountBalanceDelta(invoiceConfig.isMaterializedAccountBalanceEnabled(), accountBalanceDao, invoiceDaoHelper);
+    }
+
+    // Keep the materialized balance in sync, in the same transaction as the invoice, item and payment writes
+    private void applyAccountBalanceDelta(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory,
+                                          final AccountBalanceDelta accountBalanceDelta,
+                                          final InternalCallContext context) {
+        // Nothing is written when the feature is disabled: the balance has to be refreshed before enabling it again (see refreshAccountBalance)
+        if (accountBalanceDelta.isEnabled()) {
+            accountBalanceDao.applyDeltaFromTransaction(entitySqlDaoWrapperFactory, accountBalanceDelta, context);
+        }
+    }
+
     private void notifyOfFutureBillingEvents(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory, final UUID accountId,
                                              final Map<UUID, List<DateTime>> callbackDateTimePerSubscriptions, final UUID userToken) {
         for (final UUID subscriptionId : callbackDateTimePerSubscriptions.keySet()) {
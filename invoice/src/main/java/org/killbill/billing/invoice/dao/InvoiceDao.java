@@ -58,6 +58,16 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     public BigDecimal getAccountCBA(UUID accountId, InternalTenantContext context);
 
+    /**
+     * Recompute the materialized balance and CBA of the account from its invoices, and store them.
+     * Writes don't maintain them while the feature is disabled: run this for the accounts written to in the meantime before enabling it again.
+     *
+     * @param accountId the account id
+     * @param context   the call context
+     * @return true if the materialized balance was missing or out of date
+     */
+    public boolean refreshAccountBalance(UUID accountId, InternalCallContext context);
+
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate upToDate, InternalTenantContext context);
 
     // Include migrated invoices
@@ -18,12 +18,12 @@ package org.killbill.billing.invoice.dao;
 
 import java.util.List;
 
-import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 
@@ -31,10 +31,10 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 public interface InvoiceItemSqlDao extends EntitySqlDao<InvoiceItemModelDao, InvoiceItem> {
 
     @SqlQuery
-    List<InvoiceItemModelDao> getInvoiceItemsByInvoice(@Bind("invoiceId") final String invoiceId,
+    List<InvoiceItemModelDao> getInvoiceItemsByInvoice(@BindUUID("invoiceId") final String invoiceId,
                                                        @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    List<InvoiceItemModelDao> getInvoiceItemsBySubscription(@Bind("subscriptionId") final String subscriptionId,
+    List<InvoiceItemModelDao> getInvoiceItemsBySubscription(@BindUUID("subscriptionId") final String subscriptionId,
                                                             @BindBean final InternalTenantContext context);
 }
@@ -22,17 +22,14 @@ import java.math.BigDecimal;
 import java.util.List;
 import java.util.UUID;
 
-import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.InvoicePayment;
-import org.killbill.billing.util.audit.ChangeType;
-import org.killbill.billing.util.entity.dao.Audited;
+import org.killbill.billing.util.dao.BindUUID;
+import org.killbill.billing.util.dao.UUIDMapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
-import org.killbill.commons.jdbi.mapper.UUIDMapper;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
-import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 
@@ -40,20 +37,15 @@ import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 public interface InvoicePaymentSqlDao extends EntitySqlDao<InvoicePaymentModelDao, InvoicePayment> {
 
     @SqlQuery
-    public List<InvoicePaymentModelDao> getByPaymentId(@Bind("paymentId") final String paymentId,
+    public List<InvoicePaymentModelDao> getByPaymentId(@BindUUID("paymentId") final String paymentId,
                                                  @BindBean final InternalTenantContext context);
 
-    @SqlBatch(transactional = false)
-    @Audited(ChangeType.INSERT)
-    void batchCreateFromTransaction(@BindBean final List<InvoicePaymentModelDao> items,
-                                    @BindBean final InternalCallContext context);
-
     @SqlQuery
-    public List<InvoicePaymentModelDao> getPaymentsForInvoice(@Bind("invoiceId") final String invoiceId,
+    public List<InvoicePaymentModelDao> getPaymentsForInvoice(@BindUUID("invoiceId") final String invoiceId,
                                                               @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    List<InvoicePaymentModelDao> getInvoicePayments(@Bind("paymentId") final String paymentId,
+    List<InvoicePaymentModelDao> getInvoicePayments(@BindUUID("paymentId") final String paymentId,
                                                     @BindBean final InternalTenantContext context);
 
     @SqlQuery
@@ -61,19 +53,19 @@ public interface InvoicePaymentSqlDao extends EntitySqlDao<InvoicePaymentModelDa
                                                   @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    BigDecimal getRemainingAmountPaid(@Bind("invoicePaymentId") final String invoicePaymentId,
+    BigDecimal getRemainingAmountPaid(@BindUUID("invoicePaymentId") final String invoicePaymentId,
                                       @BindBean final InternalTenantContext context);
 
     @SqlQuery
     @RegisterMapper(UUIDMapper.class)
-    UUID getAccountIdFromInvoicePaymentId(@Bind("invoicePaymentId") final String invoicePaymentId,
+    UUID getAccountIdFromInvoicePaymentId(@BindUUID("invoicePaymentId") final String invoicePaymentId,
                                           @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    List<InvoicePaymentModelDao> getChargeBacksByAccountId(@Bind("accountId") final String accountId,
+    List<InvoicePaymentModelDao> getChargeBacksByAccountId(@BindUUID("accountId") final String accountId,
                                                            @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    List<InvoicePaymentModelDao> getChargebacksByPaymentId(@Bind("paymentId") final String paymentId,
+    List<InvoicePaymentModelDao> getChargebacksByPaymentId(@BindUUID("paymentId") final String paymentId,
                                                            @BindBean final InternalTenantContext context);
 }
@@ -19,12 +19,14 @@ package org.killbill.billing.invoice.dao;
 import java.util.List;
 import java.util.UUID;
 
-import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.util.dao.BindUUID;
+import org.killbill.billing.util.dao.UUIDMapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 
@@ -32,11 +34,12 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
 
     @SqlQuery
-    List<InvoiceModelDao> getInvoicesBySubscription(@Bind("subscriptionId") final String subscriptionId,
+    List<InvoiceModelDao> getInvoicesBySubscription(@BindUUID("subscriptionId") final String subscriptionId,
                                                     @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    UUID getInvoiceIdByPaymentId(@Bind("paymentId") final String paymentId,
+    @RegisterMapper(UUIDMapper.class)
+    UUID getInvoiceIdByPaymentId(@BindUUID("paymentId") final String paymentId,
                                  @BindBean final InternalTenantContext context);
 }
 
@@ -17,6 +17,7 @@
 package org.killbill.billing.invoice.generator;
 
 import org.joda.time.LocalDate;
+import org.joda.time.Months;
 
 import org.killbill.billing.catalog.api.BillingPeriod;
 
@@ -78,10 +79,10 @@ public class BillingIntervalDetail {
             billingCycleDate = new LocalDate(startDate.getYear(), startDate.getMonthOfYear(), billingCycleDay, startDate.getChronology());
         }
 
-        final int numberOfMonthsInPeriod = billingPeriod.getNumberOfMonths();
+        // billingCycleDate is in the month of the startDate, so we are at most one billing period away
         LocalDate proposedDate = billingCycleDate;
-        while (proposedDate.isBefore(startDate)) {
-            proposedDate = proposedDate.plusMonths(numberOfMonthsInPeriod);
+        if (proposedDate.isBefore(startDate)) {
+            proposedDate = proposedDate.plusMonths(billingPeriod.getNumberOfMonths());
         }
         firstBillingCycleDate = alignProposedBillCycleDate(proposedDate);
     }
@@ -99,14 +100,7 @@ public class BillingIntervalDetail {
             return;
         }
 
-        final int numberOfMonthsInPeriod = billingPeriod.getNumberOfMonths();
-        int numberOfPeriods = 0;
-        LocalDate proposedDate = firstBillingCycleDate;
-
-        while (!proposedDate.isAfter(targetDate)) {
-            proposedDate = firstBillingCycleDate.plusMonths(numberOfPeriods * numberOfMonthsInPeriod);
-            numberOfPeriods += 1;
-        }
+        LocalDate proposedDate = getFirstProposedDateAfter(targetDate);
         proposedDate = alignProposedBillCycleDate(proposedDate);
 
         // The proposedDate is greater to our endDate => return it
@@ -121,12 +115,7 @@ public class BillingIntervalDetail {
     private void calculateLastBillingCycleDate() {
 
         // Start from firstBillingCycleDate and billingPeriod until we pass the effectiveEndDate
-        LocalDate proposedDate = firstBillingCycleDate;
-        int numberOfPeriods = 0;
-        while (!proposedDate.isAfter(effectiveEndDate)) {
-            proposedDate = firstBillingCycleDate.plusMonths(numberOfPeriods * billingPeriod.getNumberOfMonths());
-            numberOfPeriods += 1;
-        }
+        LocalDate proposedDate = getFirstProposedDateAfter(effectiveEndDate);
 
         // Our proposed date is billingCycleDate prior to the effectiveEndDate
         proposedDate = proposedDate.plusMonths(-billingPeriod.getNumberOfMonths());
@@ -141,6 +130,27 @@ public class BillingIntervalDetail {
     }
 
 
+    //
+    // Returns the first firstBillingCycleDate + k billing periods (k >= 0) strictly after the given date. The number of periods is
+    // derived from the number of months in between, instead of stepping one billing period at a time from firstBillingCycleDate.
+    //
+    private LocalDate getFirstProposedDateAfter(final LocalDate date) {
+        final int numberOfMonthsInPeriod = billingPeriod.getNumberOfMonths();
+
+        // Start one period early, as monthsBetween and plusMonths don't agree at the end of the month: at most a couple of adjustments are needed
+        int numberOfPeriods = Math.max(0, Months.monthsBetween(firstBillingCycleDate, date).getMonths() / numberOfMonthsInPeriod - 1);
+        LocalDate proposedDate = firstBillingCycleDate.plusMonths(numberOfPeriods * numberOfMonthsInPeriod);
+        while (numberOfPeriods > 0 && proposedDate.isAfter(date)) {
+            numberOfPeriods -= 1;
+            proposedDate = firstBillingCycleDate.plusMonths(numberOfPeriods * numberOfMonthsInPeriod);
+        }
+        while (!proposedDate.isAfter(date)) {
+            numberOfPeriods += 1;
+            proposedDate = firstBillingCycleDate.plusMonths(numberOfPeriods * numberOfMonthsInPeriod);
+        }
+        return proposedDate;
+    }
+
     //
     // We start from a billCycleDate
     //
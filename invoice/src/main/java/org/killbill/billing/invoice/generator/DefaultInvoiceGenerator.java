@@ -19,9 +19,13 @@ package org.killbill.billing.invoice.generator;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -38,6 +42,7 @@ import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.invoice.glue.DefaultInvoiceModule;
 import org.killbill.billing.invoice.model.BillingModeGenerator;
 import org.killbill.billing.invoice.model.DefaultInvoice;
 import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
@@ -50,6 +55,8 @@ import org.killbill.billing.invoice.usage.SubscriptionConsumableInArrear;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.usage.api.UsageUserApi;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.config.InvoiceConfig;
 import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.billing.util.dao.NonEntityDao;
@@ -60,9 +67,11 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 public class DefaultInvoiceGenerator implements InvoiceGenerator {
 
@@ -72,13 +81,24 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
     private final InvoiceConfig config;
     private final UsageUserApi usageApi;
     private final NonEntityDao nonEntityDao;
+    private final CacheControllerDispatcher cacheControllerDispatcher;
+    private final SubscriptionBillingWatermarks watermarks;
+
+    private ExecutorService invoiceTreeExecutor;
 
     @Inject
-    public DefaultInvoiceGenerator(final Clock clock, final UsageUserApi usageApi, final InvoiceConfig config, final NonEntityDao nonEntityDao) {
+    public DefaultInvoiceGenerator(final Clock clock, final UsageUserApi usageApi, final InvoiceConfig config, final NonEntityDao nonEntityDao, final CacheControllerDispatcher cacheControllerDispatcher) {
         this.clock = clock;
         this.config = config;
         this.usageApi = usageApi;
         this.nonEntityDao = nonEntityDao;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
+        this.watermarks = new SubscriptionBillingWatermarks(config.getIncrementalInvoiceGenerationMaxSubscriptions());
+    }
+
+    @Inject(optional = true)
+    public void setInvoiceTreeExecutor(@Named(DefaultInvoiceModule.INVOICE_TREE_EXECUTOR_NAMED) final ExecutorService invoiceTreeExecutor) {
+        this.invoiceTreeExecutor = invoiceTreeExecutor;
     }
 
     /*
@@ -113,7 +133,7 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
                                                         @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
                                                         final InternalCallContext context) throws InvoiceApiException {
 
-        final UUID tenantId = nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT);
+        final UUID tenantId = nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT, cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID));
         try {
 
             final List<InvoiceItem> items = Lists.newArrayList();
@@ -173,10 +193,50 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
     private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID accountId, final UUID invoiceId, final BillingEventSet eventSet,
                                                             @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
                                                             final Currency targetCurrency) throws InvoiceApiException {
-        final AccountItemTree accountItemTree = new AccountItemTree(accountId);
+        if (!config.isIncrementalInvoiceGenerationEnabled()) {
+            return generateInAdvanceInvoiceItems(accountId, invoiceId, eventSet, existingInvoices, targetDate, targetCurrency, ImmutableMap.<UUID, LocalDate>of());
+        }
+
+        final Map<UUID, LocalDate> cutoffDates = watermarks.getVerifiedCutoffDates(eventSet, existingInvoices);
+        List<InvoiceItem> resultingItems = null;
+        if (!cutoffDates.isEmpty()) {
+            resultingItems = generateInAdvanceInvoiceItems(accountId, invoiceId, eventSet, existingInvoices, targetDate, targetCurrency, cutoffDates);
+            if (resultingItems == null) {
+                log.info("Items for accountId {} are not aligned on the billing watermarks, replaying the full billing history", accountId);
+            }
+        }
+        if (resultingItems == null) {
+            resultingItems = generateInAdvanceInvoiceItems(accountId, invoiceId, eventSet, existingInvoices, targetDate, targetCurrency, ImmutableMap.<UUID, LocalDate>of());
+        }
+
+        watermarks.recordWatermarks(eventSet, existingInvoices, resultingItems);
+        return resultingItems;
+    }
+
+    // Only the items ending after the cutoff date of their subscription are merged, null is returned if an item straddles a cutoff date
+    private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID accountId, final UUID invoiceId, final BillingEventSet eventSet,
+                                                            @Nullable final List<Invoice> existingInvoices, final LocalDate targetDate,
+                                                            final Currency targetCurrency, final Map<UUID, LocalDate> cutoffDates) throws InvoiceApiException {
+        final AccountItemTree accountItemTree = new AccountItemTree(accountId, invoiceTreeExecutor, config.getInvoiceTreeParallelThreshold());
         if (existingInvoices != null) {
+            final Set<UUID> itemIdsBehindCutoffDates = new HashSet<UUID>();
+            for (final Invoice invoice : existingInvoices) {
+                for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                    final Boolean isBehindCutoffDate = isBehindCutoffDate(item, cutoffDates);
+                    if (isBehindCutoffDate == null) {
+                        return null;
+                    } else if (isBehindCutoffDate) {
+                        itemIdsBehindCutoffDates.add(item.getId());
+                    }
+                }
+            }
+
             for (final Invoice invoice : existingInvoices) {
                 for (final InvoiceItem item : invoice.getInvoiceItems()) {
+                    if (itemIdsBehindCutoffDates.contains(item.getId()) ||
+                        (item.getLinkedItemId() != null && itemIdsBehindCutoffDates.contains(item.getLinkedItemId()))) { // already merged in a previous run
+                        continue;
+                    }
                     if (item.getSubscriptionId() == null || // Always include migration invoices, credits, external charges etc.
                         !eventSet.getSubscriptionIdsWithAutoInvoiceOff()
                                  .contains(item.getSubscriptionId())) { //don't add items with auto_invoice_off tag
@@ -186,13 +246,42 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
             }
         }
 
-        // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time
-        final List<InvoiceItem> proposedItems = generateInAdvanceInvoiceItems(invoiceId, accountId, eventSet, targetDate, targetCurrency);
+        // Generate list of proposed invoice items based on billing events from junction-- proposed items are ALL items since beginning of time,
+        // or since the cutoff date when invoicing incrementally
+        final List<InvoiceItem> proposedItems = new ArrayList<InvoiceItem>();
+        for (final InvoiceItem item : generateInAdvanceInvoiceItems(invoiceId, accountId, eventSet, targetDate, targetCurrency, cutoffDates)) {
+            final Boolean isBehindCutoffDate = isBehindCutoffDate(item, cutoffDates);
+            if (isBehindCutoffDate == null) {
+                return null;
+            } else if (!isBehindCutoffDate) {
+                proposedItems.add(item);
+            }
+        }
 
         accountItemTree.mergeWithProposedItems(proposedItems);
         return accountItemTree.getResultingItemList();
     }
 
+    // Returns null if the item straddles the cutoff date
+    private Boolean isBehindCutoffDate(final InvoiceItem item, final Map<UUID, LocalDate> cutoffDates) {
+        if ((item.getInvoiceItemType() != InvoiceItemType.RECURRING && item.getInvoiceItemType() != InvoiceItemType.FIXED) ||
+            item.getSubscriptionId() == null ||
+            !cutoffDates.containsKey(item.getSubscriptionId())) {
+            return false;
+        }
+
+        final LocalDate cutoffDate = cutoffDates.get(item.getSubscriptionId());
+        if (item.getEndDate() == null) {
+            return item.getStartDate().isBefore(cutoffDate);
+        } else if (!item.getEndDate().isAfter(cutoffDate)) {
+            return true;
+        } else if (!item.getStartDate().isBefore(cutoffDate)) {
+            return false;
+        } else {
+            return null;
+        }
+    }
+
     private void validateTargetDate(final LocalDate targetDate) throws InvoiceApiException {
         final int maximumNumberOfMonths = config.getNumberOfMonthsInFuture();
 
@@ -217,7 +306,8 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
     }
 
     private List<InvoiceItem> generateInAdvanceInvoiceItems(final UUID invoiceId, final UUID accountId, final BillingEventSet events,
-                                                            final LocalDate targetDate, final Currency currency) throws InvoiceApiException {
+                                                            final LocalDate targetDate, final Currency currency,
+                                                            final Map<UUID, LocalDate> cutoffDates) throws InvoiceApiException {
         final List<InvoiceItem> items = new ArrayList<InvoiceItem>();
 
         if (events.size() == 0) {
@@ -238,6 +328,10 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
             if (!events.getSubscriptionIdsWithAutoInvoiceOff().
                     contains(thisEvent.getSubscription().getId())) { // don't consider events for subscriptions that have auto_invoice_off
                 final BillingEvent adjustedNextEvent = (thisEvent.getSubscription().getId() == nextEvent.getSubscription().getId()) ? nextEvent : null;
+                if (isBehindCutoffDate(thisEvent, adjustedNextEvent, cutoffDates)) {
+                    // All items for that event have already been merged in a previous run
+                    continue;
+                }
                 items.addAll(processInAdvanceEvents(invoiceId, accountId, thisEvent, adjustedNextEvent, targetDate, currency, logStringBuilder));
             }
         }
@@ -248,6 +342,13 @@ public class DefaultInvoiceGenerator implements InvoiceGenerator {
         return items;
     }
 
+    private boolean isBehindCutoffDate(final BillingEvent thisEvent, @Nullable final BillingEvent nextEvent, final Map<UUID, LocalDate> cutoffDates) {
+        final LocalDate cutoffDate = cutoffDates.get(thisEvent.getSubscription().getId());
+        return cutoffDate != null &&
+               nextEvent != null &&
+               !new LocalDate(nextEvent.getEffectiveDate(), nextEvent.getTimeZone()).isAfter(cutoffDate);
+    }
+
     // Turn a set of events into a list of invoice items. Note that the dates on the invoice items will be rounded (granularity of a day)
     private List<InvoiceItem> processInAdvanceEvents(final UUID invoiceId, final UUID accountId, final BillingEvent thisEvent, @Nullable final BillingEvent nextEvent,
                                                      final LocalDate targetDate, final Currency currency,
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.junction.BillingEventSet;
+
+/**
+ * Keeps track, for each subscription, of the date through which recurring items have been billed (the watermark)
+ * along with a fingerprint of the billing events effective before that date.
+ * <p/>
+ * <p>The invoice generator uses it to only replay billing history from the watermark: as long as no billing event
+ * effective before the watermark was added, removed or modified since the last run, the existing items before the
+ * watermark are known to be correct and don't need to be merged again. The state is process local (it is
+ * rebuilt by a full replay after a restart) and bounded in size.
+ * <p/>
+ * <p>Fingerprints are SHA-256 based (truncated to 128 bits): a collision would silently skip the merge of the billing
+ * history, hence the need for a strong digest.
+ */
+public class SubscriptionBillingWatermarks {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Map<UUID, Watermark> watermarks;
+
+    /**
+     * @param maxEntries maximum number of subscriptions tracked (see InvoiceConfig#getIncrementalInvoiceGenerationMaxSubscriptions)
+     */
+    public SubscriptionBillingWatermarks(final int maxEntries) {
+        this.watermarks = new LinkedHashMap<UUID, Watermark>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UUID, Watermark> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param events           the billing events for the account
+     * @param existingInvoices the invoices on disk
+     * @return the cutoff date for each subscription that can be invoiced incrementally
+     */
+    public Map<UUID, LocalDate> getVerifiedCutoffDates(final BillingEventSet events, @Nullable final List<Invoice> existingInvoices) {
+        final Map<UUID, LocalDate> cutoffDates = new HashMap<UUID, LocalDate>();
+        if (existingInvoices == null) {
+            return cutoffDates;
+        }
+
+        final Map<UUID, LocalDate> billedThroughDates = computeBilledThroughDates(existingInvoices, null);
+        final Map<UUID, Fingerprint> itemsFingerprints = computeItemsFingerprints(existingInvoices, null);
+        for (final UUID subscriptionId : billedThroughDates.keySet()) {
+            final Watermark watermark = getWatermark(subscriptionId);
+            if (watermark == null ||
+                // The invoice which moved the watermark was never committed (dry-run, failure, ...) or items were added since
+                !itemsFingerprints.get(subscriptionId).equals(watermark.getItemsFingerprint()) ||
+                // A billing event behind the watermark has changed (back-dated change, cancellation, blocking state, ...)
+                !watermark.getEventsFingerprint().equals(computeEventsFingerprint(events, subscriptionId, watermark.getBilledThroughDate()))) {
+                continue;
+            }
+            cutoffDates.put(subscriptionId, watermark.getBilledThroughDate());
+        }
+        return cutoffDates;
+    }
+
+    /**
+     * Move the watermarks forward once the proposed items have been computed
+     *
+     * @param events           the billing events for the account
+     * @param existingInvoices the invoices on disk
+     * @param resultingItems   the items generated by this run
+     */
+    public void recordWatermarks(final BillingEventSet events, @Nullable final List<Invoice> existingInvoices, final List<InvoiceItem> resultingItems) {
+        final Map<UUID, LocalDate> billedThroughDates = computeBilledThroughDates(existingInvoices, resultingItems);
+        final Map<UUID, Fingerprint> itemsFingerprints = computeItemsFingerprints(existingInvoices, resultingItems);
+        for (final UUID subscriptionId : billedThroughDates.keySet()) {
+            final LocalDate billedThroughDate = billedThroughDates.get(subscriptionId);
+            final Fingerprint eventsFingerprint = computeEventsFingerprint(events, subscriptionId, billedThroughDate);
+            synchronized (watermarks) {
+                watermarks.put(subscriptionId, new Watermark(billedThroughDate, eventsFingerprint, itemsFingerprints.get(subscriptionId)));
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (watermarks) {
+            watermarks.clear();
+        }
+    }
+
+    private Watermark getWatermark(final UUID subscriptionId) {
+        synchronized (watermarks) {
+            return watermarks.get(subscriptionId);
+        }
+    }
+
+    private Map<UUID, LocalDate> computeBilledThroughDates(@Nullable final List<Invoice> existingInvoices, @Nullable final Collection<InvoiceItem> resultingItems) {
+        final Map<UUID, LocalDate> billedThroughDates = new HashMap<UUID, LocalDate>();
+        if (existingInvoices != null) {
+            for (final Invoice invoice : existingInvoices) {
+                updateBilledThroughDates(billedThroughDates, invoice.getInvoiceItems());
+            }
+        }
+        if (resultingItems != null) {
+            updateBilledThroughDates(billedThroughDates, resultingItems);
+        }
+        return billedThroughDates;
+    }
+
+    private void updateBilledThroughDates(final Map<UUID, LocalDate> billedThroughDates, final Collection<InvoiceItem> items) {
+        for (final InvoiceItem item : items) {
+            if (item.getInvoiceItemType() != InvoiceItemType.RECURRING ||
+                item.getSubscriptionId() == null ||
+                item.getEndDate() == null) {
+                continue;
+            }
+            final LocalDate billedThroughDate = billedThroughDates.get(item.getSubscriptionId());
+            if (billedThroughDate == null || item.getEndDate().isAfter(billedThroughDate)) {
+                billedThroughDates.put(item.getSubscriptionId(), item.getEndDate());
+            }
+        }
+    }
+
+    // Order independent fingerprint of the items which are relevant to the subscription tree
+    private Map<UUID, Fingerprint> computeItemsFingerprints(@Nullable final List<Invoice> existingInvoices, @Nullable final Collection<InvoiceItem> resultingItems) {
+        final MessageDigest digest = newDigest();
+        final Map<UUID, Fingerprint> itemsFingerprints = new HashMap<UUID, Fingerprint>();
+        if (existingInvoices != null) {
+            for (final Invoice invoice : existingInvoices) {
+                updateItemsFingerprints(digest, itemsFingerprints, invoice.getInvoiceItems());
+            }
+        }
+        if (resultingItems != null) {
+            updateItemsFingerprints(digest, itemsFingerprints, resultingItems);
+        }
+        return itemsFingerprints;
+    }
+
+    private void updateItemsFingerprints(final MessageDigest digest, final Map<UUID, Fingerprint> itemsFingerprints, final Collection<InvoiceItem> items) {
+        for (final InvoiceItem item : items) {
+            if (item.getSubscriptionId() == null) {
+                continue;
+            }
+            switch (item.getInvoiceItemType()) {
+                case RECURRING:
+                case FIXED:
+                case REPAIR_ADJ:
+                case ITEM_ADJ:
+                    final Fingerprint itemFingerprint = Fingerprint.of(digest, item.getId(),
+                                                                       item.getInvoiceItemType(),
+                                                                       item.getAmount() == null ? null : item.getAmount().stripTrailingZeros().toPlainString(),
+                                                                       item.getStartDate(),
+                                                                       item.getEndDate(),
+                                                                       item.getLinkedItemId());
+                    final Fingerprint itemsFingerprint = itemsFingerprints.get(item.getSubscriptionId());
+                    itemsFingerprints.put(item.getSubscriptionId(), itemsFingerprint == null ? itemFingerprint : itemsFingerprint.plus(itemFingerprint));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private Fingerprint computeEventsFingerprint(final BillingEventSet events, final UUID subscriptionId, final LocalDate billedThroughDate) {
+        final MessageDigest digest = newDigest();
+        for (final BillingEvent event : events) {
+            if (!subscriptionId.equals(event.getSubscription().getId()) ||
+                !new LocalDate(event.getEffectiveDate(), event.getTimeZone()).isBefore(billedThroughDate)) {
+                continue;
+            }
+            Fingerprint.update(digest, event.getEffectiveDate().getMillis(),
+                               event.getPlan() == null ? null : event.getPlan().getName(),
+                               event.getPlanPhase() == null ? null : event.getPlanPhase().getName(),
+                               event.getFixedPrice() == null ? null : event.getFixedPrice().stripTrailingZeros().toPlainString(),
+                               event.getRecurringPrice() == null ? null : event.getRecurringPrice().stripTrailingZeros().toPlainString(),
+                               event.getBillingPeriod(),
+                               event.getBillingMode(),
+                               event.getBillCycleDayLocal(),
+                               event.getTransitionType());
+        }
+        return Fingerprint.of(digest);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 128 bits digest. The fingerprint of a set of items is the sum of their digests, to be order independent
+    private static final class Fingerprint {
+
+        private final long high;
+        private final long low;
+
+        private Fingerprint(final long high, final long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        private static void update(final MessageDigest digest, final Object... values) {
+            for (final Object value : values) {
+                // Values are separated, so that ("ab", "c") and ("a", "bc") differ
+                digest.update(String.valueOf(value).getBytes(UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update((byte) '\n');
+        }
+
+        private static Fingerprint of(final MessageDigest digest, final Object... values) {
+            if (values.length > 0) {
+                update(digest, values);
+            }
+            final byte[] bytes = digest.digest();
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (bytes[i] & 0xFF);
+                low = (low << 8) | (bytes[i + 8] & 0xFF);
+            }
+            return new Fingerprint(high, low);
+        }
+
+        private Fingerprint plus(final Fingerprint other) {
+            // 128 bits addition
+            final long newLow = low + other.low;
+            final long carry = (newLow ^ Long.MIN_VALUE) < (low ^ Long.MIN_VALUE) ? 1 : 0;
+            return new Fingerprint(high + other.high + carry, newLow);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final Fingerprint that = (Fingerprint) o;
+            return high == that.high && low == that.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32));
+        }
+    }
+
+    private static final class Watermark {
+
+        private final LocalDate billedThroughDate;
+        private final Fingerprint eventsFingerprint;
+        private final Fingerprint itemsFingerprint;
+
+        private Watermark(final LocalDate billedThroughDate, final Fingerprint eventsFingerprint, final Fingerprint itemsFingerprint) {
+            this.billedThroughDate = billedThroughDate;
+            this.eventsFingerprint = eventsFingerprint;
+            this.itemsFingerprint = itemsFingerprint;
+        }
+
+        public LocalDate getBilledThroughDate() {
+            return billedThroughDate;
+        }
+
+        public Fingerprint getEventsFingerprint() {
+            return eventsFingerprint;
+        }
+
+        public Fingerprint getItemsFingerprint() {
+            return itemsFingerprint;
+        }
+    }
+}
@@ -18,6 +18,10 @@
 
 package org.killbill.billing.invoice.glue;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import org.killbill.billing.glue.InvoiceModule;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
@@ -52,9 +56,14 @@ import org.killbill.billing.util.template.translation.TranslatorConfig;
 import org.skife.config.ConfigurationObjectFactory;
 
 import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
 
 public class DefaultInvoiceModule extends KillBillModule implements InvoiceModule {
 
+    public static final String INVOICE_TREE_EXECUTOR_NAMED = "InvoiceTreeExecutor";
+
+    private static final String INVOICE_TREE_THREAD_PREFIX = "InvoiceTree-th-";
+
     InvoiceConfig config;
 
     public DefaultInvoiceModule(final KillbillConfigSource configSource) {
@@ -120,6 +129,23 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
 
     protected void installInvoiceGenerator() {
         bind(InvoiceGenerator.class).to(DefaultInvoiceGenerator.class).asEagerSingleton();
+
+        // Subscription trees are merged sequentially unless configured otherwise. The executor is shut down by
+        // DefaultInvoiceService on STOP_SERVICE
+        if (config.getInvoiceTreeThreadNb() > 1) {
+            final ExecutorService invoiceTreeExecutorService = Executors.newFixedThreadPool(config.getInvoiceTreeThreadNb(), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread th = new Thread(r);
+                    th.setName(INVOICE_TREE_THREAD_PREFIX + th.getId());
+                    // Don't prevent the JVM from exiting if the lifecycle isn't stopped (e.g. tests)
+                    th.setDaemon(true);
+                    return th;
+                }
+            });
+            bind(ExecutorService.class).annotatedWith(Names.named(INVOICE_TREE_EXECUTOR_NAMED)).toInstance(invoiceTreeExecutorService);
+        }
     }
 
     protected void installInvoicePluginApi() {
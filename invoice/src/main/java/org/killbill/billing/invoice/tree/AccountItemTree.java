@@ -18,10 +18,17 @@ package org.killbill.billing.invoice.tree;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
@@ -37,6 +44,10 @@ import com.google.common.collect.Iterables;
  * associated to a given subscription. That also means that invoice item adjustment which cross subscriptions
  * can't be correctly handled when they compete with other forms of adjustments.
  * <p/>
+ * <p>When an executor is provided and the account has at least <tt>parallelThreshold</tt> subscriptions, the work on the
+ * subscription trees (build, flatten, merge and view) is dispatched to the executor, one task per subscription. The resulting
+ * list is always assembled in the iteration order of the subscription trees, so it doesn't depend on how tasks are scheduled.
+ * <p/>
  * <p>The class is not thread safe, there is no such use case today, and there is a lifecyle to respect:
  * <ul>
  * <li>Add existing invoice items
@@ -48,6 +59,8 @@ import com.google.common.collect.Iterables;
 public class AccountItemTree {
 
     private final UUID accountId;
+    private final ExecutorService executor;
+    private final int parallelThreshold;
     private final Map<UUID, SubscriptionItemTree> subscriptionItemTree;
     private final List<InvoiceItem> allExistingItems;
     private List<InvoiceItem> pendingItemAdj;
@@ -55,7 +68,13 @@ public class AccountItemTree {
     private boolean isBuilt;
 
     public AccountItemTree(final UUID accountId) {
+        this(accountId, null, Integer.MAX_VALUE);
+    }
+
+    public AccountItemTree(final UUID accountId, @Nullable final ExecutorService executor, final int parallelThreshold) {
         this.accountId = accountId;
+        this.executor = executor;
+        this.parallelThreshold = parallelThreshold;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
         this.isBuilt = false;
         this.allExistingItems = new LinkedList<InvoiceItem>();
@@ -74,9 +93,13 @@ public class AccountItemTree {
             }
             pendingItemAdj.clear();
         }
-        for (SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.build();
-        }
+        forEachSubscriptionItemTree(new SubscriptionItemTreeTask<Void>() {
+            @Override
+            public Void run(final SubscriptionItemTree tree) {
+                tree.build();
+                return null;
+            }
+        });
         isBuilt = true;
     }
 
@@ -137,23 +160,41 @@ public class AccountItemTree {
     public void mergeWithProposedItems(final List<InvoiceItem> proposedItems) {
 
         build();
-        for (SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.flatten(true);
-        }
 
+        // Group the proposed items per subscription, keeping their relative order
+        final Map<UUID, List<InvoiceItem>> proposedItemsPerSubscription = new LinkedHashMap<UUID, List<InvoiceItem>>();
         for (InvoiceItem item : proposedItems) {
             final UUID subscriptionId = getSubscriptionId(item, null);
-            SubscriptionItemTree tree = subscriptionItemTree.get(subscriptionId);
-            if (tree == null) {
-                tree = new SubscriptionItemTree(subscriptionId);
-                subscriptionItemTree.put(subscriptionId, tree);
+            if (!proposedItemsPerSubscription.containsKey(subscriptionId)) {
+                proposedItemsPerSubscription.put(subscriptionId, new LinkedList<InvoiceItem>());
             }
-            tree.mergeProposedItem(item);
+            proposedItemsPerSubscription.get(subscriptionId).add(item);
         }
 
-        for (SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.buildForMerge();
+        // Only the trees populated from existing items need to be flattened
+        final Map<UUID, SubscriptionItemTree> existingTrees = new HashMap<UUID, SubscriptionItemTree>(subscriptionItemTree);
+        for (final UUID subscriptionId : proposedItemsPerSubscription.keySet()) {
+            if (!subscriptionItemTree.containsKey(subscriptionId)) {
+                subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId));
+            }
         }
+
+        forEachSubscriptionItemTree(new SubscriptionItemTreeTask<Void>() {
+            @Override
+            public Void run(final SubscriptionItemTree tree) {
+                if (existingTrees.containsKey(tree.getSubscriptionId())) {
+                    tree.flatten(true);
+                }
+                final List<InvoiceItem> proposedItemsForTree = proposedItemsPerSubscription.get(tree.getSubscriptionId());
+                if (proposedItemsForTree != null) {
+                    for (InvoiceItem item : proposedItemsForTree) {
+                        tree.mergeProposedItem(item);
+                    }
+                }
+                tree.buildForMerge();
+                return null;
+            }
+        });
     }
 
     /**
@@ -161,8 +202,13 @@ public class AccountItemTree {
      */
     public List<InvoiceItem> getResultingItemList() {
         final List<InvoiceItem> result = new ArrayList<InvoiceItem>();
-        for (SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            final List<InvoiceItem> simplifiedView = tree.getView();
+        final List<List<InvoiceItem>> views = forEachSubscriptionItemTree(new SubscriptionItemTreeTask<List<InvoiceItem>>() {
+            @Override
+            public List<InvoiceItem> run(final SubscriptionItemTree tree) {
+                return tree.getView();
+            }
+        });
+        for (final List<InvoiceItem> simplifiedView : views) {
             if (simplifiedView.size() > 0) {
                 result.addAll(simplifiedView);
             }
@@ -188,4 +234,48 @@ public class AccountItemTree {
             return linkedItem != null ? linkedItem.getSubscriptionId() : null;
         }
     }
+
+    // Runs the task on each subscription tree and returns the results in the iteration order of the trees
+    private <T> List<T> forEachSubscriptionItemTree(final SubscriptionItemTreeTask<T> task) {
+        final List<T> results = new ArrayList<T>(subscriptionItemTree.size());
+        if (executor == null || subscriptionItemTree.size() < parallelThreshold) {
+            for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
+                results.add(task.run(tree));
+            }
+            return results;
+        }
+
+        final List<Future<T>> futures = new ArrayList<Future<T>>(subscriptionItemTree.size());
+        try {
+            for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        return task.run(tree);
+                    }
+                }));
+            }
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (final Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private interface SubscriptionItemTreeTask<T> {
+
+        T run(SubscriptionItemTree tree);
+    }
 }
@@ -16,19 +16,22 @@
 
 package org.killbill.billing.invoice.tree;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.joda.time.LocalDate;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 
 public class NodeInterval {
 
     protected NodeInterval parent;
-    protected NodeInterval leftChild;
-    protected NodeInterval rightSibling;
+    // Children are sorted by start date. Siblings are inserted so that their end dates are sorted as well (a child
+    // containing the new node is always chosen first, and a new node covering some children becomes their parent):
+    // both dates can be binary searched.
+    protected final List<NodeInterval> children;
 
     protected LocalDate start;
     protected LocalDate end;
@@ -41,8 +44,7 @@ public class NodeInterval {
         this.start = startDate;
         this.end = endDate;
         this.parent = parent;
-        this.leftChild = null;
-        this.rightSibling = null;
+        this.children = new ArrayList<NodeInterval>();
     }
 
     /**
@@ -55,21 +57,19 @@ public class NodeInterval {
 
         Preconditions.checkNotNull(callback);
 
-        if (leftChild == null) {
+        if (children.isEmpty()) {
             callback.onLastNode(this);
             return;
         }
 
         LocalDate curDate = start;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (final NodeInterval curChild : children) {
             if (curChild.getStart().compareTo(curDate) > 0) {
                 callback.onMissingInterval(this, curDate, curChild.getStart());
             }
             curChild.build(callback);
             // Note that skip to child endDate, meaning that we always consider the child [start end]
             curDate = curChild.getEnd();
-            curChild = curChild.getRightSibling();
         }
 
         // Finally if there is a hole at the end, we build the missing piece from ourselves
@@ -99,50 +99,42 @@ public class NodeInterval {
         computeRootInterval(newNode);
 
         newNode.parent = this;
-        if (leftChild == null) {
+        if (children.isEmpty()) {
             if (callback.shouldInsertNode(this)) {
-                leftChild = newNode;
+                children.add(newNode);
                 return true;
             } else {
                 return false;
             }
         }
 
-        NodeInterval prevChild = null;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        // Children starting before the new node can only contain it, and the first one to do so is the first one
+        // ending after it
+        final int index = firstChildStartingOnOrAfter(newNode.getStart());
+        final int containingIndex = firstChildEndingOnOrAfter(newNode.getEnd());
+        if (containingIndex < index) {
+            return children.get(containingIndex).addNode(newNode, callback);
+        }
+
+        if (index < children.size()) {
+            final NodeInterval curChild = children.get(index);
             if (curChild.isItemContained(newNode)) {
                 return curChild.addNode(newNode, callback);
             }
 
             if (curChild.isItemOverlap(newNode)) {
                 if (callback.shouldInsertNode(this)) {
-                    rebalance(newNode);
-                    return true;
-                } else {
-                    return false;
-                }
-            }
-
-            if (newNode.getStart().compareTo(curChild.getStart()) < 0) {
-                if (callback.shouldInsertNode(this)) {
-                    newNode.rightSibling = curChild;
-                    if (prevChild == null) {
-                        leftChild = newNode;
-                    } else {
-                        prevChild.rightSibling = newNode;
-                    }
+                    rebalance(index, newNode);
                     return true;
                 } else {
                     return false;
                 }
             }
-            prevChild = curChild;
-            curChild = curChild.rightSibling;
         }
 
+        // The new node starts before curChild (or after all children)
         if (callback.shouldInsertNode(this)) {
-            prevChild.rightSibling = newNode;
+            children.add(index, newNode);
             return true;
         } else {
             return false;
@@ -151,38 +143,31 @@ public class NodeInterval {
 
     public void removeChild(final NodeInterval toBeRemoved) {
 
-        NodeInterval prevChild = null;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (int i = firstChildStartingOnOrAfter(toBeRemoved.getStart()); i < children.size(); i++) {
+            final NodeInterval curChild = children.get(i);
+            if (curChild.getStart().compareTo(toBeRemoved.getStart()) > 0) {
+                break;
+            }
             if (curChild.isSame(toBeRemoved)) {
-                if (prevChild == null) {
-                    leftChild = curChild.getRightSibling();
-                } else {
-                    prevChild.rightSibling = curChild.getRightSibling();
-                }
+                children.remove(i);
                 break;
             }
-            prevChild = curChild;
-            curChild = curChild.getRightSibling();
         }
-
     }
 
     @JsonIgnore
     public boolean isPartitionedByChildren() {
 
-        if (leftChild == null) {
+        if (children.isEmpty()) {
             return false;
         }
 
         LocalDate curDate = start;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (final NodeInterval curChild : children) {
             if (curChild.getStart().compareTo(curDate) > 0) {
                 return false;
             }
             curDate = curChild.getEnd();
-            curChild = curChild.getRightSibling();
         }
         return (curDate.compareTo(end) == 0);
     }
@@ -203,18 +188,17 @@ public class NodeInterval {
             return null;
         }
 
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
-            if (curChild.getStart().compareTo(targetDate) <= 0 && curChild.getEnd().compareTo(targetDate) >= 0) {
-                if (callback.isMatch(curChild)) {
-                    return curChild;
-                }
-                NodeInterval result = curChild.findNode(targetDate, callback);
-                if (result != null) {
-                    return result;
-                }
+        // Children whose interval comprises the date: they start on or before it and end on or after it
+        final int lastIndex = firstChildStartingAfter(targetDate);
+        for (int i = firstChildEndingOnOrAfter(targetDate); i < lastIndex; i++) {
+            final NodeInterval curChild = children.get(i);
+            if (callback.isMatch(curChild)) {
+                return curChild;
+            }
+            final NodeInterval result = curChild.findNode(targetDate, callback);
+            if (result != null) {
+                return result;
             }
-            curChild = curChild.getRightSibling();
         }
         return null;
     }
@@ -232,13 +216,11 @@ public class NodeInterval {
             return this;
         }
 
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        for (final NodeInterval curChild : children) {
             final NodeInterval result = curChild.findNode(callback);
             if (result != null) {
                 return result;
             }
-            curChild = curChild.getRightSibling();
         }
         return null;
     }
@@ -258,10 +240,14 @@ public class NodeInterval {
         Preconditions.checkNotNull(callback);
         callback.onCurrentNode(depth, this, parent);
 
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
+        int i = 0;
+        while (i < children.size()) {
+            final NodeInterval curChild = children.get(i);
             curChild.walkTreeWithDepth(callback, (depth + 1));
-            curChild = curChild.getRightSibling();
+            // The callback may have removed the child from the tree (see ItemsNodeInterval#pruneTree)
+            if (i < children.size() && children.get(i) == curChild) {
+                i++;
+            }
         }
     }
 
@@ -304,70 +290,102 @@ public class NodeInterval {
         return parent;
     }
 
+    @JsonIgnore
+    public List<NodeInterval> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
     @JsonIgnore
     public NodeInterval getLeftChild() {
-        return leftChild;
+        return children.isEmpty() ? null : children.get(0);
     }
 
     @JsonIgnore
     public NodeInterval getRightSibling() {
-        return rightSibling;
+        if (parent == null) {
+            return null;
+        }
+
+        final List<NodeInterval> siblings = parent.children;
+        for (int i = parent.firstChildStartingOnOrAfter(start); i < siblings.size(); i++) {
+            if (siblings.get(i) == this) {
+                return i + 1 < siblings.size() ? siblings.get(i + 1) : null;
+            }
+        }
+        return null;
     }
 
     @JsonIgnore
     public int getNbChildren() {
-        int result = 0;
-        NodeInterval curChild = leftChild;
-        while (curChild != null) {
-            result++;
-            curChild = curChild.rightSibling;
-        }
-        return result;
+        return children.size();
     }
 
     /**
      * Since items may be added out of order, there is no guarantee that we don't suddenly have a new node
      * whose interval emcompasses cuurent node(s). In which case we need to rebalance the tree.
      *
-     * @param newNode node that triggered a rebalance operation
+     * @param firstIndex index of the first child covered by the new node
+     * @param newNode    node that triggered a rebalance operation
      */
-    private void rebalance(final NodeInterval newNode) {
+    private void rebalance(final int firstIndex, final NodeInterval newNode) {
 
-        NodeInterval prevRebalanced = null;
-        NodeInterval curChild = leftChild;
-        List<NodeInterval> toBeRebalanced = Lists.newLinkedList();
-        do {
-            if (curChild.isItemOverlap(newNode)) {
-                toBeRebalanced.add(curChild);
+        int lastIndex = firstIndex;
+        while (lastIndex < children.size() && children.get(lastIndex).isItemOverlap(newNode)) {
+            lastIndex++;
+        }
+
+        final List<NodeInterval> toBeRebalanced = children.subList(firstIndex, lastIndex);
+        newNode.children.clear();
+        for (final NodeInterval cur : toBeRebalanced) {
+            cur.parent = newNode;
+            newNode.children.add(cur);
+        }
+        toBeRebalanced.clear();
+
+        newNode.parent = this;
+        children.add(firstIndex, newNode);
+    }
+
+    private int firstChildStartingOnOrAfter(final LocalDate date) {
+        int low = 0;
+        int high = children.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (children.get(mid).getStart().compareTo(date) < 0) {
+                low = mid + 1;
             } else {
-                if (toBeRebalanced.size() > 0) {
-                    break;
-                }
-                prevRebalanced = curChild;
+                high = mid;
             }
-            curChild = curChild.rightSibling;
-        } while (curChild != null);
+        }
+        return low;
+    }
 
-        newNode.parent = this;
-        final NodeInterval lastNodeToRebalance = toBeRebalanced.get(toBeRebalanced.size() - 1);
-        newNode.rightSibling = lastNodeToRebalance.rightSibling;
-        lastNodeToRebalance.rightSibling = null;
-        if (prevRebalanced == null) {
-            leftChild = newNode;
-        } else {
-            prevRebalanced.rightSibling = newNode;
+    private int firstChildStartingAfter(final LocalDate date) {
+        int low = 0;
+        int high = children.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (children.get(mid).getStart().compareTo(date) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+        return low;
+    }
 
-        NodeInterval prev = null;
-        for (NodeInterval cur : toBeRebalanced) {
-            cur.parent = newNode;
-            if (prev == null) {
-                newNode.leftChild = cur;
+    private int firstChildEndingOnOrAfter(final LocalDate date) {
+        int low = 0;
+        int high = children.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (children.get(mid).getEnd().compareTo(date) < 0) {
+                low = mid + 1;
             } else {
-                prev.rightSibling = cur;
+                high = mid;
             }
-            prev = cur;
         }
+        return low;
     }
 
     private void computeRootInterval(final NodeInterval newNode) {
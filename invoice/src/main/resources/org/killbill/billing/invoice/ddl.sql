@@ -74,3 +74,16 @@ CREATE INDEX invoice_payments ON invoice_payments(payment_id);
 CREATE INDEX invoice_payments_invoice_id ON invoice_payments(invoice_id);
 CREATE INDEX invoice_payments_reversals ON invoice_payments(linked_invoice_payment_id);
 CREATE INDEX invoice_payments_tenant_account_record_id ON invoice_payments(tenant_record_id, account_record_id);
+
+DROP TABLE IF EXISTS invoice_account_balances;
+CREATE TABLE invoice_account_balances (
+    record_id int(11) unsigned NOT NULL AUTO_INCREMENT,
+    balance numeric(15,9) NOT NULL,
+    cba numeric(15,9) NOT NULL,
+    currency char(3) DEFAULT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id int(11) unsigned NOT NULL,
+    tenant_record_id int(11) unsigned default null,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX invoice_account_balances_tenant_account_record_id ON invoice_account_balances(tenant_record_id, account_record_id);
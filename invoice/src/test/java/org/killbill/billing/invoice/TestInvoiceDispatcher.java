@@ -91,7 +91,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
 
         final InvoiceNotifier invoiceNotifier = new NullInvoiceNotifier();
         final InvoiceDispatcher dispatcher = new InvoiceDispatcher(pluginRegistry, generator, accountApi, billingApi, subscriptionApi, invoiceDao,
-                                                                   nonEntityDao, invoiceNotifier, locker, busService.getBus(),
+                                                                   nonEntityDao, controllerDispatcher, invoiceNotifier, locker, busService.getBus(),
                                                                    clock);
 
         Invoice invoice = dispatcher.processAccount(accountId, target, true, context);
@@ -144,7 +144,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
         Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<InternalCallContext>any())).thenReturn(events);
         final InvoiceNotifier invoiceNotifier = new NullInvoiceNotifier();
         final InvoiceDispatcher dispatcher = new InvoiceDispatcher(pluginRegistry, generator, accountApi, billingApi, subscriptionApi, invoiceDao,
-                                                                   nonEntityDao, invoiceNotifier, locker, busService.getBus(),
+                                                                   nonEntityDao, controllerDispatcher, invoiceNotifier, locker, busService.getBus(),
                                                                    clock);
 
         final Invoice invoice = dispatcher.processAccount(account.getId(), new DateTime("2012-07-30T00:00:00.000Z"), false, context);
@@ -202,7 +202,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
 
         final InvoiceNotifier invoiceNotifier = new NullInvoiceNotifier();
         final InvoiceDispatcher dispatcher = new InvoiceDispatcher(pluginRegistry, generator, accountApi, billingApi, subscriptionApi, invoiceDao,
-                                                                   nonEntityDao, invoiceNotifier, locker, busService.getBus(),
+                                                                   nonEntityDao, controllerDispatcher, invoiceNotifier, locker, busService.getBus(),
                                                                    clock);
 
         final Map<UUID, List<DateTime>> result = dispatcher.createNextFutureNotificationDate(Collections.singletonList(item), null, dateAndTimeZoneContext);
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.dao.AuditLogModelDaoMapper;
+import org.killbill.billing.util.dao.DefaultNonEntityDao;
+import org.killbill.billing.util.dao.RecordIdIdMappingsMapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
+import org.killbill.billing.util.io.IOUtils;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.killbill.commons.embeddeddb.EmbeddedDB;
+import org.killbill.commons.embeddeddb.h2.H2EmbeddedDB;
+import org.killbill.commons.jdbi.guice.DBIProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.skife.jdbi.v2.DBI;
+
+import com.google.common.io.Resources;
+
+/**
+ * Cost of persisting the items of a large invoice on H2, with their history and audit rows:
+ * InvoiceItemSqlDao#batchCreateFromTransaction (what DefaultInvoiceDao#createInvoice does) vs one InvoiceItemSqlDao#create per item.
+ * Each iteration inserts a fresh set of items into empty tables.
+ * <p/>
+ * Run it with: mvn -pl invoice test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.killbill.billing.invoice.dao.InvoiceItemBatchCreateBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InvoiceItemBatchCreateBenchmark {
+
+    @Param({"1000", "10000"})
+    private int nbItems;
+
+    private EmbeddedDB embeddedDB;
+    private EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+    private InternalCallContext context;
+    private List<InvoiceItemModelDao> invoiceItems;
+
+    @Setup
+    public void setUp() throws Exception {
+        embeddedDB = new H2EmbeddedDB();
+        embeddedDB.initialize();
+        embeddedDB.start();
+        for (final String pack : new String[]{"util", "invoice"}) {
+            embeddedDB.executeScript(IOUtils.toString(Resources.getResource("org/killbill/billing/" + pack + "/ddl.sql").openStream()));
+        }
+
+        final DBI dbi = (DBI) new DBIProvider(embeddedDB.getDataSource()).get();
+        dbi.registerMapper(new AuditLogModelDaoMapper());
+        dbi.registerMapper(new RecordIdIdMappingsMapper());
+
+        final Clock clock = new DefaultClock();
+        transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, new CacheControllerDispatcher(), new DefaultNonEntityDao(dbi));
+        context = new InternalCallContext(InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID, 1687L, UUID.randomUUID(),
+                                          UUID.randomUUID().toString(), CallOrigin.TEST,
+                                          UserType.TEST, "Benchmark", "Benchmark",
+                                          clock.getUTCNow(), clock.getUTCNow());
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws Exception {
+        embeddedDB.cleanupAllTables();
+
+        final UUID invoiceId = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        invoiceItems = new ArrayList<InvoiceItemModelDao>(nbItems);
+        for (int i = 0; i < nbItems; i++) {
+            invoiceItems.add(new InvoiceItemModelDao(new RecurringInvoiceItem(invoiceId, accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase", startDate,
+                                                                              startDate.plusMonths(1), BigDecimal.ONE, BigDecimal.ONE, Currency.USD)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        embeddedDB.stop();
+    }
+
+    @Benchmark
+    public void batchCreate() {
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class).batchCreateFromTransaction(invoiceItems, context);
+                return null;
+            }
+        });
+    }
+
+    @Benchmark
+    public void perItemCreate() {
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                final InvoiceItemSqlDao invoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
+                for (final InvoiceItemModelDao invoiceItem : invoiceItems) {
+                    invoiceItemSqlDao.create(invoiceItem, context);
+                }
+                return null;
+            }
+        });
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(InvoiceItemBatchCreateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -333,6 +333,11 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return null;
     }
 
+    @Override
+    public boolean refreshAccountBalance(final UUID accountId, final InternalCallContext context) {
+        return false;
+    }
+
     @Override
     public InvoicePaymentModelDao createRefund(final UUID paymentId, final BigDecimal amount, final boolean isInvoiceAdjusted,
                                                final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts, final String transactionExternalKey,
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
@@ -63,10 +64,18 @@ import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.util.config.CacheConfig;
 import org.killbill.billing.util.currency.KillBillMoney;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoRequestCache;
 import org.killbill.clock.ClockMock;
 import org.mockito.Mockito;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.TimingCollector;
 import org.skife.jdbi.v2.exceptions.TransactionFailedException;
+import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.skife.jdbi.v2.util.IntegerMapper;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -79,6 +88,7 @@ import static org.killbill.billing.invoice.TestInvoiceHelper.TEN;
 import static org.killbill.billing.invoice.TestInvoiceHelper.TWENTY;
 import static org.killbill.billing.invoice.TestInvoiceHelper.ZERO;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -124,6 +134,38 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertTrue(InvoiceModelDaoHelper.getBalance(thisInvoice).compareTo(BigDecimal.ZERO) == 0);
     }
 
+    @Test(groups = "slow", description = "Read the invoices of an account twice within a request cache scope")
+    public void testRetrievalByAccountWithRequestCache() throws Exception {
+        final UUID accountId = account.getId();
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoiceUtil.createInvoice(invoice, true, context);
+
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        for (int i = 0; i < 2; i++) {
+            invoiceUtil.createInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase", startDate,
+                                                                   startDate.plusMonths(1), TEN, TEN, Currency.USD), context);
+        }
+        invoiceUtil.createPayment(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice.getId(), new DateTime(), FIVE, Currency.USD, Currency.USD), context);
+
+        final CacheConfig cacheConfig = Mockito.mock(CacheConfig.class);
+        Mockito.when(cacheConfig.isRequestCacheEnabled()).thenReturn(true);
+        EntitySqlDaoRequestCache.setCacheConfig(cacheConfig);
+        try {
+            assertTrue(EntitySqlDaoRequestCache.open());
+            for (int i = 0; i < 2; i++) {
+                final List<InvoiceModelDao> invoices = invoiceDao.getInvoicesByAccount(context);
+                assertEquals(invoices.size(), 1);
+                assertEquals(invoices.get(0).getInvoiceItems().size(), 2);
+                assertEquals(invoices.get(0).getInvoicePayments().size(), 1);
+                assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("15.0")), 0);
+            }
+        } finally {
+            EntitySqlDaoRequestCache.close();
+            Mockito.when(cacheConfig.isRequestCacheEnabled()).thenReturn(false);
+            EntitySqlDaoRequestCache.setCacheConfig(cacheConfig);
+        }
+    }
+
     @Test(groups = "slow")
     public void testInvoicePayment() throws InvoiceApiException {
         final UUID accountId = account.getId();
@@ -525,6 +567,83 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(balance.compareTo(rate1.add(rate2).subtract(payment1)), 0);
     }
 
+    @Test(groups = "slow", description = "Persist an invoice with 10,000 items, with their audit rows")
+    public void testCreateInvoiceWithManyItems() throws Exception {
+        final int nbItems = 10000;
+        final UUID accountId = account.getId();
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), startDate, Currency.USD);
+        for (int i = 0; i < nbItems; i++) {
+            invoice.addInvoiceItem(new RecurringInvoiceItem(invoice.getId(), accountId, UUID.randomUUID(), UUID.randomUUID(), "test plan", "test phase", startDate,
+                                                            startDate.plusMonths(1), BigDecimal.ONE, BigDecimal.ONE, Currency.USD));
+        }
+
+        // Count the statements sent to the database by this thread: the items, their history and audit rows are inserted in batches,
+        // inserting them one by one would take at least nbItems statements
+        final Thread testThread = Thread.currentThread();
+        final AtomicInteger nbStatements = new AtomicInteger();
+        ((DBI) dbi).setTimingCollector(new TimingCollector() {
+            @Override
+            public void collect(final long elapsedTime, final StatementContext ctx) {
+                if (Thread.currentThread() == testThread) {
+                    nbStatements.incrementAndGet();
+                }
+            }
+        });
+        try {
+            invoiceUtil.createInvoice(invoice, true, context);
+        } finally {
+            ((DBI) dbi).setTimingCollector(TimingCollector.NOP_TIMING_COLLECTOR);
+        }
+        assertTrue(nbStatements.get() < nbItems / 100, "Too many statements to create the invoice: " + nbStatements.get());
+
+        assertEquals(invoiceUtil.getInvoiceItemByInvoiceId(invoice.getId(), context).size(), nbItems);
+        final Integer nbAudits = dbi.withHandle(new HandleCallback<Integer>() {
+            @Override
+            public Integer withHandle(final Handle handle) throws Exception {
+                // Each audit row must point to a distinct item of the account
+                return handle.createQuery("select count(distinct i.record_id) from audit_log a join invoice_items i on i.record_id = a.target_record_id " +
+                                          "where a.table_name = 'INVOICE_ITEMS' and a.change_type = 'INSERT' and a.account_record_id = :accountRecordId " +
+                                          "and i.account_record_id = :accountRecordId")
+                             .bind("accountRecordId", context.getAccountRecordId())
+                             .map(IntegerMapper.FIRST)
+                             .first();
+            }
+        });
+        assertEquals((int) nbAudits, nbItems);
+    }
+
+    @Test(groups = "slow")
+    public void testRefreshAccountBalance() throws EntityPersistenceException {
+        final UUID accountId = account.getId();
+        final UUID bundleId = UUID.randomUUID();
+        final LocalDate targetDate1 = new LocalDate(2011, 10, 6);
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), targetDate1, Currency.USD);
+        invoiceUtil.createInvoice(invoice1, true, context);
+
+        final LocalDate startDate = new LocalDate(2011, 3, 1);
+        final LocalDate endDate = startDate.plusMonths(1);
+        final BigDecimal rate1 = new BigDecimal("17.0");
+        final RecurringInvoiceItem item1 = new RecurringInvoiceItem(invoice1.getId(), accountId, bundleId, UUID.randomUUID(), "test plan", "test phase A", startDate,
+                                                                    endDate, rate1, rate1, Currency.USD);
+        invoiceUtil.createInvoiceItem(item1, context);
+
+        // Items are inserted directly, bypassing the dao: the materialized balance doesn't exist yet
+        assertTrue(invoiceDao.refreshAccountBalance(accountId, context));
+        assertFalse(invoiceDao.refreshAccountBalance(accountId, context));
+
+        final BigDecimal payment1 = new BigDecimal("10.0");
+        final InvoicePayment payment = new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, UUID.randomUUID(), invoice1.getId(), new DateTime(), payment1, Currency.USD, Currency.USD);
+        invoiceUtil.createPayment(payment, context);
+
+        // Out of date after the payment
+        assertTrue(invoiceDao.refreshAccountBalance(accountId, context));
+        assertFalse(invoiceDao.refreshAccountBalance(accountId, context));
+
+        final BigDecimal balance = invoiceDao.getAccountBalance(accountId, context);
+        assertEquals(balance.compareTo(rate1.subtract(payment1)), 0);
+    }
+
     @Test(groups = "slow")
     public void testAccountBalanceWithCredit() throws EntityPersistenceException {
         final UUID accountId = account.getId();
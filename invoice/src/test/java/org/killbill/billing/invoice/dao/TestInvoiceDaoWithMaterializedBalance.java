@@ -0,0 +1,237 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.InvoiceTestSuiteWithEmbeddedDB;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.api.InvoicePaymentType;
+import org.killbill.billing.invoice.model.CreditBalanceAdjInvoiceItem;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.DefaultInvoicePayment;
+import org.killbill.billing.invoice.model.ExternalChargeInvoiceItem;
+import org.killbill.billing.invoice.model.FixedPriceInvoiceItem;
+import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.killbill.billing.invoice.notification.NextBillingDatePoster;
+import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.InvoiceConfig;
+import org.killbill.billing.util.config.ReadReplicaConfig;
+import org.killbill.billing.util.dao.DBRouter;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestInvoiceDaoWithMaterializedBalance extends InvoiceTestSuiteWithEmbeddedDB {
+
+    private Account account;
+    private InternalCallContext context;
+
+    @Override
+    protected KillbillConfigSource getConfigSource() {
+        return getConfigSource("/resource.properties", ImmutableMap.<String, String>of("org.killbill.invoice.materializedBalanceEnabled", "true"));
+    }
+
+    @BeforeMethod(groups = "slow")
+    public void setUp() throws Exception {
+        account = invoiceUtil.createAccount(callContext);
+        context = internalCallContextFactory.createInternalCallContext(account.getId(), callContext);
+    }
+
+    @Test(groups = "slow")
+    public void testInvoiceAndPayments() throws Exception {
+        final UUID accountId = account.getId();
+
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice.addInvoiceItem(createFixedItem(invoice, new BigDecimal("20.0")));
+        invoiceUtil.createInvoice(invoice, true, context);
+        checkAccountBalance(accountId, new BigDecimal("20.0"), BigDecimal.ZERO);
+
+        final UUID paymentId = UUID.randomUUID();
+        final InvoicePaymentModelDao invoicePayment = new InvoicePaymentModelDao(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice.getId(), clock.getUTCNow(),
+                                                                                                           new BigDecimal("20.0"), Currency.USD, Currency.USD));
+        invoiceDao.notifyOfPayment(invoicePayment, context);
+        checkAccountBalance(accountId, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        invoiceDao.createRefund(paymentId, new BigDecimal("5.0"), false, ImmutableMap.<UUID, BigDecimal>of(), UUID.randomUUID().toString(), context);
+        checkAccountBalance(accountId, new BigDecimal("5.0"), BigDecimal.ZERO);
+
+        invoiceDao.postChargeback(invoicePayment.getId(), new BigDecimal("5.0"), context);
+        checkAccountBalance(accountId, new BigDecimal("10.0"), BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testWritesWhileDisabled() throws Exception {
+        final UUID accountId = account.getId();
+
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice.addInvoiceItem(createFixedItem(invoice, new BigDecimal("20.0")));
+        invoiceUtil.createInvoice(invoice, true, context);
+        checkAccountBalance(accountId, new BigDecimal("20.0"), BigDecimal.ZERO);
+
+        // Payment recorded while the materialized balance is disabled (e.g. by another node): the stored balance isn't touched
+        final UUID paymentId = UUID.randomUUID();
+        final InvoicePaymentModelDao invoicePayment = new InvoicePaymentModelDao(new DefaultInvoicePayment(InvoicePaymentType.ATTEMPT, paymentId, invoice.getId(), clock.getUTCNow(),
+                                                                                                           new BigDecimal("20.0"), Currency.USD, Currency.USD));
+        final InvoiceDao invoiceDaoWithoutMaterializedBalance = createInvoiceDaoWithoutMaterializedBalance();
+        invoiceDaoWithoutMaterializedBalance.notifyOfPayment(invoicePayment, context);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("20.0")), 0);
+        assertEquals(invoiceDaoWithoutMaterializedBalance.getAccountBalance(accountId, context).compareTo(BigDecimal.ZERO), 0);
+
+        // Refreshing it is required before enabling the feature again
+        assertTrue(invoiceDao.refreshAccountBalance(accountId, context));
+        checkAccountBalance(accountId, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    @Test(groups = "slow")
+    public void testSameAmountsAsWhenDisabled() throws Exception {
+        final UUID accountId = account.getId();
+
+        // Amount which isn't a whole number of cents
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        invoice.addInvoiceItem(createFixedItem(invoice, new BigDecimal("10.005")));
+        invoiceUtil.createInvoice(invoice, true, context);
+        checkAccountBalance(accountId, new BigDecimal("10.005"), BigDecimal.ZERO);
+
+        final InvoiceDao invoiceDaoWithoutMaterializedBalance = createInvoiceDaoWithoutMaterializedBalance();
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(invoiceDaoWithoutMaterializedBalance.getAccountBalance(accountId, context)), 0);
+        assertEquals(invoiceDao.getAccountCBA(accountId, context).compareTo(invoiceDaoWithoutMaterializedBalance.getAccountCBA(accountId, context)), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testCreditsChargesAndAdjustments() throws Exception {
+        final UUID accountId = account.getId();
+
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        final InvoiceItem fixedItem = createFixedItem(invoice, BigDecimal.TEN);
+        invoice.addInvoiceItem(fixedItem);
+        invoiceUtil.createInvoice(invoice, true, context);
+        checkAccountBalance(accountId, BigDecimal.TEN, BigDecimal.ZERO);
+
+        // The credit is consumed by the unpaid invoice (CBA written to both invoices)
+        invoiceDao.insertCredit(accountId, null, new BigDecimal("15.0"), clock.getUTCToday(), Currency.USD, context);
+        checkAccountBalance(accountId, new BigDecimal("-5.0"), new BigDecimal("5.0"));
+
+        final InvoiceItemModelDao externalCharge = new InvoiceItemModelDao(new ExternalChargeInvoiceItem(null, accountId, null, UUID.randomUUID().toString(), clock.getUTCToday(),
+                                                                                                         new BigDecimal("7.0"), Currency.USD));
+        invoiceDao.insertExternalCharges(accountId, clock.getUTCToday(), ImmutableList.<InvoiceItemModelDao>of(externalCharge), context);
+        checkAccountBalance(accountId, new BigDecimal("2.0"), BigDecimal.ZERO);
+
+        // Adjusting the paid item generates CBA, which is consumed by the external charge invoice
+        invoiceDao.insertInvoiceItemAdjustment(accountId, invoice.getId(), fixedItem.getId(), clock.getUTCToday(), new BigDecimal("4.0"), Currency.USD, context);
+        checkAccountBalance(accountId, new BigDecimal("-2.0"), new BigDecimal("2.0"));
+
+        invoiceDao.consumeExstingCBAOnAccountWithUnpaidInvoices(accountId, context);
+        checkAccountBalance(accountId, new BigDecimal("-2.0"), new BigDecimal("2.0"));
+    }
+
+    @Test(groups = "slow")
+    public void testDeleteCBAConsumedOnOtherInvoice() throws Exception {
+        final UUID accountId = account.getId();
+
+        // Same scenario as TestInvoiceDao#testRefundWithCBAPartiallyConsumed, the items are inserted directly
+        // $10 item, repaired, with the generated CBA
+        final Invoice invoice1 = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        final InvoiceItem fixedItem1 = createFixedItem(invoice1, BigDecimal.TEN);
+        final RepairAdjInvoiceItem repairAdjInvoiceItem = new RepairAdjInvoiceItem(fixedItem1.getInvoiceId(), fixedItem1.getAccountId(),
+                                                                                   fixedItem1.getStartDate(), fixedItem1.getEndDate(),
+                                                                                   fixedItem1.getAmount().negate(), fixedItem1.getCurrency(),
+                                                                                   fixedItem1.getId());
+        final CreditBalanceAdjInvoiceItem creditBalanceAdjInvoiceItem1 = new CreditBalanceAdjInvoiceItem(fixedItem1.getInvoiceId(), fixedItem1.getAccountId(),
+                                                                                                         fixedItem1.getStartDate(), fixedItem1.getAmount(),
+                                                                                                         fixedItem1.getCurrency());
+        invoiceUtil.createInvoice(invoice1, true, context);
+        invoiceUtil.createInvoiceItem(fixedItem1, context);
+        invoiceUtil.createInvoiceItem(repairAdjInvoiceItem, context);
+        invoiceUtil.createInvoiceItem(creditBalanceAdjInvoiceItem1, context);
+
+        // $5 item, paid with the CBA
+        final Invoice invoice2 = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        final InvoiceItem fixedItem2 = createFixedItem(invoice2, new BigDecimal("5.0"));
+        final CreditBalanceAdjInvoiceItem creditBalanceAdjInvoiceItem2 = new CreditBalanceAdjInvoiceItem(fixedItem2.getInvoiceId(), fixedItem2.getAccountId(),
+                                                                                                         fixedItem2.getStartDate(), fixedItem2.getAmount().negate(),
+                                                                                                         fixedItem2.getCurrency());
+        invoiceUtil.createInvoice(invoice2, true, context);
+        invoiceUtil.createInvoiceItem(fixedItem2, context);
+        invoiceUtil.createInvoiceItem(creditBalanceAdjInvoiceItem2, context);
+
+        // Materialize the balance of the items inserted directly
+        assertTrue(invoiceDao.refreshAccountBalance(accountId, context));
+        checkAccountBalance(accountId, new BigDecimal("5.0"), new BigDecimal("5.0"));
+
+        // Deleting the CBA adjusts both invoices
+        invoiceDao.deleteCBA(accountId, invoice1.getId(), creditBalanceAdjInvoiceItem1.getId(), context);
+        checkAccountBalance(accountId, new BigDecimal("5.0"), BigDecimal.ZERO);
+        invoiceUtil.verifyInvoice(invoice1.getId(), 0.00, 0.00, context);
+        invoiceUtil.verifyInvoice(invoice2.getId(), 5.00, 0.00, context);
+    }
+
+    @Test(groups = "slow")
+    public void testAccountWithoutMaterializedBalance() throws Exception {
+        final UUID accountId = account.getId();
+
+        // Written before the balance was materialized (e.g. before enabling the feature)
+        final Invoice invoice = new DefaultInvoice(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD);
+        final InvoiceItem fixedItem = createFixedItem(invoice, BigDecimal.TEN);
+        invoiceUtil.createInvoice(invoice, true, context);
+        invoiceUtil.createInvoiceItem(fixedItem, context);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(BigDecimal.TEN), 0);
+
+        // The next write stores the balance computed from all the invoices
+        final InvoiceItemModelDao externalCharge = new InvoiceItemModelDao(new ExternalChargeInvoiceItem(invoice.getId(), accountId, null, UUID.randomUUID().toString(), clock.getUTCToday(),
+                                                                                                         new BigDecimal("7.0"), Currency.USD));
+        invoiceDao.insertExternalCharges(accountId, clock.getUTCToday(), ImmutableList.<InvoiceItemModelDao>of(externalCharge), context);
+        checkAccountBalance(accountId, new BigDecimal("17.0"), BigDecimal.ZERO);
+    }
+
+    private InvoiceItem createFixedItem(final Invoice invoice, final BigDecimal amount) {
+        return new FixedPriceInvoiceItem(invoice.getId(), invoice.getAccountId(), null, null, UUID.randomUUID().toString(),
+                                         UUID.randomUUID().toString(), clock.getUTCToday(), amount, Currency.USD);
+    }
+
+    private InvoiceDao createInvoiceDaoWithoutMaterializedBalance() {
+        final ReadReplicaConfig readReplicaConfig = Mockito.mock(ReadReplicaConfig.class);
+        Mockito.when(readReplicaConfig.getReadYourWritesWindow()).thenReturn(new TimeSpan(0, TimeUnit.SECONDS));
+        final InvoiceConfig invoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(invoiceConfig.isMaterializedAccountBalanceEnabled()).thenReturn(false);
+        return new DefaultInvoiceDao(new DBRouter(dbi, readReplicaConfig, clock), Mockito.mock(NextBillingDatePoster.class), bus, clock, controllerDispatcher,
+                                     nonEntityDao, internalCallContextFactory, invoiceConfig, new MetricRegistry());
+    }
+
+    // The stored balance must exist and match the one computed from the invoices
+    private void checkAccountBalance(final UUID accountId, final BigDecimal expectedBalance, final BigDecimal expectedCba) {
+        assertFalse(invoiceDao.refreshAccountBalance(accountId, context));
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(expectedBalance), 0);
+        assertEquals(invoiceDao.getAccountCBA(accountId, context).compareTo(expectedCba), 0);
+    }
+}
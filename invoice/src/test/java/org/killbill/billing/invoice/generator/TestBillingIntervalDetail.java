@@ -165,4 +165,28 @@ public class TestBillingIntervalDetail extends InvoiceTestSuiteNoDB {
         Assert.assertEquals(effectiveEndDate, new LocalDate("2012-05-31"));
     }
 
+    @Test(groups = "fast")
+    public void testLongRunningSubscriptionWithBCD31() throws Exception {
+        final LocalDate start = new LocalDate("2001-01-31");
+        final LocalDate targetDate = new LocalDate("2014-03-15");
+        final int bcdLocal = 31;
+
+        final BillingIntervalDetail billingIntervalDetail = new BillingIntervalDetail(start, null, targetDate, bcdLocal, BillingPeriod.MONTHLY);
+        Assert.assertEquals(billingIntervalDetail.getFirstBillingCycleDate(), new LocalDate("2001-01-31"));
+        Assert.assertEquals(billingIntervalDetail.getEffectiveEndDate(), new LocalDate("2014-03-31"));
+        Assert.assertEquals(billingIntervalDetail.getLastBillingCycleDate(), new LocalDate("2014-03-31"));
+    }
+
+    @Test(groups = "fast")
+    public void testLongRunningQuarterlySubscriptionWithEndDate() throws Exception {
+        final LocalDate start = new LocalDate("2001-02-28");
+        final LocalDate end = new LocalDate("2014-02-10");
+        final LocalDate targetDate = new LocalDate("2014-06-01");
+        final int bcdLocal = 29;
+
+        final BillingIntervalDetail billingIntervalDetail = new BillingIntervalDetail(start, end, targetDate, bcdLocal, BillingPeriod.QUARTERLY);
+        Assert.assertEquals(billingIntervalDetail.getFirstBillingCycleDate(), new LocalDate("2001-02-28"));
+        Assert.assertEquals(billingIntervalDetail.getEffectiveEndDate(), end);
+        Assert.assertEquals(billingIntervalDetail.getLastBillingCycleDate(), new LocalDate("2013-11-29"));
+    }
 }
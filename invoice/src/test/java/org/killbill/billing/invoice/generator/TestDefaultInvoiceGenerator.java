@@ -96,7 +96,11 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
 
     public TestDefaultInvoiceGenerator() {
         final Clock clock = new DefaultClock();
-        final InvoiceConfig invoiceConfig = new InvoiceConfig() {
+        this.generator = new DefaultInvoiceGenerator(clock, null, createInvoiceConfig(false), null, controllerDispatcher);
+    }
+
+    private static InvoiceConfig createInvoiceConfig(final boolean incrementalInvoiceGenerationEnabled) {
+        return new InvoiceConfig() {
             @Override
             public int getNumberOfMonthsInFuture() {
                 return 36;
@@ -106,8 +110,32 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
             public boolean isEmailNotificationsEnabled() {
                 return false;
             }
+
+            @Override
+            public boolean isIncrementalInvoiceGenerationEnabled() {
+                return incrementalInvoiceGenerationEnabled;
+            }
+
+            @Override
+            public int getIncrementalInvoiceGenerationMaxSubscriptions() {
+                return 100000;
+            }
+
+            @Override
+            public int getInvoiceTreeThreadNb() {
+                return 1;
+            }
+
+            @Override
+            public int getInvoiceTreeParallelThreshold() {
+                return 50;
+            }
+
+            @Override
+            public boolean isMaterializedAccountBalanceEnabled() {
+                return false;
+            }
         };
-        this.generator = new DefaultInvoiceGenerator(clock, null, invoiceConfig, null);
     }
 
     @Test(groups = "fast")
@@ -360,6 +388,48 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
         assertNull(invoice2);
     }
 
+    @Test(groups = "fast")
+    public void testIncrementalInvoiceGeneration() throws InvoiceApiException, CatalogApiException {
+        final InvoiceGenerator incrementalGenerator = new DefaultInvoiceGenerator(clock, null, createInvoiceConfig(true), null, controllerDispatcher);
+
+        final BillingEventSet events = new MockBillingEventSet();
+        final SubscriptionBase sub = createSubscription();
+        final Plan plan = new MockPlan();
+        final PlanPhase phase1 = createMockMonthlyPlanPhase(TEN);
+        events.add(createBillingEvent(sub.getId(), sub.getBundleId(), invoiceUtil.buildDate(2011, 9, 1), plan, phase1, 1));
+
+        final UUID accountId = UUID.randomUUID();
+        final List<Invoice> existingInvoices = new ArrayList<Invoice>();
+
+        // First run: full replay, which records the watermark
+        final Invoice invoice1 = incrementalGenerator.generateInvoice(accountId, events, existingInvoices, invoiceUtil.buildDate(2012, 1, 1), Currency.USD, internalCallContext);
+        assertNotNull(invoice1);
+        assertEquals(invoice1.getNumberOfItems(), 5);
+        existingInvoices.add(invoice1);
+
+        // Second run: only the last period is generated
+        final LocalDate targetDate = invoiceUtil.buildDate(2012, 2, 1);
+        final Invoice invoice2 = incrementalGenerator.generateInvoice(accountId, events, existingInvoices, targetDate, Currency.USD, internalCallContext);
+        final Invoice expectedInvoice2 = generator.generateInvoice(accountId, events, existingInvoices, targetDate, Currency.USD, internalCallContext);
+        assertNotNull(invoice2);
+        assertEquals(invoice2.getNumberOfItems(), 1);
+        assertEquals(invoice2.getInvoiceItems().get(0).getStartDate(), invoiceUtil.buildDate(2012, 2, 1));
+        assertEquals(invoice2.getInvoiceItems().get(0).getEndDate(), invoiceUtil.buildDate(2012, 3, 1));
+        assertEquals(invoice2.getBalance(), expectedInvoice2.getBalance());
+        existingInvoices.add(invoice2);
+
+        // Back-dated change behind the watermark: the full history has to be replayed to repair the existing items
+        final PlanPhase phase2 = createMockMonthlyPlanPhase(TWENTY);
+        events.add(createBillingEvent(sub.getId(), sub.getBundleId(), invoiceUtil.buildDate(2011, 11, 15), plan, phase2, 1));
+
+        final Invoice invoice3 = incrementalGenerator.generateInvoice(accountId, events, existingInvoices, targetDate, Currency.USD, internalCallContext);
+        final Invoice expectedInvoice3 = generator.generateInvoice(accountId, events, existingInvoices, targetDate, Currency.USD, internalCallContext);
+        assertNotNull(invoice3);
+        assertNotNull(expectedInvoice3);
+        assertEquals(invoice3.getNumberOfItems(), expectedInvoice3.getNumberOfItems());
+        assertEquals(invoice3.getBalance(), expectedInvoice3.getBalance());
+    }
+
     // TODO: modify this test to keep a running total of expected invoice amount over time
     @Test(groups = "fast")
     public void testMultiplePlansWithUtterChaos() throws InvoiceApiException, CatalogApiException {
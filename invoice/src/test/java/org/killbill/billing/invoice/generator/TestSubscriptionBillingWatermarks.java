@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.MockBillingEventSet;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.DefaultInvoice;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.junction.BillingEventSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestSubscriptionBillingWatermarks extends InvoiceTestSuiteNoDB {
+
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID bundleId = UUID.randomUUID();
+    private final UUID subscriptionId = UUID.randomUUID();
+    private final LocalDate startDate = new LocalDate(2014, 1, 1);
+    private final LocalDate endDate = new LocalDate(2014, 2, 1);
+
+    @Test(groups = "fast")
+    public void testItemsFingerprint() throws Exception {
+        final SubscriptionBillingWatermarks watermarks = new SubscriptionBillingWatermarks(10);
+        final BillingEventSet events = new MockBillingEventSet();
+
+        final UUID itemId = new UUID(1L, 2L);
+        final List<Invoice> existingInvoices = createInvoices(itemId, BigDecimal.TEN);
+        watermarks.recordWatermarks(events, existingInvoices, ImmutableList.<InvoiceItem>of());
+        Assert.assertEquals(watermarks.getVerifiedCutoffDates(events, existingInvoices).get(subscriptionId), endDate);
+        Assert.assertEquals(watermarks.getVerifiedCutoffDates(events, createInvoices(itemId, new BigDecimal("10.00"))).get(subscriptionId), endDate);
+
+        // Same UUID#hashCode, but a different item
+        Assert.assertEquals(new UUID(2L, 1L).hashCode(), itemId.hashCode());
+        Assert.assertTrue(watermarks.getVerifiedCutoffDates(events, createInvoices(new UUID(2L, 1L), BigDecimal.TEN)).isEmpty());
+        // Same item id, but a different amount
+        Assert.assertTrue(watermarks.getVerifiedCutoffDates(events, createInvoices(itemId, BigDecimal.ONE)).isEmpty());
+        // Additional item
+        final List<Invoice> invoicesWithAdditionalItem = createInvoices(itemId, BigDecimal.TEN);
+        invoicesWithAdditionalItem.get(0).addInvoiceItem(createItem(invoicesWithAdditionalItem.get(0), UUID.randomUUID(), BigDecimal.ZERO));
+        Assert.assertTrue(watermarks.getVerifiedCutoffDates(events, invoicesWithAdditionalItem).isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void testMaxEntries() throws Exception {
+        final SubscriptionBillingWatermarks watermarks = new SubscriptionBillingWatermarks(1);
+        final BillingEventSet events = new MockBillingEventSet();
+
+        final List<Invoice> existingInvoices = createInvoices(UUID.randomUUID(), BigDecimal.TEN);
+        watermarks.recordWatermarks(events, existingInvoices, ImmutableList.<InvoiceItem>of());
+        Assert.assertEquals(watermarks.getVerifiedCutoffDates(events, existingInvoices).get(subscriptionId), endDate);
+
+        // Record the watermark of another subscription: the first one is evicted
+        final Invoice otherInvoice = new DefaultInvoice(accountId, startDate, startDate, Currency.USD);
+        otherInvoice.addInvoiceItem(new RecurringInvoiceItem(otherInvoice.getId(), accountId, bundleId, UUID.randomUUID(), "plan", "phase",
+                                                             startDate, endDate, BigDecimal.TEN, BigDecimal.TEN, Currency.USD));
+        watermarks.recordWatermarks(events, ImmutableList.<Invoice>of(otherInvoice), ImmutableList.<InvoiceItem>of());
+        Assert.assertTrue(watermarks.getVerifiedCutoffDates(events, existingInvoices).isEmpty());
+    }
+
+    private List<Invoice> createInvoices(final UUID itemId, final BigDecimal amount) {
+        final Invoice invoice = new DefaultInvoice(accountId, startDate, startDate, Currency.USD);
+        invoice.addInvoiceItem(createItem(invoice, itemId, amount));
+        return ImmutableList.<Invoice>of(invoice);
+    }
+
+    private InvoiceItem createItem(final Invoice invoice, final UUID itemId, final BigDecimal amount) {
+        return new RecurringInvoiceItem(itemId, null, invoice.getId(), accountId, bundleId, subscriptionId, "plan", "phase",
+                                        startDate, endDate, amount, amount, Currency.USD);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.tree;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.ItemAdjInvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.killbill.billing.invoice.model.RepairAdjInvoiceItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of building and walking the SubscriptionItemTree of a synthetic ten-year subscription history: one recurring
+ * item per billing period, a plan change (recurring item and repair) every 12 periods and an item adjustment every 10 periods.
+ * <ul>
+ * <li>buildAndView: existing items only (the view of the items on disk)
+ * <li>flattenAndMerge: existing items merged with the proposed items for the same history (what the invoice generator does)
+ * </ul>
+ * Run it with: mvn -pl invoice test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.killbill.billing.invoice.tree.SubscriptionItemTreeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionItemTreeBenchmark {
+
+    private static final int NB_YEARS = 10;
+
+    private final UUID invoiceId = UUID.randomUUID();
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID bundleId = UUID.randomUUID();
+    private final UUID subscriptionId = UUID.randomUUID();
+    private final Currency currency = Currency.USD;
+
+    // Monthly-like and (for a large number of children) two-day billing periods
+    @Param({"30", "2"})
+    private int billingPeriodDays;
+
+    private List<InvoiceItem> existingItems;
+    private List<InvoiceItem> proposedItems;
+
+    @Setup
+    public void setUp() {
+        existingItems = new LinkedList<InvoiceItem>();
+        proposedItems = new LinkedList<InvoiceItem>();
+
+        final BigDecimal rate = new BigDecimal("10.00");
+        final BigDecimal newRate = new BigDecimal("12.00");
+        final LocalDate firstDate = new LocalDate(2005, 1, 1);
+        final LocalDate lastDate = firstDate.plusYears(NB_YEARS);
+
+        int period = 0;
+        for (LocalDate startDate = firstDate; startDate.isBefore(lastDate); startDate = startDate.plusDays(billingPeriodDays), period++) {
+            final LocalDate endDate = startDate.plusDays(billingPeriodDays);
+            final InvoiceItem recurring = new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, "plan", "plan-evergreen", startDate, endDate, rate, rate, currency);
+            existingItems.add(recurring);
+
+            if (period % 12 == 6) {
+                // Plan change in the middle of the period
+                final LocalDate changeDate = startDate.plusDays(billingPeriodDays / 2);
+                existingItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, "new-plan", "new-plan-evergreen", changeDate, endDate, new BigDecimal("6.00"), newRate, currency));
+                existingItems.add(new RepairAdjInvoiceItem(invoiceId, accountId, changeDate, endDate, new BigDecimal("-5.00"), currency, recurring.getId()));
+
+                proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, "plan", "plan-evergreen", startDate, changeDate, rate, rate, currency));
+                proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, "new-plan", "new-plan-evergreen", changeDate, endDate, new BigDecimal("6.00"), newRate, currency));
+            } else {
+                if (period % 10 == 5) {
+                    existingItems.add(new ItemAdjInvoiceItem(recurring, startDate, new BigDecimal("-1.00"), currency));
+                }
+
+                proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, "plan", "plan-evergreen", startDate, endDate, rate, rate, currency));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<InvoiceItem> buildAndView() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId);
+        for (final InvoiceItem item : existingItems) {
+            tree.addItem(item);
+        }
+        tree.build();
+        return tree.getView();
+    }
+
+    @Benchmark
+    public List<InvoiceItem> flattenAndMerge() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId);
+        for (final InvoiceItem item : existingItems) {
+            tree.addItem(item);
+        }
+        tree.flatten(true);
+        for (final InvoiceItem item : proposedItems) {
+            tree.mergeProposedItem(item);
+        }
+        tree.buildForMerge();
+        return tree.getView();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(SubscriptionItemTreeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.tree;
+
+import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.model.RecurringInvoiceItem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestAccountItemTree /* extends InvoiceTestSuiteNoDB  */ {
+
+    private final UUID invoiceId = UUID.randomUUID();
+    private final UUID accountId = UUID.randomUUID();
+    private final UUID bundleId = UUID.randomUUID();
+    private final String planName = "my-plan";
+    private final String phaseName = "my-phase";
+    private final Currency currency = Currency.USD;
+
+    @Test(groups = "fast")
+    public void testParallelMergeIsDeterministic() throws Exception {
+        final List<InvoiceItem> existingItems = new LinkedList<InvoiceItem>();
+        final List<InvoiceItem> proposedItems = new LinkedList<InvoiceItem>();
+        final LocalDate startDate = new LocalDate(2014, 1, 1);
+        for (int i = 0; i < 100; i++) {
+            final UUID subscriptionId = UUID.randomUUID();
+            final BigDecimal rate = new BigDecimal("10.00").add(BigDecimal.valueOf(i));
+            final BigDecimal newRate = rate.add(BigDecimal.ONE);
+            // One month already invoiced, the proposed items change the price from the second month
+            existingItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, planName, phaseName, startDate, startDate.plusMonths(1), rate, rate, currency));
+            proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, planName, phaseName, startDate, startDate.plusMonths(1), rate, rate, currency));
+            proposedItems.add(new RecurringInvoiceItem(invoiceId, accountId, bundleId, subscriptionId, planName, phaseName, startDate.plusMonths(1), startDate.plusMonths(2), newRate, newRate, currency));
+        }
+
+        final List<InvoiceItem> sequentialResult = merge(new AccountItemTree(accountId), existingItems, proposedItems);
+        Assert.assertEquals(sequentialResult.size(), 100);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 5; i++) {
+                final List<InvoiceItem> parallelResult = merge(new AccountItemTree(accountId, executor, 10), existingItems, proposedItems);
+                Assert.assertEquals(parallelResult.size(), sequentialResult.size());
+                for (int j = 0; j < sequentialResult.size(); j++) {
+                    Assert.assertTrue(parallelResult.get(j).matches(sequentialResult.get(j)));
+                    Assert.assertEquals(parallelResult.get(j).getAmount().compareTo(sequentialResult.get(j).getAmount()), 0);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<InvoiceItem> merge(final AccountItemTree tree, final List<InvoiceItem> existingItems, final List<InvoiceItem> proposedItems) {
+        for (final InvoiceItem item : existingItems) {
+            tree.addExistingItem(item);
+        }
+        tree.mergeWithProposedItems(proposedItems);
+        return tree.getResultingItemList();
+    }
+}
@@ -16,8 +16,11 @@
 
 package org.killbill.billing.invoice.tree;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -289,6 +292,67 @@ public class TestNodeInterval /* extends InvoiceTestSuiteNoDB  */ {
         }
     }
 
+    @Test(groups = "fast")
+    public void testAddNodesOutOfOrderOverTenYears() {
+        final DummyNodeInterval root = new DummyNodeInterval();
+
+        final List<DummyNodeInterval> expected = new LinkedList<DummyNodeInterval>();
+        final List<DummyNodeInterval> nodes = new ArrayList<DummyNodeInterval>();
+        final LocalDate startDate = new LocalDate("2014-01-01");
+        for (int year = 0; year < 10; year++) {
+            final DummyNodeInterval yearNode = createNodeInterval(startDate.plusYears(year), startDate.plusYears(year + 1));
+            expected.add(yearNode);
+            nodes.add(yearNode);
+            for (int month = 0; month < 12; month++) {
+                final DummyNodeInterval monthNode = createNodeInterval(startDate.plusYears(year).plusMonths(month), startDate.plusYears(year).plusMonths(month + 1));
+                expected.add(monthNode);
+                nodes.add(monthNode);
+            }
+        }
+
+        // Years are added after some of their months, which requires rebalancing
+        Collections.shuffle(nodes, new Random(42));
+        for (final DummyNodeInterval node : nodes) {
+            assertTrue(root.addNode(node, CALLBACK));
+        }
+
+        final List<NodeInterval> result = new LinkedList<NodeInterval>();
+        root.walkTree(new WalkCallback() {
+            @Override
+            public void onCurrentNode(final int depth, final NodeInterval curNode, final NodeInterval parent) {
+                if (!curNode.isRoot()) {
+                    result.add(curNode);
+                }
+            }
+        });
+        assertEquals(result, expected);
+
+        assertEquals(root.getNbChildren(), 10);
+        for (final NodeInterval yearNode : root.getChildren()) {
+            assertEquals(yearNode.getNbChildren(), 12);
+            assertTrue(yearNode.isPartitionedByChildren());
+        }
+
+        // Both the year and the month comprise the date, the year is found first
+        final LocalDate targetDate = new LocalDate("2019-06-15");
+        final NodeInterval monthNode = root.findNode(targetDate, new SearchCallback() {
+            @Override
+            public boolean isMatch(final NodeInterval curNode) {
+                return curNode.getNbChildren() == 0;
+            }
+        });
+        checkInterval(monthNode, createNodeInterval("2019-06-01", "2019-07-01"));
+        checkInterval(monthNode.getParent(), createNodeInterval("2019-01-01", "2020-01-01"));
+
+        // Remove all the months of a year
+        final NodeInterval yearNode = monthNode.getParent();
+        for (final NodeInterval curMonthNode : new ArrayList<NodeInterval>(yearNode.getChildren())) {
+            yearNode.removeChild(curMonthNode);
+        }
+        assertEquals(yearNode.getNbChildren(), 0);
+        assertNull(yearNode.getLeftChild());
+    }
+
     private void checkInterval(final NodeInterval real, final NodeInterval expected) {
         assertEquals(real.getStart(), expected.getStart());
         assertEquals(real.getEnd(), expected.getEnd());
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class UsageFailureJson {
+
+    private final Integer index;
+    private final UsageJson usage;
+    private final String message;
+
+    @JsonCreator
+    public UsageFailureJson(@JsonProperty("index") final Integer index,
+                            @JsonProperty("usage") final UsageJson usage,
+                            @JsonProperty("message") final String message) {
+        this.index = index;
+        this.usage = usage;
+        this.message = message;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public UsageJson getUsage() {
+        return usage;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UsageFailureJson)) {
+            return false;
+        }
+
+        final UsageFailureJson that = (UsageFailureJson) o;
+
+        if (index != null ? !index.equals(that.index) : that.index != null) {
+            return false;
+        }
+        if (message != null ? !message.equals(that.message) : that.message != null) {
+            return false;
+        }
+        if (usage != null ? !usage.equals(that.usage) : that.usage != null) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = index != null ? index.hashCode() : 0;
+        result = 31 * result + (usage != null ? usage.hashCode() : 0);
+        result = 31 * result + (message != null ? message.hashCode() : 0);
+        return result;
+    }
+}
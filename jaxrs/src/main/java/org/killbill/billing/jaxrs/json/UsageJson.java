@@ -17,6 +17,7 @@
 package org.killbill.billing.jaxrs.json;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.usage.api.RolledUpUsage;
@@ -49,6 +50,36 @@ public class UsageJson {
         this(usage.getSubscriptionId().toString(), usage.getUnitType(), usage.getStartTime(), usage.getEndTime(), usage.getAmount());
     }
 
+    public RolledUpUsage toRolledUpUsage() {
+        final UUID subscriptionUUID = subscriptionId != null ? UUID.fromString(subscriptionId) : null;
+        return new RolledUpUsage() {
+            @Override
+            public UUID getSubscriptionId() {
+                return subscriptionUUID;
+            }
+
+            @Override
+            public String getUnitType() {
+                return unitType;
+            }
+
+            @Override
+            public DateTime getStartTime() {
+                return startTime;
+            }
+
+            @Override
+            public DateTime getEndTime() {
+                return endTime;
+            }
+
+            @Override
+            public BigDecimal getAmount() {
+                return amount;
+            }
+        };
+    }
+
     public String getSubscriptionId() {
         return subscriptionId;
     }
@@ -49,6 +49,7 @@ import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.account.api.AccountEmail;
+import org.killbill.billing.account.api.AccountMaintenanceApi;
 import org.killbill.billing.account.api.AccountUserApi;
 import org.killbill.billing.account.api.MutableAccountData;
 import org.killbill.billing.catalog.api.Currency;
@@ -123,6 +124,7 @@ public class AccountResource extends JaxRsResourceBase {
     private final InvoiceUserApi invoiceApi;
     private final InvoicePaymentApi invoicePaymentApi;
     private final OverdueUserApi overdueApi;
+    private final AccountMaintenanceApi accountMaintenanceApi;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
@@ -135,6 +137,7 @@ public class AccountResource extends JaxRsResourceBase {
                            final CustomFieldUserApi customFieldUserApi,
                            final SubscriptionApi subscriptionApi,
                            final OverdueUserApi overdueApi,
+                           final AccountMaintenanceApi accountMaintenanceApi,
                            final Clock clock,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountApi, paymentApi, clock, context);
@@ -142,6 +145,7 @@ public class AccountResource extends JaxRsResourceBase {
         this.invoiceApi = invoiceApi;
         this.invoicePaymentApi = invoicePaymentApi;
         this.overdueApi = overdueApi;
+        this.accountMaintenanceApi = accountMaintenanceApi;
     }
 
     @GET
@@ -295,6 +299,39 @@ public class AccountResource extends JaxRsResourceBase {
         return getAccount(accountId, false, false, new AuditMode(AuditLevel.NONE.toString()), request);
     }
 
+    @PUT
+    @Path("/" + SEARCH_TOKENS)
+    @Produces(APPLICATION_JSON)
+    public Response rebuildSearchTokens(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
+                                        @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                        @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                        @HeaderParam(HDR_REASON) final String reason,
+                                        @HeaderParam(HDR_COMMENT) final String comment,
+                                        @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
+        // One page of accounts per call: clients follow the next page headers until there are none
+        final Pagination<Account> accounts = accountMaintenanceApi.rebuildSearchTokens(offset, limit, context.createContext(createdBy, reason, comment, request));
+        final int nbAccounts = Iterables.size(accounts);
+        final Long nextOffset = nbAccounts < limit ? null : accounts.getNextOffset();
+        final URI nextPageUri = uriBuilder.nextPage(AccountResource.class, "rebuildSearchTokens", nextOffset, limit, ImmutableMap.<String, String>of());
+        return Response.status(Status.OK)
+                       .header(HDR_PAGINATION_CURRENT_OFFSET, accounts.getCurrentOffset())
+                       .header(HDR_PAGINATION_NEXT_OFFSET, nextOffset)
+                       .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
+                       .build();
+    }
+
+    @PUT
+    @Path("/{accountId:" + UUID_PATTERN + "}/" + SEARCH_TOKENS)
+    @Produces(APPLICATION_JSON)
+    public Response rebuildSearchTokensForAccount(@PathParam("accountId") final String accountId,
+                                                  @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                                  @HeaderParam(HDR_REASON) final String reason,
+                                                  @HeaderParam(HDR_COMMENT) final String comment,
+                                                  @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
+        accountMaintenanceApi.rebuildSearchTokens(UUID.fromString(accountId), context.createContext(createdBy, reason, comment, request));
+        return Response.status(Status.OK).build();
+    }
+
     // Not supported
     @DELETE
     @Path("/{accountId:" + UUID_PATTERN + "}")
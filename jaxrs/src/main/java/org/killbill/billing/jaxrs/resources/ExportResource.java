@@ -19,7 +19,9 @@ package org.killbill.billing.jaxrs.resources;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
@@ -28,6 +30,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.killbill.billing.account.api.AccountUserApi;
@@ -68,18 +73,72 @@ public class ExportResource extends JaxRsResourceBase {
     @GET
     @Path("/{accountId:" + UUID_PATTERN + "}")
     @Produces(TEXT_PLAIN)
-    public StreamingOutput exportDataForAccount(@PathParam("accountId") final String accountId,
-                                                @HeaderParam(HDR_CREATED_BY) final String createdBy,
-                                                @HeaderParam(HDR_REASON) final String reason,
-                                                @HeaderParam(HDR_COMMENT) final String comment,
-                                                @javax.ws.rs.core.Context final HttpServletRequest request) {
+    public Response exportDataForAccount(@PathParam("accountId") final String accountId,
+                                         @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                         @HeaderParam(HDR_REASON) final String reason,
+                                         @HeaderParam(HDR_COMMENT) final String comment,
+                                         @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request) {
         final CallContext callContext = context.createContext(createdBy, reason, comment, request);
-        return new StreamingOutput() {
+        // Large accounts compress well: honor gzip if the client supports it
+        final boolean gzip = acceptsGzip(acceptEncoding);
+        final StreamingOutput csv = new StreamingOutput() {
             @Override
             public void write(final OutputStream output) throws IOException, WebApplicationException {
+                final OutputStream out = gzip ? new GZIPOutputStream(output, 8192) : output;
                 // CSV by default for now
-                exportUserApi.exportDataAsCSVForAccount(UUID.fromString(accountId), output, callContext);
+                exportUserApi.exportDataAsCSVForAccount(UUID.fromString(accountId), out, callContext);
+                if (gzip) {
+                    ((GZIPOutputStream) out).finish();
+                }
             }
         };
+
+        // The encoding depends on the request header, which caches have to take into account
+        final Response.ResponseBuilder responseBuilder = Response.status(Status.OK).entity(csv).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            responseBuilder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return responseBuilder.build();
+    }
+
+    // See RFC 7231 section 5.3.4: a coding is acceptable unless its qvalue is 0, the wildcard applies to codings not listed
+    static boolean acceptsGzip(@Nullable final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Boolean gzip = null;
+        Boolean wildcard = null;
+        for (final String coding : acceptEncoding.split(",")) {
+            final String[] parameters = coding.split(";");
+            final String name = parameters[0].trim().toLowerCase();
+            if (!"gzip".equals(name) && !"x-gzip".equals(name) && !"*".equals(name)) {
+                continue;
+            }
+
+            final boolean acceptable = getQValue(parameters) > 0;
+            if ("*".equals(name)) {
+                wildcard = acceptable;
+            } else {
+                gzip = gzip == null ? acceptable : gzip || acceptable;
+            }
+        }
+        return gzip != null ? gzip : wildcard != null && wildcard;
+    }
+
+    private static double getQValue(final String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            final String[] parameter = parameters[i].split("=", 2);
+            if (parameter.length == 2 && "q".equalsIgnoreCase(parameter[0].trim())) {
+                try {
+                    return Double.parseDouble(parameter[1].trim());
+                } catch (final NumberFormatException e) {
+                    // Invalid qvalue: don't use that coding
+                    return 0;
+                }
+            }
+        }
+        return 1;
     }
 }
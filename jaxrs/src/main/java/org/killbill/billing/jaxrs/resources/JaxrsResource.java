@@ -29,6 +29,7 @@ public interface JaxrsResource {
     public static final String TIMELINE = "timeline";
     public static final String REGISTER_NOTIFICATION_CALLBACK = "registerNotificationCallback";
     public static final String SEARCH = "search";
+    public static final String SEARCH_TOKENS = "searchTokens";
 
     /*
      * Multi-Tenancy headers
@@ -71,6 +72,10 @@ public interface JaxrsResource {
     public static final String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     public static final String QUERY_SEARCH_OFFSET = "offset";
     public static final String QUERY_SEARCH_LIMIT = "limit";
+    // Optional keyset pagination cursor, set on the next page URI (see PaginationCursorScope)
+    public static final String QUERY_SEARCH_LAST_ID = "lastId";
+    // Optional, to skip the total counts (and their headers) once known from the first page
+    public static final String QUERY_SEARCH_SKIP_COUNTS = "skipCounts";
 
     public static final String QUERY_ACCOUNT_WITH_BALANCE = "accountWithBalance";
     public static final String QUERY_ACCOUNT_WITH_BALANCE_AND_CBA = "accountWithBalanceAndCBA";
@@ -183,6 +188,9 @@ public interface JaxrsResource {
     public static final String USAGES = "usages";
     public static final String USAGES_PATH = PREFIX + "/" + USAGES;
 
+    public static final String DAILY_ROLLUPS = "dailyRollups";
+    public static final String BULK = "bulk";
+
     public static final String EXPORT = "export";
     public static final String EXPORT_PATH = PREFIX + "/" + EXPORT;
 
@@ -16,6 +16,11 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -24,6 +29,7 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
@@ -34,11 +40,14 @@ import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.jaxrs.json.UsageFailureJson;
 import org.killbill.billing.jaxrs.json.UsageJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.DirectPaymentApi;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
 import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.api.UsageMaintenanceApi;
 import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
@@ -55,6 +64,8 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 public class UsageResource extends JaxRsResourceBase {
 
     private final UsageUserApi usageUserApi;
+    private final BulkUsageUserApi bulkUsageUserApi;
+    private final UsageMaintenanceApi usageMaintenanceApi;
 
     @Inject
     public UsageResource(final JaxrsUriBuilder uriBuilder,
@@ -63,11 +74,15 @@ public class UsageResource extends JaxRsResourceBase {
                          final AuditUserApi auditUserApi,
                          final AccountUserApi accountUserApi,
                          final UsageUserApi usageUserApi,
+                         final BulkUsageUserApi bulkUsageUserApi,
+                         final UsageMaintenanceApi usageMaintenanceApi,
                          final DirectPaymentApi paymentApi,
                          final Clock clock,
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, clock, context);
         this.usageUserApi = usageUserApi;
+        this.bulkUsageUserApi = bulkUsageUserApi;
+        this.usageMaintenanceApi = usageMaintenanceApi;
     }
 
     @POST
@@ -85,6 +100,51 @@ public class UsageResource extends JaxRsResourceBase {
         return Response.status(Status.CREATED).build();
     }
 
+    @POST
+    @Path("/" + BULK)
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    public Response recordUsages(final List<UsageJson> json,
+                                 @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                 @HeaderParam(HDR_REASON) final String reason,
+                                 @HeaderParam(HDR_COMMENT) final String comment,
+                                 @javax.ws.rs.core.Context final HttpServletRequest request) {
+        // Empty body
+        if (json == null) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        final CallContext callContext = context.createContext(createdBy, reason, comment, request);
+
+        // Records which can't be converted (malformed subscriptionId) fail individually, the others are recorded
+        final Map<Integer, String> failures = new TreeMap<Integer, String>();
+        final List<RolledUpUsage> usages = new ArrayList<RolledUpUsage>();
+        final List<Integer> positions = new ArrayList<Integer>();
+        for (int i = 0; i < json.size(); i++) {
+            final UsageJson usageJson = json.get(i);
+            try {
+                usages.add(usageJson == null ? null : usageJson.toRolledUpUsage());
+                positions.add(i);
+            } catch (final IllegalArgumentException e) {
+                failures.put(i, "Usage record has an invalid subscriptionId: " + usageJson.getSubscriptionId());
+            }
+        }
+
+        final Map<Integer, String> recordFailures = bulkUsageUserApi.recordRolledUpUsage(usages, callContext);
+        for (final Integer index : recordFailures.keySet()) {
+            failures.put(positions.get(index), recordFailures.get(index));
+        }
+
+        final List<UsageFailureJson> result = new LinkedList<UsageFailureJson>();
+        for (final Integer index : failures.keySet()) {
+            result.add(new UsageFailureJson(index, json.get(index), failures.get(index)));
+        }
+
+        // Nothing was recorded
+        final Status status = !json.isEmpty() && failures.size() == json.size() ? Status.BAD_REQUEST : Status.CREATED;
+        return Response.status(status).entity(result).build();
+    }
+
     @GET
     @Path("/{subscriptionId:" + UUID_PATTERN + "}/{unitType}")
     @Produces(APPLICATION_JSON)
@@ -104,5 +164,28 @@ public class UsageResource extends JaxRsResourceBase {
         return Response.status(Status.OK).entity(result).build();
     }
 
+    @PUT
+    @Path("/" + DAILY_ROLLUPS)
+    @Produces(APPLICATION_JSON)
+    public Response rebuildDailyRollups(@HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                        @HeaderParam(HDR_REASON) final String reason,
+                                        @HeaderParam(HDR_COMMENT) final String comment,
+                                        @javax.ws.rs.core.Context final HttpServletRequest request) {
+        usageMaintenanceApi.rebuildDailyRollups(context.createContext(createdBy, reason, comment, request));
+        return Response.status(Status.OK).build();
+    }
+
+    @PUT
+    @Path("/{subscriptionId:" + UUID_PATTERN + "}/" + DAILY_ROLLUPS)
+    @Produces(APPLICATION_JSON)
+    public Response rebuildDailyRollupsForSubscription(@PathParam("subscriptionId") final String subscriptionId,
+                                                       @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                                       @HeaderParam(HDR_REASON) final String reason,
+                                                       @HeaderParam(HDR_COMMENT) final String comment,
+                                                       @javax.ws.rs.core.Context final HttpServletRequest request) {
+        usageMaintenanceApi.rebuildDailyRollups(UUID.fromString(subscriptionId), context.createContext(createdBy, reason, comment, request));
+        return Response.status(Status.OK).build();
+    }
+
 }
 
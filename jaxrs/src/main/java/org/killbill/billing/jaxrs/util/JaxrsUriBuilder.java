@@ -25,6 +25,7 @@ import javax.ws.rs.core.UriInfo;
 
 import org.killbill.billing.jaxrs.resources.JaxRsResourceBase;
 import org.killbill.billing.jaxrs.resources.JaxrsResource;
+import org.killbill.billing.util.entity.dao.PaginationCursorScope;
 
 public class JaxrsUriBuilder {
 
@@ -50,6 +51,13 @@ public class JaxrsUriBuilder {
                                                 .path(theClass, getMethodName)
                                                 .queryParam(JaxRsResourceBase.QUERY_SEARCH_OFFSET, nextOffset)
                                                 .queryParam(JaxRsResourceBase.QUERY_SEARCH_LIMIT, limit);
+        final String lastId = PaginationCursorScope.getNextLastId(nextOffset);
+        if (lastId != null) {
+            uriBuilder.queryParam(JaxRsResourceBase.QUERY_SEARCH_LAST_ID, lastId);
+        }
+        if (PaginationCursorScope.isSkipCounts()) {
+            uriBuilder.queryParam(JaxRsResourceBase.QUERY_SEARCH_SKIP_COUNTS, Boolean.TRUE);
+        }
         for (final String key : params.keySet()) {
             uriBuilder.queryParam(key, params.get(key));
         }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestUsageJson extends JaxrsTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testJson() throws Exception {
+        final String subscriptionId = UUID.randomUUID().toString();
+        final DateTime startTime = new DateTime(2014, 3, 1, 0, 0, 0, 0, DateTimeZone.UTC);
+        final DateTime endTime = startTime.plusHours(1);
+        final UsageJson usageJson = new UsageJson(subscriptionId, "minutes", startTime, endTime, BigDecimal.TEN);
+
+        final String asJson = mapper.writeValueAsString(usageJson);
+        final UsageJson fromJson = mapper.readValue(asJson, UsageJson.class);
+        Assert.assertEquals(fromJson, usageJson);
+
+        final RolledUpUsage rolledUpUsage = fromJson.toRolledUpUsage();
+        Assert.assertEquals(rolledUpUsage.getSubscriptionId().toString(), subscriptionId);
+        Assert.assertEquals(rolledUpUsage.getUnitType(), "minutes");
+        Assert.assertEquals(rolledUpUsage.getStartTime().compareTo(startTime), 0);
+        Assert.assertEquals(rolledUpUsage.getEndTime().compareTo(endTime), 0);
+        Assert.assertEquals(rolledUpUsage.getAmount().compareTo(BigDecimal.TEN), 0);
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSubscriptionId() throws Exception {
+        new UsageJson("not-a-uuid", "minutes", new DateTime(), null, BigDecimal.ONE).toRolledUpUsage();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.resources;
+
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.util.Context;
+import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.payment.api.DirectPaymentApi;
+import org.killbill.billing.util.api.AuditUserApi;
+import org.killbill.billing.util.api.CustomFieldUserApi;
+import org.killbill.billing.util.api.ExportUserApi;
+import org.killbill.billing.util.api.TagUserApi;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestExportResource extends JaxrsTestSuiteNoDB {
+
+    private ExportResource exportResource;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.createContext(Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.<HttpServletRequest>any())).thenReturn(callContext);
+        exportResource = new ExportResource(Mockito.mock(ExportUserApi.class),
+                                            Mockito.mock(JaxrsUriBuilder.class),
+                                            Mockito.mock(TagUserApi.class),
+                                            Mockito.mock(CustomFieldUserApi.class),
+                                            Mockito.mock(AuditUserApi.class),
+                                            Mockito.mock(AccountUserApi.class),
+                                            Mockito.mock(DirectPaymentApi.class),
+                                            clock,
+                                            context);
+    }
+
+    @Test(groups = "fast")
+    public void testAcceptsGzip() {
+        Assert.assertFalse(ExportResource.acceptsGzip(null));
+        Assert.assertFalse(ExportResource.acceptsGzip(""));
+        Assert.assertFalse(ExportResource.acceptsGzip("identity"));
+        Assert.assertFalse(ExportResource.acceptsGzip("deflate, br"));
+
+        Assert.assertTrue(ExportResource.acceptsGzip("gzip"));
+        Assert.assertTrue(ExportResource.acceptsGzip("GZIP"));
+        Assert.assertTrue(ExportResource.acceptsGzip("x-gzip"));
+        Assert.assertTrue(ExportResource.acceptsGzip("deflate, gzip;q=0.5"));
+        Assert.assertTrue(ExportResource.acceptsGzip("gzip ; q = 1.0"));
+
+        // Explicitly refused
+        Assert.assertFalse(ExportResource.acceptsGzip("gzip;q=0"));
+        Assert.assertFalse(ExportResource.acceptsGzip("gzip;q=0.000, deflate"));
+        Assert.assertFalse(ExportResource.acceptsGzip("gzip;q=invalid"));
+
+        // The wildcard only applies to the codings which aren't listed
+        Assert.assertTrue(ExportResource.acceptsGzip("*"));
+        Assert.assertTrue(ExportResource.acceptsGzip("deflate, *;q=0.1"));
+        Assert.assertFalse(ExportResource.acceptsGzip("*;q=0"));
+        Assert.assertFalse(ExportResource.acceptsGzip("*, gzip;q=0"));
+        Assert.assertTrue(ExportResource.acceptsGzip("*;q=0, gzip"));
+    }
+
+    @Test(groups = "fast")
+    public void testResponseHeaders() {
+        final Response gzipResponse = export("gzip, deflate");
+        Assert.assertEquals(gzipResponse.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING), "gzip");
+        Assert.assertEquals(gzipResponse.getMetadata().getFirst(HttpHeaders.VARY), HttpHeaders.ACCEPT_ENCODING);
+
+        final Response refusedResponse = export("gzip;q=0");
+        Assert.assertNull(refusedResponse.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(refusedResponse.getMetadata().getFirst(HttpHeaders.VARY), HttpHeaders.ACCEPT_ENCODING);
+
+        final Response plainResponse = export(null);
+        Assert.assertNull(plainResponse.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertEquals(plainResponse.getMetadata().getFirst(HttpHeaders.VARY), HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    private Response export(final String acceptEncoding) {
+        return exportResource.exportDataForAccount(UUID.randomUUID().toString(), "tester", "reason", "comment", acceptEncoding, null);
+    }
+}
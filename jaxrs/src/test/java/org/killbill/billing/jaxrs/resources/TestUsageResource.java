@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.resources;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.UsageFailureJson;
+import org.killbill.billing.jaxrs.json.UsageJson;
+import org.killbill.billing.jaxrs.util.Context;
+import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.payment.api.DirectPaymentApi;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.api.UsageMaintenanceApi;
+import org.killbill.billing.usage.api.UsageUserApi;
+import org.killbill.billing.util.api.AuditUserApi;
+import org.killbill.billing.util.api.CustomFieldUserApi;
+import org.killbill.billing.util.api.TagUserApi;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TestUsageResource extends JaxrsTestSuiteNoDB {
+
+    private final DateTime startTime = new DateTime(2014, 3, 1, 0, 0, DateTimeZone.UTC);
+
+    private BulkUsageUserApi bulkUsageUserApi;
+    private UsageResource usageResource;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        bulkUsageUserApi = Mockito.mock(BulkUsageUserApi.class);
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.createContext(Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.<HttpServletRequest>any())).thenReturn(callContext);
+        usageResource = new UsageResource(Mockito.mock(JaxrsUriBuilder.class),
+                                          Mockito.mock(TagUserApi.class),
+                                          Mockito.mock(CustomFieldUserApi.class),
+                                          Mockito.mock(AuditUserApi.class),
+                                          Mockito.mock(AccountUserApi.class),
+                                          Mockito.mock(UsageUserApi.class),
+                                          bulkUsageUserApi,
+                                          Mockito.mock(UsageMaintenanceApi.class),
+                                          Mockito.mock(DirectPaymentApi.class),
+                                          clock,
+                                          context);
+    }
+
+    @Test(groups = "fast")
+    public void testFailuresAreReportedAtTheirPositionInTheRequest() {
+        final List<UsageJson> json = ImmutableList.<UsageJson>of(usageJson(UUID.randomUUID().toString()),
+                                                                 usageJson("not-a-uuid"),
+                                                                 usageJson(UUID.randomUUID().toString()),
+                                                                 usageJson("not-a-uuid-either"),
+                                                                 usageJson(UUID.randomUUID().toString()));
+        // The second record passed to the API (the third one of the request) fails
+        Mockito.when(bulkUsageUserApi.recordRolledUpUsage(Mockito.<List<RolledUpUsage>>any(), Mockito.<CallContext>any()))
+               .thenReturn(ImmutableMap.<Integer, String>of(1, "Unable to record usage"));
+
+        final Response response = usageResource.recordUsages(json, "tester", "reason", "comment", null);
+        Assert.assertEquals(response.getStatus(), Status.CREATED.getStatusCode());
+
+        // Only the well-formed records are passed to the API
+        final List<RolledUpUsage> usages = captureRecordedUsages();
+        Assert.assertEquals(usages.size(), 3);
+        Assert.assertEquals(usages.get(0).getSubscriptionId().toString(), json.get(0).getSubscriptionId());
+        Assert.assertEquals(usages.get(1).getSubscriptionId().toString(), json.get(2).getSubscriptionId());
+        Assert.assertEquals(usages.get(2).getSubscriptionId().toString(), json.get(4).getSubscriptionId());
+
+        final List<UsageFailureJson> failures = getFailures(response);
+        Assert.assertEquals(failures.size(), 3);
+        Assert.assertEquals(failures.get(0).getIndex(), (Integer) 1);
+        Assert.assertEquals(failures.get(0).getUsage(), json.get(1));
+        Assert.assertEquals(failures.get(0).getMessage(), "Usage record has an invalid subscriptionId: not-a-uuid");
+        Assert.assertEquals(failures.get(1).getIndex(), (Integer) 2);
+        Assert.assertEquals(failures.get(1).getUsage(), json.get(2));
+        Assert.assertEquals(failures.get(1).getMessage(), "Unable to record usage");
+        Assert.assertEquals(failures.get(2).getIndex(), (Integer) 3);
+        Assert.assertEquals(failures.get(2).getUsage(), json.get(3));
+    }
+
+    @Test(groups = "fast")
+    public void testBadRequestWhenNothingIsRecorded() {
+        final List<UsageJson> json = ImmutableList.<UsageJson>of(usageJson("not-a-uuid"), usageJson(UUID.randomUUID().toString()));
+        Mockito.when(bulkUsageUserApi.recordRolledUpUsage(Mockito.<List<RolledUpUsage>>any(), Mockito.<CallContext>any()))
+               .thenReturn(ImmutableMap.<Integer, String>of(0, "Unable to record usage"));
+
+        final Response response = usageResource.recordUsages(json, "tester", "reason", "comment", null);
+        Assert.assertEquals(response.getStatus(), Status.BAD_REQUEST.getStatusCode());
+        Assert.assertEquals(getFailures(response).size(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testEmptyRequest() {
+        Assert.assertEquals(usageResource.recordUsages(null, "tester", "reason", "comment", null).getStatus(), Status.BAD_REQUEST.getStatusCode());
+        Mockito.verifyZeroInteractions(bulkUsageUserApi);
+
+        // Nothing to record
+        final Response response = usageResource.recordUsages(ImmutableList.<UsageJson>of(), "tester", "reason", "comment", null);
+        Assert.assertEquals(response.getStatus(), Status.CREATED.getStatusCode());
+        Assert.assertEquals(getFailures(response).size(), 0);
+    }
+
+    private List<RolledUpUsage> captureRecordedUsages() {
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<RolledUpUsage>> captor = (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+        Mockito.verify(bulkUsageUserApi).recordRolledUpUsage(captor.capture(), Mockito.<CallContext>any());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<UsageFailureJson> getFailures(final Response response) {
+        return (List<UsageFailureJson>) response.getEntity();
+    }
+
+    private UsageJson usageJson(final String subscriptionId) {
+        return new UsageJson(subscriptionId, "minutes", startTime, startTime.plusHours(1), BigDecimal.ONE);
+    }
+}
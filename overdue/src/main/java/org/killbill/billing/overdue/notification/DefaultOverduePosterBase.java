@@ -39,6 +39,7 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 
 public abstract class DefaultOverduePosterBase implements OverduePoster {
@@ -50,9 +51,10 @@ public abstract class DefaultOverduePosterBase implements OverduePoster {
 
     public DefaultOverduePosterBase(final NotificationQueueService notificationQueueService,
                                     final IDBI dbi, final Clock clock,
-                                    final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
+                                    final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                    final MetricRegistry metricRegistry) {
         this.notificationQueueService = notificationQueueService;
-        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao);
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry);
     }
 
     @Override
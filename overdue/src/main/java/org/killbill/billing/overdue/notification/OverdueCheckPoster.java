@@ -31,6 +31,7 @@ import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 
 public class OverdueCheckPoster extends DefaultOverduePosterBase {
@@ -38,8 +39,9 @@ public class OverdueCheckPoster extends DefaultOverduePosterBase {
     @Inject
     public OverdueCheckPoster(final NotificationQueueService notificationQueueService,
                                     final IDBI dbi, final Clock clock,
-                                    final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
-        super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao);
+                                    final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                    final MetricRegistry metricRegistry) {
+        super(notificationQueueService, dbi, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry);
     }
 
     @Override
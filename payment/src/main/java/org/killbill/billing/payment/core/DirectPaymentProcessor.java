@@ -58,6 +58,7 @@ import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
@@ -98,13 +99,14 @@ public class DirectPaymentProcessor extends ProcessorBase {
                                   final TagInternalApi tagUserApi,
                                   final PaymentDao paymentDao,
                                   final NonEntityDao nonEntityDao,
+                                  final CacheControllerDispatcher cacheControllerDispatcher,
                                   final PersistentBus eventBus,
                                   final InternalCallContextFactory internalCallContextFactory,
                                   final GlobalLocker locker,
                                   @Named(PLUGIN_EXECUTOR_NAMED) final ExecutorService executor,
                                   final DirectPaymentAutomatonRunner directPaymentAutomatonRunner,
                                   final Clock clock) {
-        super(pluginRegistry, accountUserApi, eventBus, paymentDao, nonEntityDao, tagUserApi, locker, executor, invoiceApi, clock);
+        super(pluginRegistry, accountUserApi, eventBus, paymentDao, nonEntityDao, cacheControllerDispatcher, tagUserApi, locker, executor, invoiceApi, clock);
         this.internalCallContextFactory = internalCallContextFactory;
         this.directPaymentAutomatonRunner = directPaymentAutomatonRunner;
     }
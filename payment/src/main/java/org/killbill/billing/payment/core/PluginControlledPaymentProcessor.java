@@ -45,6 +45,8 @@ import org.killbill.billing.payment.dao.PaymentDao;
 import org.killbill.billing.payment.dao.PluginPropertyModelDao;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.bus.api.PersistentBus;
@@ -69,12 +71,13 @@ public class PluginControlledPaymentProcessor extends ProcessorBase {
                                             final TagInternalApi tagUserApi,
                                             final PaymentDao paymentDao,
                                             final NonEntityDao nonEntityDao,
+                                            final CacheControllerDispatcher cacheControllerDispatcher,
                                             final PersistentBus eventBus,
                                             final GlobalLocker locker,
                                             @Named(PLUGIN_EXECUTOR_NAMED) final ExecutorService executor,
                                             final PluginControlledDirectPaymentAutomatonRunner pluginControlledDirectPaymentAutomatonRunner,
                                             final Clock clock) {
-        super(pluginRegistry, accountInternalApi, eventBus, paymentDao, nonEntityDao, tagUserApi, locker, executor, invoiceApi, clock);
+        super(pluginRegistry, accountInternalApi, eventBus, paymentDao, nonEntityDao, cacheControllerDispatcher, tagUserApi, locker, executor, invoiceApi, clock);
 
         this.pluginControlledDirectPaymentAutomatonRunner = pluginControlledDirectPaymentAutomatonRunner;
     }
@@ -190,7 +193,7 @@ public class PluginControlledPaymentProcessor extends ProcessorBase {
             }));
 
             final Account account = accountInternalApi.getAccountById(attempt.getAccountId(), internalCallContext);
-            final UUID tenantId = nonEntityDao.retrieveIdFromObject(internalCallContext.getTenantRecordId(), ObjectType.TENANT);
+            final UUID tenantId = nonEntityDao.retrieveIdFromObject(internalCallContext.getTenantRecordId(), ObjectType.TENANT, cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID));
             final CallContext callContext = internalCallContext.toCallContext(tenantId);
 
 
@@ -44,9 +44,12 @@ import org.killbill.billing.payment.dao.PaymentMethodModelDao;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.billing.util.api.TagApiException;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoRequestCache;
 import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
@@ -73,6 +76,7 @@ public abstract class ProcessorBase {
     protected final ExecutorService executor;
     protected final PaymentDao paymentDao;
     protected final NonEntityDao nonEntityDao;
+    protected final CacheControllerDispatcher cacheControllerDispatcher;
     protected final TagInternalApi tagInternalApi;
     protected final Clock clock;
 
@@ -84,6 +88,7 @@ public abstract class ProcessorBase {
                          final PersistentBus eventBus,
                          final PaymentDao paymentDao,
                          final NonEntityDao nonEntityDao,
+                         final CacheControllerDispatcher cacheControllerDispatcher,
                          final TagInternalApi tagInternalApi,
                          final GlobalLocker locker,
                          final ExecutorService executor,
@@ -94,6 +99,7 @@ public abstract class ProcessorBase {
         this.eventBus = eventBus;
         this.paymentDao = paymentDao;
         this.nonEntityDao = nonEntityDao;
+        this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.locker = locker;
         this.executor = executor;
         this.tagInternalApi = tagInternalApi;
@@ -168,7 +174,7 @@ public abstract class ProcessorBase {
     }
 
     protected TenantContext buildTenantContext(final InternalTenantContext context) {
-        return context.toTenantContext(nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT));
+        return context.toTenantContext(nonEntityDao.retrieveIdFromObject(context.getTenantRecordId(), ObjectType.TENANT, cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID)));
     }
 
     // TODO Rename - there is no lock!
@@ -203,6 +209,8 @@ public abstract class ProcessorBase {
             GlobalLock lock = null;
             try {
                 lock = locker.lockWithNumberOfTries(LockerType.ACCOUNT_FOR_INVOICE_PAYMENTS.toString(), accountExternalKey, NB_LOCK_TRY);
+                // Reads memoized by the current request before the lock may be stale
+                EntitySqlDaoRequestCache.invalidate();
                 return callback.doOperation();
             } finally {
                 if (lock != null) {
@@ -35,6 +35,7 @@ import org.killbill.billing.payment.api.DirectPayment;
 import org.killbill.billing.payment.api.PaymentMethod;
 import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
@@ -44,8 +45,8 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.clock.Clock;
-import org.skife.jdbi.v2.IDBI;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
@@ -56,8 +57,9 @@ public class DefaultPaymentDao implements PaymentDao {
     private final DefaultPaginationSqlDaoHelper paginationHelper;
 
     @Inject
-    public DefaultPaymentDao(final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
-        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, cacheControllerDispatcher, nonEntityDao);
+    public DefaultPaymentDao(final DBRouter dbRouter, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                             final MetricRegistry metricRegistry) {
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbRouter, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry);
         this.paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao);
     }
 
@@ -171,6 +173,11 @@ public class DefaultPaymentDao implements PaymentDao {
                                                   public Iterator<PaymentModelDao> build(final PaymentSqlDao directPaymentSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return directPaymentSqlDao.getByPluginName(pluginName, offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<PaymentModelDao> buildAfter(final PaymentSqlDao directPaymentSqlDao, final String lastId, final Long limit, final InternalTenantContext context) {
+                                                      return directPaymentSqlDao.getByPluginNameAfter(pluginName, lastId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -343,6 +350,11 @@ public class DefaultPaymentDao implements PaymentDao {
                                                   public Iterator<PaymentMethodModelDao> build(final PaymentMethodSqlDao paymentMethodSqlDao, final Long limit, final InternalTenantContext context) {
                                                       return paymentMethodSqlDao.getByPluginName(pluginName, offset, limit, context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<PaymentMethodModelDao> buildAfter(final PaymentMethodSqlDao paymentMethodSqlDao, final String lastId, final Long limit, final InternalTenantContext context) {
+                                                      return paymentMethodSqlDao.getByPluginNameAfter(pluginName, lastId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -21,6 +21,7 @@ import java.util.List;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
@@ -35,8 +36,8 @@ public interface PaymentAttemptSqlDao extends EntitySqlDao<PaymentAttemptModelDa
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void updateAttempt(@Bind("id") final String attemptId,
-                       @Bind("transactionId") final String transactionId,
+    void updateAttempt(@BindUUID("id") final String attemptId,
+                       @BindUUID("transactionId") final String transactionId,
                        @Bind("stateName") final String stateName,
                        @BindBean final InternalCallContext context);
 
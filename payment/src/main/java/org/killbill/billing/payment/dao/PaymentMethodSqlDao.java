@@ -29,6 +29,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.commons.jdbi.statement.SmartFetchSize;
 import org.killbill.billing.payment.api.PaymentMethod;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -38,23 +39,23 @@ public interface PaymentMethodSqlDao extends EntitySqlDao<PaymentMethodModelDao,
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void markPaymentMethodAsDeleted(@Bind("id") final String paymentMethodId,
+    void markPaymentMethodAsDeleted(@BindUUID("id") final String paymentMethodId,
                                     @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void unmarkPaymentMethodAsDeleted(@Bind("id") final String paymentMethodId,
+    void unmarkPaymentMethodAsDeleted(@BindUUID("id") final String paymentMethodId,
                                       @BindBean final InternalCallContext context);
 
     @SqlQuery
-    PaymentMethodModelDao getPaymentMethodIncludedDelete(@Bind("id") final String paymentMethodId,
+    PaymentMethodModelDao getPaymentMethodIncludedDelete(@BindUUID("id") final String paymentMethodId,
                                                          @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    List<PaymentMethodModelDao> getByAccountId(@Bind("accountId") final String accountId, @BindBean final InternalTenantContext context);
+    List<PaymentMethodModelDao> getByAccountId(@BindUUID("accountId") final String accountId, @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    List<PaymentMethodModelDao> getByAccountIdIncludedDelete(@Bind("accountId") final String accountId, @BindBean final InternalTenantContext context);
+    List<PaymentMethodModelDao> getByAccountIdIncludedDelete(@BindUUID("accountId") final String accountId, @BindBean final InternalTenantContext context);
 
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
@@ -63,6 +64,13 @@ public interface PaymentMethodSqlDao extends EntitySqlDao<PaymentMethodModelDao,
                                                            @Bind("rowCount") final Long rowCount,
                                                            @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<PaymentMethodModelDao> getByPluginNameAfter(@Bind("pluginName") final String pluginName,
+                                                                @BindUUID("lastId") final String lastId,
+                                                                @Bind("rowCount") final Long rowCount,
+                                                                @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCountByPluginName(@Bind("pluginName") final String pluginName,
                                      @BindBean final InternalTenantContext context);
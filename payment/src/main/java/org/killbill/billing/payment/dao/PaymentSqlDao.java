@@ -22,6 +22,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.payment.api.DirectPayment;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -36,12 +37,12 @@ public interface PaymentSqlDao extends EntitySqlDao<PaymentModelDao, DirectPayme
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void updatePaymentForNewTransaction(@Bind("id") final String directPaymentId,
+    void updatePaymentForNewTransaction(@BindUUID("id") final String directPaymentId,
                                         @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void updatePaymentStateName(@Bind("id") final String directPaymentId,
+    void updatePaymentStateName(@BindUUID("id") final String directPaymentId,
                                 @Bind("stateName") final String stateName,
                                 @BindBean final InternalCallContext context);
 
@@ -56,6 +57,13 @@ public interface PaymentSqlDao extends EntitySqlDao<PaymentModelDao, DirectPayme
                                                            @Bind("rowCount") final Long rowCount,
                                                            @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<PaymentModelDao> getByPluginNameAfter(@Bind("pluginName") final String pluginName,
+                                                          @BindUUID("lastId") final String lastId,
+                                                          @Bind("rowCount") final Long rowCount,
+                                                          @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCountByPluginName(@Bind("pluginName") final String pluginName,
                                      @BindBean final InternalTenantContext context);
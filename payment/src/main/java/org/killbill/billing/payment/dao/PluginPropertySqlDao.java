@@ -18,9 +18,9 @@ package org.killbill.billing.payment.dao;
 
 import java.util.List;
 
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.dao.LowerToCamelBeanMapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
-import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
@@ -42,7 +42,7 @@ public interface PluginPropertySqlDao extends Transactional<PluginPropertySqlDao
 
     @RegisterMapper(PluginPropertySqlDaoMapper.class)
     @SqlQuery
-    List<PluginPropertyModelDao> getPluginProperties(@Bind("attemptId") final String attemptId);
+    List<PluginPropertyModelDao> getPluginProperties(@BindUUID("attemptId") final String attemptId);
 
     @SqlBatch(transactional = false)
     void batchCreateFromTransaction(@BindBean List<PluginPropertyModelDao> dataEntries);
@@ -24,6 +24,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.payment.api.DirectPaymentTransaction;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -37,7 +38,7 @@ public interface TransactionSqlDao extends EntitySqlDao<PaymentTransactionModelD
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void updateTransactionStatus(@Bind("id") final String transactionId,
+    void updateTransactionStatus(@BindUUID("id") final String transactionId,
                                  @Bind("processedAmount") final BigDecimal processedAmount,
                                  @Bind("processedCurrency") final String processedCurrency,
                                  @Bind("transactionStatus") final String transactionStatus,
@@ -53,6 +53,7 @@ import org.killbill.billing.payment.provider.MockPaymentControlProviderPlugin;
 import org.killbill.billing.payment.retry.BaseRetryService.RetryServiceScheduler;
 import org.killbill.billing.retry.plugin.api.PaymentControlPluginApi;
 import org.killbill.billing.tag.TagInternalApi;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.commons.locker.GlobalLock;
@@ -188,6 +189,7 @@ public class TestRetryableDirectPayment extends PaymentTestSuiteNoDB {
                                                          tagApi,
                                                          paymentDao,
                                                          nonEntityDao,
+                                                         new CacheControllerDispatcher(),
                                                          eventBus,
                                                          locker,
                                                          executor,
@@ -66,5 +66,6 @@ public class DefaultServerService implements ServerService {
         } catch (final EventBusException e) {
             log.warn("Failed to stop Server service :", e);
         }
+        pushNotificationListener.shutdown();
     }
 }
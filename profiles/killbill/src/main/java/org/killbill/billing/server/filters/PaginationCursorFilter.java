@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.filters;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import javax.inject.Singleton;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.killbill.billing.jaxrs.resources.JaxrsResource;
+import org.killbill.billing.util.entity.dao.PaginationCursorScope;
+
+/**
+ * Open a PaginationCursorScope for GET requests, with the keyset pagination cursor sent back by the client, if any,
+ * and whether the client asked for the counts to be skipped
+ */
+@Singleton
+public class PaginationCursorFilter implements Filter {
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || !"GET".equals(((HttpServletRequest) request).getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final boolean scopeOpened = PaginationCursorScope.open(getOffset(request), getLastId(request), isSkipCounts(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (scopeOpened) {
+                PaginationCursorScope.close();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    // Malformed values are left to the resources (offset) or ignored, the page being then retrieved by offset (cursor)
+    private Long getOffset(final ServletRequest request) {
+        final String offset = request.getParameter(JaxrsResource.QUERY_SEARCH_OFFSET);
+        try {
+            return offset == null ? 0L : Long.valueOf(offset);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String getLastId(final ServletRequest request) {
+        final String lastId = request.getParameter(JaxrsResource.QUERY_SEARCH_LAST_ID);
+        try {
+            return lastId == null ? null : UUID.fromString(lastId).toString();
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean isSkipCounts(final ServletRequest request) {
+        return Boolean.valueOf(request.getParameter(JaxrsResource.QUERY_SEARCH_SKIP_COUNTS));
+    }
+}
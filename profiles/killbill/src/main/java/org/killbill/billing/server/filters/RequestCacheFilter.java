@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.filters;
+
+import java.io.IOException;
+
+import javax.inject.Singleton;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.killbill.billing.util.entity.dao.EntitySqlDaoRequestCache;
+
+/**
+ * Memoize the EntitySqlDao reads for the duration of each request (only installed if both org.killbill.cache.request.enabled
+ * and org.killbill.cache.request.apiRequests are set). Code taking an account lock invalidates what was read before it.
+ */
+@Singleton
+public class RequestCacheFilter implements Filter {
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+        final boolean requestCacheOpened = EntitySqlDaoRequestCache.open();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (requestCacheOpened) {
+                EntitySqlDaoRequestCache.close();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
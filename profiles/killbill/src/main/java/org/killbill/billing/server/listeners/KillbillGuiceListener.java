@@ -18,21 +18,35 @@
 
 package org.killbill.billing.server.listeners;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.sql.DataSource;
 
 import org.killbill.billing.jaxrs.resources.JaxRsResourceBase;
 import org.killbill.billing.jaxrs.util.KillbillEventHandler;
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.platform.config.DefaultKillbillConfigSource;
+import org.killbill.billing.server.filters.PaginationCursorFilter;
+import org.killbill.billing.server.filters.RequestCacheFilter;
 import org.killbill.billing.server.modules.KillbillServerModule;
 import org.killbill.billing.server.security.TenantFilter;
+import org.killbill.billing.util.config.CacheConfig;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.commons.skeleton.modules.BaseServerModuleBuilder;
+import org.skife.config.ConfigSource;
+import org.skife.config.ConfigurationObjectFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.inject.Binding;
+import com.google.inject.Key;
 import com.google.inject.Module;
+import com.google.inject.name.Names;
 import com.google.inject.servlet.ServletModule;
 
 public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
@@ -52,6 +66,16 @@ public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
         if (config.isMultiTenancyEnabled()) {
             builder.addFilter("/*", TenantFilter.class);
         }
+        final CacheConfig cacheConfig = new ConfigurationObjectFactory(new ConfigSource() {
+            @Override
+            public String getString(final String propertyName) {
+                return configSource.getString(propertyName);
+            }
+        }).build(CacheConfig.class);
+        if (cacheConfig.isRequestCacheEnabled() && cacheConfig.isRequestCacheForApiRequestsEnabled()) {
+            builder.addFilter("/*", RequestCacheFilter.class);
+        }
+        builder.addFilter("/*", PaginationCursorFilter.class);
 
         return builder.build();
     }
@@ -89,4 +113,29 @@ public class KillbillGuiceListener extends KillbillPlatformGuiceListener {
             logger.warn("Failed to unregister for event notifications", e);
         }
     }
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent sce) {
+        // Look it up before the injector goes away
+        final Binding<DataSource> readReplicaDataSourceBinding = injector == null ? null : injector.getExistingBinding(Key.get(DataSource.class, Names.named(DBRouter.MAIN_RO_DATA_SOURCE_NAMED)));
+
+        super.contextDestroyed(sce);
+
+        if (readReplicaDataSourceBinding != null) {
+            stopReadReplicaDataSource(readReplicaDataSourceBinding.getProvider().get());
+        }
+    }
+
+    private void stopReadReplicaDataSource(final DataSource readReplicaDataSource) {
+        if (!(readReplicaDataSource instanceof Closeable)) {
+            logger.warn("Unable to close the read replica DataSource {}", readReplicaDataSource);
+            return;
+        }
+
+        try {
+            ((Closeable) readReplicaDataSource).close();
+        } catch (final IOException e) {
+            logger.warn("Failed to close the read replica DataSource", e);
+        }
+    }
 }
@@ -19,6 +19,7 @@
 package org.killbill.billing.server.modules;
 
 import javax.servlet.ServletContext;
+import javax.sql.DataSource;
 
 import org.killbill.billing.account.glue.DefaultAccountModule;
 import org.killbill.billing.beatrix.glue.BeatrixModule;
@@ -48,12 +49,18 @@ import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.server.DefaultServerService;
 import org.killbill.billing.server.ServerService;
 import org.killbill.billing.server.config.KillbillServerConfig;
+import org.killbill.billing.server.notifications.PushNotificationDispatcher;
 import org.killbill.billing.server.notifications.PushNotificationListener;
 import org.killbill.billing.subscription.glue.DefaultSubscriptionModule;
 import org.killbill.billing.tenant.glue.TenantModule;
 import org.killbill.billing.usage.glue.UsageModule;
+import org.killbill.billing.util.config.PushNotificationConfig;
+import org.killbill.billing.util.config.ReadReplicaConfig;
+import org.killbill.billing.util.config.UUIDStorageConfig;
 import org.killbill.billing.util.dao.AuditLogModelDaoMapper;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.billing.util.dao.RecordIdIdMappingsMapper;
+import org.killbill.billing.util.dao.UUIDArgumentFactory;
 import org.killbill.billing.util.email.EmailModule;
 import org.killbill.billing.util.email.templates.TemplateModule;
 import org.killbill.billing.util.glue.AuditModule;
@@ -71,9 +78,20 @@ import org.killbill.billing.util.glue.TagStoreModule;
 import org.killbill.clock.Clock;
 import org.killbill.clock.ClockMock;
 import org.killbill.commons.embeddeddb.EmbeddedDB;
+import org.killbill.commons.jdbi.guice.DBIProvider;
+import org.killbill.commons.jdbi.guice.DaoConfig;
+import org.killbill.commons.jdbi.guice.DataSourceProvider;
+import org.skife.config.ConfigSource;
+import org.skife.config.ConfigurationObjectFactory;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.IDBI;
+
+import com.google.inject.name.Names;
 
 public class KillbillServerModule extends KillbillPlatformModule {
 
+    private static final String DAO_PROPERTY_PREFIX = "org.killbill.dao.";
+
     public KillbillServerModule(final ServletContext servletContext, final KillbillServerConfig serverConfig, final KillbillConfigSource configSource) {
         super(servletContext, serverConfig, configSource);
     }
@@ -92,8 +110,47 @@ public class KillbillServerModule extends KillbillPlatformModule {
     protected void configureDao() {
         super.configureDao();
 
-        dbi.registerMapper(new AuditLogModelDaoMapper());
-        dbi.registerMapper(new RecordIdIdMappingsMapper());
+        configureKillbillDBI(dbi);
+        configureReadReplica();
+    }
+
+    private void configureKillbillDBI(final DBI killbillDBI) {
+        killbillDBI.registerMapper(new AuditLogModelDaoMapper());
+        killbillDBI.registerMapper(new RecordIdIdMappingsMapper());
+
+        final UUIDStorageConfig uuidStorageConfig = new ConfigurationObjectFactory(skifeConfigSource).build(UUIDStorageConfig.class);
+        if (uuidStorageConfig.isBinaryUUIDs()) {
+            killbillDBI.registerArgumentFactory(new UUIDArgumentFactory(true));
+        }
+    }
+
+    private void configureReadReplica() {
+        final ReadReplicaConfig readReplicaConfig = new ConfigurationObjectFactory(skifeConfigSource).build(ReadReplicaConfig.class);
+        if (!readReplicaConfig.isReadReplicaEnabled()) {
+            return;
+        }
+
+        // The replica uses the same settings as the primary database, unless overridden by org.killbill.dao.ro.* properties
+        final ConfigSource readReplicaConfigSource = new ConfigSource() {
+            @Override
+            public String getString(final String propertyName) {
+                if (propertyName.startsWith(DAO_PROPERTY_PREFIX)) {
+                    final String readReplicaValue = skifeConfigSource.getString(ReadReplicaConfig.READ_REPLICA_PROPERTY_PREFIX + propertyName.substring(DAO_PROPERTY_PREFIX.length()));
+                    if (readReplicaValue != null) {
+                        return readReplicaValue;
+                    }
+                }
+                return skifeConfigSource.getString(propertyName);
+            }
+        };
+        final DaoConfig readReplicaDaoConfig = new ConfigurationObjectFactory(readReplicaConfigSource).build(DaoConfig.class);
+        final DataSource readReplicaDataSource = new DataSourceProvider(readReplicaDaoConfig).get();
+        final DBI roDbi = (DBI) new DBIProvider(readReplicaDataSource).get();
+        configureKillbillDBI(roDbi);
+
+        // Closed on shutdown by KillbillGuiceListener, like the main pool
+        bind(DataSource.class).annotatedWith(Names.named(DBRouter.MAIN_RO_DATA_SOURCE_NAMED)).toInstance(readReplicaDataSource);
+        bind(IDBI.class).annotatedWith(Names.named(DBRouter.MAIN_RO_IDBI_NAMED)).toInstance(roDbi);
     }
 
     @Override
@@ -161,7 +218,11 @@ public class KillbillServerModule extends KillbillPlatformModule {
     }
 
     protected void configurePushNotification() {
+        final PushNotificationConfig pushNotificationConfig = new ConfigurationObjectFactory(skifeConfigSource).build(PushNotificationConfig.class);
+        bind(PushNotificationConfig.class).toInstance(pushNotificationConfig);
+
         bind(ServerService.class).to(DefaultServerService.class).asEagerSingleton();
+        bind(PushNotificationDispatcher.class).asEagerSingleton();
         bind(PushNotificationListener.class).asEagerSingleton();
     }
 }
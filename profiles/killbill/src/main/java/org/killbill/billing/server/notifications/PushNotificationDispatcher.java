@@ -0,0 +1,351 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.util.config.PushNotificationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.Response;
+
+/**
+ * Non-blocking delivery of the push notifications.
+ * <p/>
+ * Each callback url gets a bounded number of in-flight requests and a bounded queue of pending notifications, so that
+ * a slow or unavailable endpoint neither delays the notifications of the other endpoints nor holds the bus thread.
+ * Failed notifications are retried with an exponential backoff, while keeping their slot (the endpoint isn't sent
+ * more requests while it is failing). Endpoints without any in-flight or pending notification are forgotten.
+ * <p/>
+ * Pending notifications are sent from the executor once a slot frees up, never from the thread which completed the previous
+ * request: a post failing synchronously would otherwise recurse (send, onFailure, release, send...) once per pending notification.
+ */
+public class PushNotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushNotificationDispatcher.class);
+
+    private final PushNotificationConfig config;
+    private final int maxConcurrentRequestsPerCallback;
+    private final AsyncHttpClient httpClient;
+    // Sends the retries and the pending notifications
+    private final ScheduledExecutorService retryExecutor;
+    private final ConcurrentMap<String, CallbackEndpoint> endpoints = new ConcurrentHashMap<String, CallbackEndpoint>();
+
+    private final Timer deliveryTimer;
+    private final Meter delivered;
+    private final Meter failed;
+    private final Meter retried;
+    private final Meter dropped;
+
+    @Inject
+    public PushNotificationDispatcher(final PushNotificationConfig config, final MetricRegistry metricRegistry) {
+        this.config = config;
+        // Otherwise no notification would ever be sent
+        this.maxConcurrentRequestsPerCallback = config.getMaxConcurrentRequestsPerCallback();
+        Preconditions.checkArgument(maxConcurrentRequestsPerCallback >= 1, "org.killbill.server.notifications.maxConcurrentRequestsPerCallback should be at least 1, was %s", maxConcurrentRequestsPerCallback);
+
+        this.httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeoutInMs((int) config.getTimeout().getMillis()).build());
+        this.retryExecutor = Executors.newScheduledThreadPool(Math.max(config.getRetryThreads(), 1),
+                                                              new ThreadFactoryBuilder().setNameFormat("push-notification-retry-%d").setDaemon(true).build());
+
+        this.deliveryTimer = metricRegistry.timer(MetricRegistry.name(PushNotificationDispatcher.class, "delivery"));
+        this.delivered = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "delivered"));
+        this.failed = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "failed"));
+        this.retried = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "retried"));
+        this.dropped = metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "dropped"));
+    }
+
+    /**
+     * Enqueue a push notification, without waiting for its delivery
+     *
+     * @param tenantId the tenant id
+     * @param url      the callback url
+     * @param body     the serialized notification
+     * @return false if the notification was dropped because too many notifications are pending for that url
+     */
+    public boolean dispatch(final UUID tenantId, final String url, final String body) {
+        final PushNotification notification = new PushNotification(tenantId, url, body == null ? "{}" : body);
+        while (true) {
+            CallbackEndpoint endpoint = endpoints.get(url);
+            if (endpoint == null) {
+                endpoints.putIfAbsent(url, new CallbackEndpoint(url));
+                endpoint = endpoints.get(url);
+                if (endpoint == null) {
+                    // Evicted in the meantime
+                    continue;
+                }
+            }
+
+            switch (endpoint.offer(notification)) {
+                case ACCEPTED:
+                    return true;
+                case DROPPED:
+                    dropped.mark();
+                    log.warn("Dropping push notification for tenant {}: too many notifications pending for {}", tenantId, url);
+                    return false;
+                case EVICTED:
+                default:
+                    // The endpoint became idle and was removed from the map, retry with a new one
+                    break;
+            }
+        }
+    }
+
+    public void shutdown() {
+        retryExecutor.shutdownNow();
+        httpClient.close();
+    }
+
+    @VisibleForTesting
+    int getNbEndpoints() {
+        return endpoints.size();
+    }
+
+    /**
+     * Send the request, without blocking
+     *
+     * @param url      the callback url
+     * @param body     the serialized notification
+     * @param listener notified once the request has completed, possibly from another thread
+     */
+    @VisibleForTesting
+    void post(final String url, final String body, final DeliveryListener listener) throws Exception {
+        httpClient.preparePost(url)
+                  .setBody(body)
+                  .execute(new AsyncCompletionHandler<Response>() {
+                      @Override
+                      public Response onCompleted(final Response response) throws Exception {
+                          listener.onCompleted(response.getStatusCode());
+                          return response;
+                      }
+
+                      @Override
+                      public void onThrowable(final Throwable t) {
+                          listener.onThrowable(t);
+                      }
+                  });
+    }
+
+    private void send(final CallbackEndpoint endpoint, final PushNotification notification) {
+        final Timer.Context timerContext = deliveryTimer.time();
+        try {
+            post(notification.getUrl(), notification.getBody(), new DeliveryListener() {
+                @Override
+                public void onCompleted(final int statusCode) {
+                    timerContext.stop();
+                    if (statusCode >= 200 && statusCode < 300) {
+                        delivered.mark();
+                        endpoint.release();
+                    } else {
+                        onFailure(endpoint, notification, "status " + statusCode, null);
+                    }
+                }
+
+                @Override
+                public void onThrowable(final Throwable t) {
+                    timerContext.stop();
+                    onFailure(endpoint, notification, t.getMessage(), t);
+                }
+            });
+        } catch (final Exception e) {
+            timerContext.stop();
+            onFailure(endpoint, notification, e.getMessage(), e);
+        }
+    }
+
+    private void onFailure(final CallbackEndpoint endpoint, final PushNotification notification, final String reason, final Throwable t) {
+        if (notification.getAttempt() >= config.getMaxRetries() || retryExecutor.isShutdown()) {
+            failed.mark();
+            log.warn(String.format("Failed to push notification to %s for tenant %s after %d attempt(s): %s",
+                                   notification.getUrl(), notification.getTenantId(), notification.getAttempt() + 1, reason), t);
+            endpoint.release();
+            return;
+        }
+
+        retried.mark();
+        final long delayMillis = config.getRetryBackoff().getMillis() << Math.min(notification.getAttempt(), 20);
+        try {
+            retryExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    send(endpoint, notification.nextAttempt());
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (final Exception e) {
+            // Shutting down
+            failed.mark();
+            endpoint.release();
+        }
+    }
+
+    @VisibleForTesting
+    interface DeliveryListener {
+
+        public void onCompleted(int statusCode);
+
+        public void onThrowable(Throwable t);
+    }
+
+    private enum OfferResult {
+        ACCEPTED,
+        DROPPED,
+        EVICTED
+    }
+
+    private final class CallbackEndpoint {
+
+        private final String url;
+        // Guarded by this
+        private final Queue<PushNotification> pending = new LinkedList<PushNotification>();
+        private int inFlight = 0;
+        private boolean evicted = false;
+
+        private CallbackEndpoint(final String url) {
+            this.url = url;
+        }
+
+        public OfferResult offer(final PushNotification notification) {
+            synchronized (this) {
+                if (evicted) {
+                    return OfferResult.EVICTED;
+                }
+                if (inFlight >= maxConcurrentRequestsPerCallback) {
+                    if (pending.size() >= config.getMaxQueuedNotificationsPerCallback()) {
+                        return OfferResult.DROPPED;
+                    }
+                    pending.add(notification);
+                    return OfferResult.ACCEPTED;
+                }
+                inFlight++;
+            }
+            // Send outside of the lock, as the completion handler may be invoked synchronously
+            send(this, notification);
+            return OfferResult.ACCEPTED;
+        }
+
+        /**
+         * Called once a notification has been delivered (or given up on): hand over the slot to the next pending one
+         */
+        public void release() {
+            while (true) {
+                final PushNotification next;
+                final boolean idle;
+                synchronized (this) {
+                    next = pending.poll();
+                    if (next == null) {
+                        inFlight--;
+                    }
+                    // Once flagged, no notification can be added anymore (dispatch will create a new endpoint)
+                    idle = next == null && inFlight == 0;
+                    evicted = idle;
+                }
+                if (next == null) {
+                    if (idle) {
+                        endpoints.remove(url, this);
+                    }
+                    return;
+                }
+
+                if (submit(next)) {
+                    return;
+                }
+                // Shutting down: give up on that notification and hand over the slot to the next one
+                failed.mark();
+                log.warn("Failed to push notification to {} for tenant {}: shutting down", next.getUrl(), next.getTenantId());
+            }
+        }
+
+        private boolean submit(final PushNotification notification) {
+            try {
+                retryExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        send(CallbackEndpoint.this, notification);
+                    }
+                });
+                return true;
+            } catch (final RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+
+    private static final class PushNotification {
+
+        private final UUID tenantId;
+        private final String url;
+        private final String body;
+        private final int attempt;
+
+        private PushNotification(final UUID tenantId, final String url, final String body) {
+            this(tenantId, url, body, 0);
+        }
+
+        private PushNotification(final UUID tenantId, final String url, final String body, final int attempt) {
+            this.tenantId = tenantId;
+            this.url = url;
+            this.body = body;
+            this.attempt = attempt;
+        }
+
+        public PushNotification nextAttempt() {
+            return new PushNotification(tenantId, url, body, attempt + 1);
+        }
+
+        public UUID getTenantId() {
+            return tenantId;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+    }
+}
@@ -21,7 +21,6 @@ package org.killbill.billing.server.notifications;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -35,13 +34,6 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ning.http.client.AsyncCompletionHandler;
-import com.ning.http.client.AsyncHttpClient;
-import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
-import com.ning.http.client.AsyncHttpClientConfig;
-import com.ning.http.client.ListenableFuture;
-import com.ning.http.client.Response;
-
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.eventbus.Subscribe;
 
@@ -49,18 +41,16 @@ public class PushNotificationListener {
 
     private static final Logger log = LoggerFactory.getLogger(PushNotificationListener.class);
 
-    private static final int TIMEOUT_NOTIFCATION = 15; // 15 seconds
-
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
-    private final AsyncHttpClient httpClient;
+    private final PushNotificationDispatcher dispatcher;
     private final ObjectMapper mapper;
 
     @Inject
-    public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory) {
-        this.httpClient = new AsyncHttpClient(new AsyncHttpClientConfig.Builder().setRequestTimeoutInMs(TIMEOUT_NOTIFCATION * 1000).build());
+    public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory, final PushNotificationDispatcher dispatcher) {
         this.tenantApi = tenantApi;
         this.contextFactory = contextFactory;
+        this.dispatcher = dispatcher;
         this.mapper = mapper;
     }
 
@@ -70,6 +60,9 @@ public class PushNotificationListener {
         final TenantContext context = contextFactory.createTenantContext(event.getTenantId());
         try {
             final List<String> callbacks = getCallbacksForTenant(context);
+            if (callbacks.isEmpty()) {
+                return;
+            }
             dispatchCallback(event.getTenantId(), event, callbacks);
         } catch (final TenantApiException e) {
             log.warn("Failed to retrieve push notification callback for tenant {}", event.getTenantId());
@@ -78,34 +71,17 @@ public class PushNotificationListener {
         }
     }
 
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
     private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final List<String> callbacks) throws IOException {
         final NotificationJson notification = new NotificationJson(event);
         final String body = mapper.writeValueAsString(notification);
         for (final String cur : callbacks) {
-            doPost(tenantId, cur, body, TIMEOUT_NOTIFCATION);
-        }
-    }
-
-    private boolean doPost(final UUID tenantId, final String url, final String body, final int timeoutSec) {
-
-        final BoundRequestBuilder builder = httpClient.preparePost(url);
-        builder.setBody(body == null ? "{}" : body);
-
-        Response response = null;
-        try {
-            final ListenableFuture<Response> futureStatus =
-                    builder.execute(new AsyncCompletionHandler<Response>() {
-                        @Override
-                        public Response onCompleted(final Response response) throws Exception {
-                            return response;
-                        }
-                    });
-            response = futureStatus.get(timeoutSec, TimeUnit.SECONDS);
-        } catch (final Exception e) {
-            log.warn(String.format("Fail to psh notification {} for the tenant {} ", url, tenantId), e);
-            return false;
+            // Delivery (and retries) happen asynchronously, the bus thread is never blocked
+            dispatcher.dispatch(tenantId, cur, body);
         }
-        return response.getStatusCode() >= 200 && response.getStatusCode() < 300;
     }
 
     private List<String> getCallbacksForTenant(final TenantContext context) throws TenantApiException {
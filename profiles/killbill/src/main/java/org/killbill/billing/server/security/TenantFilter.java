@@ -41,6 +41,7 @@ import org.killbill.billing.server.listeners.KillbillGuiceListener;
 import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantUserApi;
+import org.killbill.billing.tenant.security.TenantAuthenticationCache;
 import org.killbill.commons.jdbi.guice.DaoConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +59,9 @@ public class TenantFilter implements Filter {
     @Inject
     protected TenantUserApi tenantUserApi;
 
+    @Inject
+    protected TenantAuthenticationCache tenantAuthenticationCache;
+
     @Inject
     protected DaoConfig daoConfig;
 
@@ -94,6 +98,14 @@ public class TenantFilter implements Filter {
             return;
         }
 
+        // Skip the (expensive) verification if that apiKey/apiSecret combo has been verified recently
+        final Tenant authenticatedTenant = tenantAuthenticationCache.getAuthenticatedTenant(apiKey, apiSecret);
+        if (authenticatedTenant != null) {
+            request.setAttribute(TENANT, authenticatedTenant);
+            chain.doFilter(request, response);
+            return;
+        }
+
         // Verify the apiKey/apiSecret combo
         final AuthenticationToken token = new UsernamePasswordToken(apiKey, apiSecret);
         try {
@@ -104,16 +116,20 @@ public class TenantFilter implements Filter {
             return;
         }
 
+        final Tenant tenant;
         try {
             // Load the tenant in the request object (apiKey is unique across tenants)
-            final Tenant tenant = tenantUserApi.getTenantByApiKey(apiKey);
-            request.setAttribute(TENANT, tenant);
-
-            chain.doFilter(request, response);
+            tenant = tenantUserApi.getTenantByApiKey(apiKey);
         } catch (final TenantApiException e) {
             // Should never happen since Shiro validated the credentials?
             log.warn("Couldn't find the tenant?", e);
+            return;
         }
+
+        tenantAuthenticationCache.addAuthenticatedTenant(apiKey, apiSecret, tenant);
+        request.setAttribute(TENANT, tenant);
+
+        chain.doFilter(request, response);
     }
 
     @Override
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.GuicyKillbillTestSuiteNoDB;
+import org.killbill.billing.util.config.PushNotificationConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestPushNotificationDispatcher extends GuicyKillbillTestSuiteNoDB {
+
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+    private static final int MAX_QUEUED_NOTIFICATIONS = 3;
+    private static final int MAX_RETRIES = 2;
+    private static final long RETRY_BACKOFF_MILLIS = 50;
+
+    private MetricRegistry metricRegistry;
+    private RecordingPushNotificationDispatcher dispatcher;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        final PushNotificationConfig config = Mockito.mock(PushNotificationConfig.class);
+        Mockito.when(config.getTimeout()).thenReturn(new TimeSpan(1, TimeUnit.SECONDS));
+        Mockito.when(config.getMaxConcurrentRequestsPerCallback()).thenReturn(MAX_CONCURRENT_REQUESTS);
+        Mockito.when(config.getMaxQueuedNotificationsPerCallback()).thenReturn(MAX_QUEUED_NOTIFICATIONS);
+        Mockito.when(config.getMaxRetries()).thenReturn(MAX_RETRIES);
+        Mockito.when(config.getRetryBackoff()).thenReturn(new TimeSpan(RETRY_BACKOFF_MILLIS, TimeUnit.MILLISECONDS));
+        Mockito.when(config.getRetryThreads()).thenReturn(1);
+
+        metricRegistry = new MetricRegistry();
+        dispatcher = new RecordingPushNotificationDispatcher(config, metricRegistry);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        dispatcher.shutdown();
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrencyLimitPerCallback() throws Exception {
+        final UUID tenantId = UUID.randomUUID();
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS + MAX_QUEUED_NOTIFICATIONS; i++) {
+            Assert.assertTrue(dispatcher.dispatch(tenantId, "http://a", "a" + i));
+        }
+        // Only the first ones are in-flight, the others wait for a slot
+        Assert.assertEquals(dispatcher.requests.size(), MAX_CONCURRENT_REQUESTS);
+
+        // A saturated callback doesn't delay the other ones
+        Assert.assertTrue(dispatcher.dispatch(tenantId, "http://b", "b"));
+        Assert.assertEquals(dispatcher.requests.size(), MAX_CONCURRENT_REQUESTS + 1);
+        Assert.assertEquals(dispatcher.getNbEndpoints(), 2);
+
+        // Each completion hands over the slot to the next pending notification, in order
+        int nbDelivered = 0;
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS + MAX_QUEUED_NOTIFICATIONS + 1; i++) {
+            final PostedRequest request = dispatcher.requests.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(request);
+            if ("http://a".equals(request.url)) {
+                Assert.assertEquals(request.body, "a" + nbDelivered);
+                // Pending notifications are sent from the executor, not from the thread which completed the previous request
+                Assert.assertEquals(request.postThread == Thread.currentThread(), nbDelivered < MAX_CONCURRENT_REQUESTS);
+                nbDelivered++;
+            }
+            request.listener.onCompleted(200);
+            Assert.assertTrue(getNbRequests("http://a") <= MAX_CONCURRENT_REQUESTS);
+        }
+        Assert.assertNull(dispatcher.requests.poll(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(nbDelivered, MAX_CONCURRENT_REQUESTS + MAX_QUEUED_NOTIFICATIONS);
+        Assert.assertEquals(metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "delivered")).getCount(), nbDelivered + 1);
+
+        // Idle callbacks are evicted
+        Assert.assertEquals(dispatcher.getNbEndpoints(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testQueueOverflow() throws Exception {
+        final UUID tenantId = UUID.randomUUID();
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS + MAX_QUEUED_NOTIFICATIONS; i++) {
+            Assert.assertTrue(dispatcher.dispatch(tenantId, "http://a", "a" + i));
+        }
+        Assert.assertFalse(dispatcher.dispatch(tenantId, "http://a", "overflow"));
+        Assert.assertEquals(metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "dropped")).getCount(), 1);
+
+        // Once a slot frees up, notifications are accepted again
+        dispatcher.requests.poll().listener.onCompleted(200);
+        Assert.assertTrue(dispatcher.dispatch(tenantId, "http://a", "a"));
+        Assert.assertFalse(dispatcher.dispatch(tenantId, "http://a", "overflow"));
+        Assert.assertEquals(metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "dropped")).getCount(), 2);
+
+        for (int i = 0; i < MAX_CONCURRENT_REQUESTS + MAX_QUEUED_NOTIFICATIONS; i++) {
+            final PostedRequest request = dispatcher.requests.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(request);
+            Assert.assertFalse("overflow".equals(request.body));
+            request.listener.onCompleted(204);
+        }
+        Assert.assertNull(dispatcher.requests.poll(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(dispatcher.getNbEndpoints(), 0);
+
+        // A new endpoint is created on the next notification
+        Assert.assertTrue(dispatcher.dispatch(tenantId, "http://a", "a"));
+        Assert.assertEquals(dispatcher.getNbEndpoints(), 1);
+        Assert.assertEquals(dispatcher.requests.size(), 1);
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidMaxConcurrentRequests() throws Exception {
+        final PushNotificationConfig config = Mockito.mock(PushNotificationConfig.class);
+        Mockito.when(config.getTimeout()).thenReturn(new TimeSpan(1, TimeUnit.SECONDS));
+        Mockito.when(config.getMaxConcurrentRequestsPerCallback()).thenReturn(0);
+        new PushNotificationDispatcher(config, metricRegistry);
+    }
+
+    @Test(groups = "fast")
+    public void testRetryWithBackoff() throws Exception {
+        Assert.assertTrue(dispatcher.dispatch(UUID.randomUUID(), "http://a", "a"));
+
+        // First attempt, then MAX_RETRIES retries, each one delayed twice as long as the previous one
+        PostedRequest request = dispatcher.requests.poll();
+        Assert.assertNotNull(request);
+        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            final long failureTime = System.nanoTime();
+            if (attempt % 2 == 0) {
+                request.listener.onCompleted(500);
+            } else {
+                request.listener.onThrowable(new RuntimeException("Connection refused"));
+            }
+
+            request = dispatcher.requests.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(request);
+            Assert.assertEquals(request.body, "a");
+            Assert.assertTrue(request.postTime - failureTime >= TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MILLIS << attempt));
+
+            // The slot is kept while retrying
+            Assert.assertEquals(dispatcher.getNbEndpoints(), 1);
+        }
+        Assert.assertEquals(metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "retried")).getCount(), MAX_RETRIES);
+
+        // Give up
+        request.listener.onCompleted(503);
+        Assert.assertNull(dispatcher.requests.poll(4 * (RETRY_BACKOFF_MILLIS << MAX_RETRIES), TimeUnit.MILLISECONDS));
+        Assert.assertEquals(metricRegistry.meter(MetricRegistry.name(PushNotificationDispatcher.class, "failed")).getCount(), 1);
+        Assert.assertEquals(dispatcher.getNbEndpoints(), 0);
+    }
+
+    private int getNbRequests(final String url) {
+        int nbRequests = 0;
+        for (final PostedRequest request : dispatcher.requests) {
+            if (url.equals(request.url)) {
+                nbRequests++;
+            }
+        }
+        return nbRequests;
+    }
+
+    private static final class PostedRequest {
+
+        private final String url;
+        private final String body;
+        private final PushNotificationDispatcher.DeliveryListener listener;
+        private final long postTime;
+        private final Thread postThread;
+
+        private PostedRequest(final String url, final String body, final PushNotificationDispatcher.DeliveryListener listener) {
+            this.url = url;
+            this.body = body;
+            this.listener = listener;
+            this.postTime = System.nanoTime();
+            this.postThread = Thread.currentThread();
+        }
+    }
+
+    // Record the requests instead of sending them: the tests decide when and how they complete
+    private static final class RecordingPushNotificationDispatcher extends PushNotificationDispatcher {
+
+        private final BlockingQueue<PostedRequest> requests = new LinkedBlockingQueue<PostedRequest>();
+
+        private RecordingPushNotificationDispatcher(final PushNotificationConfig config, final MetricRegistry metricRegistry) {
+            super(config, metricRegistry);
+        }
+
+        @Override
+        void post(final String url, final String body, final DeliveryListener listener) throws Exception {
+            requests.add(new PostedRequest(url, body, listener));
+        }
+    }
+}
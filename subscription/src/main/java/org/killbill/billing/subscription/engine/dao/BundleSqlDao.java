@@ -29,6 +29,7 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
 import org.killbill.billing.subscription.engine.dao.model.SubscriptionBundleModelDao;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -38,23 +39,23 @@ public interface BundleSqlDao extends EntitySqlDao<SubscriptionBundleModelDao, S
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void updateBundleExternalKey(@Bind("id") String id,
+    public void updateBundleExternalKey(@BindUUID("id") String id,
                                         @Bind("externalKey") String externalKey,
                                         @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void updateBundleLastSysTime(@Bind("id") String id,
+    public void updateBundleLastSysTime(@BindUUID("id") String id,
                                         @Bind("lastSysUpdateDate") Date lastSysUpdate,
                                         @BindBean final InternalCallContext context);
 
     @SqlQuery
-    public List<SubscriptionBundleModelDao> getBundlesFromAccountAndKey(@Bind("accountId") String accountId,
+    public List<SubscriptionBundleModelDao> getBundlesFromAccountAndKey(@BindUUID("accountId") String accountId,
                                                                         @Bind("externalKey") String externalKey,
                                                                         @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    public List<SubscriptionBundleModelDao> getBundleFromAccount(@Bind("accountId") String accountId,
+    public List<SubscriptionBundleModelDao> getBundleFromAccount(@BindUUID("accountId") String accountId,
                                                                  @BindBean final InternalTenantContext context);
 
     @SqlQuery
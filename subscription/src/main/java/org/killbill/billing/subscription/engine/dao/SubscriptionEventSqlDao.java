@@ -29,6 +29,7 @@ import org.killbill.billing.subscription.events.SubscriptionBaseEvent;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -38,26 +39,26 @@ public interface SubscriptionEventSqlDao extends EntitySqlDao<SubscriptionEventM
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void unactiveEvent(@Bind("id") String id,
+    public void unactiveEvent(@BindUUID("id") String id,
                               @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void reactiveEvent(@Bind("id") String id,
+    public void reactiveEvent(@BindUUID("id") String id,
                               @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void updateVersion(@Bind("id") String id,
+    public void updateVersion(@BindUUID("id") String id,
                               @Bind("currentVersion") Long currentVersion,
                               @BindBean final InternalCallContext context);
 
     @SqlQuery
-    public List<SubscriptionEventModelDao> getFutureActiveEventForSubscription(@Bind("subscriptionId") String subscriptionId,
+    public List<SubscriptionEventModelDao> getFutureActiveEventForSubscription(@BindUUID("subscriptionId") String subscriptionId,
                                                                               @Bind("now") Date now,
                                                                               @BindBean final InternalTenantContext context);
 
     @SqlQuery
-    public List<SubscriptionEventModelDao> getEventsForSubscription(@Bind("subscriptionId") String subscriptionId,
+    public List<SubscriptionEventModelDao> getEventsForSubscription(@BindUUID("subscriptionId") String subscriptionId,
                                                                    @BindBean final InternalTenantContext context);
 }
@@ -29,6 +29,7 @@ import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -37,22 +38,22 @@ import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 public interface SubscriptionSqlDao extends EntitySqlDao<SubscriptionModelDao, SubscriptionBase> {
 
     @SqlQuery
-    public List<SubscriptionModelDao> getSubscriptionsFromBundleId(@Bind("bundleId") String bundleId,
+    public List<SubscriptionModelDao> getSubscriptionsFromBundleId(@BindUUID("bundleId") String bundleId,
                                                                    @BindBean final InternalTenantContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void updateChargedThroughDate(@Bind("id") String id, @Bind("chargedThroughDate") Date chargedThroughDate,
+    public void updateChargedThroughDate(@BindUUID("id") String id, @Bind("chargedThroughDate") Date chargedThroughDate,
                                          @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    void updateActiveVersion(@Bind("id") String id, @Bind("activeVersion") long activeVersion,
+    void updateActiveVersion(@BindUUID("id") String id, @Bind("activeVersion") long activeVersion,
                              @BindBean final InternalCallContext context);
 
     @SqlUpdate
     @Audited(ChangeType.UPDATE)
-    public void updateForRepair(@Bind("id") String id, @Bind("activeVersion") long activeVersion,
+    public void updateForRepair(@BindUUID("id") String id, @Bind("activeVersion") long activeVersion,
                                 @Bind("startDate") Date startDate,
                                 @Bind("bundleStartDate") Date bundleStartDate,
                                 @BindBean final InternalCallContext context);
@@ -18,6 +18,7 @@ package org.killbill.billing.tenant.api.user;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.tenant.api.DefaultTenant;
@@ -27,23 +28,40 @@ import org.killbill.billing.tenant.api.TenantData;
 import org.killbill.billing.tenant.api.TenantUserApi;
 import org.killbill.billing.tenant.dao.TenantDao;
 import org.killbill.billing.tenant.dao.TenantModelDao;
+import org.killbill.billing.tenant.security.TenantAuthenticationCache;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.TenantConfig;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 
 public class DefaultTenantUserApi implements TenantUserApi {
 
     private final TenantDao tenantDao;
+    private final TenantAuthenticationCache tenantAuthenticationCache;
     private final InternalCallContextFactory internalCallContextFactory;
+    // Values per tenant record id and key (these are read on each push notification for instance)
+    private final Cache<String, List<String>> tenantKeyValues;
+    private final boolean tenantKeyValuesCacheEnabled;
 
     @Inject
-    public DefaultTenantUserApi(final TenantDao tenantDao, final InternalCallContextFactory internalCallContextFactory) {
+    public DefaultTenantUserApi(final TenantDao tenantDao, final TenantAuthenticationCache tenantAuthenticationCache, final TenantConfig config, final InternalCallContextFactory internalCallContextFactory) {
         this.tenantDao = tenantDao;
+        this.tenantAuthenticationCache = tenantAuthenticationCache;
         this.internalCallContextFactory = internalCallContextFactory;
+
+        final long ttlMillis = config.getKeyValueCacheTtl().getMillis();
+        this.tenantKeyValuesCacheEnabled = ttlMillis > 0 && config.getKeyValueCacheMaxSize() > 0;
+        this.tenantKeyValues = CacheBuilder.newBuilder()
+                                           .maximumSize(Math.max(config.getKeyValueCacheMaxSize(), 0))
+                                           .expireAfterWrite(Math.max(ttlMillis, 0), TimeUnit.MILLISECONDS)
+                                           .build();
     }
 
     @Override
@@ -54,6 +72,9 @@ public class DefaultTenantUserApi implements TenantUserApi {
             tenantDao.create(new TenantModelDao(tenant), internalCallContextFactory.createInternalCallContext(context));
         } catch (final TenantApiException e) {
             throw new TenantApiException(e, ErrorCode.TENANT_CREATION_FAILED);
+        } finally {
+            // Never trust credentials cached for that api key before the creation
+            tenantAuthenticationCache.invalidate(tenant.getApiKey());
         }
 
         return tenant;
@@ -82,7 +103,17 @@ public class DefaultTenantUserApi implements TenantUserApi {
     public List<String> getTenantValueForKey(final String key, final TenantContext context)
             throws TenantApiException {
         final InternalTenantContext internalContext = internalCallContextFactory.createInternalTenantContext(context);
-        return tenantDao.getTenantValueForKey(key, internalContext);
+        if (!tenantKeyValuesCacheEnabled) {
+            return tenantDao.getTenantValueForKey(key, internalContext);
+        }
+
+        final String cacheKey = getTenantKeyValuesCacheKey(key, internalContext);
+        List<String> values = tenantKeyValues.getIfPresent(cacheKey);
+        if (values == null) {
+            values = ImmutableList.<String>copyOf(tenantDao.getTenantValueForKey(key, internalContext));
+            tenantKeyValues.put(cacheKey, values);
+        }
+        return values;
     }
 
     @Override
@@ -97,7 +128,11 @@ public class DefaultTenantUserApi implements TenantUserApi {
             throw new TenantApiException(ErrorCode.TENANT_DOES_NOT_EXIST_FOR_ID, tenantId);
         }
         */
-        tenantDao.addTenantKeyValue(key, value, internalContext);
+        try {
+            tenantDao.addTenantKeyValue(key, value, internalContext);
+        } finally {
+            tenantKeyValues.invalidate(getTenantKeyValuesCacheKey(key, internalContext));
+        }
     }
 
     @Override
@@ -110,6 +145,14 @@ public class DefaultTenantUserApi implements TenantUserApi {
         }
         */
         final InternalCallContext internalContext = internalCallContextFactory.createInternalCallContext(context);
-        tenantDao.deleteTenantKey(key, internalContext);
+        try {
+            tenantDao.deleteTenantKey(key, internalContext);
+        } finally {
+            tenantKeyValues.invalidate(getTenantKeyValuesCacheKey(key, internalContext));
+        }
+    }
+
+    private String getTenantKeyValuesCacheKey(final String key, final InternalTenantContext internalContext) {
+        return internalContext.getTenantRecordId() + "::" + key;
     }
 }
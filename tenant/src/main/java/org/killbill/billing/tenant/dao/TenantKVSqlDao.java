@@ -27,6 +27,7 @@ import org.killbill.billing.tenant.api.TenantKV;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -40,6 +41,6 @@ public interface TenantKVSqlDao extends EntitySqlDao<TenantKVModelDao, TenantKV>
 
     @SqlUpdate
     @Audited(ChangeType.DELETE)
-    public void markTenantKeyAsDeleted(@Bind("id")final String id,
+    public void markTenantKeyAsDeleted(@BindUUID("id") final String id,
                                        @BindBean final InternalCallContext context);
 }
@@ -20,6 +20,7 @@ import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 
 import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
 
@@ -30,5 +31,5 @@ public interface TenantSqlDao extends EntitySqlDao<TenantModelDao, Tenant> {
     public TenantModelDao getByApiKey(@Bind("apiKey") final String apiKey);
 
     @SqlQuery
-    public TenantModelDao getSecrets(@Bind("id") final String id);
+    public TenantModelDao getSecrets(@BindUUID("id") final String id);
 }
@@ -25,7 +25,10 @@ import org.killbill.billing.tenant.api.TenantUserApi;
 import org.killbill.billing.tenant.api.user.DefaultTenantUserApi;
 import org.killbill.billing.tenant.dao.DefaultTenantDao;
 import org.killbill.billing.tenant.dao.TenantDao;
+import org.killbill.billing.tenant.security.TenantAuthenticationCache;
+import org.killbill.billing.util.config.TenantConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class TenantModule extends KillBillModule {
 
@@ -34,6 +37,12 @@ public class TenantModule extends KillBillModule {
     }
 
     private void installConfig() {
+        final TenantConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(TenantConfig.class);
+        bind(TenantConfig.class).toInstance(config);
+    }
+
+    protected void installTenantAuthenticationCache() {
+        bind(TenantAuthenticationCache.class).asEagerSingleton();
     }
 
     protected void installTenantDao() {
@@ -52,6 +61,7 @@ public class TenantModule extends KillBillModule {
     protected void configure() {
         installConfig();
         installTenantDao();
+        installTenantAuthenticationCache();
         installTenantService();
         installTenantUserApi();
     }
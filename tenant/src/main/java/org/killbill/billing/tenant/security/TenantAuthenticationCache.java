@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.security;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.config.TenantConfig;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the tenants successfully authenticated, to avoid verifying the api secret (hashed
+ * with KillbillCredentialsMatcher.HASH_ITERATIONS rounds) and looking up the tenant on each request.
+ * <p/>
+ * The api secrets are never kept in memory: entries only contain an HMAC of the secret, with a key generated at startup.
+ */
+public class TenantAuthenticationCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final boolean enabled;
+    private final Cache<String, AuthenticatedTenant> authenticatedTenants;
+    private final SecretKeySpec hmacKey;
+
+    @Inject
+    public TenantAuthenticationCache(final TenantConfig config) {
+        final long ttlMillis = config.getAuthenticationCacheTtl().getMillis();
+        this.enabled = ttlMillis > 0 && config.getAuthenticationCacheMaxSize() > 0;
+        this.authenticatedTenants = CacheBuilder.newBuilder()
+                                                .maximumSize(Math.max(config.getAuthenticationCacheMaxSize(), 0))
+                                                .expireAfterWrite(Math.max(ttlMillis, 0), TimeUnit.MILLISECONDS)
+                                                .build();
+
+        final byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    /**
+     * @param apiKey    the api key
+     * @param apiSecret the api secret
+     * @return the tenant if this apiKey/apiSecret pair has been successfully authenticated recently, null otherwise
+     */
+    @Nullable
+    public Tenant getAuthenticatedTenant(final String apiKey, final String apiSecret) {
+        if (!enabled) {
+            return null;
+        }
+
+        final AuthenticatedTenant authenticatedTenant = authenticatedTenants.getIfPresent(apiKey);
+        if (authenticatedTenant == null || !MessageDigest.isEqual(authenticatedTenant.getApiSecretHmac(), hmac(apiSecret))) {
+            return null;
+        }
+        return authenticatedTenant.getTenant();
+    }
+
+    public void addAuthenticatedTenant(final String apiKey, final String apiSecret, final Tenant tenant) {
+        if (!enabled) {
+            return;
+        }
+        authenticatedTenants.put(apiKey, new AuthenticatedTenant(hmac(apiSecret), tenant));
+    }
+
+    /**
+     * Invalidate the entry for that api key (e.g. when the tenant credentials change)
+     *
+     * @param apiKey the api key
+     */
+    public void invalidate(final String apiKey) {
+        authenticatedTenants.invalidate(apiKey);
+    }
+
+    private byte[] hmac(final String apiSecret) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            return mac.doFinal(apiSecret.getBytes(UTF_8));
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class AuthenticatedTenant {
+
+        private final byte[] apiSecretHmac;
+        private final Tenant tenant;
+
+        private AuthenticatedTenant(final byte[] apiSecretHmac, final Tenant tenant) {
+            this.apiSecretHmac = apiSecretHmac;
+            this.tenant = tenant;
+        }
+
+        public byte[] getApiSecretHmac() {
+            return apiSecretHmac;
+        }
+
+        public Tenant getTenant() {
+            return tenant;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.security;
+
+import org.killbill.billing.tenant.TenantTestSuiteNoDB;
+import org.killbill.billing.tenant.api.Tenant;
+import org.killbill.billing.util.config.TenantConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestTenantAuthenticationCache extends TenantTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testCachedAuthentication() throws Exception {
+        final TenantAuthenticationCache cache = new TenantAuthenticationCache(createConfig("5m"));
+        final Tenant tenant = Mockito.mock(Tenant.class);
+
+        Assert.assertNull(cache.getAuthenticatedTenant("key", "secret"));
+
+        cache.addAuthenticatedTenant("key", "secret", tenant);
+        Assert.assertEquals(cache.getAuthenticatedTenant("key", "secret"), tenant);
+        // Wrong secret
+        Assert.assertNull(cache.getAuthenticatedTenant("key", "secret2"));
+        // Unknown key
+        Assert.assertNull(cache.getAuthenticatedTenant("key2", "secret"));
+
+        cache.invalidate("key");
+        Assert.assertNull(cache.getAuthenticatedTenant("key", "secret"));
+    }
+
+    @Test(groups = "fast")
+    public void testDisabledCache() throws Exception {
+        final TenantAuthenticationCache cache = new TenantAuthenticationCache(createConfig("0s"));
+
+        cache.addAuthenticatedTenant("key", "secret", Mockito.mock(Tenant.class));
+        Assert.assertNull(cache.getAuthenticatedTenant("key", "secret"));
+    }
+
+    private TenantConfig createConfig(final String ttl) {
+        final TenantConfig config = Mockito.mock(TenantConfig.class);
+        Mockito.when(config.getAuthenticationCacheTtl()).thenReturn(new TimeSpan(ttl));
+        Mockito.when(config.getAuthenticationCacheMaxSize()).thenReturn(100);
+        return config;
+    }
+}
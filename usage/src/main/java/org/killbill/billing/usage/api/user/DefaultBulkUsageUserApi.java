@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class DefaultBulkUsageUserApi implements BulkUsageUserApi {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultBulkUsageUserApi.class);
+
+    private final RolledUpUsageDao rolledUpUsageDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultBulkUsageUserApi(final RolledUpUsageDao rolledUpUsageDao,
+                                   final InternalCallContextFactory internalCallContextFactory) {
+        this.rolledUpUsageDao = rolledUpUsageDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public Map<Integer, String> recordRolledUpUsage(final List<RolledUpUsage> usages, final CallContext context) {
+        final Map<Integer, String> failures = new TreeMap<Integer, String>();
+
+        // Group the valid records per subscription, keeping track of their position in the batch
+        final Map<UUID, List<Integer>> positionsPerSubscription = new LinkedHashMap<UUID, List<Integer>>();
+        for (int i = 0; i < usages.size(); i++) {
+            final String error = validate(usages.get(i));
+            if (error != null) {
+                failures.put(i, error);
+                continue;
+            }
+
+            final UUID subscriptionId = usages.get(i).getSubscriptionId();
+            if (positionsPerSubscription.get(subscriptionId) == null) {
+                positionsPerSubscription.put(subscriptionId, new LinkedList<Integer>());
+            }
+            positionsPerSubscription.get(subscriptionId).add(i);
+        }
+
+        for (final UUID subscriptionId : positionsPerSubscription.keySet()) {
+            final List<Integer> positions = positionsPerSubscription.get(subscriptionId);
+            final List<RolledUpUsageModelDao> usagesForSubscription = new LinkedList<RolledUpUsageModelDao>();
+            for (final Integer position : positions) {
+                final RolledUpUsage usage = usages.get(position);
+                usagesForSubscription.add(new RolledUpUsageModelDao(subscriptionId, usage.getUnitType(), usage.getStartTime(), usage.getEndTime(), usage.getAmount()));
+            }
+
+            try {
+                final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(subscriptionId, ObjectType.SUBSCRIPTION, context);
+                rolledUpUsageDao.recordBatch(subscriptionId, usagesForSubscription, internalCallContext);
+            } catch (final RuntimeException e) {
+                log.warn("Unable to record usage for subscription " + subscriptionId, e);
+                for (final Integer position : positions) {
+                    failures.put(position, String.format("Unable to record usage for subscription %s: %s", subscriptionId, e.getMessage()));
+                }
+            }
+        }
+
+        return failures;
+    }
+
+    private String validate(final RolledUpUsage usage) {
+        if (usage == null) {
+            return "Usage record is null";
+        } else if (usage.getSubscriptionId() == null) {
+            return "Usage record has no subscriptionId";
+        } else if (usage.getUnitType() == null) {
+            return "Usage record has no unitType";
+        } else if (usage.getStartTime() == null) {
+            return "Usage record has no startTime";
+        } else if (usage.getAmount() == null) {
+            return "Usage record has no amount";
+        } else if (usage.getEndTime() != null && usage.getEndTime().isBefore(usage.getStartTime())) {
+            return "Usage record endTime is before its startTime";
+        } else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.usage.api.UsageMaintenanceApi;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+
+public class DefaultUsageMaintenanceApi implements UsageMaintenanceApi {
+
+    private final RolledUpUsageDao rolledUpUsageDao;
+    private final InternalCallContextFactory internalCallContextFactory;
+
+    @Inject
+    public DefaultUsageMaintenanceApi(final RolledUpUsageDao rolledUpUsageDao,
+                                      final InternalCallContextFactory internalCallContextFactory) {
+        this.rolledUpUsageDao = rolledUpUsageDao;
+        this.internalCallContextFactory = internalCallContextFactory;
+    }
+
+    @Override
+    public void rebuildDailyRollups(final UUID subscriptionId, final CallContext context) {
+        final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(subscriptionId, ObjectType.SUBSCRIPTION, context);
+        rolledUpUsageDao.rebuildDailyUsage(subscriptionId, internalCallContext);
+    }
+
+    @Override
+    public void rebuildDailyRollups(final CallContext context) {
+        final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(context);
+        // One transaction per subscription, to avoid locking the whole table
+        for (final UUID subscriptionId : rolledUpUsageDao.getSubscriptionIdsWithUsage(internalTenantContext)) {
+            rebuildDailyRollups(subscriptionId, context);
+        }
+    }
+}
@@ -18,7 +18,12 @@ package org.killbill.billing.usage.api.user;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -37,6 +42,8 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 
+import com.google.common.annotations.VisibleForTesting;
+
 public class DefaultUsageUserApi implements UsageUserApi {
 
     private final RolledUpUsageDao rolledUpUsageDao;
@@ -64,18 +71,69 @@ public class DefaultUsageUserApi implements UsageUserApi {
 
     @Override
     public List<RolledUpUsage> getAllUsageForSubscription(final UUID subscriptionId, final Set<String> unitTypes, final List<DateTime> transitionTimes, final TenantContext tenantContext) {
+        if (transitionTimes.size() < 2) {
+            return new ArrayList<RolledUpUsage>();
+        }
 
         final InternalTenantContext internalCallContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContext);
-        List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
-        DateTime prevDate = null;
-        for (DateTime curDate : transitionTimes) {
-            if (prevDate != null) {
-                for (String unitType : unitTypes) {
-                    final RolledUpUsageModelDao usageForSubscription = rolledUpUsageDao.getUsageForSubscription(subscriptionId, prevDate, curDate, unitType, internalCallContext);
-                    result.add(new DefaultRolledUpUsage(usageForSubscription));
-                }
+        // Retrieve all the usage for the subscription at once, and bucket it per period
+        final List<RolledUpUsageModelDao> usageRecords = rolledUpUsageDao.getUsageRecordsForSubscription(subscriptionId, transitionTimes, internalCallContext);
+        return aggregateUsage(subscriptionId, unitTypes, transitionTimes, usageRecords);
+    }
+
+    /**
+     * Sum the usage for each period and unit type: a record is part of the period [t(i), t(i+1)] if it starts
+     * on or after t(i) and ends on or before t(i+1), which is what the per period query does.
+     *
+     * @param subscriptionId  the subscription id
+     * @param unitTypes       the unit types to consider
+     * @param transitionTimes the ordered list of period boundaries
+     * @param rawUsage        the usage records between the first and last transition times
+     * @return the usage for each period and unit type
+     */
+    @VisibleForTesting
+    static List<RolledUpUsage> aggregateUsage(final UUID subscriptionId, final Set<String> unitTypes, final List<DateTime> transitionTimes,
+                                              final List<RolledUpUsageModelDao> rawUsage) {
+        final int nbPeriods = transitionTimes.size() - 1;
+        final Map<String, BigDecimal[]> amountsPerUnitType = new HashMap<String, BigDecimal[]>();
+        for (final String unitType : unitTypes) {
+            final BigDecimal[] amounts = new BigDecimal[nbPeriods];
+            Arrays.fill(amounts, BigDecimal.ZERO);
+            amountsPerUnitType.put(unitType, amounts);
+        }
+
+        final List<RolledUpUsageModelDao> sortedUsage = new ArrayList<RolledUpUsageModelDao>(rawUsage);
+        Collections.sort(sortedUsage, new Comparator<RolledUpUsageModelDao>() {
+            @Override
+            public int compare(final RolledUpUsageModelDao o1, final RolledUpUsageModelDao o2) {
+                return o1.getStartTime().compareTo(o2.getStartTime());
+            }
+        });
+
+        // Sweep the records and the periods together: lastPeriod is the last period starting on or before the record start time
+        int lastPeriod = -1;
+        for (final RolledUpUsageModelDao usage : sortedUsage) {
+            final BigDecimal[] amounts = amountsPerUnitType.get(usage.getUnitType());
+            if (amounts == null || usage.getEndTime() == null) {
+                continue;
+            }
+
+            while (lastPeriod + 1 < nbPeriods && !transitionTimes.get(lastPeriod + 1).isAfter(usage.getStartTime())) {
+                lastPeriod++;
+            }
+
+            // Only records with an end time equal to their start time, on a period boundary, can be part of more than one period
+            for (int period = lastPeriod; period >= 0 && !transitionTimes.get(period + 1).isBefore(usage.getEndTime()); period--) {
+                amounts[period] = amounts[period].add(usage.getAmount());
+            }
+        }
+
+        final List<RolledUpUsage> result = new ArrayList<RolledUpUsage>();
+        for (int period = 0; period < nbPeriods; period++) {
+            for (final String unitType : unitTypes) {
+                result.add(new DefaultRolledUpUsage(subscriptionId, unitType, transitionTimes.get(period), transitionTimes.get(period + 1),
+                                                    amountsPerUnitType.get(unitType)[period]));
             }
-            prevDate = curDate;
         }
         return result;
     }
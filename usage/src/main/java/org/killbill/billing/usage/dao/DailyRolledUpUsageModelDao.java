@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Sum of the usage recorded for a subscription and unit type, for all the records starting on
+ * startDay and ending on or before endDay (but after the day before), in UTC.
+ */
+public class DailyRolledUpUsageModelDao {
+
+    private UUID subscriptionId;
+    private String unitType;
+    private LocalDate startDay;
+    private LocalDate endDay;
+    private BigDecimal amount;
+
+    public DailyRolledUpUsageModelDao() { /* For the DAO mapper */ }
+
+    public DailyRolledUpUsageModelDao(final UUID subscriptionId, final String unitType, final LocalDate startDay,
+                                      final LocalDate endDay, final BigDecimal amount) {
+        this.subscriptionId = subscriptionId;
+        this.unitType = unitType;
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.amount = amount;
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public String getUnitType() {
+        return unitType;
+    }
+
+    public LocalDate getStartDay() {
+        return startDay;
+    }
+
+    public LocalDate getEndDay() {
+        return endDay;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setSubscriptionId(final UUID subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    public void setUnitType(final String unitType) {
+        this.unitType = unitType;
+    }
+
+    public void setStartDay(final LocalDate startDay) {
+        this.startDay = startDay;
+    }
+
+    public void setEndDay(final LocalDate endDay) {
+        this.endDay = endDay;
+    }
+
+    public void setAmount(final BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("DailyRolledUpUsageModelDao");
+        sb.append("{subscriptionId=").append(subscriptionId);
+        sb.append(", unitType='").append(unitType).append('\'');
+        sb.append(", startDay=").append(startDay);
+        sb.append(", endDay=").append(endDay);
+        sb.append(", amount=").append(amount);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final DailyRolledUpUsageModelDao that = (DailyRolledUpUsageModelDao) o;
+
+        if (amount != null ? !amount.equals(that.amount) : that.amount != null) {
+            return false;
+        }
+        if (endDay != null ? !endDay.equals(that.endDay) : that.endDay != null) {
+            return false;
+        }
+        if (startDay != null ? !startDay.equals(that.startDay) : that.startDay != null) {
+            return false;
+        }
+        if (subscriptionId != null ? !subscriptionId.equals(that.subscriptionId) : that.subscriptionId != null) {
+            return false;
+        }
+        if (unitType != null ? !unitType.equals(that.unitType) : that.unitType != null) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = subscriptionId != null ? subscriptionId.hashCode() : 0;
+        result = 31 * result + (unitType != null ? unitType.hashCode() : 0);
+        result = 31 * result + (startDay != null ? startDay.hashCode() : 0);
+        result = 31 * result + (endDay != null ? endDay.hashCode() : 0);
+        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        return result;
+    }
+}
@@ -17,27 +17,47 @@
 package org.killbill.billing.usage.dao;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
-import org.killbill.billing.usage.api.RolledUpUsage;
-import org.killbill.billing.util.callcontext.TenantContext;
-import org.skife.jdbi.v2.IDBI;
-
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.UsageConfig;
+import org.killbill.billing.util.dao.DuplicateKeys;
+import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.Transaction;
+import org.skife.jdbi.v2.TransactionStatus;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private static final String DAILY_USAGE_SAVEPOINT = "daily_rolled_up_usage";
+
     private final RolledUpUsageSqlDao rolledUpUsageSqlDao;
+    private final UsageConfig config;
+    private final int bulkBatchSize;
 
     @Inject
-    public DefaultRolledUpUsageDao(final IDBI dbi) {
+    public DefaultRolledUpUsageDao(final IDBI dbi, final UsageConfig config) {
         this.rolledUpUsageSqlDao = dbi.onDemand(RolledUpUsageSqlDao.class);
+        this.config = config;
+        this.bulkBatchSize = config.getBulkBatchSize();
+        Preconditions.checkArgument(bulkBatchSize >= 1, "org.killbill.usage.bulk.batchSize should be at least 1, was %s", bulkBatchSize);
     }
 
     @Override
@@ -46,12 +66,210 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         final RolledUpUsageModelDao rolledUpUsageModelDao = new RolledUpUsageModelDao(subscriptionId, unitType, startTime,
                                                                                       endTime, amount
         );
-        rolledUpUsageSqlDao.create(rolledUpUsageModelDao, context);
+        if (!config.isDailyRollupsEnabled() || endTime == null) {
+            // Records without end time are never part of the daily aggregates
+            rolledUpUsageSqlDao.create(rolledUpUsageModelDao, config.isDailyRollupsEnabled(), context);
+            return;
+        }
+
+        rolledUpUsageSqlDao.inTransaction(new Transaction<Void, RolledUpUsageSqlDao>() {
+            @Override
+            public Void inTransaction(final RolledUpUsageSqlDao transactional, final TransactionStatus status) throws Exception {
+                transactional.create(rolledUpUsageModelDao, true, context);
+
+                final DailyRolledUpUsageModelDao dailyRolledUpUsageModelDao = new DailyRolledUpUsageModelDao(subscriptionId, unitType, toStartDay(startTime),
+                                                                                                             toEndDay(endTime), amount);
+                addDailyUsage(transactional, dailyRolledUpUsageModelDao, context);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void recordBatch(final UUID subscriptionId, final List<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        rolledUpUsageSqlDao.inTransaction(new Transaction<Void, RolledUpUsageSqlDao>() {
+            @Override
+            public Void inTransaction(final RolledUpUsageSqlDao transactional, final TransactionStatus status) throws Exception {
+                for (final List<RolledUpUsageModelDao> chunk : Lists.partition(usages, bulkBatchSize)) {
+                    transactional.batchCreate(chunk, config.isDailyRollupsEnabled(), context);
+                }
+
+                if (config.isDailyRollupsEnabled()) {
+                    // One update (or insert) per daily bucket, instead of one per record
+                    for (final DailyRolledUpUsageModelDao dailyUsage : toDailyUsage(subscriptionId, usages)) {
+                        addDailyUsage(transactional, dailyUsage, context);
+                    }
+                }
+                return null;
+            }
+        });
     }
 
     @Override
     public RolledUpUsageModelDao getUsageForSubscription(UUID subscriptionId, DateTime startTime, DateTime endTime, String unitType, InternalTenantContext context) {
-        final BigDecimal amount = rolledUpUsageSqlDao.getUsageForSubscription(subscriptionId, startTime.toDate(), endTime.toDate(), unitType, context);
+        final BigDecimal amount;
+        if (isDailyUsageComplete(subscriptionId, startTime, endTime, context)) {
+            // Whole days are read from the daily aggregates, only the records on the partial days at both ends are read from the raw table
+            final LocalDate firstDay = toEndDay(startTime);
+            final LocalDate lastDay = toStartDay(endTime);
+            final BigDecimal dailyAmount = rolledUpUsageSqlDao.getDailyUsageSumForSubscription(subscriptionId, firstDay, lastDay, unitType, context);
+            final BigDecimal edgesAmount = rolledUpUsageSqlDao.getEdgeUsageForSubscription(subscriptionId, startTime.toDate(), endTime.toDate(),
+                                                                                           toDateTime(firstDay).toDate(), toDateTime(lastDay).toDate(),
+                                                                                           unitType, context);
+            amount = (dailyAmount != null ? dailyAmount : BigDecimal.ZERO).add(edgesAmount != null ? edgesAmount : BigDecimal.ZERO);
+        } else {
+            amount = rolledUpUsageSqlDao.getUsageForSubscription(subscriptionId, startTime.toDate(), endTime.toDate(), unitType, context);
+        }
         return new RolledUpUsageModelDao(subscriptionId, unitType, startTime, endTime, amount != null ? amount : BigDecimal.ZERO);
     }
+
+    @Override
+    public List<RolledUpUsageModelDao> getRawUsageForSubscription(final UUID subscriptionId, final DateTime startTime, final DateTime endTime, final InternalTenantContext context) {
+        return rolledUpUsageSqlDao.getRawUsageForSubscription(subscriptionId, startTime.toDate(), endTime.toDate(), context);
+    }
+
+    @Override
+    public List<RolledUpUsageModelDao> getUsageRecordsForSubscription(final UUID subscriptionId, final List<DateTime> transitionTimes, final InternalTenantContext context) {
+        final DateTime startTime = transitionTimes.get(0);
+        final DateTime endTime = transitionTimes.get(transitionTimes.size() - 1);
+        if (!isDailyUsageComplete(subscriptionId, startTime, endTime, context)) {
+            return getRawUsageForSubscription(subscriptionId, startTime, endTime, context);
+        }
+
+        // Days containing a transition time which isn't at midnight UTC can't be read from the daily aggregates
+        final Set<LocalDate> partialDays = new HashSet<LocalDate>();
+        for (final DateTime transitionTime : transitionTimes) {
+            if (!isStartOfDay(transitionTime)) {
+                partialDays.add(toStartDay(transitionTime));
+            }
+        }
+
+        final List<RolledUpUsageModelDao> result = new LinkedList<RolledUpUsageModelDao>();
+        for (final DailyRolledUpUsageModelDao dailyUsage : rolledUpUsageSqlDao.getDailyUsageForSubscription(subscriptionId, toStartDay(startTime), toEndDay(endTime), context)) {
+            if (partialDays.contains(dailyUsage.getStartDay()) || partialDays.contains(dailyUsage.getEndDay().minusDays(1))) {
+                continue;
+            }
+            result.add(new RolledUpUsageModelDao(subscriptionId, dailyUsage.getUnitType(), toDateTime(dailyUsage.getStartDay()),
+                                                 toDateTime(dailyUsage.getEndDay()), dailyUsage.getAmount()));
+        }
+
+        // A record can start and end on two different partial days
+        final Map<UUID, RolledUpUsageModelDao> rawUsage = new HashMap<UUID, RolledUpUsageModelDao>();
+        for (final LocalDate partialDay : partialDays) {
+            for (final RolledUpUsageModelDao usage : rolledUpUsageSqlDao.getRawUsageForSubscriptionOnDay(subscriptionId, toDateTime(partialDay).toDate(),
+                                                                                                           toDateTime(partialDay.plusDays(1)).toDate(), context)) {
+                rawUsage.put(usage.getId(), usage);
+            }
+        }
+        result.addAll(rawUsage.values());
+
+        return result;
+    }
+
+    @Override
+    public List<UUID> getSubscriptionIdsWithUsage(final InternalTenantContext context) {
+        return rolledUpUsageSqlDao.getSubscriptionIdsWithUsage(context);
+    }
+
+    @Override
+    public void rebuildDailyUsage(final UUID subscriptionId, final InternalCallContext context) {
+        rolledUpUsageSqlDao.inTransaction(new Transaction<Void, RolledUpUsageSqlDao>() {
+            @Override
+            public Void inTransaction(final RolledUpUsageSqlDao transactional, final TransactionStatus status) throws Exception {
+                // The existing daily rows are never deleted: records made concurrently with daily rollups enabled have already
+                // been added to them. Only the records missing from the aggregates are read (and locked), added on top of the
+                // daily rows as deltas, and marked as rolled up.
+                final List<RolledUpUsageModelDao> rawUsages = transactional.getRawUsageNotRolledUpForSubscriptionForUpdate(subscriptionId, context);
+                if (rawUsages.isEmpty()) {
+                    return null;
+                }
+
+                for (final List<RolledUpUsageModelDao> chunk : Lists.partition(rawUsages, bulkBatchSize)) {
+                    for (final int nbUpdated : transactional.batchMarkRawUsageAsRolledUp(chunk, context)) {
+                        if (nbUpdated == 0) {
+                            throw new IllegalStateException(String.format("Usage for subscription %s is being rolled up concurrently", subscriptionId));
+                        }
+                    }
+                }
+                for (final DailyRolledUpUsageModelDao dailyUsage : toDailyUsage(subscriptionId, rawUsages)) {
+                    addDailyUsage(transactional, dailyUsage, context);
+                }
+                return null;
+            }
+        });
+    }
+
+    // The daily aggregates can't be used for periods with records made while daily rollups were disabled, until
+    // rebuildDailyUsage has been run for the subscription: the raw records are used instead
+    private boolean isDailyUsageComplete(final UUID subscriptionId, final DateTime startTime, final DateTime endTime, final InternalTenantContext context) {
+        if (!config.isDailyRollupsEnabled()) {
+            return false;
+        }
+
+        final Long nbRawUsageNotRolledUp = rolledUpUsageSqlDao.getNbRawUsageNotRolledUpForSubscription(subscriptionId, startTime.toDate(), endTime.toDate(), context);
+        return nbRawUsageNotRolledUp == null || nbRawUsageNotRolledUp == 0;
+    }
+
+    @VisibleForTesting
+    static void addDailyUsage(final RolledUpUsageSqlDao transactional, final DailyRolledUpUsageModelDao dailyUsage, final InternalCallContext context) {
+        if (transactional.updateDailyUsage(dailyUsage, context) > 0) {
+            return;
+        }
+
+        // Two transactions recording usage for a new bucket can both miss the update: the loser of the insert race hits
+        // the unique index and applies its amount on top of the winner's row instead. The savepoint keeps the transaction
+        // usable after the failed insert (required by PostgreSQL).
+        transactional.checkpoint(DAILY_USAGE_SAVEPOINT);
+        try {
+            transactional.createDailyUsage(dailyUsage, context);
+            transactional.release(DAILY_USAGE_SAVEPOINT);
+        } catch (final UnableToExecuteStatementException e) {
+            if (!DuplicateKeys.isDuplicateKey(e)) {
+                throw e;
+            }
+            transactional.rollback(DAILY_USAGE_SAVEPOINT);
+            if (transactional.updateDailyUsage(dailyUsage, context) == 0) {
+                throw e;
+            }
+        }
+    }
+
+    private static List<DailyRolledUpUsageModelDao> toDailyUsage(final UUID subscriptionId, final Iterable<RolledUpUsageModelDao> usages) {
+        final Map<List<Object>, DailyRolledUpUsageModelDao> dailyUsages = new HashMap<List<Object>, DailyRolledUpUsageModelDao>();
+        for (final RolledUpUsageModelDao usage : usages) {
+            if (usage.getEndTime() == null) {
+                continue;
+            }
+
+            final LocalDate startDay = toStartDay(usage.getStartTime());
+            final LocalDate endDay = toEndDay(usage.getEndTime());
+            final List<Object> key = ImmutableList.<Object>of(usage.getUnitType(), startDay, endDay);
+            final DailyRolledUpUsageModelDao dailyUsage = dailyUsages.get(key);
+            if (dailyUsage == null) {
+                dailyUsages.put(key, new DailyRolledUpUsageModelDao(subscriptionId, usage.getUnitType(), startDay, endDay, usage.getAmount()));
+            } else {
+                dailyUsage.setAmount(dailyUsage.getAmount().add(usage.getAmount()));
+            }
+        }
+        return ImmutableList.<DailyRolledUpUsageModelDao>copyOf(dailyUsages.values());
+    }
+
+    // Day (UTC) of the start of the record
+    private static LocalDate toStartDay(final DateTime dateTime) {
+        return new LocalDate(dateTime, DateTimeZone.UTC);
+    }
+
+    // First midnight (UTC) at or after the end of the record
+    private static LocalDate toEndDay(final DateTime dateTime) {
+        final LocalDate day = new LocalDate(dateTime, DateTimeZone.UTC);
+        return isStartOfDay(dateTime) ? day : day.plusDays(1);
+    }
+
+    private static boolean isStartOfDay(final DateTime dateTime) {
+        return dateTime.toDateTime(DateTimeZone.UTC).getMillisOfDay() == 0;
+    }
+
+    private static DateTime toDateTime(final LocalDate day) {
+        return day.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+    }
 }
@@ -33,5 +33,25 @@ public interface RolledUpUsageDao {
     void record(UUID subscriptionId, String unitType, DateTime startTime,
                 DateTime endTime, BigDecimal amount, InternalCallContext context);
 
+    /**
+     * Record usage for a single subscription, in one transaction
+     */
+    void recordBatch(UUID subscriptionId, List<RolledUpUsageModelDao> usages, InternalCallContext context);
+
     RolledUpUsageModelDao getUsageForSubscription(UUID subscriptionId, DateTime startTime, DateTime endTime, String unitType, InternalTenantContext context);
+
+    List<RolledUpUsageModelDao> getRawUsageForSubscription(UUID subscriptionId, DateTime startTime, DateTime endTime, InternalTenantContext context);
+
+    /**
+     * @return records which, when bucketed over the periods defined by the transition times, add up to the same amounts as the raw records
+     * (records are pre-aggregated per day when daily rollups are enabled)
+     */
+    List<RolledUpUsageModelDao> getUsageRecordsForSubscription(UUID subscriptionId, List<DateTime> transitionTimes, InternalTenantContext context);
+
+    List<UUID> getSubscriptionIdsWithUsage(InternalTenantContext context);
+
+    /**
+     * Add the records made while daily rollups were disabled to the daily aggregates
+     */
+    void rebuildDailyUsage(UUID subscriptionId, InternalCallContext context);
 }
@@ -17,30 +17,144 @@
 package org.killbill.billing.usage.dao;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
+import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
 import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
 
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.callcontext.InternalTenantContextBinder;
+import org.killbill.billing.util.dao.BinaryUUIDs;
+import org.killbill.billing.util.dao.UUIDMapper;
 
 @UseStringTemplate3StatementLocator()
-public interface RolledUpUsageSqlDao {
+@RegisterMapper({RolledUpUsageSqlDao.RolledUpUsageModelDaoMapper.class, RolledUpUsageSqlDao.DailyRolledUpUsageModelDaoMapper.class})
+public interface RolledUpUsageSqlDao extends Transactional<RolledUpUsageSqlDao> {
 
+    // dailyRolledUp: whether the records are added to the daily aggregates as well
     @SqlUpdate
     public void create(@BindBean RolledUpUsageModelDao rolledUpUsage,
+                       @Bind("dailyRolledUp") final boolean dailyRolledUp,
                        @InternalTenantContextBinder final InternalCallContext context);
 
+    @SqlBatch(transactional = false)
+    public void batchCreate(@BindBean List<RolledUpUsageModelDao> rolledUpUsages,
+                            @Bind("dailyRolledUp") final boolean dailyRolledUp,
+                            @InternalTenantContextBinder final InternalCallContext context);
+
     @SqlQuery
     public BigDecimal getUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
                                                          @Bind("startTime") final Date startTime,
                                                          @Bind("endTime") final Date endTime,
                                                          @Bind("unitType") final String unitType,
                                                          @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public List<RolledUpUsageModelDao> getRawUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                  @Bind("startTime") final Date startTime,
+                                                                  @Bind("endTime") final Date endTime,
+                                                                  @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public List<RolledUpUsageModelDao> getRawUsageNotRolledUpForSubscriptionForUpdate(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                                      @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public List<RolledUpUsageModelDao> getRawUsageForSubscriptionOnDay(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                       @Bind("dayStartTime") final Date dayStartTime,
+                                                                       @Bind("dayEndTime") final Date dayEndTime,
+                                                                       @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public BigDecimal getEdgeUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                  @Bind("startTime") final Date startTime,
+                                                  @Bind("endTime") final Date endTime,
+                                                  @Bind("firstDayTime") final Date firstDayTime,
+                                                  @Bind("lastDayTime") final Date lastDayTime,
+                                                  @Bind("unitType") final String unitType,
+                                                  @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public Long getNbRawUsageNotRolledUpForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                        @Bind("startTime") final Date startTime,
+                                                        @Bind("endTime") final Date endTime,
+                                                        @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlBatch(transactional = false)
+    public int[] batchMarkRawUsageAsRolledUp(@BindBean List<RolledUpUsageModelDao> rolledUpUsages,
+                                             @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlQuery
+    @RegisterMapper(UUIDMapper.class)
+    public List<UUID> getSubscriptionIdsWithUsage(@InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public BigDecimal getDailyUsageSumForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                      @Bind("firstDay") final LocalDate firstDay,
+                                                      @Bind("lastDay") final LocalDate lastDay,
+                                                      @Bind("unitType") final String unitType,
+                                                      @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlQuery
+    public List<DailyRolledUpUsageModelDao> getDailyUsageForSubscription(@Bind("subscriptionId") final UUID subscriptionId,
+                                                                         @Bind("firstDay") final LocalDate firstDay,
+                                                                         @Bind("lastDay") final LocalDate lastDay,
+                                                                         @InternalTenantContextBinder final InternalTenantContext context);
+
+    @SqlUpdate
+    public int updateDailyUsage(@BindBean DailyRolledUpUsageModelDao dailyRolledUpUsage,
+                                @InternalTenantContextBinder final InternalCallContext context);
+
+    @SqlUpdate
+    public void createDailyUsage(@BindBean DailyRolledUpUsageModelDao dailyRolledUpUsage,
+                                 @InternalTenantContextBinder final InternalCallContext context);
+
+
+    class RolledUpUsageModelDaoMapper implements ResultSetMapper<RolledUpUsageModelDao> {
+
+        @Override
+        public RolledUpUsageModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            final RolledUpUsageModelDao rolledUpUsageModelDao = new RolledUpUsageModelDao(BinaryUUIDs.fromColumnValue(r.getObject("subscription_id")),
+                                                                                          r.getString("unit_type"),
+                                                                                          getDateTime(r, "start_time"),
+                                                                                          getDateTime(r, "end_time"),
+                                                                                          r.getBigDecimal("amount"));
+            rolledUpUsageModelDao.setId(BinaryUUIDs.fromColumnValue(r.getObject("id")));
+            return rolledUpUsageModelDao;
+        }
+
+        private DateTime getDateTime(final ResultSet r, final String columnLabel) throws SQLException {
+            final Timestamp timestamp = r.getTimestamp(columnLabel);
+            return timestamp == null ? null : new DateTime(timestamp).toDateTime(DateTimeZone.UTC);
+        }
+    }
+
+    class DailyRolledUpUsageModelDaoMapper implements ResultSetMapper<DailyRolledUpUsageModelDao> {
+
+        @Override
+        public DailyRolledUpUsageModelDao map(final int index, final ResultSet r, final StatementContext ctx) throws SQLException {
+            return new DailyRolledUpUsageModelDao(BinaryUUIDs.fromColumnValue(r.getObject("subscription_id")),
+                                                  r.getString("unit_type"),
+                                                  new LocalDate(r.getDate("start_day"), DateTimeZone.UTC),
+                                                  new LocalDate(r.getDate("end_day"), DateTimeZone.UTC),
+                                                  r.getBigDecimal("amount"));
+        }
+    }
 }
@@ -19,11 +19,17 @@
 package org.killbill.billing.usage.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
+import org.killbill.billing.usage.api.UsageMaintenanceApi;
 import org.killbill.billing.usage.api.UsageUserApi;
+import org.killbill.billing.usage.api.user.DefaultBulkUsageUserApi;
+import org.killbill.billing.usage.api.user.DefaultUsageMaintenanceApi;
 import org.killbill.billing.usage.api.user.DefaultUsageUserApi;
 import org.killbill.billing.usage.dao.DefaultRolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.util.config.UsageConfig;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class UsageModule extends KillBillModule {
 
@@ -31,6 +37,11 @@ public class UsageModule extends KillBillModule {
         super(configSource);
     }
 
+    protected void installConfig() {
+        final UsageConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(UsageConfig.class);
+        bind(UsageConfig.class).toInstance(config);
+    }
+
     protected void installRolledUpUsageDao() {
         bind(RolledUpUsageDao.class).to(DefaultRolledUpUsageDao.class).asEagerSingleton();
     }
@@ -39,9 +50,20 @@ public class UsageModule extends KillBillModule {
         bind(UsageUserApi.class).to(DefaultUsageUserApi.class).asEagerSingleton();
     }
 
+    protected void installBulkUsageUserApi() {
+        bind(BulkUsageUserApi.class).to(DefaultBulkUsageUserApi.class).asEagerSingleton();
+    }
+
+    protected void installUsageMaintenanceApi() {
+        bind(UsageMaintenanceApi.class).to(DefaultUsageMaintenanceApi.class).asEagerSingleton();
+    }
+
     @Override
     protected void configure() {
+        installConfig();
         installRolledUpUsageDao();
         installUsageUserApi();
+        installBulkUsageUserApi();
+        installUsageMaintenanceApi();
     }
 }
@@ -9,6 +9,7 @@ CREATE TABLE rolled_up_usage (
     start_time datetime NOT NULL,
     end_time datetime,
     amount decimal(15,9) NOT NULL,
+    daily_rolled_up bool NOT NULL DEFAULT false,
     created_by varchar(50) NOT NULL,
     created_date datetime NOT NULL,
     account_record_id int(11) unsigned default null,
@@ -18,3 +19,22 @@ CREATE TABLE rolled_up_usage (
 CREATE UNIQUE INDEX rolled_up_usage_id ON rolled_up_usage(id);
 CREATE INDEX rolled_up_usage_subscription_id ON rolled_up_usage(subscription_id ASC);
 CREATE INDEX rolled_up_usage_tenant_account_record_id ON rolled_up_usage(tenant_record_id, account_record_id);
+CREATE INDEX rolled_up_usage_subscription_start_time ON rolled_up_usage(subscription_id, unit_type, start_time);
+CREATE INDEX rolled_up_usage_subscription_end_time ON rolled_up_usage(subscription_id, unit_type, end_time);
+CREATE INDEX rolled_up_usage_subscription_daily_rolled_up ON rolled_up_usage(subscription_id, daily_rolled_up);
+
+DROP TABLE IF EXISTS daily_rolled_up_usage;
+CREATE TABLE daily_rolled_up_usage (
+    record_id int(11) unsigned NOT NULL AUTO_INCREMENT,
+    subscription_id char(36) NOT NULL,
+    unit_type varchar(50) NOT NULL,
+    start_day date NOT NULL,
+    end_day date NOT NULL,
+    amount decimal(15,9) NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id int(11) unsigned default null,
+    tenant_record_id int(11) unsigned default null,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX daily_rolled_up_usage_subscription_days ON daily_rolled_up_usage(subscription_id, unit_type, start_day, end_day);
+CREATE INDEX daily_rolled_up_usage_tenant_account_record_id ON daily_rolled_up_usage(tenant_record_id, account_record_id);
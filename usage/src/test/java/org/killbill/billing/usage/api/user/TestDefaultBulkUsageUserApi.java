@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.usage.UsageTestSuiteNoDB;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.dao.RolledUpUsageDao;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestDefaultBulkUsageUserApi extends UsageTestSuiteNoDB {
+
+    private final DateTime startTime = new DateTime(2014, 3, 1, 0, 0, DateTimeZone.UTC);
+
+    private RolledUpUsageDao rolledUpUsageDao;
+    private DefaultBulkUsageUserApi bulkUsageUserApi;
+
+    @BeforeMethod(groups = "fast")
+    public void setUp() throws Exception {
+        rolledUpUsageDao = Mockito.mock(RolledUpUsageDao.class);
+        final InternalCallContextFactory internalCallContextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(internalCallContextFactory.createInternalCallContext(Mockito.<UUID>any(), Mockito.eq(ObjectType.SUBSCRIPTION), Mockito.<CallContext>any()))
+               .thenReturn(internalCallContext);
+        bulkUsageUserApi = new DefaultBulkUsageUserApi(rolledUpUsageDao, internalCallContextFactory);
+    }
+
+    @Test(groups = "fast")
+    public void testRecordsAreGroupedPerSubscription() {
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+        final List<RolledUpUsage> usages = ImmutableList.<RolledUpUsage>of(usage(subscriptionId1, BigDecimal.ONE),
+                                                                           usage(subscriptionId2, BigDecimal.TEN),
+                                                                           usage(subscriptionId1, new BigDecimal("2")));
+
+        final Map<Integer, String> failures = bulkUsageUserApi.recordRolledUpUsage(usages, callContext);
+        assertTrue(failures.isEmpty());
+
+        // One batch (transaction) per subscription, records kept in order
+        final List<RolledUpUsageModelDao> recorded1 = captureRecordBatch(subscriptionId1);
+        assertEquals(recorded1.size(), 2);
+        assertEquals(recorded1.get(0).getAmount().compareTo(BigDecimal.ONE), 0);
+        assertEquals(recorded1.get(1).getAmount().compareTo(new BigDecimal("2")), 0);
+        final List<RolledUpUsageModelDao> recorded2 = captureRecordBatch(subscriptionId2);
+        assertEquals(recorded2.size(), 1);
+        assertEquals(recorded2.get(0).getSubscriptionId(), subscriptionId2);
+        assertEquals(recorded2.get(0).getUnitType(), "minutes");
+        Mockito.verify(rolledUpUsageDao, Mockito.times(2)).recordBatch(Mockito.<UUID>any(), Mockito.<List<RolledUpUsageModelDao>>any(), Mockito.<InternalCallContext>any());
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidRecordsAreRejected() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final List<RolledUpUsage> usages = Arrays.<RolledUpUsage>asList(null,
+                                                                        new DefaultRolledUpUsage(null, "minutes", startTime, null, BigDecimal.ONE),
+                                                                        new DefaultRolledUpUsage(subscriptionId, null, startTime, null, BigDecimal.ONE),
+                                                                        new DefaultRolledUpUsage(subscriptionId, "minutes", null, null, BigDecimal.ONE),
+                                                                        new DefaultRolledUpUsage(subscriptionId, "minutes", startTime, null, null),
+                                                                        new DefaultRolledUpUsage(subscriptionId, "minutes", startTime, startTime.minusHours(1), BigDecimal.ONE),
+                                                                        usage(subscriptionId, BigDecimal.TEN));
+
+        final Map<Integer, String> failures = bulkUsageUserApi.recordRolledUpUsage(usages, callContext);
+        assertEquals(new ArrayList<Integer>(failures.keySet()), ImmutableList.<Integer>of(0, 1, 2, 3, 4, 5));
+        assertEquals(failures.get(0), "Usage record is null");
+        assertEquals(failures.get(1), "Usage record has no subscriptionId");
+        assertEquals(failures.get(2), "Usage record has no unitType");
+        assertEquals(failures.get(3), "Usage record has no startTime");
+        assertEquals(failures.get(4), "Usage record has no amount");
+        assertEquals(failures.get(5), "Usage record endTime is before its startTime");
+
+        // The valid record is still recorded
+        final List<RolledUpUsageModelDao> recorded = captureRecordBatch(subscriptionId);
+        assertEquals(recorded.size(), 1);
+        assertEquals(recorded.get(0).getAmount().compareTo(BigDecimal.TEN), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testDaoFailureOnlyRejectsThatSubscription() {
+        final UUID failingSubscriptionId = UUID.randomUUID();
+        final UUID subscriptionId = UUID.randomUUID();
+        Mockito.doThrow(new IllegalStateException("boom"))
+               .when(rolledUpUsageDao).recordBatch(Mockito.eq(failingSubscriptionId), Mockito.<List<RolledUpUsageModelDao>>any(), Mockito.<InternalCallContext>any());
+
+        final List<RolledUpUsage> usages = ImmutableList.<RolledUpUsage>of(usage(failingSubscriptionId, BigDecimal.ONE),
+                                                                           usage(subscriptionId, BigDecimal.ONE),
+                                                                           usage(failingSubscriptionId, BigDecimal.TEN));
+
+        final Map<Integer, String> failures = bulkUsageUserApi.recordRolledUpUsage(usages, callContext);
+        assertEquals(new ArrayList<Integer>(failures.keySet()), ImmutableList.<Integer>of(0, 2));
+        assertTrue(failures.get(0).contains(failingSubscriptionId.toString()));
+        assertTrue(failures.get(0).contains("boom"));
+        assertEquals(failures.get(2), failures.get(0));
+
+        assertEquals(captureRecordBatch(subscriptionId).size(), 1);
+    }
+
+    private List<RolledUpUsageModelDao> captureRecordBatch(final UUID subscriptionId) {
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<RolledUpUsageModelDao>> captor = (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+        Mockito.verify(rolledUpUsageDao).recordBatch(Mockito.eq(subscriptionId), captor.capture(), Mockito.<InternalCallContext>any());
+        return captor.getValue();
+    }
+
+    private RolledUpUsage usage(final UUID subscriptionId, final BigDecimal amount) {
+        return new DefaultRolledUpUsage(subscriptionId, "minutes", startTime, startTime.plusHours(1), amount);
+    }
+}
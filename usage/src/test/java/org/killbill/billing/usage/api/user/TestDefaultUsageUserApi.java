@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.user;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.usage.UsageTestSuiteNoDB;
+import org.killbill.billing.usage.api.RolledUpUsage;
+import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestDefaultUsageUserApi extends UsageTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testAggregateUsage() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime t0 = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime t1 = new DateTime(2013, 2, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime t2 = new DateTime(2013, 3, 1, 0, 0, DateTimeZone.UTC);
+
+        final List<RolledUpUsageModelDao> rawUsage = ImmutableList.<RolledUpUsageModelDao>of(new RolledUpUsageModelDao(subscriptionId, "foo", t1, t1.plusDays(2), BigDecimal.ONE),
+                                                                                            new RolledUpUsageModelDao(subscriptionId, "foo", t0, t0.plusDays(1), BigDecimal.ONE),
+                                                                                            new RolledUpUsageModelDao(subscriptionId, "foo", t0.plusDays(3), t1, BigDecimal.TEN),
+                                                                                            new RolledUpUsageModelDao(subscriptionId, "bar", t0.plusDays(3), t0.plusDays(4), BigDecimal.TEN),
+                                                                                            // Crosses a period boundary, not part of any period
+                                                                                            new RolledUpUsageModelDao(subscriptionId, "bar", t0.plusDays(10), t1.plusDays(10), BigDecimal.TEN),
+                                                                                            // Unknown unit type
+                                                                                            new RolledUpUsageModelDao(subscriptionId, "baz", t0, t1, BigDecimal.TEN),
+                                                                                            // Empty interval on a period boundary, part of both periods
+                                                                                            new RolledUpUsageModelDao(subscriptionId, "bar", t1, t1, BigDecimal.ONE));
+
+        final List<RolledUpUsage> result = DefaultUsageUserApi.aggregateUsage(subscriptionId, ImmutableSet.<String>of("foo", "bar"), ImmutableList.<DateTime>of(t0, t1, t2), rawUsage);
+        assertEquals(result.size(), 4);
+        checkUsage(result.get(0), subscriptionId, "foo", t0, t1, new BigDecimal("11"));
+        checkUsage(result.get(1), subscriptionId, "bar", t0, t1, new BigDecimal("11"));
+        checkUsage(result.get(2), subscriptionId, "foo", t1, t2, BigDecimal.ONE);
+        checkUsage(result.get(3), subscriptionId, "bar", t1, t2, BigDecimal.ONE);
+    }
+
+    private void checkUsage(final RolledUpUsage usage, final UUID subscriptionId, final String unitType, final DateTime startTime, final DateTime endTime, final BigDecimal amount) {
+        assertEquals(usage.getSubscriptionId(), subscriptionId);
+        assertEquals(((DefaultRolledUpUsage) usage).getUnitType(), unitType);
+        assertEquals(usage.getStartTime(), startTime);
+        assertEquals(usage.getEndTime(), endTime);
+        assertEquals(usage.getAmount().compareTo(amount), 0);
+    }
+}
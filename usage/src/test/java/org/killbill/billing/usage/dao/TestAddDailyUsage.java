@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.usage.UsageTestSuiteNoDB;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.skife.jdbi.v2.exceptions.UnableToExecuteStatementException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestAddDailyUsage extends UsageTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testAddDailyUsageAfterLosingInsertRace() {
+        final RolledUpUsageSqlDao transactional = Mockito.mock(RolledUpUsageSqlDao.class);
+        final DailyRolledUpUsageModelDao dailyUsage = new DailyRolledUpUsageModelDao(UUID.randomUUID(), "foo", new LocalDate(2013, 1, 1), new LocalDate(2013, 1, 2), BigDecimal.ONE);
+        final InternalCallContext context = internalCallContext;
+
+        // The concurrent transaction inserts the bucket between our update and our insert
+        Mockito.when(transactional.updateDailyUsage(dailyUsage, context)).thenReturn(0, 1);
+        Mockito.doThrow(new UnableToExecuteStatementException(new SQLException("Unique index or primary key violation", "23505"), null))
+               .when(transactional).createDailyUsage(dailyUsage, context);
+
+        DefaultRolledUpUsageDao.addDailyUsage(transactional, dailyUsage, context);
+
+        final InOrder inOrder = Mockito.inOrder(transactional);
+        inOrder.verify(transactional).updateDailyUsage(dailyUsage, context);
+        inOrder.verify(transactional).createDailyUsage(dailyUsage, context);
+        inOrder.verify(transactional).rollback(Mockito.anyString());
+        inOrder.verify(transactional).updateDailyUsage(dailyUsage, context);
+    }
+
+    @Test(groups = "fast")
+    public void testAddDailyUsageWithOtherInsertFailure() {
+        final RolledUpUsageSqlDao transactional = Mockito.mock(RolledUpUsageSqlDao.class);
+        final DailyRolledUpUsageModelDao dailyUsage = new DailyRolledUpUsageModelDao(UUID.randomUUID(), "foo", new LocalDate(2013, 1, 1), new LocalDate(2013, 1, 2), BigDecimal.ONE);
+        final InternalCallContext context = internalCallContext;
+
+        Mockito.when(transactional.updateDailyUsage(dailyUsage, context)).thenReturn(0);
+        Mockito.doThrow(new UnableToExecuteStatementException(new SQLException("NULL not allowed for column", "23502"), null))
+               .when(transactional).createDailyUsage(dailyUsage, context);
+
+        try {
+            DefaultRolledUpUsageDao.addDailyUsage(transactional, dailyUsage, context);
+            Assert.fail();
+        } catch (final UnableToExecuteStatementException e) {
+            Mockito.verify(transactional, Mockito.times(1)).updateDailyUsage(dailyUsage, context);
+        }
+    }
+}
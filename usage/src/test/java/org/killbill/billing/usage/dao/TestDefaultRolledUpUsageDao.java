@@ -17,6 +17,8 @@
 package org.killbill.billing.usage.dao;
 
 import java.math.BigDecimal;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -72,4 +74,49 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(result.getAmount().compareTo(BigDecimal.ZERO), 0);
     }
 
+    @Test(groups = "slow")
+    public void testRawUsage() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime startDate = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime midDate = new DateTime(2013, 1, 15, 0, 0, DateTimeZone.UTC);
+        final DateTime endDate = new DateTime(2013, 2, 1, 0, 0, DateTimeZone.UTC);
+
+        rolledUpUsageDao.record(subscriptionId, "foo", midDate, endDate, BigDecimal.ONE, internalCallContext);
+        rolledUpUsageDao.record(subscriptionId, "bar", startDate, midDate, BigDecimal.TEN, internalCallContext);
+        // Outside of the range
+        rolledUpUsageDao.record(subscriptionId, "foo", startDate, endDate.plusDays(1), BigDecimal.TEN, internalCallContext);
+        // Other subscription
+        rolledUpUsageDao.record(UUID.randomUUID(), "foo", startDate, endDate, BigDecimal.TEN, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = rolledUpUsageDao.getRawUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext);
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getSubscriptionId(), subscriptionId);
+        assertEquals(result.get(0).getUnitType(), "bar");
+        assertEquals(result.get(0).getStartTime().compareTo(startDate), 0);
+        assertEquals(result.get(0).getEndTime().compareTo(midDate), 0);
+        assertEquals(result.get(0).getAmount().compareTo(BigDecimal.TEN), 0);
+        assertEquals(result.get(1).getSubscriptionId(), subscriptionId);
+        assertEquals(result.get(1).getUnitType(), "foo");
+        assertEquals(result.get(1).getStartTime().compareTo(midDate), 0);
+        assertEquals(result.get(1).getEndTime().compareTo(endDate), 0);
+        assertEquals(result.get(1).getAmount().compareTo(BigDecimal.ONE), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordBatch() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final String unitType = "foo";
+        final DateTime startDate = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime endDate = new DateTime(2013, 2, 1, 0, 0, DateTimeZone.UTC);
+
+        final List<RolledUpUsageModelDao> usages = new LinkedList<RolledUpUsageModelDao>();
+        for (int i = 0; i < 31; i++) {
+            usages.add(new RolledUpUsageModelDao(subscriptionId, unitType, startDate.plusDays(i), startDate.plusDays(i + 1), BigDecimal.ONE));
+        }
+        rolledUpUsageDao.recordBatch(subscriptionId, usages, internalCallContext);
+
+        final RolledUpUsageModelDao result = rolledUpUsageDao.getUsageForSubscription(subscriptionId, startDate, endDate, unitType, internalCallContext);
+        assertEquals(result.getAmount().compareTo(new BigDecimal("31")), 0);
+        assertEquals(rolledUpUsageDao.getRawUsageForSubscription(subscriptionId, startDate, endDate, internalCallContext).size(), 31);
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.usage.UsageTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.config.UsageConfig;
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.testng.Assert.assertEquals;
+
+public class TestDefaultRolledUpUsageDaoWithDailyRollups extends UsageTestSuiteWithEmbeddedDB {
+
+    private RolledUpUsageDao dailyRollupsDao;
+
+    @BeforeMethod(groups = "slow")
+    public void setUp() throws Exception {
+        final UsageConfig usageConfig = Mockito.mock(UsageConfig.class);
+        Mockito.when(usageConfig.isDailyRollupsEnabled()).thenReturn(true);
+        Mockito.when(usageConfig.getBulkBatchSize()).thenReturn(1000);
+        dailyRollupsDao = new DefaultRolledUpUsageDao(dbi, usageConfig);
+    }
+
+    @Test(groups = "slow")
+    public void testRecordUpdatesDailyUsage() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime day1 = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime day2 = day1.plusDays(1);
+
+        // The first record creates the daily bucket, the next ones update it
+        dailyRollupsDao.record(subscriptionId, "foo", day1, day2, BigDecimal.ONE, internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1, day2, new BigDecimal("2"), internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusHours(6), day1.plusHours(12), new BigDecimal("3"), internalCallContext);
+        // Other unit type
+        dailyRollupsDao.record(subscriptionId, "bar", day1, day2, BigDecimal.TEN, internalCallContext);
+
+        final List<RolledUpUsageModelDao> result = sortByAmount(dailyRollupsDao.getUsageRecordsForSubscription(subscriptionId, ImmutableList.<DateTime>of(day1, day2), internalCallContext));
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getUnitType(), "foo");
+        assertEquals(result.get(0).getStartTime().compareTo(day1), 0);
+        assertEquals(result.get(0).getEndTime().compareTo(day2), 0);
+        assertEquals(result.get(0).getAmount().compareTo(new BigDecimal("6")), 0);
+        assertEquals(result.get(1).getUnitType(), "bar");
+        assertEquals(result.get(1).getAmount().compareTo(BigDecimal.TEN), 0);
+
+        // The raw records are still all there
+        assertEquals(dailyRollupsDao.getRawUsageForSubscription(subscriptionId, day1, day2, internalCallContext).size(), 4);
+        assertEquals(dailyRollupsDao.getUsageForSubscription(subscriptionId, day1, day2, "foo", internalCallContext).getAmount().compareTo(new BigDecimal("6")), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testUsageForSubscriptionWithEdgeDays() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime day1 = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime startTime = day1.plusHours(12);
+        final DateTime endTime = day1.plusDays(4).plusHours(12);
+
+        // Partial first day
+        dailyRollupsDao.record(subscriptionId, "foo", startTime, day1.plusDays(1), BigDecimal.ONE, internalCallContext);
+        // Spans the partial first day and a whole day
+        dailyRollupsDao.record(subscriptionId, "foo", startTime, day1.plusDays(2), new BigDecimal("20000"), internalCallContext);
+        // Whole days
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(1), day1.plusDays(2), BigDecimal.TEN, internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(2), day1.plusDays(3), new BigDecimal("100"), internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(3), day1.plusDays(3).plusHours(6), new BigDecimal("1000"), internalCallContext);
+        // Partial last day
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(4), day1.plusDays(4).plusHours(6), new BigDecimal("10000"), internalCallContext);
+        // Starts before the start time
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusHours(6), day1.plusHours(18), new BigDecimal("7"), internalCallContext);
+        // Ends after the end time
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(4).plusHours(6), day1.plusDays(4).plusHours(18), new BigDecimal("3"), internalCallContext);
+        // Other unit type
+        dailyRollupsDao.record(subscriptionId, "bar", day1.plusDays(2), day1.plusDays(3), new BigDecimal("5"), internalCallContext);
+
+        final RolledUpUsageModelDao result = dailyRollupsDao.getUsageForSubscription(subscriptionId, startTime, endTime, "foo", internalCallContext);
+        assertEquals(result.getAmount().compareTo(new BigDecimal("31111")), 0);
+
+        // Same answer as the raw table
+        final RolledUpUsageModelDao rawResult = rolledUpUsageDao.getUsageForSubscription(subscriptionId, startTime, endTime, "foo", internalCallContext);
+        assertEquals(result.getAmount().compareTo(rawResult.getAmount()), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testUsageRecordsForSubscriptionWithPartialDays() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime day1 = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime day3 = day1.plusDays(2);
+
+        dailyRollupsDao.record(subscriptionId, "foo", day1, day1.plusDays(1), BigDecimal.ONE, internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(1), day3, new BigDecimal("2"), internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day3, day3.plusHours(6), new BigDecimal("4"), internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day3.plusHours(6), day3.plusHours(18), new BigDecimal("8"), internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1.plusDays(3), day1.plusDays(4), new BigDecimal("16"), internalCallContext);
+
+        // The third day contains a transition, its records can't come from the daily aggregate
+        final List<DateTime> transitionTimes = ImmutableList.<DateTime>of(day1, day3.plusHours(12), day1.plusDays(4));
+        final List<RolledUpUsageModelDao> result = sortByAmount(dailyRollupsDao.getUsageRecordsForSubscription(subscriptionId, transitionTimes, internalCallContext));
+        assertEquals(result.size(), 5);
+        assertEquals(result.get(0).getAmount().compareTo(BigDecimal.ONE), 0);
+        assertEquals(result.get(0).getStartTime().compareTo(day1), 0);
+        assertEquals(result.get(1).getAmount().compareTo(new BigDecimal("2")), 0);
+        assertEquals(result.get(2).getAmount().compareTo(new BigDecimal("4")), 0);
+        assertEquals(result.get(2).getStartTime().compareTo(day3), 0);
+        assertEquals(result.get(2).getEndTime().compareTo(day3.plusHours(6)), 0);
+        assertEquals(result.get(3).getAmount().compareTo(new BigDecimal("8")), 0);
+        assertEquals(result.get(3).getStartTime().compareTo(day3.plusHours(6)), 0);
+        assertEquals(result.get(3).getEndTime().compareTo(day3.plusHours(18)), 0);
+        assertEquals(result.get(4).getAmount().compareTo(new BigDecimal("16")), 0);
+        assertEquals(result.get(4).getStartTime().compareTo(day1.plusDays(3)), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRebuildDailyUsage() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime day1 = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime day3 = day1.plusDays(2);
+
+        // Recorded before daily rollups were enabled
+        rolledUpUsageDao.record(subscriptionId, "foo", day1, day1.plusDays(1), BigDecimal.ONE, internalCallContext);
+        rolledUpUsageDao.record(subscriptionId, "foo", day1.plusDays(1), day3, BigDecimal.TEN, internalCallContext);
+        rolledUpUsageDao.record(subscriptionId, "foo", day1.plusDays(1).plusHours(6), day1.plusDays(1).plusHours(12), BigDecimal.ONE, internalCallContext);
+        // Not covered by the daily aggregates yet: the raw records are used
+        assertEquals(dailyRollupsDao.getUsageForSubscription(subscriptionId, day1, day3, "foo", internalCallContext).getAmount().compareTo(new BigDecimal("12")), 0);
+        assertEquals(dailyRollupsDao.getUsageRecordsForSubscription(subscriptionId, ImmutableList.<DateTime>of(day1, day3), internalCallContext).size(), 3);
+
+        dailyRollupsDao.rebuildDailyUsage(subscriptionId, internalCallContext);
+        assertEquals(dailyRollupsDao.getUsageForSubscription(subscriptionId, day1, day3, "foo", internalCallContext).getAmount().compareTo(new BigDecimal("12")), 0);
+        final List<RolledUpUsageModelDao> result = sortByAmount(dailyRollupsDao.getUsageRecordsForSubscription(subscriptionId, ImmutableList.<DateTime>of(day1, day3), internalCallContext));
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getAmount().compareTo(BigDecimal.ONE), 0);
+        assertEquals(result.get(1).getAmount().compareTo(new BigDecimal("11")), 0);
+
+        // Rebuilding is idempotent
+        dailyRollupsDao.rebuildDailyUsage(subscriptionId, internalCallContext);
+        assertEquals(dailyRollupsDao.getUsageForSubscription(subscriptionId, day1, day3, "foo", internalCallContext).getAmount().compareTo(new BigDecimal("12")), 0);
+
+        // New records are added on top of the rebuilt aggregates
+        dailyRollupsDao.record(subscriptionId, "foo", day1, day1.plusDays(1), BigDecimal.ONE, internalCallContext);
+        assertEquals(dailyRollupsDao.getUsageForSubscription(subscriptionId, day1, day3, "foo", internalCallContext).getAmount().compareTo(new BigDecimal("13")), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testRebuildDailyUsageKeepsRolledUpRecords() {
+        final UUID subscriptionId = UUID.randomUUID();
+        final DateTime day1 = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime day2 = day1.plusDays(1);
+
+        // One record made while daily rollups were disabled, the others (e.g. by another node) while enabled
+        rolledUpUsageDao.record(subscriptionId, "foo", day1, day2, BigDecimal.ONE, internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "foo", day1, day2, BigDecimal.TEN, internalCallContext);
+        dailyRollupsDao.record(subscriptionId, "bar", day1, day2, new BigDecimal("5"), internalCallContext);
+
+        // Only the missing record is added to the daily aggregates: the daily rows written by record aren't replaced
+        dailyRollupsDao.rebuildDailyUsage(subscriptionId, internalCallContext);
+        final List<RolledUpUsageModelDao> result = sortByAmount(dailyRollupsDao.getUsageRecordsForSubscription(subscriptionId, ImmutableList.<DateTime>of(day1, day2), internalCallContext));
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(0).getUnitType(), "bar");
+        assertEquals(result.get(0).getAmount().compareTo(new BigDecimal("5")), 0);
+        assertEquals(result.get(1).getUnitType(), "foo");
+        assertEquals(result.get(1).getAmount().compareTo(new BigDecimal("11")), 0);
+    }
+
+    @Test(groups = "slow", expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBulkBatchSize() {
+        final UsageConfig usageConfig = Mockito.mock(UsageConfig.class);
+        Mockito.when(usageConfig.getBulkBatchSize()).thenReturn(0);
+        new DefaultRolledUpUsageDao(dbi, usageConfig);
+    }
+
+    private static List<RolledUpUsageModelDao> sortByAmount(final List<RolledUpUsageModelDao> usages) {
+        final List<RolledUpUsageModelDao> sorted = new ArrayList<RolledUpUsageModelDao>(usages);
+        Collections.sort(sorted, new Comparator<RolledUpUsageModelDao>() {
+            @Override
+            public int compare(final RolledUpUsageModelDao o1, final RolledUpUsageModelDao o2) {
+                return o1.getAmount().compareTo(o2.getAmount());
+            }
+        });
+        return sorted;
+    }
+}
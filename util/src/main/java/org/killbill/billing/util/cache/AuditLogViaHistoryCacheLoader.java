@@ -54,6 +54,7 @@ public class AuditLogViaHistoryCacheLoader extends BaseCacheLoader implements Ca
         if (!(argument instanceof CacheLoaderArgument)) {
             throw new IllegalArgumentException("Unexpected key type of " + argument.getClass().getName());
         }
+        ((CacheLoaderArgument) argument).markAsLoaded();
 
         final Object[] args = ((CacheLoaderArgument) argument).getArgs();
         final String tableName = (String) args[0];
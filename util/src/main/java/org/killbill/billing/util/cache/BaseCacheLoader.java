@@ -18,6 +18,7 @@ package org.killbill.billing.util.cache;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.UUID;
 
 import javax.inject.Inject;
 
@@ -90,6 +91,17 @@ public abstract class BaseCacheLoader implements CacheLoader {
         return cacheLoaderStatus;
     }
 
+    // Keys are either the object UUIDs or their String representation (e.g. when built from @CachableKey arguments)
+    protected UUID toObjectId(final Object key) {
+        if (key instanceof UUID) {
+            return (UUID) key;
+        } else if (key instanceof String) {
+            return UUID.fromString((String) key);
+        } else {
+            throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
+        }
+    }
+
     protected void checkCacheLoaderStatus() {
         if (getStatus() != Status.STATUS_ALIVE) {
             throw new CacheException("CacheLoader is not available!");
@@ -28,6 +28,7 @@ public @interface Cachable {
     public final String RECORD_ID_CACHE_NAME = "record-id";
     public final String ACCOUNT_RECORD_ID_CACHE_NAME = "account-record-id";
     public final String TENANT_RECORD_ID_CACHE_NAME = "tenant-record-id";
+    public final String OBJECT_ID_CACHE_NAME = "object-id";
     public final String AUDIT_LOG_CACHE_NAME = "audit-log";
     public final String AUDIT_LOG_VIA_HISTORY_CACHE_NAME = "audit-log-via-history";
 
@@ -43,6 +44,9 @@ public @interface Cachable {
         /* Mapping from object 'id (UUID)' -> matching object 'tenantRecordId (Long)' */
         TENANT_RECORD_ID(TENANT_RECORD_ID_CACHE_NAME),
 
+        /* Mapping from object 'objectType::recordId (Long)' -> object 'id (UUID)' */
+        OBJECT_ID(OBJECT_ID_CACHE_NAME),
+
         /* Mapping from object 'tableName::targetRecordId' -> matching objects 'Iterable<AuditLog>' */
         AUDIT_LOG(AUDIT_LOG_CACHE_NAME),
 
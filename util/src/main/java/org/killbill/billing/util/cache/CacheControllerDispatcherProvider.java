@@ -24,7 +24,9 @@ import javax.inject.Inject;
 import javax.inject.Provider;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.config.CacheConfig;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import net.sf.ehcache.Cache;
@@ -35,10 +37,14 @@ import net.sf.ehcache.loader.CacheLoader;
 public class CacheControllerDispatcherProvider implements Provider<CacheControllerDispatcher> {
 
     private final CacheManager cacheManager;
+    private final CacheConfig cacheConfig;
+    private final MetricRegistry metricRegistry;
 
     @Inject
-    public CacheControllerDispatcherProvider(final CacheManager cacheManager) {
+    public CacheControllerDispatcherProvider(final CacheManager cacheManager, final CacheConfig cacheConfig, final MetricRegistry metricRegistry) {
         this.cacheManager = cacheManager;
+        this.cacheConfig = cacheConfig;
+        this.metricRegistry = metricRegistry;
     }
 
     @Override
@@ -47,6 +53,15 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
         for (final String cacheName : cacheManager.getCacheNames()) {
             final CacheType cacheType = CacheType.findByName(cacheName);
 
+            if (cacheConfig.isPrimitiveRecordIdCaches() && isRecordIdCache(cacheType)) {
+                final RecordIdCacheController recordIdCacheController = getRecordIdCacheController(cacheName);
+                if (recordIdCacheController != null) {
+                    recordIdCacheController.registerMetrics(metricRegistry, cacheName);
+                    cacheControllers.put(cacheType, recordIdCacheController);
+                }
+                continue;
+            }
+
             final Collection<EhCacheBasedCacheController<Object, Object>> cacheControllersForCacheName = getCacheControllersForCacheName(cacheName);
             // EhCache supports multiple cache loaders per type, but not Kill Bill - take the first one
             if (cacheControllersForCacheName.size() > 0) {
@@ -58,6 +73,20 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
         return new CacheControllerDispatcher(cacheControllers);
     }
 
+    private boolean isRecordIdCache(final CacheType cacheType) {
+        return cacheType == CacheType.RECORD_ID || cacheType == CacheType.ACCOUNT_RECORD_ID || cacheType == CacheType.TENANT_RECORD_ID;
+    }
+
+    // The EhCache cache is only used to retrieve the registered CacheLoader, entries are stored in the RecordIdCacheController
+    private RecordIdCacheController getRecordIdCacheController(final String name) {
+        for (final CacheLoader cacheLoader : cacheManager.getCache(name).getRegisteredCacheLoaders()) {
+            if (cacheLoader instanceof BaseCacheLoader) {
+                return new RecordIdCacheController((BaseCacheLoader) cacheLoader, cacheConfig.getRecordIdCacheMaxEntries(), cacheConfig.isRecordIdCacheOffHeap());
+            }
+        }
+        return null;
+    }
+
     public Collection<EhCacheBasedCacheController<Object, Object>> getCacheControllersForCacheName(final String name) {
         final Cache cache = cacheManager.getCache(name);
 
@@ -27,6 +27,9 @@ public class CacheLoaderArgument {
     private final Object[] args;
     private final InternalTenantContext internalTenantContext;
 
+    // Set by the CacheLoader, to tell cache misses from hits (see EntitySqlDaoWrapperInvocationHandler)
+    private volatile boolean loaded = false;
+
     public CacheLoaderArgument(final ObjectType objectType) {
         this(objectType, new Object[]{}, null);
     }
@@ -48,4 +51,12 @@ public class CacheLoaderArgument {
     public InternalTenantContext getInternalTenantContext() {
         return internalTenantContext;
     }
+
+    public void markAsLoaded() {
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
 }
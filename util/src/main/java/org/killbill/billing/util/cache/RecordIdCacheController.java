@@ -0,0 +1,318 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * CacheController for the UUID -> record id caches (record-id, account-record-id and tenant-record-id).
+ * <p/>
+ * Entries are stored in open-addressing tables (linear probing) keyed on the two longs of the UUID, with primitive
+ * long values, either on or off heap: a lookup doesn't allocate any key and the cache doesn't hold any String or Long.
+ * When a segment is full, an entry is evicted using the CLOCK (second chance) algorithm.
+ * <p/>
+ * Misses are delegated to the CacheLoader registered for the cache, as for EhCacheBasedCacheController. Null values
+ * (unknown objects) aren't cached.
+ */
+public class RecordIdCacheController implements CacheController<Object, Object> {
+
+    private static final int NB_SEGMENTS = 16;
+
+    private final BaseCacheLoader cacheLoader;
+    private final Segment[] segments;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public RecordIdCacheController(final BaseCacheLoader cacheLoader, final int maxEntries, final boolean offHeap) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid maxEntries " + maxEntries);
+        }
+
+        this.cacheLoader = cacheLoader;
+        this.segments = new Segment[NB_SEGMENTS];
+        final int maxEntriesPerSegment = (maxEntries + NB_SEGMENTS - 1) / NB_SEGMENTS;
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            segments[i] = new Segment(maxEntriesPerSegment, offHeap);
+        }
+    }
+
+    @Override
+    public Object get(final Object key, final CacheLoaderArgument cacheLoaderArgument) {
+        final UUID objectId = cacheLoader.toObjectId(key);
+        final long mostSigBits = objectId.getMostSignificantBits();
+        final long leastSigBits = objectId.getLeastSignificantBits();
+        final int hash = hash(mostSigBits, leastSigBits);
+        final Segment segment = segmentFor(hash);
+
+        synchronized (segment) {
+            final int slot = segment.find(hash, mostSigBits, leastSigBits);
+            if (slot >= 0) {
+                hitCount.incrementAndGet();
+                return segment.getValue(slot);
+            }
+        }
+
+        // Load outside of the lock: concurrent misses for the same key may both hit the database, but will store the same value
+        missCount.incrementAndGet();
+        final Object value = cacheLoader.load(objectId, cacheLoaderArgument);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.put(hash, mostSigBits, leastSigBits, (Long) value)) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public boolean remove(final Object key) {
+        final UUID objectId = cacheLoader.toObjectId(key);
+        final long mostSigBits = objectId.getMostSignificantBits();
+        final long leastSigBits = objectId.getLeastSignificantBits();
+        final int hash = hash(mostSigBits, leastSigBits);
+        final Segment segment = segmentFor(hash);
+
+        synchronized (segment) {
+            final int slot = segment.find(hash, mostSigBits, leastSigBits);
+            if (slot < 0) {
+                return false;
+            }
+            segment.delete(slot);
+            return true;
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void removeAll() {
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Expose the hit, miss and eviction counts and the size of the cache as gauges
+     * (e.g. org.killbill.billing.util.cache.RecordIdCacheController.record-id.hits)
+     *
+     * @param metricRegistry the registry
+     * @param cacheName      the name of the cache
+     */
+    public void registerMetrics(final MetricRegistry metricRegistry, final String cacheName) {
+        registerGauge(metricRegistry, MetricRegistry.name(RecordIdCacheController.class, cacheName, "hits"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getHitCount();
+            }
+        });
+        registerGauge(metricRegistry, MetricRegistry.name(RecordIdCacheController.class, cacheName, "misses"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getMissCount();
+            }
+        });
+        registerGauge(metricRegistry, MetricRegistry.name(RecordIdCacheController.class, cacheName, "evictions"), new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getEvictionCount();
+            }
+        });
+        registerGauge(metricRegistry, MetricRegistry.name(RecordIdCacheController.class, cacheName, "size"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return size();
+            }
+        });
+    }
+
+    private void registerGauge(final MetricRegistry metricRegistry, final String name, final Gauge<?> gauge) {
+        // Replace the gauges of a previous controller for the same cache
+        metricRegistry.remove(name);
+        metricRegistry.register(name, gauge);
+    }
+
+    private Segment segmentFor(final int hash) {
+        // The low bits select the slot within the segment, use the high ones to select the segment
+        return segments[(hash >>> 28) & (NB_SEGMENTS - 1)];
+    }
+
+    private static int hash(final long mostSigBits, final long leastSigBits) {
+        // Random UUIDs are already well distributed, but time-based ones aren't in their high bits
+        long h = mostSigBits ^ (leastSigBits * 0x9E3779B97F4A7C15L);
+        h ^= (h >>> 32);
+        h *= 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private static final class Segment {
+
+        // Slot states
+        private static final byte EMPTY = 0;
+        private static final byte PRESENT = 1;
+        private static final byte REFERENCED = 2;
+
+        // Each slot is stored as three consecutive longs: most significant bits, least significant bits, value
+        private static final int LONGS_PER_SLOT = 3;
+
+        private final int maxEntries;
+        private final int mask;
+        private final LongBuffer slots;
+        private final byte[] states;
+
+        private int size;
+        private int clockHand;
+
+        private Segment(final int maxEntries, final boolean offHeap) {
+            this.maxEntries = maxEntries;
+
+            // Keep the load factor below 0.75 so that probe sequences stay short
+            int capacity = 2;
+            while (capacity * 3 < maxEntries * 4) {
+                capacity <<= 1;
+            }
+            this.mask = capacity - 1;
+            this.slots = offHeap ?
+                         ByteBuffer.allocateDirect(capacity * LONGS_PER_SLOT * 8).order(ByteOrder.nativeOrder()).asLongBuffer() :
+                         LongBuffer.allocate(capacity * LONGS_PER_SLOT);
+            this.states = new byte[capacity];
+        }
+
+        private int find(final int hash, final long mostSigBits, final long leastSigBits) {
+            int slot = hash & mask;
+            while (states[slot] != EMPTY) {
+                if (slots.get(slot * LONGS_PER_SLOT) == mostSigBits && slots.get(slot * LONGS_PER_SLOT + 1) == leastSigBits) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private Long getValue(final int slot) {
+            states[slot] = REFERENCED;
+            return slots.get(slot * LONGS_PER_SLOT + 2);
+        }
+
+        // Returns true if an entry had to be evicted
+        private boolean put(final int hash, final long mostSigBits, final long leastSigBits, final long value) {
+            final int existingSlot = find(hash, mostSigBits, leastSigBits);
+            if (existingSlot >= 0) {
+                slots.put(existingSlot * LONGS_PER_SLOT + 2, value);
+                return false;
+            }
+
+            boolean evicted = false;
+            if (size >= maxEntries) {
+                evict();
+                evicted = true;
+            }
+
+            int slot = hash & mask;
+            while (states[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots.put(slot * LONGS_PER_SLOT, mostSigBits);
+            slots.put(slot * LONGS_PER_SLOT + 1, leastSigBits);
+            slots.put(slot * LONGS_PER_SLOT + 2, value);
+            states[slot] = PRESENT;
+            size++;
+            return evicted;
+        }
+
+        private void evict() {
+            // Entries read since the last pass get a second chance
+            while (true) {
+                final int slot = clockHand;
+                clockHand = (clockHand + 1) & mask;
+                if (states[slot] == REFERENCED) {
+                    states[slot] = PRESENT;
+                } else if (states[slot] == PRESENT) {
+                    delete(slot);
+                    return;
+                }
+            }
+        }
+
+        // Backward shift deletion, to keep the probe sequences intact without tombstones
+        private void delete(final int slot) {
+            int hole = slot;
+            int current = slot;
+            while (true) {
+                current = (current + 1) & mask;
+                if (states[current] == EMPTY) {
+                    break;
+                }
+
+                final long mostSigBits = slots.get(current * LONGS_PER_SLOT);
+                final long leastSigBits = slots.get(current * LONGS_PER_SLOT + 1);
+                final int home = hash(mostSigBits, leastSigBits) & mask;
+                // The entry can fill the hole unless its home slot is cyclically within (hole, current]
+                final boolean reachableWithoutHole = hole <= current ? (home > hole && home <= current) : (home > hole || home <= current);
+                if (!reachableWithoutHole) {
+                    slots.put(hole * LONGS_PER_SLOT, mostSigBits);
+                    slots.put(hole * LONGS_PER_SLOT + 1, leastSigBits);
+                    slots.put(hole * LONGS_PER_SLOT + 2, slots.get(current * LONGS_PER_SLOT + 2));
+                    states[hole] = states[current];
+                    hole = current;
+                }
+            }
+            states[hole] = EMPTY;
+            size--;
+        }
+
+        private void clear() {
+            Arrays.fill(states, EMPTY);
+            size = 0;
+            clockHand = 0;
+        }
+    }
+}
@@ -47,16 +47,14 @@ public class RecordIdCacheLoader extends BaseCacheLoader implements CacheLoader
     public Object load(final Object key, final Object argument) throws CacheException {
         checkCacheLoaderStatus();
 
-        if (!(key instanceof String)) {
-            throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
-        }
         if (!(argument instanceof CacheLoaderArgument)) {
             throw new IllegalArgumentException("Unexpected key type of " + argument.getClass().getName());
         }
+        ((CacheLoaderArgument) argument).markAsLoaded();
 
-        final String objectId = (String) key;
+        final UUID objectId = toObjectId(key);
         final ObjectType objectType = ((CacheLoaderArgument) argument).getObjectType();
 
-        return nonEntityDao.retrieveRecordIdFromObject(UUID.fromString(objectId), objectType, null);
+        return nonEntityDao.retrieveRecordIdFromObject(objectId, objectType, null);
     }
 }
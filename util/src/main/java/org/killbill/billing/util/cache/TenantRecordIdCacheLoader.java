@@ -46,16 +46,14 @@ public class TenantRecordIdCacheLoader extends BaseCacheLoader implements CacheL
     public Object load(final Object key, final Object argument) {
         checkCacheLoaderStatus();
 
-        if (!(key instanceof String)) {
-            throw new IllegalArgumentException("Unexpected key type of " + key.getClass().getName());
-        }
         if (!(argument instanceof CacheLoaderArgument)) {
             throw new IllegalArgumentException("Unexpected key type of " + argument.getClass().getName());
         }
+        ((CacheLoaderArgument) argument).markAsLoaded();
 
-        final String objectId = (String) key;
+        final UUID objectId = toObjectId(key);
         final ObjectType objectType = ((CacheLoaderArgument) argument).getObjectType();
 
-        return nonEntityDao.retrieveTenantRecordIdFromObject(UUID.fromString(objectId), objectType, null);
+        return nonEntityDao.retrieveTenantRecordIdFromObject(objectId, objectType, null);
     }
 }
@@ -72,7 +72,12 @@ public @interface InternalTenantContextBinder {
                         }
                         q.bind("reasonCode", callContext.getReasonCode());
                         q.bind("comments", callContext.getComments());
-                        q.bind("userToken", (callContext.getUserToken() != null) ? callContext.getUserToken().toString() : null);
+                        if (callContext.getUserToken() == null) {
+                            q.bindNull("userToken", Types.VARCHAR);
+                        } else {
+                            // Bound as a UUID to use the configured storage format (see UUIDArgumentFactory)
+                            q.bind("userToken", callContext.getUserToken());
+                        }
                     }
                 }
             };
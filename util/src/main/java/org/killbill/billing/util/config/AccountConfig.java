@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface AccountConfig extends KillbillConfig {
+
+    @Config("org.killbill.account.searchTokens.enabled")
+    @Default("false")
+    @Description("Whether account searches should match the beginning of words through the account_search_tokens index, instead of substrings of the accounts table (index the existing accounts with AccountSearchTokensMigration first)")
+    public boolean isSearchTokensEnabled();
+}
@@ -27,4 +27,29 @@ public interface CacheConfig extends KillbillConfig {
     @Description("Path to Ehcache XML configuration")
     public String getCacheConfigLocation();
 
+    @Config("org.killbill.cache.recordId.primitive")
+    @Default("false")
+    @Description("Whether the record-id, account-record-id and tenant-record-id caches should use primitive open-addressing maps instead of EhCache")
+    public boolean isPrimitiveRecordIdCaches();
+
+    @Config("org.killbill.cache.recordId.maxEntries")
+    @Default("100000")
+    @Description("Maximum number of entries per primitive record id cache")
+    public int getRecordIdCacheMaxEntries();
+
+    @Config("org.killbill.cache.recordId.offHeap")
+    @Default("false")
+    @Description("Whether the primitive record id caches should be stored off heap")
+    public boolean isRecordIdCacheOffHeap();
+
+    @Config("org.killbill.cache.request.enabled")
+    @Default("false")
+    @Description("Whether EntitySqlDao reads should be memoized for the duration of each invoice run (writes from other threads aren't seen meanwhile)")
+    public boolean isRequestCacheEnabled();
+
+    @Config("org.killbill.cache.request.apiRequests")
+    @Default("false")
+    @Description("Whether EntitySqlDao reads should also be memoized for the duration of each API request (requires org.killbill.cache.request.enabled)")
+    public boolean isRequestCacheForApiRequestsEnabled();
+
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface ExportConfig extends KillbillConfig {
+
+    @Config("org.killbill.export.threads.nb")
+    @Default("1")
+    @Description("Number of tables read in parallel when exporting an account as CSV (each reader holds a database connection)")
+    public int getExportThreadNb();
+
+    @Config("org.killbill.export.bufferSize")
+    @Default("1048576")
+    @Description("Maximum number of bytes buffered per table read in parallel: its reader waits beyond that until the previous tables are written")
+    public int getExportBufferSize();
+
+    @Config("org.killbill.export.fetchSize")
+    @Default("1000")
+    @Description("Number of rows fetched at a time by the export cursors (MySQL always streams rows one by one)")
+    public int getFetchSize();
+}
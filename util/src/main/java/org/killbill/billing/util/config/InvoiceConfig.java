@@ -32,4 +32,29 @@ public interface InvoiceConfig extends KillbillConfig {
     @Description("Whether to send email notifications on invoice creation (for configured accounts)")
     public boolean isEmailNotificationsEnabled();
 
+    @Config("org.killbill.invoice.incrementalGenerationEnabled")
+    @Default("false")
+    @Description("Whether to only replay the billing history since the last billed period when generating an invoice")
+    public boolean isIncrementalInvoiceGenerationEnabled();
+
+    @Config("org.killbill.invoice.incrementalGeneration.maxSubscriptions")
+    @Default("100000")
+    @Description("Maximum number of subscriptions whose billing watermarks are kept in memory for the incremental invoice generation")
+    public int getIncrementalInvoiceGenerationMaxSubscriptions();
+
+    @Config("org.killbill.invoice.tree.threads.nb")
+    @Default("1")
+    @Description("Number of threads used to merge the subscription trees of an account (1 to merge them sequentially)")
+    public int getInvoiceTreeThreadNb();
+
+    @Config("org.killbill.invoice.tree.parallelThreshold")
+    @Default("50")
+    @Description("Minimum number of subscriptions for an account before its subscription trees are merged in parallel")
+    public int getInvoiceTreeParallelThreshold();
+
+    @Config("org.killbill.invoice.materializedBalanceEnabled")
+    @Default("false")
+    @Description("Whether to read the account balance and CBA from invoice_account_balances, maintained on each invoice write, instead of recomputing them from all the invoices (writes don't maintain them while disabled: refresh the balance of the accounts written to in the meantime before enabling it again)")
+    public boolean isMaterializedAccountBalanceEnabled();
+
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface PushNotificationConfig extends KillbillConfig {
+
+    @Config("org.killbill.server.notifications.timeout")
+    @Default("15s")
+    @Description("Timeout of each push notification request")
+    public TimeSpan getTimeout();
+
+    @Config("org.killbill.server.notifications.maxConcurrentRequestsPerCallback")
+    @Default("10")
+    @Description("Maximum number of in-flight push notifications per callback url (at least 1)")
+    public int getMaxConcurrentRequestsPerCallback();
+
+    @Config("org.killbill.server.notifications.maxQueuedNotificationsPerCallback")
+    @Default("1000")
+    @Description("Maximum number of push notifications waiting for a slot per callback url (notifications are dropped beyond that)")
+    public int getMaxQueuedNotificationsPerCallback();
+
+    @Config("org.killbill.server.notifications.maxRetries")
+    @Default("3")
+    @Description("Number of times a failed push notification is retried")
+    public int getMaxRetries();
+
+    @Config("org.killbill.server.notifications.retryBackoff")
+    @Default("1s")
+    @Description("Delay before the first retry of a failed push notification (doubled at each subsequent retry)")
+    public TimeSpan getRetryBackoff();
+
+    @Config("org.killbill.server.notifications.retryThreads")
+    @Default("1")
+    @Description("Number of threads scheduling push notification retries")
+    public int getRetryThreads();
+}
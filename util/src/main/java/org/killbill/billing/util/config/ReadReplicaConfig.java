@@ -0,0 +1,39 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface ReadReplicaConfig extends KillbillConfig {
+
+    // The replica connection settings mirror the org.killbill.dao.* ones (e.g. org.killbill.dao.ro.url), and default to them
+    public static final String READ_REPLICA_PROPERTY_PREFIX = "org.killbill.dao.ro.";
+
+    @Config("org.killbill.dao.ro.enabled")
+    @Default("false")
+    @Description("Whether read-only operations (searches, pagination, audit logs) should be sent to the read replica configured with org.killbill.dao.ro.*")
+    public boolean isReadReplicaEnabled();
+
+    @Config("org.killbill.dao.ro.readYourWritesWindow")
+    @Default("5s")
+    @Description("Time during which read-only operations keep going to the primary database for a user token which performed a write (should exceed the replication lag)")
+    public TimeSpan getReadYourWritesWindow();
+}
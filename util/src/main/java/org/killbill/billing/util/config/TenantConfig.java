@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.TimeSpan;
+
+public interface TenantConfig extends KillbillConfig {
+
+    @Config("org.killbill.tenant.authenticationCache.ttl")
+    @Default("5m")
+    @Description("Time during which a verified apiKey/apiSecret pair is trusted without being checked against the database (0 to disable the cache)")
+    public TimeSpan getAuthenticationCacheTtl();
+
+    @Config("org.killbill.tenant.authenticationCache.maxSize")
+    @Default("1000")
+    @Description("Maximum number of verified apiKey/apiSecret pairs to keep in the cache")
+    public int getAuthenticationCacheMaxSize();
+
+    @Config("org.killbill.tenant.keyValueCache.ttl")
+    @Default("1m")
+    @Description("Time during which tenant key/value entries (e.g. push notification callbacks) are served from memory (0 to disable the cache)")
+    public TimeSpan getKeyValueCacheTtl();
+
+    @Config("org.killbill.tenant.keyValueCache.maxSize")
+    @Default("10000")
+    @Description("Maximum number of tenant key/value entries to keep in the cache")
+    public int getKeyValueCacheMaxSize();
+}
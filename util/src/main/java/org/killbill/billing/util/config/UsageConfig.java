@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.config;
+
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+
+public interface UsageConfig extends KillbillConfig {
+
+    @Config("org.killbill.usage.dailyRollups.enabled")
+    @Default("false")
+    @Description("Whether to maintain daily aggregates of the recorded usage and use them when retrieving usage (usage recorded while disabled is read from the raw records until the aggregates are rebuilt, see PUT /usages/dailyRollups)")
+    public boolean isDailyRollupsEnabled();
+
+    @Config("org.killbill.usage.bulk.batchSize")
+    @Default("1000")
+    @Description("Maximum number of rows per JDBC batch when recording usage in bulk (at least 1)")
+    public int getBulkBatchSize();
+}
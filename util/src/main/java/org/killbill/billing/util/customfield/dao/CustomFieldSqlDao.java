@@ -29,6 +29,7 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -38,7 +39,7 @@ public interface CustomFieldSqlDao extends EntitySqlDao<CustomFieldModelDao, Cus
 
     @SqlUpdate
     @Audited(ChangeType.DELETE)
-    void markTagAsDeleted(@Bind("id") String customFieldId,
+    void markTagAsDeleted(@BindUUID("id") String customFieldId,
                           @BindBean InternalCallContext context);
 
     @SqlQuery
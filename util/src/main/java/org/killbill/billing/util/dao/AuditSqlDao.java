@@ -21,6 +21,7 @@ import java.util.List;
 
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
@@ -51,6 +52,10 @@ public interface AuditSqlDao {
     public void insertAuditFromTransaction(@BindBean final EntityAudit audit,
                                            @BindBean final InternalCallContext context);
 
+    @SqlBatch(transactional = false)
+    public void insertAuditsFromTransaction(@BindBean final List<EntityAudit> audits,
+                                            @BindBean final InternalCallContext context);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<AuditLogModelDao> getAuditLogsForAccountRecordId(@BindBean final InternalTenantContext context);
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+
+/**
+ * Converts an existing MySQL schema from the default char(36) UUID storage to binary(16) (see UUIDStorageConfig).
+ * <p/>
+ * Kill Bill must be stopped while the migration runs, and restarted with org.killbill.dao.binaryUUIDs=true.
+ * The bus and notification queue tables aren't converted (see BinaryUUIDs).
+ * <p/>
+ * Usage: BinaryUUIDMigration jdbcUrl user password
+ */
+public class BinaryUUIDMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryUUIDMigration.class);
+
+    private static final String UUID_COLUMNS_QUERY = "select table_name, column_name, is_nullable" +
+                                                     " from information_schema.columns" +
+                                                     " where table_schema = database()" +
+                                                     " and data_type = 'char'" +
+                                                     " and character_maximum_length = 36" +
+                                                     " and table_name not in ('" + Joiner.on("', '").join(BinaryUUIDs.QUEUE_TABLE_NAMES) + "')" +
+                                                     " order by table_name, ordinal_position";
+
+    private final Connection connection;
+
+    public BinaryUUIDMigration(final Connection connection) {
+        this.connection = connection;
+    }
+
+    public static void main(final String[] args) throws SQLException {
+        if (args.length != 3) {
+            System.err.println("Usage: " + BinaryUUIDMigration.class.getName() + " jdbcUrl user password");
+            System.exit(1);
+        }
+
+        final Connection connection = DriverManager.getConnection(args[0], args[1], args[2]);
+        try {
+            new BinaryUUIDMigration(connection).migrate();
+        } finally {
+            connection.close();
+        }
+    }
+
+    public void migrate() throws SQLException {
+        for (final UUIDColumn column : findUUIDColumns()) {
+            log.info("Converting {}.{} to binary(16)", column.tableName, column.columnName);
+            migrateColumn(column);
+        }
+    }
+
+    private List<UUIDColumn> findUUIDColumns() throws SQLException {
+        final List<UUIDColumn> columns = new LinkedList<UUIDColumn>();
+        final PreparedStatement statement = connection.prepareStatement(UUID_COLUMNS_QUERY);
+        try {
+            final ResultSet rs = statement.executeQuery();
+            while (rs.next()) {
+                columns.add(new UUIDColumn(rs.getString(1), rs.getString(2), "YES".equalsIgnoreCase(rs.getString(3))));
+            }
+        } finally {
+            statement.close();
+        }
+        return columns;
+    }
+
+    private void migrateColumn(final UUIDColumn column) throws SQLException {
+        final String nullability = column.nullable ? " null" : " not null";
+        final Statement statement = connection.createStatement();
+        try {
+            // Widen the column first so that the packed values fit while the column still holds the textual ones
+            statement.execute("alter table " + column.tableName + " modify " + column.columnName + " varbinary(36)" + nullability);
+            statement.execute("update " + column.tableName + " set " + column.columnName + " = unhex(replace(" + column.columnName + ", '-', ''))" +
+                              " where " + column.columnName + " is not null");
+            statement.execute("alter table " + column.tableName + " modify " + column.columnName + " binary(16)" + nullability);
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static final class UUIDColumn {
+
+        private final String tableName;
+        private final String columnName;
+        private final boolean nullable;
+
+        private UUIDColumn(final String tableName, final String columnName, final boolean nullable) {
+            this.tableName = tableName;
+            this.columnName = columnName;
+            this.nullable = nullable;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Helpers for the binary UUID storage mode (see UUIDStorageConfig), where ids and foreign keys are stored
+ * as binary(16) instead of char(36).
+ * <p/>
+ * Reading is format agnostic (the column type tells us which format is used), while writing is driven
+ * by the UUIDArgumentFactory registered on the DBI.
+ * <p/>
+ * The bus and notification queue tables are left as is: they are accessed by killbill-queue, which binds its
+ * user tokens as Strings.
+ */
+public abstract class BinaryUUIDs {
+
+    private static final int UUID_BYTES = 16;
+    private static final Pattern CHAR_36 = Pattern.compile("\\bchar\\(36\\)", Pattern.CASE_INSENSITIVE);
+    private static final String BINARY_16 = "binary(16)";
+    private static final Pattern CREATE_TABLE = Pattern.compile("create\\s+table\\s+(?:if\\s+not\\s+exists\\s+)?`?(\\w+)`?", Pattern.CASE_INSENSITIVE);
+
+    // Tables owned by killbill-queue
+    static final Set<String> QUEUE_TABLE_NAMES = ImmutableSet.<String>of("notifications", "notifications_history", "bus_events", "bus_events_history");
+
+    public static byte[] toBytes(final UUID uuid) {
+        final ByteBuffer buffer = ByteBuffer.allocate(UUID_BYTES);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        return buffer.array();
+    }
+
+    public static UUID fromBytes(final byte[] bytes) {
+        if (bytes.length != UUID_BYTES) {
+            throw new IllegalArgumentException("Invalid binary UUID of length " + bytes.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @param value the column value, as returned by ResultSet#getObject (String for char(36), byte[] for binary(16))
+     * @return the UUID, null if the column is null
+     */
+    public static UUID fromColumnValue(final Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof byte[]) {
+            return fromBytes((byte[]) value);
+        } else if (value instanceof UUID) {
+            return (UUID) value;
+        } else {
+            return UUID.fromString(value.toString());
+        }
+    }
+
+    /**
+     * Ids are often passed to the SqlDaos as Strings: convert them back to UUIDs so that they are bound
+     * in the storage format (see BindUUID).
+     *
+     * @param id the id
+     * @return the UUID, or the id as is if it isn't a valid UUID (the query won't match anything either way)
+     */
+    public static Object toBindableId(final String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (final IllegalArgumentException e) {
+            return id;
+        }
+    }
+
+    /**
+     * @param ddl DDL for the default (char(36)) storage mode
+     * @return the same DDL for the binary storage mode
+     */
+    public static String toBinaryDDL(final String ddl) {
+        final StringBuilder binaryDDL = new StringBuilder();
+        // Split after each statement separator, to keep them
+        for (final String statement : ddl.split("(?<=;)")) {
+            final Matcher createTable = CREATE_TABLE.matcher(statement);
+            if (createTable.find() && QUEUE_TABLE_NAMES.contains(createTable.group(1).toLowerCase())) {
+                binaryDDL.append(statement);
+            } else {
+                binaryDDL.append(CHAR_36.matcher(statement).replaceAll(BINARY_16));
+            }
+        }
+        return binaryDDL.toString();
+    }
+}
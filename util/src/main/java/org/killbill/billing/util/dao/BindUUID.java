@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.sql.Types;
+
+import org.skife.jdbi.v2.SQLStatement;
+import org.skife.jdbi.v2.sqlobject.Binder;
+import org.skife.jdbi.v2.sqlobject.BinderFactory;
+import org.skife.jdbi.v2.sqlobject.BindingAnnotation;
+
+import org.killbill.billing.util.dao.BindUUID.BindUUIDFactory;
+
+/**
+ * Bind an id passed as a String to a char(36) or binary(16) column: the value is bound as a UUID,
+ * so that the registered UUIDArgumentFactory uses the configured storage format.
+ */
+@BindingAnnotation(BindUUIDFactory.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.PARAMETER})
+public @interface BindUUID {
+
+    String value();
+
+    public static class BindUUIDFactory implements BinderFactory {
+
+        @Override
+        public Binder build(final Annotation annotation) {
+            return new Binder<BindUUID, String>() {
+                @Override
+                public void bind(final SQLStatement q, final BindUUID bind, final String id) {
+                    final Object value = BinaryUUIDs.toBindableId(id);
+                    if (value == null) {
+                        q.bindNull(bind.value(), Types.VARCHAR);
+                    } else {
+                        q.bind(bind.value(), value);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.ReadReplicaConfig;
+import org.killbill.clock.Clock;
+import org.skife.jdbi.v2.IDBI;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Routes read-only operations to the read replica, if one is configured (see ReadReplicaConfig).
+ * <p/>
+ * To provide read-your-writes consistency, reads made on behalf of a user token which has written keep going to the
+ * primary database for the configured window: the user token is shared by the API request and the bus and notification
+ * handlers it triggers, whichever thread (or node) they run on. Reads made with a plain InternalTenantContext don't
+ * carry a user token and are always routed to the replica.
+ */
+public class DBRouter {
+
+    public static final String MAIN_RO_IDBI_NAMED = "mainRoIDBI";
+    public static final String MAIN_RO_DATA_SOURCE_NAMED = "mainRoDataSource";
+
+    // Bound on the number of user tokens tracked, entries expire anyways after the window
+    private static final long MAX_USER_TOKENS = 100000L;
+
+    private final IDBI dbi;
+    private final Clock clock;
+    private final long readYourWritesWindowMillis;
+    private final Cache<UUID, Long> lastWriteMillisPerUserToken;
+
+    private IDBI roDbi;
+
+    @Inject
+    public DBRouter(final IDBI dbi, final ReadReplicaConfig config, final Clock clock) {
+        this.dbi = dbi;
+        this.clock = clock;
+        this.readYourWritesWindowMillis = config.getReadYourWritesWindow().getMillis();
+        this.lastWriteMillisPerUserToken = CacheBuilder.newBuilder()
+                                                       .maximumSize(MAX_USER_TOKENS)
+                                                       .expireAfterWrite(readYourWritesWindowMillis, TimeUnit.MILLISECONDS)
+                                                       .build();
+    }
+
+    // The replica is only bound when enabled
+    @com.google.inject.Inject(optional = true)
+    public void setReadOnlyDBI(@Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi) {
+        this.roDbi = roDbi;
+    }
+
+    public IDBI getPrimaryDBI() {
+        return dbi;
+    }
+
+    public IDBI getDBI(final boolean readOnly, @Nullable final InternalTenantContext context) {
+        if (!readOnly || roDbi == null || hasRecentlyWritten(getUserToken(context))) {
+            return dbi;
+        }
+        return roDbi;
+    }
+
+    /**
+     * Record a committed write made on behalf of that user token
+     *
+     * @param userToken user token of the call context used for the write, null if unknown (nothing is recorded)
+     */
+    public void onWrite(@Nullable final UUID userToken) {
+        if (userToken != null && readYourWritesWindowMillis > 0) {
+            lastWriteMillisPerUserToken.put(userToken, clock.getUTCNow().getMillis());
+        }
+    }
+
+    private boolean hasRecentlyWritten(@Nullable final UUID userToken) {
+        if (userToken == null) {
+            return false;
+        }
+
+        final Long lastWrite = lastWriteMillisPerUserToken.getIfPresent(userToken);
+        return lastWrite != null && clock.getUTCNow().getMillis() - lastWrite < readYourWritesWindowMillis;
+    }
+
+    private UUID getUserToken(@Nullable final InternalTenantContext context) {
+        return context instanceof InternalCallContext ? ((InternalCallContext) context).getUserToken() : null;
+    }
+}
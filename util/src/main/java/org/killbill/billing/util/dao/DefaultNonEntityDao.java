@@ -26,6 +26,7 @@ import org.skife.jdbi.v2.IDBI;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperInvocationHandler;
 
 public class DefaultNonEntityDao implements NonEntityDao {
 
@@ -104,7 +105,13 @@ public class DefaultNonEntityDao implements NonEntityDao {
     }
 
     @Override
-    public UUID retrieveIdFromObject(final Long recordId, final ObjectType objectType) {
+    public UUID retrieveIdFromObject(final Long recordId, final ObjectType objectType, @Nullable final CacheController<Object, Object> cache) {
+        if (cache != null && recordId != null) {
+            // Ids never change once created, so these entries never need to be invalidated
+            final String key = objectType + EntitySqlDaoWrapperInvocationHandler.CACHE_KEY_SEPARATOR + recordId;
+            return (UUID) cache.get(key, new CacheLoaderArgument(objectType, new Object[]{recordId}, null));
+        }
+
         final TableName tableName = TableName.fromObjectType(objectType);
         return nonEntitySqlDao.getIdFromObject(recordId, tableName.getTableName());
     }
@@ -122,7 +129,8 @@ public class DefaultNonEntityDao implements NonEntityDao {
             }
 
             if (cache != null) {
-                return (Long) cache.get(objectId.toString(), new CacheLoaderArgument(objectType));
+                // Use the UUID as key, to avoid building its String representation on each lookup
+                return (Long) cache.get(objectId, new CacheLoaderArgument(objectType));
             }
             return op.doRetrieve(objectId, objectType);
         }
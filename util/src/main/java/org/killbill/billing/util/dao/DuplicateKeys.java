@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Helpers to recognize unique index violations, e.g. when two transactions race to insert the same row.
+ */
+public abstract class DuplicateKeys {
+
+    // H2 and PostgreSQL
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+    // MySQL reports all integrity constraint violations as 23000, the vendor code tells duplicate entries apart
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION_SQL_STATE = "23000";
+    private static final int MYSQL_DUPLICATE_ENTRY_ERROR_CODE = 1062;
+
+    /**
+     * @param t the exception thrown by the DAO, usually a JDBI StatementException wrapping the SQLException
+     * @return true if the statement failed because of a unique index violation
+     */
+    public static boolean isDuplicateKey(final Throwable t) {
+        Throwable cur = t;
+        while (cur != null) {
+            if (cur instanceof SQLException) {
+                final SQLException sqlException = (SQLException) cur;
+                if (UNIQUE_VIOLATION_SQL_STATE.equals(sqlException.getSQLState()) ||
+                    (INTEGRITY_CONSTRAINT_VIOLATION_SQL_STATE.equals(sqlException.getSQLState()) && sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY_ERROR_CODE)) {
+                    return true;
+                }
+            }
+            cur = cur.getCause() == cur ? null : cur.getCause();
+        }
+        return false;
+    }
+}
@@ -16,16 +16,33 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 
 import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.dao.EntityModelDao;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 
 public interface HistorySqlDao<M extends EntityModelDao<E>, E extends Entity> {
 
     @SqlUpdate
-    public void addHistoryFromTransaction(@EntityHistoryBinder EntityHistoryModelDao<M, E> history,
-                                          @BindBean InternalCallContext context);
+    @GetGeneratedKeys
+    public Long addHistoryFromTransaction(@EntityHistoryBinder EntityHistoryModelDao<M, E> history,
+                                       @BindBean InternalCallContext context);
+
+    @SqlBatch(transactional = false)
+    public void addHistoriesFromTransaction(@EntityHistoryBinder List<EntityHistoryModelDao<M, E>> histories,
+                                            @BindBean InternalCallContext context);
+
+    @SqlQuery
+    public List<RecordIdIdMappings> getHistoryRecordIdIdMappingsByIds(@UUIDCollectionBinder("ids") Collection<String> historyIds,
+                                                                      @BindBean InternalTenantContext context);
 }
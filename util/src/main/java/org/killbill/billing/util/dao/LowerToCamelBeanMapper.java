@@ -20,6 +20,7 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -30,9 +31,14 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -43,118 +49,102 @@ import org.skife.jdbi.v2.tweak.ResultSetMapper;
 import com.google.common.base.CaseFormat;
 
 // Identical to org.skife.jdbi.v2.BeanMapper but maps created_date to createdDate
+//
+// The bean introspection is done once per class, and the column layout of the ResultSet is resolved once per statement:
+// mapping a row is then a simple iteration over the columns, with a typed read and a resolved setter (or field) for each.
 public class LowerToCamelBeanMapper<T> implements ResultSetMapper<T> {
 
+    private static final ConcurrentMap<Class<?>, Map<String, PropertyMapping>> propertiesPerClass = new ConcurrentHashMap<Class<?>, Map<String, PropertyMapping>>();
+
     private final Class<T> type;
-    private final Map<String, PropertyDescriptor> properties = new HashMap<String, PropertyDescriptor>();
+    private final Map<String, PropertyMapping> properties;
+    private final String columnMappingsAttributeName;
+    private volatile Constructor<T> constructor;
 
     public LowerToCamelBeanMapper(final Class<T> type) {
         this.type = type;
-        try {
-            final BeanInfo info = Introspector.getBeanInfo(type);
+        this.properties = getProperties(type);
+        this.columnMappingsAttributeName = LowerToCamelBeanMapper.class.getName() + "." + type.getName();
+    }
 
-            for (final PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
-                properties.put(CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, descriptor.getName()).toLowerCase(), descriptor);
-            }
-        } catch (IntrospectionException e) {
-            throw new IllegalArgumentException(e);
+    public T map(final int row, final ResultSet rs, final StatementContext ctx) throws SQLException {
+        final T bean = newInstance();
+
+        for (final ColumnMapping column : getColumnMappings(rs, ctx)) {
+            column.map(bean, rs);
         }
+
+        return bean;
     }
 
-    public T map(final int row, final ResultSet rs, final StatementContext ctx) throws SQLException {
-        final T bean;
+    private T newInstance() {
         try {
-            bean = type.newInstance();
+            Constructor<T> constructor = this.constructor;
+            if (constructor == null) {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                this.constructor = constructor;
+            }
+            return constructor.newInstance();
         } catch (Exception e) {
             throw new IllegalArgumentException(String.format("A bean, %s, was mapped " +
                                                              "which was not instantiable", type.getName()),
                                                e);
         }
+    }
 
-        final Class beanClass = bean.getClass();
-        final ResultSetMetaData metadata = rs.getMetaData();
+    // The column layout is the same for all the rows of a statement: resolve it on the first row
+    @SuppressWarnings("unchecked")
+    private List<ColumnMapping> getColumnMappings(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        List<ColumnMapping> columnMappings = ctx == null ? null : (List<ColumnMapping>) ctx.getAttribute(columnMappingsAttributeName);
+        if (columnMappings == null) {
+            columnMappings = buildColumnMappings(rs);
+            if (ctx != null) {
+                ctx.setAttribute(columnMappingsAttributeName, columnMappings);
+            }
+        }
+        return columnMappings;
+    }
 
+    private List<ColumnMapping> buildColumnMappings(final ResultSet rs) throws SQLException {
+        final List<ColumnMapping> columnMappings = new ArrayList<ColumnMapping>();
+        final ResultSetMetaData metadata = rs.getMetaData();
         for (int i = 1; i <= metadata.getColumnCount(); ++i) {
             final String name = metadata.getColumnLabel(i).toLowerCase();
-
-            final PropertyDescriptor descriptor = properties.get(name);
-
-            if (descriptor != null) {
-                final Class<?> type = descriptor.getPropertyType();
-
-                Object value;
-
-                if (type.isAssignableFrom(Boolean.class) || type.isAssignableFrom(boolean.class)) {
-                    value = rs.getBoolean(i);
-                } else if (type.isAssignableFrom(Byte.class) || type.isAssignableFrom(byte.class)) {
-                    value = rs.getByte(i);
-                } else if (type.isAssignableFrom(Short.class) || type.isAssignableFrom(short.class)) {
-                    value = rs.getShort(i);
-                } else if (type.isAssignableFrom(Integer.class) || type.isAssignableFrom(int.class)) {
-                    value = rs.getInt(i);
-                } else if (type.isAssignableFrom(Long.class) || type.isAssignableFrom(long.class)) {
-                    value = rs.getLong(i);
-                } else if (type.isAssignableFrom(Float.class) || type.isAssignableFrom(float.class)) {
-                    value = rs.getFloat(i);
-                } else if (type.isAssignableFrom(Double.class) || type.isAssignableFrom(double.class)) {
-                    value = rs.getDouble(i);
-                } else if (type.isAssignableFrom(BigDecimal.class)) {
-                    value = rs.getBigDecimal(i);
-                } else if (type.isAssignableFrom(DateTime.class)) {
-                    final Timestamp timestamp = rs.getTimestamp(i);
-                    value = timestamp == null ? null : new DateTime(timestamp).toDateTime(DateTimeZone.UTC);
-                } else if (type.isAssignableFrom(Time.class)) {
-                    value = rs.getTime(i);
-                } else if (type.isAssignableFrom(LocalDate.class)) {
-                    final Date date = rs.getDate(i);
-                    value = date == null ? null : new LocalDate(date, DateTimeZone.UTC);
-                } else if (type.isAssignableFrom(DateTimeZone.class)) {
-                    final String dateTimeZoneString = rs.getString(i);
-                    value = dateTimeZoneString == null ? null : DateTimeZone.forID(dateTimeZoneString);
-                } else if (type.isAssignableFrom(String.class)) {
-                    value = rs.getString(i);
-                } else if (type.isAssignableFrom(UUID.class)) {
-                    final String uuidString = rs.getString(i);
-                    value = uuidString == null ? null : UUID.fromString(uuidString);
-                } else if (type.isEnum()) {
-                    final String enumString = rs.getString(i);
-                    //noinspection unchecked
-                    value = enumString == null ? null : Enum.valueOf((Class<Enum>) type, enumString);
-                } else {
-                    value = rs.getObject(i);
+            final PropertyMapping property = properties.get(name);
+            if (property != null) {
+                ColumnReader reader = property.getReader();
+                if (reader == ColumnReader.UUID_READER && isBinaryColumn(metadata.getColumnType(i))) {
+                    // UUIDs stored as binary(16)
+                    reader = ColumnReader.BINARY_UUID_READER;
                 }
+                columnMappings.add(new ColumnMapping(i, property, reader));
+            }
+        }
+        return columnMappings;
+    }
 
-                if (rs.wasNull() && !type.isPrimitive()) {
-                    value = null;
-                }
+    private static boolean isBinaryColumn(final int columnType) {
+        return columnType == Types.BINARY || columnType == Types.VARBINARY;
+    }
 
-                try {
-                    final Method writeMethod = descriptor.getWriteMethod();
-                    if (writeMethod != null) {
-                        writeMethod.invoke(bean, value);
-                    } else {
-                        final String camelCasedName = CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, name);
-                        final Field field = getField(beanClass, camelCasedName);
-                        field.setAccessible(true); // Often private...
-                        field.set(bean, value);
-                    }
-                } catch (NoSuchFieldException e) {
-                    throw new IllegalArgumentException(String.format("Unable to find field for " +
-                                                                     "property, %s", name), e);
-                } catch (IllegalAccessException e) {
-                    throw new IllegalArgumentException(String.format("Unable to access setter for " +
-                                                                     "property, %s", name), e);
-                } catch (InvocationTargetException e) {
-                    throw new IllegalArgumentException(String.format("Invocation target exception trying to " +
-                                                                     "invoker setter for the %s property", name), e);
-                } catch (NullPointerException e) {
-                    throw new IllegalArgumentException(String.format("No appropriate method to " +
-                                                                     "write value %s ", value.toString()), e);
+    private static Map<String, PropertyMapping> getProperties(final Class<?> type) {
+        Map<String, PropertyMapping> properties = propertiesPerClass.get(type);
+        if (properties == null) {
+            properties = new HashMap<String, PropertyMapping>();
+            try {
+                final BeanInfo info = Introspector.getBeanInfo(type);
+
+                for (final PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+                    final String name = CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, descriptor.getName()).toLowerCase();
+                    properties.put(name, new PropertyMapping(type, name, descriptor));
                 }
+            } catch (IntrospectionException e) {
+                throw new IllegalArgumentException(e);
             }
+            propertiesPerClass.putIfAbsent(type, properties);
         }
-
-        return bean;
+        return properties;
     }
 
     private static Field getField(final Class clazz, final String fieldName) throws NoSuchFieldException {
@@ -170,4 +160,267 @@ public class LowerToCamelBeanMapper<T> implements ResultSetMapper<T> {
             }
         }
     }
+
+    private static final class ColumnMapping {
+
+        private final int index;
+        private final PropertyMapping property;
+        private final ColumnReader reader;
+
+        private ColumnMapping(final int index, final PropertyMapping property, final ColumnReader reader) {
+            this.index = index;
+            this.property = property;
+            this.reader = reader;
+        }
+
+        public void map(final Object bean, final ResultSet rs) throws SQLException {
+            Object value = reader.read(rs, index);
+            if (rs.wasNull() && !property.isPrimitive()) {
+                value = null;
+            }
+            property.set(bean, value);
+        }
+    }
+
+    private static final class PropertyMapping {
+
+        private final String name;
+        private final boolean primitive;
+        private final ColumnReader reader;
+        private final Method writeMethod;
+        private final Field field;
+        private final NoSuchFieldException noSuchFieldException;
+
+        private PropertyMapping(final Class<?> beanClass, final String name, final PropertyDescriptor descriptor) {
+            this.name = name;
+            this.primitive = descriptor.getPropertyType() != null && descriptor.getPropertyType().isPrimitive();
+            this.reader = ColumnReader.forType(descriptor.getPropertyType());
+            this.writeMethod = descriptor.getWriteMethod();
+            if (writeMethod != null) {
+                this.field = null;
+                this.noSuchFieldException = null;
+                return;
+            }
+
+            Field field = null;
+            NoSuchFieldException noSuchFieldException = null;
+            try {
+                field = getField(beanClass, CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, name));
+                field.setAccessible(true); // Often private...
+            } catch (NoSuchFieldException e) {
+                // Only an error if a column maps to that property
+                noSuchFieldException = e;
+            }
+            this.field = field;
+            this.noSuchFieldException = noSuchFieldException;
+        }
+
+        public ColumnReader getReader() {
+            return reader;
+        }
+
+        public boolean isPrimitive() {
+            return primitive;
+        }
+
+        public void set(final Object bean, final Object value) {
+            try {
+                if (writeMethod != null) {
+                    writeMethod.invoke(bean, value);
+                } else if (field != null) {
+                    field.set(bean, value);
+                } else {
+                    throw new IllegalArgumentException(String.format("Unable to find field for " +
+                                                                     "property, %s", name), noSuchFieldException);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(String.format("Unable to access setter for " +
+                                                                 "property, %s", name), e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalArgumentException(String.format("Invocation target exception trying to " +
+                                                                 "invoker setter for the %s property", name), e);
+            } catch (NullPointerException e) {
+                throw new IllegalArgumentException(String.format("No appropriate method to " +
+                                                                 "write value %s ", value), e);
+            }
+        }
+    }
+
+    // Typed reads, in the order of precedence of the original isAssignableFrom chain
+    private abstract static class ColumnReader {
+
+        public abstract Object read(final ResultSet rs, final int index) throws SQLException;
+
+        public static ColumnReader forType(final Class<?> type) {
+            if (type == null) {
+                return OBJECT;
+            } else if (type.isAssignableFrom(Boolean.class) || type.isAssignableFrom(boolean.class)) {
+                return BOOLEAN;
+            } else if (type.isAssignableFrom(Byte.class) || type.isAssignableFrom(byte.class)) {
+                return BYTE;
+            } else if (type.isAssignableFrom(Short.class) || type.isAssignableFrom(short.class)) {
+                return SHORT;
+            } else if (type.isAssignableFrom(Integer.class) || type.isAssignableFrom(int.class)) {
+                return INTEGER;
+            } else if (type.isAssignableFrom(Long.class) || type.isAssignableFrom(long.class)) {
+                return LONG;
+            } else if (type.isAssignableFrom(Float.class) || type.isAssignableFrom(float.class)) {
+                return FLOAT;
+            } else if (type.isAssignableFrom(Double.class) || type.isAssignableFrom(double.class)) {
+                return DOUBLE;
+            } else if (type.isAssignableFrom(BigDecimal.class)) {
+                return BIG_DECIMAL;
+            } else if (type.isAssignableFrom(DateTime.class)) {
+                return DATE_TIME;
+            } else if (type.isAssignableFrom(Time.class)) {
+                return TIME;
+            } else if (type.isAssignableFrom(LocalDate.class)) {
+                return LOCAL_DATE;
+            } else if (type.isAssignableFrom(DateTimeZone.class)) {
+                return DATE_TIME_ZONE;
+            } else if (type.isAssignableFrom(String.class)) {
+                return STRING;
+            } else if (type.isAssignableFrom(UUID.class)) {
+                return UUID_READER;
+            } else if (type.isEnum()) {
+                return new EnumReader(type);
+            } else {
+                return OBJECT;
+            }
+        }
+
+        private static final ColumnReader BOOLEAN = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getBoolean(index);
+            }
+        };
+
+        private static final ColumnReader BYTE = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getByte(index);
+            }
+        };
+
+        private static final ColumnReader SHORT = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getShort(index);
+            }
+        };
+
+        private static final ColumnReader INTEGER = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getInt(index);
+            }
+        };
+
+        private static final ColumnReader LONG = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getLong(index);
+            }
+        };
+
+        private static final ColumnReader FLOAT = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getFloat(index);
+            }
+        };
+
+        private static final ColumnReader DOUBLE = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getDouble(index);
+            }
+        };
+
+        private static final ColumnReader BIG_DECIMAL = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getBigDecimal(index);
+            }
+        };
+
+        private static final ColumnReader DATE_TIME = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                final Timestamp timestamp = rs.getTimestamp(index);
+                return timestamp == null ? null : new DateTime(timestamp).toDateTime(DateTimeZone.UTC);
+            }
+        };
+
+        private static final ColumnReader TIME = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getTime(index);
+            }
+        };
+
+        private static final ColumnReader LOCAL_DATE = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                final Date date = rs.getDate(index);
+                return date == null ? null : new LocalDate(date, DateTimeZone.UTC);
+            }
+        };
+
+        private static final ColumnReader DATE_TIME_ZONE = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                final String dateTimeZoneString = rs.getString(index);
+                return dateTimeZoneString == null ? null : DateTimeZone.forID(dateTimeZoneString);
+            }
+        };
+
+        private static final ColumnReader STRING = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getString(index);
+            }
+        };
+
+        private static final ColumnReader UUID_READER = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                final String uuidString = rs.getString(index);
+                return uuidString == null ? null : UUID.fromString(uuidString);
+            }
+        };
+
+        private static final ColumnReader BINARY_UUID_READER = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                final byte[] uuidBytes = rs.getBytes(index);
+                return uuidBytes == null ? null : BinaryUUIDs.fromBytes(uuidBytes);
+            }
+        };
+
+        private static final ColumnReader OBJECT = new ColumnReader() {
+            @Override
+            public Object read(final ResultSet rs, final int index) throws SQLException {
+                return rs.getObject(index);
+            }
+        };
+    }
+
+    private static final class EnumReader extends ColumnReader {
+
+        private final Class<Enum> enumClass;
+
+        @SuppressWarnings("unchecked")
+        private EnumReader(final Class<?> enumClass) {
+            this.enumClass = (Class<Enum>) enumClass;
+        }
+
+        @Override
+        public Object read(final ResultSet rs, final int index) throws SQLException {
+            final String enumString = rs.getString(index);
+            //noinspection unchecked
+            return enumString == null ? null : Enum.valueOf(enumClass, enumString);
+        }
+    }
 }
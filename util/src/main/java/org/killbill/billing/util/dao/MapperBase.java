@@ -38,7 +38,7 @@ public abstract class MapperBase {
     }
 
     protected UUID getUUID(final ResultSet resultSet, final String fieldName) throws SQLException {
-        final String result = resultSet.getString(fieldName);
-        return result == null ? null : UUID.fromString(result);
+        // char(36) or binary(16), depending on the storage mode
+        return BinaryUUIDs.fromColumnValue(resultSet.getObject(fieldName));
     }
 }
@@ -42,5 +42,5 @@ public interface NonEntityDao {
     // This is the reverse from retrieveLastHistoryRecordIdFromTransaction; this retrieves the record_id of the object matching a given history row
     public Long retrieveHistoryTargetRecordId(final Long recordId, final TableName tableName);
 
-    public UUID retrieveIdFromObject(final Long recordId, final ObjectType objectType);
+    public UUID retrieveIdFromObject(final Long recordId, final ObjectType objectType, @Nullable final CacheController<Object, Object> cache);
 }
@@ -22,6 +22,7 @@ import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.sqlobject.customizers.RegisterMapper;
 import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
 import org.skife.jdbi.v2.sqlobject.stringtemplate.UseStringTemplate3StatementLocator;
@@ -32,25 +33,26 @@ import org.killbill.billing.callcontext.InternalTenantContext;
 public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe {
 
     @SqlQuery
-    public Long getRecordIdFromObject(@Bind("id") String id, @Define("tableName") final String tableName);
+    public Long getRecordIdFromObject(@BindUUID("id") String id, @Define("tableName") final String tableName);
 
     @SqlQuery
+    @RegisterMapper(UUIDMapper.class)
     public UUID getIdFromObject(@Bind("recordId") Long recordId, @Define("tableName") final String tableName);
 
     @SqlQuery
-    public Long getAccountRecordIdFromAccount(@Bind("id") String id);
+    public Long getAccountRecordIdFromAccount(@BindUUID("id") String id);
 
     @SqlQuery
-    public Long getAccountRecordIdFromAccountHistory(@Bind("id") String id);
+    public Long getAccountRecordIdFromAccountHistory(@BindUUID("id") String id);
 
     @SqlQuery
-    public Long getAccountRecordIdFromObjectOtherThanAccount(@Bind("id") String id, @Define("tableName") final String tableName);
+    public Long getAccountRecordIdFromObjectOtherThanAccount(@BindUUID("id") String id, @Define("tableName") final String tableName);
 
     @SqlQuery
-    public Long getTenantRecordIdFromTenant(@Bind("id") String id);
+    public Long getTenantRecordIdFromTenant(@BindUUID("id") String id);
 
     @SqlQuery
-    public Long getTenantRecordIdFromObjectOtherThanTenant(@Bind("id") String id, @Define("tableName") final String tableName);
+    public Long getTenantRecordIdFromObjectOtherThanTenant(@BindUUID("id") String id, @Define("tableName") final String tableName);
 
     @SqlQuery
     public Long getLastHistoryRecordId(@Bind("targetRecordId") Long targetRecordId, @Define("tableName") final String tableName);
@@ -27,6 +27,17 @@ import org.skife.jdbi.v2.tweak.ArgumentFactory;
 
 public class UUIDArgumentFactory implements ArgumentFactory<UUID> {
 
+    // Whether UUIDs are stored as binary(16) instead of char(36), see UUIDStorageConfig
+    private final boolean binary;
+
+    public UUIDArgumentFactory() {
+        this(false);
+    }
+
+    public UUIDArgumentFactory(final boolean binary) {
+        this.binary = binary;
+    }
+
     @Override
     public boolean accepts(final Class<?> expectedType, final Object value, final StatementContext ctx) {
         return value instanceof UUID;
@@ -47,10 +58,12 @@ public class UUIDArgumentFactory implements ArgumentFactory<UUID> {
 
         @Override
         public void apply(final int position, final PreparedStatement statement, final StatementContext ctx) throws SQLException {
-            if (value != null) {
-                statement.setString(position, value.toString());
+            if (value == null) {
+                statement.setNull(position, binary ? Types.BINARY : Types.VARCHAR);
+            } else if (binary) {
+                statement.setBytes(position, BinaryUUIDs.toBytes(value));
             } else {
-                statement.setNull(position, Types.VARCHAR);
+                statement.setString(position, value.toString());
             }
         }
 
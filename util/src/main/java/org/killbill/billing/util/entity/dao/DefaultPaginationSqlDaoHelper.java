@@ -17,20 +17,32 @@
 package org.killbill.billing.util.entity.dao;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 
+import com.google.common.collect.ImmutableList;
+
 public class DefaultPaginationSqlDaoHelper {
 
+    // Larger pages are streamed out, without cursor
+    private static final long MAX_CURSOR_PAGE_SIZE = 1000;
+
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
     public DefaultPaginationSqlDaoHelper(final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao) {
         this.transactionalSqlDao = transactionalSqlDao;
     }
 
+    /**
+     * Within a PaginationCursorScope (API requests), pages are served using keyset pagination when possible: if the
+     * client sent back the cursor of the requested page (the id of the last entry of the previous page), the page is
+     * retrieved with a record_id range scan instead of a limit/offset query, whose cost grows with the offset. Such pages
+     * are read eagerly, so that the cursor of the next page is known before the results are streamed out.
+     */
     public <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
                                                                                                                      final PaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
                                                                                                                      final Long offset,
@@ -39,8 +51,11 @@ public class DefaultPaginationSqlDaoHelper {
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
-        // more pages.
-        final Long count = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+        // more pages. Both counts scan the whole (tenant) table though: clients which already have them (from the first page)
+        // can ask for them to be skipped (see PaginationCursorScope).
+        final boolean skipCounts = PaginationCursorScope.isSkipCounts();
+        // Searches and pagination are read-only: they can be served by the read replica
+        final Long count = skipCounts ? null : transactionalSqlDao.execute(true, context, new EntitySqlDaoTransactionWrapper<Long>() {
             @Override
             public Long inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
                 final EntitySqlDao<M, E> sqlDao = entitySqlDaoWrapperFactory.become(sqlDaoClazz);
@@ -50,11 +65,33 @@ public class DefaultPaginationSqlDaoHelper {
 
         // We usually always want to wrap our queries in an EntitySqlDaoTransactionWrapper... except here.
         // Since we want to stream the results out, we don't want to auto-commit when this method returns.
-        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemand(sqlDaoClazz);
-        final Long totalCount = sqlDao.getCount(context);
-        final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, limit, context);
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemand(true, context, sqlDaoClazz);
+        final Long totalCount = skipCounts ? null : sqlDao.getCount(context);
 
-        return new DefaultPagination<M>(offset, limit, count, totalCount, results);
+        if (!PaginationCursorScope.isOpen() || !paginationIteratorBuilder.isKeysetPaginationSupported() || limit > MAX_CURSOR_PAGE_SIZE) {
+            PaginationCursorScope.setNextCursor(offset + limit, null);
+            final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, limit, context);
+            return new DefaultPagination<M>(offset, limit, count, totalCount, results);
+        }
+
+        List<M> results = null;
+        final String lastId = offset > 0 ? PaginationCursorScope.consumeRequestedLastId(offset) : null;
+        if (lastId != null) {
+            results = ImmutableList.<M>copyOf(paginationIteratorBuilder.buildAfter((S) sqlDao, lastId, limit, context));
+            // If the last entry seen doesn't exist anymore, the cursor is stale: fall back to limit/offset
+            // (when the count is unknown, an empty page is cheap to double check)
+            if (results.isEmpty() && (count == null || offset < count)) {
+                results = null;
+            }
+        }
+        if (results == null) {
+            results = ImmutableList.<M>copyOf(paginationIteratorBuilder.build((S) sqlDao, limit, context));
+        }
+
+        PaginationCursorScope.setNextCursor(offset + results.size(), results.isEmpty() ? null : results.get(results.size() - 1).getId().toString());
+        // Without counts, a partial page still tells us there is no next page
+        final Long pageCount = count == null && results.size() < limit ? (Long) (offset + results.size()) : count;
+        return new DefaultPagination<M>(offset, limit, pageCount, totalCount, results.iterator());
     }
 
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
@@ -62,5 +99,16 @@ public class DefaultPaginationSqlDaoHelper {
         public abstract Long getCount(final S sqlDao, final InternalTenantContext context);
 
         public abstract Iterator<M> build(final S sqlDao, final Long limit, final InternalTenantContext context);
+
+        /**
+         * @param lastId id of the last entry of the previous page
+         * @return the entries following lastId (in record_id order)
+         */
+        public abstract Iterator<M> buildAfter(final S sqlDao, final String lastId, final Long limit, final InternalTenantContext context);
+
+        // Keyset pagination requires the results of build to be in record_id order
+        public boolean isKeysetPaginationSupported() {
+            return true;
+        }
     }
 }
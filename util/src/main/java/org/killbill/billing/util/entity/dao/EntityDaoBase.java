@@ -30,6 +30,8 @@ import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Pagina
 
 public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U extends BillingExceptionBase> implements EntityDao<M, E, U> {
 
+    private static final String DEFAULT_ORDERING_COLUMNS = "record_id";
+
     protected final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
     protected final DefaultPaginationSqlDaoHelper paginationHelper;
 
@@ -77,9 +79,11 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
     protected abstract U generateAlreadyExistsException(final M entity, final InternalCallContext context);
 
     protected String getNaturalOrderingColumns() {
-        return "record_id";
+        return DEFAULT_ORDERING_COLUMNS;
     }
 
+    // Lookups by id stay on the primary database: they are used by the billing and payment flows, which can't work off stale data.
+    // Only pagination and searches (reporting traffic) are routed to the read replica.
     @Override
     public Long getRecordId(final UUID id, final InternalTenantContext context) {
         return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
@@ -120,7 +124,7 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
     public Pagination<M> getAll(final InternalTenantContext context) {
         // We usually always want to wrap our queries in an EntitySqlDaoTransactionWrapper... except here.
         // Since we want to stream the results out, we don't want to auto-commit when this method returns.
-        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemand(realSqlDao);
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemand(true, context, realSqlDao);
 
         // Note: we need to perform the count before streaming the results, as the connection
         // will be busy as we stream the results out. This is also why we cannot use
@@ -144,6 +148,17 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                   public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long limit, final InternalTenantContext context) {
                                                       return sqlDao.get(offset, limit, getNaturalOrderingColumns(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<M> buildAfter(final EntitySqlDao<M, E> sqlDao, final String lastId, final Long limit, final InternalTenantContext context) {
+                                                      return sqlDao.getAfter(lastId, limit, context);
+                                                  }
+
+                                                  @Override
+                                                  public boolean isKeysetPaginationSupported() {
+                                                      // Keyset pagination relies on the record_id ordering
+                                                      return DEFAULT_ORDERING_COLUMNS.equals(getNaturalOrderingColumns());
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -152,7 +167,7 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
 
     @Override
     public Long getCount(final InternalTenantContext context) {
-        return transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+        return transactionalSqlDao.execute(true, context, new EntitySqlDaoTransactionWrapper<Long>() {
 
             @Override
             public Long inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -29,11 +30,16 @@ import org.killbill.billing.util.cache.Cachable;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CachableKey;
 import org.killbill.billing.util.dao.AuditSqlDao;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.dao.HistorySqlDao;
+import org.killbill.billing.util.dao.RecordIdIdMappings;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.tag.dao.UUIDCollectionBinder;
 import org.killbill.commons.jdbi.statement.SmartFetchSize;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.BindBean;
+import org.skife.jdbi.v2.sqlobject.GetGeneratedKeys;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
@@ -48,12 +54,18 @@ import org.skife.jdbi.v2.sqlobject.mixins.Transmogrifier;
 public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> extends AuditSqlDao, HistorySqlDao<M, E>, Transmogrifier, Transactional<EntitySqlDao<M, E>>, CloseMe {
 
     @SqlUpdate
+    @GetGeneratedKeys
     @Audited(ChangeType.INSERT)
-    public void create(@BindBean final M entity,
+    public Long create(@BindBean final M entity,
                        @BindBean final InternalCallContext context) throws EntityPersistenceException;
 
+    @SqlBatch(transactional = false)
+    @Audited(ChangeType.INSERT)
+    public void batchCreateFromTransaction(@BindBean final List<M> entities,
+                                           @BindBean final InternalCallContext context);
+
     @SqlQuery
-    public M getById(@Bind("id") final String id,
+    public M getById(@BindUUID("id") final String id,
                      @BindBean final InternalTenantContext context);
 
     @SqlQuery
@@ -68,9 +80,13 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
 
     @SqlQuery
     @Cachable(CacheType.RECORD_ID)
-    public Long getRecordId(@CachableKey(1) @Bind("id") final String id,
+    public Long getRecordId(@CachableKey(1) @BindUUID("id") final String id,
                             @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<RecordIdIdMappings> getRecordIdIdMappingsByIds(@UUIDCollectionBinder("ids") final Collection<String> ids,
+                                                               @BindBean final InternalTenantContext context);
+
     @SqlQuery
     @SmartFetchSize(shouldStream = true)
     public Iterator<M> search(@Bind("searchKey") final String searchKey,
@@ -79,6 +95,14 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                               @Bind("rowCount") final Long rowCount,
                               @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> searchAfter(@Bind("searchKey") final String searchKey,
+                                   @Bind("likeSearchKey") final String likeSearchKey,
+                                   @BindUUID("lastId") final String lastId,
+                                   @Bind("rowCount") final Long rowCount,
+                                   @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getSearchCount(@Bind("searchKey") final String searchKey,
                                @Bind("likeSearchKey") final String likeSearchKey,
@@ -95,6 +119,12 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("orderBy") final String orderBy,
                            @BindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getAfter(@BindUUID("lastId") final String lastId,
+                                @Bind("rowCount") final Long rowCount,
+                                @BindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getCount(@BindBean final InternalTenantContext context);
 
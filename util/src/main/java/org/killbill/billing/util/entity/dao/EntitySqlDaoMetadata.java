@@ -0,0 +1,272 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.cache.Cachable;
+import org.killbill.billing.util.cache.CachableKey;
+import org.killbill.billing.util.dao.BindUUID;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlBatch;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Reflection metadata used by EntitySqlDaoWrapperInvocationHandler, computed once per EntitySqlDao class and method
+ * (wrappers are created for each transaction, so the metadata is shared across all of them).
+ *
+ * @see EntitySqlDaoWrapperInvocationHandler
+ */
+class EntitySqlDaoMetadata {
+
+    private static final ConcurrentMap<Class<?>, EntitySqlDaoMetadata> metadataPerSqlDaoClass = new ConcurrentHashMap<Class<?>, EntitySqlDaoMetadata>();
+
+    private final Class<?> sqlDaoClass;
+    private final ConcurrentMap<Method, MethodMetadata> metadataPerMethod = new ConcurrentHashMap<Method, MethodMetadata>();
+
+    private volatile boolean objectTypeResolved = false;
+    private volatile ObjectType objectType;
+
+    public static EntitySqlDaoMetadata forSqlDaoClass(final Class<?> sqlDaoClass) {
+        EntitySqlDaoMetadata metadata = metadataPerSqlDaoClass.get(sqlDaoClass);
+        if (metadata == null) {
+            metadataPerSqlDaoClass.putIfAbsent(sqlDaoClass, new EntitySqlDaoMetadata(sqlDaoClass));
+            metadata = metadataPerSqlDaoClass.get(sqlDaoClass);
+        }
+        return metadata;
+    }
+
+    private EntitySqlDaoMetadata(final Class<?> sqlDaoClass) {
+        this.sqlDaoClass = sqlDaoClass;
+    }
+
+    public MethodMetadata getMethodMetadata(final Method method) {
+        MethodMetadata metadata = metadataPerMethod.get(method);
+        if (metadata == null) {
+            metadataPerMethod.putIfAbsent(method, new MethodMetadata(sqlDaoClass, method));
+            metadata = metadataPerMethod.get(method);
+        }
+        return metadata;
+    }
+
+    /**
+     * @return the objectType associated to the EntitySqlDao class, resolved on first use
+     */
+    public ObjectType getObjectType() throws InstantiationException, IllegalAccessException, ClassNotFoundException {
+        if (!objectTypeResolved) {
+            // Benign race: concurrent callers would resolve the same value
+            objectType = resolveObjectType();
+            objectTypeResolved = true;
+        }
+        return objectType;
+    }
+
+    /**
+     * Extract object from sqlDaoClass by looking at first parameter type (EntityModelDao) and
+     * constructing an empty object so we can call the getObjectType method on it.
+     *
+     * @return the objectType associated to that class
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws ClassNotFoundException
+     */
+    private ObjectType resolveObjectType() throws InstantiationException, IllegalAccessException, ClassNotFoundException {
+
+        int foundIndexForEntitySqlDao = -1;
+        // If the sqlDaoClass implements multiple interfaces, first figure out which one is the EntitySqlDao
+        final Type[] genericInterfaces = sqlDaoClass.getGenericInterfaces();
+        for (int i = 0; i < genericInterfaces.length; i++) {
+            final Type type = genericInterfaces[i];
+            if (!(type instanceof ParameterizedType)) {
+                // AuditSqlDao for example won't extend EntitySqlDao
+                continue;
+            }
+
+            if (EntitySqlDao.class.getName().equals(((Class) ((ParameterizedType) type).getRawType()).getName())) {
+                foundIndexForEntitySqlDao = i;
+                break;
+            }
+        }
+        // Find out from the parameters of the EntitySqlDao which one is the EntityModelDao, and extract his (sub)type to finally return the ObjectType
+        if (foundIndexForEntitySqlDao >= 0) {
+            final Type[] types = ((ParameterizedType) genericInterfaces[foundIndexForEntitySqlDao]).getActualTypeArguments();
+            int foundIndexForEntityModelDao = -1;
+            for (int i = 0; i < types.length; i++) {
+                final Class clz = ((Class) types[i]);
+                if (EntityModelDao.class.getName().equals(((Class) ((ParameterizedType) clz.getGenericInterfaces()[0]).getRawType()).getName())) {
+                    foundIndexForEntityModelDao = i;
+                    break;
+                }
+            }
+
+            if (foundIndexForEntityModelDao >= 0) {
+                final String modelClassName = ((Class) types[foundIndexForEntityModelDao]).getName();
+
+                final Class<? extends EntityModelDao<?>> clz = (Class<? extends EntityModelDao<?>>) Class.forName(modelClassName);
+
+                final EntityModelDao<?> modelDao = (EntityModelDao<?>) clz.newInstance();
+                return modelDao.getTableName().getObjectType();
+            }
+        }
+        return null;
+    }
+
+    static class MethodMetadata {
+
+        private final Class<?> sqlDaoClass;
+        private final Method method;
+        private final Audited auditedAnnotation;
+        private final Cachable cachableAnnotation;
+        // Index of the arguments making up the cache key, in the order of their @CachableKey position (-1 if missing)
+        private final int[] cacheKeyArgumentIndexes;
+        // Index of the String argument annotated with @Bind("id") or @BindUUID("id"), -1 if none
+        private final int idArgumentIndex;
+        // Index of the first argument declared as a context, -1 if none
+        private final int tenantContextArgumentIndex;
+        private final int callContextArgumentIndex;
+        // Queries whose results can be memoized by EntitySqlDaoRequestCache (iterators are consumed by the caller)
+        private final boolean memoizable;
+        // Statements which modify data, and invalidate EntitySqlDaoRequestCache
+        private final boolean write;
+
+        private volatile EntitySqlDaoMetrics metrics;
+
+        private MethodMetadata(final Class<?> sqlDaoClass, final Method method) {
+            this.sqlDaoClass = sqlDaoClass;
+            this.method = method;
+            this.auditedAnnotation = method.getAnnotation(Audited.class);
+            this.cachableAnnotation = method.getAnnotation(Cachable.class);
+
+            final Map<Integer, Integer> cacheKeyArgumentIndexesPerPosition = new HashMap<Integer, Integer>();
+            int idArgumentIndex = -1;
+            final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            for (int i = 0; i < parameterAnnotations.length; i++) {
+                for (final Annotation annotation : parameterAnnotations[i]) {
+                    if (CachableKey.class.equals(annotation.annotationType())) {
+                        // CachableKey position starts at 1
+                        cacheKeyArgumentIndexesPerPosition.put(((CachableKey) annotation).value() - 1, i);
+                    } else if (idArgumentIndex == -1 && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
+                        idArgumentIndex = i;
+                    } else if (idArgumentIndex == -1 && BindUUID.class.equals(annotation.annotationType()) && ("id").equals(((BindUUID) annotation).value())) {
+                        idArgumentIndex = i;
+                    }
+                }
+            }
+            this.idArgumentIndex = idArgumentIndex;
+
+            this.cacheKeyArgumentIndexes = new int[cacheKeyArgumentIndexesPerPosition.size()];
+            for (int i = 0; i < cacheKeyArgumentIndexes.length; i++) {
+                final Integer argumentIndex = cacheKeyArgumentIndexesPerPosition.get(i);
+                cacheKeyArgumentIndexes[i] = argumentIndex == null ? -1 : argumentIndex;
+            }
+
+            int tenantContextArgumentIndex = -1;
+            int callContextArgumentIndex = -1;
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (tenantContextArgumentIndex == -1 && InternalTenantContext.class.isAssignableFrom(parameterTypes[i])) {
+                    tenantContextArgumentIndex = i;
+                }
+                if (callContextArgumentIndex == -1 && InternalCallContext.class.isAssignableFrom(parameterTypes[i])) {
+                    callContextArgumentIndex = i;
+                }
+            }
+            this.tenantContextArgumentIndex = tenantContextArgumentIndex;
+            this.callContextArgumentIndex = callContextArgumentIndex;
+
+            this.memoizable = method.getAnnotation(SqlQuery.class) != null &&
+                              cachableAnnotation == null &&
+                              !Iterator.class.isAssignableFrom(method.getReturnType());
+            this.write = auditedAnnotation != null ||
+                         method.getAnnotation(SqlUpdate.class) != null ||
+                         method.getAnnotation(SqlBatch.class) != null;
+        }
+
+        public Audited getAuditedAnnotation() {
+            return auditedAnnotation;
+        }
+
+        public Cachable getCachableAnnotation() {
+            return cachableAnnotation;
+        }
+
+        public int[] getCacheKeyArgumentIndexes() {
+            return cacheKeyArgumentIndexes;
+        }
+
+        public int getIdArgumentIndex() {
+            return idArgumentIndex;
+        }
+
+        public int getTenantContextArgumentIndex() {
+            return tenantContextArgumentIndex;
+        }
+
+        public int getCallContextArgumentIndex() {
+            return callContextArgumentIndex;
+        }
+
+        public boolean isMemoizable() {
+            return memoizable;
+        }
+
+        public boolean isWrite() {
+            return write;
+        }
+
+        /**
+         * @param registry the registry of the DAO invoking the method
+         * @return the metrics of the method, null if the DAO doesn't record any
+         */
+        public EntitySqlDaoMetrics getMetrics(@Nullable final MetricRegistry registry) {
+            if (registry == null) {
+                return null;
+            }
+
+            EntitySqlDaoMetrics currentMetrics = metrics;
+            if (currentMetrics == null || currentMetrics.getRegistry() != registry) {
+                // Only happens once per registry (a single one outside of tests). Benign race: the underlying metrics are shared through the registry
+                currentMetrics = new EntitySqlDaoMetrics(registry,
+                                                         sqlDaoClass,
+                                                         method.getName(),
+                                                         List.class.isAssignableFrom(method.getReturnType()),
+                                                         auditedAnnotation != null,
+                                                         cachableAnnotation != null);
+                metrics = currentMetrics;
+            }
+            return currentMetrics;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+
+/**
+ * Metrics recorded by EntitySqlDaoWrapperInvocationHandler for each EntitySqlDao method, named after the SqlDao
+ * interface and the method (e.g. org.killbill.billing.account.dao.AccountSqlDao.getById.latency).
+ * <p/>
+ * The MetricRegistry is injected in the DAOs and handed over to the wrappers by EntitySqlDaoTransactionalJdbiWrapper:
+ * nothing is recorded for wrappers created without one.
+ */
+public class EntitySqlDaoMetrics {
+
+    private final MetricRegistry registry;
+    private final Timer latency;
+    // Only for methods returning a List
+    private final Histogram rows;
+    // Only for @Audited methods
+    private final Timer auditAndHistory;
+    // Only for @Cachable methods
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    EntitySqlDaoMetrics(final MetricRegistry registry, final Class<?> sqlDaoClass, final String methodName,
+                        final boolean returnsList, final boolean audited, final boolean cachable) {
+        this.registry = registry;
+        this.latency = registry.timer(MetricRegistry.name(sqlDaoClass, methodName, "latency"));
+        this.rows = returnsList ? registry.histogram(MetricRegistry.name(sqlDaoClass, methodName, "rows")) : null;
+        this.auditAndHistory = audited ? registry.timer(MetricRegistry.name(sqlDaoClass, methodName, "auditAndHistory")) : null;
+        if (cachable) {
+            this.cacheHits = registry.counter(MetricRegistry.name(sqlDaoClass, methodName, "cacheHits"));
+            this.cacheMisses = registry.counter(MetricRegistry.name(sqlDaoClass, methodName, "cacheMisses"));
+            registerCacheHitRatio(MetricRegistry.name(sqlDaoClass, methodName, "cacheHitRatio"));
+        } else {
+            this.cacheHits = null;
+            this.cacheMisses = null;
+        }
+    }
+
+    MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    void recordLatency(final long durationNanos) {
+        latency.update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordRows(final int nbRows) {
+        if (rows != null) {
+            rows.update(nbRows);
+        }
+    }
+
+    void recordAuditAndHistory(final long durationNanos) {
+        if (auditAndHistory != null) {
+            auditAndHistory.update(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void recordCacheLookup(final boolean hit) {
+        if (cacheHits == null) {
+            return;
+        }
+
+        if (hit) {
+            cacheHits.inc();
+        } else {
+            cacheMisses.inc();
+        }
+    }
+
+    private void registerCacheHitRatio(final String name) {
+        if (registry.getGauges().containsKey(name)) {
+            return;
+        }
+
+        try {
+            registry.register(name, new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    return Ratio.of(cacheHits.getCount(), cacheHits.getCount() + cacheMisses.getCount());
+                }
+            });
+        } catch (final IllegalArgumentException e) {
+            // Registered concurrently, the counters are shared
+        }
+    }
+}
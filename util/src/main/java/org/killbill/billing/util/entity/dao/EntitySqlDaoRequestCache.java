@@ -0,0 +1,241 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.util.config.CacheConfig;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+
+/**
+ * Memoizes the EntitySqlDao reads made by the current thread while a scope is open, typically for the duration of an
+ * API request or of an invoice run: the same account, bundles, subscriptions, tags or blocking states would otherwise
+ * be re-read by each module involved.
+ * <p/>
+ * Any write made through an EntitySqlDao by the same thread (or a failed transaction) clears the cache. Writes made
+ * by other threads or nodes aren't seen until the scope is closed, which is why scopes are opt-in and short-lived.
+ * For the same reason, callers taking a GlobalLocker lock must call {@link #invalidate()} once it is acquired: reads
+ * memoized before the lock may be stale in the critical section.
+ * <p/>
+ * Model objects are mutable (e.g. InvoiceModelDao children are added after the query), so each caller gets its own
+ * deep copy of the memoized result. Results which can't be copied aren't memoized.
+ * <p/>
+ * The configuration is statically injected (see CacheModule): scopes can't be opened until it is.
+ *
+ * @see EntitySqlDaoWrapperInvocationHandler
+ */
+public class EntitySqlDaoRequestCache {
+
+    private static final Object NULL_RESULT = new Object();
+
+    // Values shared as is between copies
+    private static final Set<Class<?>> IMMUTABLE_CLASSES = ImmutableSet.<Class<?>>of(String.class, Boolean.class, Character.class, Byte.class, Short.class,
+                                                                                      Integer.class, Long.class, Float.class, Double.class, BigDecimal.class,
+                                                                                      BigInteger.class, UUID.class, DateTime.class, LocalDate.class);
+
+    private static final ConcurrentMap<Class<?>, BeanCopier> copiersPerClass = new ConcurrentHashMap<Class<?>, BeanCopier>();
+
+    private static final ThreadLocal<Map<List<Object>, Object>> resultsPerThread = new ThreadLocal<Map<List<Object>, Object>>();
+
+    private static volatile boolean enabled = false;
+
+    @Inject(optional = true)
+    public static void setCacheConfig(final CacheConfig cacheConfig) {
+        enabled = cacheConfig.isRequestCacheEnabled();
+    }
+
+    /**
+     * Open a scope for the current thread. Scopes don't nest: only the caller which opened it should close it.
+     *
+     * @return true if a scope was opened, false if disabled or if one was already open
+     */
+    public static boolean open() {
+        if (!enabled || resultsPerThread.get() != null) {
+            return false;
+        }
+        resultsPerThread.set(new HashMap<List<Object>, Object>());
+        return true;
+    }
+
+    public static void close() {
+        resultsPerThread.remove();
+    }
+
+    static boolean isOpen() {
+        return resultsPerThread.get() != null;
+    }
+
+    /**
+     * Drop the results memoized by the current thread, if a scope is open (e.g. once a lock is acquired)
+     */
+    public static void invalidate() {
+        final Map<List<Object>, Object> results = resultsPerThread.get();
+        if (results != null) {
+            results.clear();
+        }
+    }
+
+    /**
+     * @return true if a result was memoized for that key (it may be null)
+     */
+    static boolean contains(final List<Object> key) {
+        final Map<List<Object>, Object> results = resultsPerThread.get();
+        return results != null && results.containsKey(key);
+    }
+
+    static Object get(final List<Object> key) {
+        final Object result = resultsPerThread.get().get(key);
+        if (result == NULL_RESULT) {
+            return null;
+        }
+
+        try {
+            return copy(result);
+        } catch (final NotCopyableException e) {
+            // Never reached, the result was copied when memoized
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return true if the result was memoized
+     */
+    static boolean put(final List<Object> key, final Object result) {
+        final Map<List<Object>, Object> results = resultsPerThread.get();
+        if (results == null) {
+            return false;
+        }
+
+        if (result == null) {
+            results.put(key, NULL_RESULT);
+            return true;
+        }
+
+        try {
+            // Copy it as the caller is free to modify the instance it got from the database
+            results.put(key, copy(result));
+            return true;
+        } catch (final NotCopyableException e) {
+            return false;
+        }
+    }
+
+    static Object copy(final Object value) throws NotCopyableException {
+        if (value == null || value instanceof Enum || value instanceof DateTimeZone || IMMUTABLE_CLASSES.contains(value.getClass())) {
+            return value;
+        } else if (value instanceof List) {
+            final List<Object> copy = value instanceof LinkedList ? new LinkedList<Object>() : new ArrayList<Object>(((List) value).size());
+            for (final Object element : (List) value) {
+                copy.add(copy(element));
+            }
+            return copy;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else {
+            return getBeanCopier(value.getClass()).copy(value);
+        }
+    }
+
+    private static BeanCopier getBeanCopier(final Class<?> clazz) throws NotCopyableException {
+        BeanCopier copier = copiersPerClass.get(clazz);
+        if (copier == null) {
+            copier = new BeanCopier(clazz);
+            copiersPerClass.putIfAbsent(clazz, copier);
+        }
+        if (!copier.isCopyable()) {
+            throw new NotCopyableException(clazz);
+        }
+        return copier;
+    }
+
+    // Copies the fields of model objects, which are created by the mappers through their no-arg constructor
+    private static final class BeanCopier {
+
+        private final Constructor<?> constructor;
+        private final List<Field> fields = new ArrayList<Field>();
+
+        private BeanCopier(final Class<?> clazz) {
+            Constructor<?> constructor = null;
+            // Collections, maps, etc. other than lists aren't expected in results
+            if (!clazz.isArray() && !clazz.isInterface() && !Iterable.class.isAssignableFrom(clazz) && !Map.class.isAssignableFrom(clazz)) {
+                try {
+                    constructor = clazz.getDeclaredConstructor();
+                    constructor.setAccessible(true);
+
+                    for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+                        for (final Field field : current.getDeclaredFields()) {
+                            if (!Modifier.isStatic(field.getModifiers())) {
+                                field.setAccessible(true);
+                                fields.add(field);
+                            }
+                        }
+                    }
+                } catch (final NoSuchMethodException e) {
+                    constructor = null;
+                } catch (final RuntimeException e) {
+                    // E.g. SecurityException
+                    constructor = null;
+                }
+            }
+            this.constructor = constructor;
+        }
+
+        private boolean isCopyable() {
+            return constructor != null;
+        }
+
+        private Object copy(final Object bean) throws NotCopyableException {
+            try {
+                final Object copy = constructor.newInstance();
+                for (final Field field : fields) {
+                    field.set(copy, EntitySqlDaoRequestCache.copy(field.get(bean)));
+                }
+                return copy;
+            } catch (final NotCopyableException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new NotCopyableException(bean.getClass());
+            }
+        }
+    }
+
+    static final class NotCopyableException extends Exception {
+
+        private NotCopyableException(final Class<?> clazz) {
+            super("Unable to copy instances of " + clazz.getName());
+        }
+    }
+}
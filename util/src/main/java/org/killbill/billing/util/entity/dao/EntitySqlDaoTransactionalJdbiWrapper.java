@@ -16,46 +16,88 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
 import org.skife.jdbi.v2.IDBI;
 import org.skife.jdbi.v2.Transaction;
 import org.skife.jdbi.v2.TransactionIsolationLevel;
 import org.skife.jdbi.v2.TransactionStatus;
 
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.clock.Clock;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Entity;
 
+import com.codahale.metrics.MetricRegistry;
+
 /**
  * Transaction manager for EntitySqlDao queries
  */
 public class EntitySqlDaoTransactionalJdbiWrapper {
 
     private final IDBI dbi;
+    // Null if read-only operations can't be routed to a read replica
+    private final DBRouter dbRouter;
     private final Clock clock;
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final NonEntityDao nonEntityDao;
+    // Null if no metrics are recorded (see EntitySqlDaoMetrics)
+    private final MetricRegistry metricRegistry;
 
     public EntitySqlDaoTransactionalJdbiWrapper(final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
+        this(dbi, clock, cacheControllerDispatcher, nonEntityDao, null);
+    }
+
+    public EntitySqlDaoTransactionalJdbiWrapper(final IDBI dbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                                @Nullable final MetricRegistry metricRegistry) {
+        this(dbi, null, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry);
+    }
+
+    public EntitySqlDaoTransactionalJdbiWrapper(final DBRouter dbRouter, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
+        this(dbRouter, clock, cacheControllerDispatcher, nonEntityDao, null);
+    }
+
+    public EntitySqlDaoTransactionalJdbiWrapper(final DBRouter dbRouter, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                                @Nullable final MetricRegistry metricRegistry) {
+        this(dbRouter.getPrimaryDBI(), dbRouter, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry);
+    }
+
+    private EntitySqlDaoTransactionalJdbiWrapper(final IDBI dbi, @Nullable final DBRouter dbRouter, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                                 @Nullable final MetricRegistry metricRegistry) {
         this.dbi = dbi;
+        this.dbRouter = dbRouter;
         this.clock = clock;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.nonEntityDao = nonEntityDao;
+        this.metricRegistry = metricRegistry;
     }
 
     class JdbiTransaction<ReturnType, M extends EntityModelDao<E>, E extends Entity> implements Transaction<ReturnType, EntitySqlDao<M, E>> {
 
         private final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper;
 
+        private EntitySqlDaoWrapperFactory<EntitySqlDao> factoryEntitySqlDao;
+
         JdbiTransaction(final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
             this.entitySqlDaoTransactionWrapper = entitySqlDaoTransactionWrapper;
         }
 
         @Override
         public ReturnType inTransaction(final EntitySqlDao<M, E> transactionalSqlDao, final TransactionStatus status) throws Exception {
-            final EntitySqlDaoWrapperFactory<EntitySqlDao> factoryEntitySqlDao = new EntitySqlDaoWrapperFactory<EntitySqlDao>(transactionalSqlDao, clock, cacheControllerDispatcher, nonEntityDao);
+            factoryEntitySqlDao = new EntitySqlDaoWrapperFactory<EntitySqlDao>(transactionalSqlDao, clock, cacheControllerDispatcher, nonEntityDao, metricRegistry);
             return entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
         }
+
+        // User tokens on behalf of which data has been modified, empty if the transaction didn't write
+        Set<UUID> getWriteUserTokens() {
+            return factoryEntitySqlDao == null ? Collections.<UUID>emptySet() : factoryEntitySqlDao.getWriteUserTokens();
+        }
     }
 
     // To handle warnings only
@@ -67,12 +109,47 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
      * @return result from the transaction fo type ReturnType
      */
     public <ReturnType> ReturnType execute(final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
-        final EntitySqlDao<EntityModelDao<Entity>, Entity> entitySqlDao = dbi.onDemand(InitialEntitySqlDao.class);
-        return entitySqlDao.inTransaction(TransactionIsolationLevel.READ_COMMITTED, new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(entitySqlDaoTransactionWrapper));
+        return execute(false, null, entitySqlDaoTransactionWrapper);
+    }
+
+    /**
+     * @param readOnly                       whether the transaction only reads data, in which case it may be sent to the read replica
+     * @param context                        context of the reads, to route them to the primary database if its user token has recently written
+     * @param entitySqlDaoTransactionWrapper transaction to execute
+     * @param <ReturnType>                   object type to return from the transaction
+     * @return result from the transaction fo type ReturnType
+     */
+    public <ReturnType> ReturnType execute(final boolean readOnly, @Nullable final InternalTenantContext context, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) {
+        final EntitySqlDao<EntityModelDao<Entity>, Entity> entitySqlDao = getDBI(readOnly, context).onDemand(InitialEntitySqlDao.class);
+        final JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity> transaction = new JdbiTransaction<ReturnType, EntityModelDao<Entity>, Entity>(entitySqlDaoTransactionWrapper);
+        final ReturnType result;
+        try {
+            result = entitySqlDao.inTransaction(TransactionIsolationLevel.READ_COMMITTED, transaction);
+        } catch (final RuntimeException e) {
+            // Results read after a write which has been rolled back may have been memoized
+            EntitySqlDaoRequestCache.invalidate();
+            throw e;
+        }
+
+        // Only committed writes need to be read back from the primary database
+        if (dbRouter != null) {
+            for (final UUID userToken : transaction.getWriteUserTokens()) {
+                dbRouter.onWrite(userToken);
+            }
+        }
+        return result;
     }
 
     public <M extends EntityModelDao<E>, E extends Entity, T extends EntitySqlDao<M, E>> T onDemand(final Class<T> sqlObjectType) {
-        return dbi.onDemand(sqlObjectType);
+        return onDemand(false, null, sqlObjectType);
+    }
+
+    public <M extends EntityModelDao<E>, E extends Entity, T extends EntitySqlDao<M, E>> T onDemand(final boolean readOnly, @Nullable final InternalTenantContext context, final Class<T> sqlObjectType) {
+        return getDBI(readOnly, context).onDemand(sqlObjectType);
+    }
+
+    private IDBI getDBI(final boolean readOnly, @Nullable final InternalTenantContext context) {
+        return dbRouter == null ? dbi : dbRouter.getDBI(readOnly, context);
     }
 
     /**
@@ -82,8 +159,12 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
      * @return result from the transaction fo type ReturnType
      */
     public <ReturnType, E extends Exception> ReturnType execute(final Class<E> exception, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) throws E {
+        return execute(false, null, exception, entitySqlDaoTransactionWrapper);
+    }
+
+    public <ReturnType, E extends Exception> ReturnType execute(final boolean readOnly, @Nullable final InternalTenantContext context, final Class<E> exception, final EntitySqlDaoTransactionWrapper<ReturnType> entitySqlDaoTransactionWrapper) throws E {
         try {
-            return execute(entitySqlDaoTransactionWrapper);
+            return execute(readOnly, context, entitySqlDaoTransactionWrapper);
         } catch (RuntimeException e) {
             if (e.getCause() != null && e.getCause().getClass().isAssignableFrom(exception)) {
                 throw (E) e.getCause();
@@ -17,12 +17,19 @@
 package org.killbill.billing.util.entity.dao;
 
 import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
 
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.clock.Clock;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Entity;
 
+import com.codahale.metrics.MetricRegistry;
+
 /**
  * Factory to create wrapped EntitySqlDao objects. During a transaction, make sure
  * to create other EntitySqlDao objects via the #become call.
@@ -37,12 +44,19 @@ public class EntitySqlDaoWrapperFactory<InitialSqlDao extends EntitySqlDao> {
     private final CacheControllerDispatcher cacheControllerDispatcher;
 
     private final NonEntityDao nonEntityDao;
+    // Null if no metrics are recorded
+    private final MetricRegistry metricRegistry;
+
+    // User tokens on behalf of which data has been modified in this transaction (see DBRouter)
+    private final Set<UUID> writeUserTokens = new HashSet<UUID>();
 
-    public EntitySqlDaoWrapperFactory(final InitialSqlDao sqlDao, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
+    public EntitySqlDaoWrapperFactory(final InitialSqlDao sqlDao, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
+                                      @Nullable final MetricRegistry metricRegistry) {
         this.sqlDao = sqlDao;
         this.clock = clock;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.nonEntityDao = nonEntityDao;
+        this.metricRegistry = metricRegistry;
     }
 
     /**
@@ -67,13 +81,28 @@ public class EntitySqlDaoWrapperFactory<InitialSqlDao extends EntitySqlDao> {
         return sqlDao;
     }
 
+    MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    // Invoked by the EntitySqlDao objects created by this factory, before each statement which modifies data
+    synchronized void onWrite(@Nullable final UUID userToken) {
+        if (userToken != null) {
+            writeUserTokens.add(userToken);
+        }
+    }
+
+    synchronized Set<UUID> getWriteUserTokens() {
+        return new HashSet<UUID>(writeUserTokens);
+    }
+
     private <NewSqlDao extends EntitySqlDao<NewEntityModelDao, NewEntity>,
             NewEntityModelDao extends EntityModelDao<NewEntity>,
             NewEntity extends Entity> NewSqlDao create(final Class<NewSqlDao> newSqlDaoClass, final NewSqlDao newSqlDao) {
         final ClassLoader classLoader = newSqlDao.getClass().getClassLoader();
         final Class[] interfacesToImplement = {newSqlDaoClass};
         final EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity> wrapperInvocationHandler =
-                new EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity>(newSqlDaoClass, newSqlDao, clock, cacheControllerDispatcher, nonEntityDao);
+                new EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity>(newSqlDaoClass, newSqlDao, this, clock, cacheControllerDispatcher, nonEntityDao);
 
         final Object newSqlDaoObject = Proxy.newProxyInstance(classLoader, interfacesToImplement, wrapperInvocationHandler);
         return newSqlDaoClass.cast(newSqlDaoObject);
@@ -16,32 +16,31 @@
 
 package org.killbill.billing.util.entity.dao;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
 
 import org.skife.jdbi.v2.Binding;
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.exceptions.DBIException;
 import org.skife.jdbi.v2.exceptions.StatementException;
-import org.skife.jdbi.v2.sqlobject.Bind;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.util.audit.ChangeType;
-import org.killbill.billing.util.cache.Cachable;
 import org.killbill.billing.util.cache.Cachable.CacheType;
-import org.killbill.billing.util.cache.CachableKey;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
@@ -52,15 +51,16 @@ import org.killbill.billing.util.dao.EntityAudit;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.NonEntitySqlDao;
+import org.killbill.billing.util.dao.RecordIdIdMappings;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoMetadata.MethodMetadata;
 
 import com.google.common.base.Objects;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 /**
  * Wraps an instance of EntitySqlDao, performing extra work around each method (Sql query)
@@ -73,18 +73,38 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     public static final String CACHE_KEY_SEPARATOR = "::";
 
+    // Maximum number of ids in the IN clause of the record id lookups following batch inserts
+    private static final int MAX_IDS_PER_LOOKUP = 1000;
+
+    // Record ids never change: updates and deletes look them up through the record id cache
+    private static final Method GET_RECORD_ID_METHOD;
+
+    static {
+        try {
+            GET_RECORD_ID_METHOD = EntitySqlDao.class.getMethod("getRecordId", String.class, InternalTenantContext.class);
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(EntitySqlDaoWrapperInvocationHandler.class);
 
     private final Class<S> sqlDaoClass;
+    private final EntitySqlDaoMetadata sqlDaoMetadata;
     private final S sqlDao;
+    // Factory which created this object, shared by all EntitySqlDao objects of the transaction
+    private final EntitySqlDaoWrapperFactory<?> entitySqlDaoWrapperFactory;
 
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final Clock clock;
     private final NonEntityDao nonEntityDao;
 
-    public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass, final S sqlDao, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
+    public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass, final S sqlDao, final EntitySqlDaoWrapperFactory<?> entitySqlDaoWrapperFactory,
+                                                final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao) {
         this.sqlDaoClass = sqlDaoClass;
+        this.sqlDaoMetadata = EntitySqlDaoMetadata.forSqlDaoClass(sqlDaoClass);
         this.sqlDao = sqlDao;
+        this.entitySqlDaoWrapperFactory = entitySqlDaoWrapperFactory;
         this.clock = clock;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.nonEntityDao = nonEntityDao;
@@ -160,52 +180,86 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     }
 
     private Object invokeSafely(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final MethodMetadata methodMetadata = sqlDaoMetadata.getMethodMetadata(method);
+        final EntitySqlDaoMetrics metrics = methodMetadata.getMetrics(entitySqlDaoWrapperFactory.getMetricRegistry());
+        final long startTime = metrics == null ? 0 : System.nanoTime();
 
-        final Audited auditedAnnotation = method.getAnnotation(Audited.class);
-        final Cachable cachableAnnotation = method.getAnnotation(Cachable.class);
+        if (methodMetadata.isWrite()) {
+            EntitySqlDaoRequestCache.invalidate();
+            entitySqlDaoWrapperFactory.onWrite(retrieveUserTokenFromArguments(args));
+        }
 
-        // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
-        if (auditedAnnotation != null) {
-            return invokeWithAuditAndHistory(auditedAnnotation, method, args);
-        } else if (cachableAnnotation != null) {
-            return invokeWithCaching(cachableAnnotation, method, args);
-        } else {
-            return method.invoke(sqlDao, args);
+        final Object result;
+        try {
+            // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
+            if (methodMetadata.getAuditedAnnotation() != null) {
+                result = invokeWithAuditAndHistory(methodMetadata, metrics, method, args);
+            } else if (methodMetadata.getCachableAnnotation() != null) {
+                result = invokeWithCaching(methodMetadata, metrics, method, args);
+            } else if (methodMetadata.isMemoizable() && EntitySqlDaoRequestCache.isOpen()) {
+                result = invokeWithRequestCache(method, args);
+            } else {
+                result = method.invoke(sqlDao, args);
+            }
+        } finally {
+            if (metrics != null) {
+                metrics.recordLatency(System.nanoTime() - startTime);
+            }
+        }
+
+        if (metrics != null && result instanceof List) {
+            metrics.recordRows(((List) result).size());
+        }
+        return result;
+    }
+
+    private Object invokeWithRequestCache(final Method method, final Object[] args) throws IllegalAccessException, InvocationTargetException {
+        final List<Object> key = buildRequestCacheKey(method, args);
+        if (EntitySqlDaoRequestCache.contains(key)) {
+            return EntitySqlDaoRequestCache.get(key);
         }
+
+        final Object result = method.invoke(sqlDao, args);
+        EntitySqlDaoRequestCache.put(key, result);
+        return result;
     }
 
-    private Object invokeWithCaching(final Cachable cachableAnnotation, final Method method, final Object[] args)
+    private List<Object> buildRequestCacheKey(final Method method, @Nullable final Object[] args) {
+        final List<Object> key = new ArrayList<Object>();
+        // The same method (e.g. getById) is shared by all EntitySqlDao classes
+        key.add(sqlDaoClass);
+        key.add(method);
+        if (args != null) {
+            for (final Object arg : args) {
+                if (arg instanceof InternalTenantContext) {
+                    // Only the tenant and account matter for reads, not who is making the call
+                    key.add(((InternalTenantContext) arg).getTenantRecordId());
+                    key.add(((InternalTenantContext) arg).getAccountRecordId());
+                } else {
+                    key.add(arg);
+                }
+            }
+        }
+        return key;
+    }
+
+    private Object invokeWithCaching(final MethodMetadata methodMetadata, final EntitySqlDaoMetrics metrics, final Method method, final Object[] args)
             throws IllegalAccessException, InvocationTargetException, ClassNotFoundException, InstantiationException {
-        final ObjectType objectType = getObjectType();
-        final CacheType cacheType = cachableAnnotation.value();
+        final ObjectType objectType = sqlDaoMetadata.getObjectType();
+        final CacheType cacheType = methodMetadata.getCachableAnnotation().value();
         final CacheController<Object, Object> cache = cacheControllerDispatcher.getCacheController(cacheType);
         Object result = null;
         if (cache != null) {
-            // Find all arguments marked with @CachableKey
-            final Map<Integer, Object> keyPieces = new LinkedHashMap<Integer, Object>();
-            final Annotation[][] annotations = method.getParameterAnnotations();
-            for (int i = 0; i < annotations.length; i++) {
-                for (int j = 0; j < annotations[i].length; j++) {
-                    final Annotation annotation = annotations[i][j];
-                    if (CachableKey.class.equals(annotation.annotationType())) {
-                        // CachableKey position starts at 1
-                        keyPieces.put(((CachableKey) annotation).value() - 1, args[i]);
-                        break;
-                    }
-                }
-            }
+            // Build the Cache key from all arguments marked with @CachableKey
+            final String cacheKey = buildCacheKey(methodMetadata.getCacheKeyArgumentIndexes(), args);
 
-            // Build the Cache key
-            final String cacheKey = buildCacheKey(keyPieces);
-
-            final InternalTenantContext internalTenantContext = (InternalTenantContext) Iterables.find(ImmutableList.copyOf(args), new Predicate<Object>() {
-                @Override
-                public boolean apply(final Object input) {
-                    return input instanceof InternalTenantContext;
-                }
-            }, null);
+            final InternalTenantContext internalTenantContext = retrieveTenantContextFromArguments(methodMetadata, args);
             final CacheLoaderArgument cacheLoaderArgument = new CacheLoaderArgument(objectType, args, internalTenantContext);
             result = cache.get(cacheKey, cacheLoaderArgument);
+            if (metrics != null) {
+                // Values loaded by the cache loader are misses too
+                metrics.recordCacheLookup(result != null && !cacheLoaderArgument.isLoaded());
+            }
         }
         if (result == null) {
             result = method.invoke(sqlDao, args);
@@ -213,105 +267,202 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return result;
     }
 
-    /**
-     * Extract object from sqlDaoClass by looking at first parameter type (EntityModelDao) and
-     * constructing an empty object so we can call the getObjectType method on it.
-     *
-     * @return the objectType associated to that handler
-     * @throws InstantiationException
-     * @throws IllegalAccessException
-     * @throws ClassNotFoundException
-     */
-    private ObjectType getObjectType() throws InstantiationException, IllegalAccessException, ClassNotFoundException {
-
-        int foundIndexForEntitySqlDao = -1;
-        // If the sqlDaoClass implements multiple interfaces, first figure out which one is the EntitySqlDao
-        for (int i = 0; i < sqlDaoClass.getGenericInterfaces().length; i++) {
-            final Type type = sqlDaoClass.getGenericInterfaces()[0];
-            if (!(type instanceof java.lang.reflect.ParameterizedType)) {
-                // AuditSqlDao for example won't extend EntitySqlDao
-                return null;
-            }
+    private Object invokeWithAuditAndHistory(final MethodMetadata methodMetadata, final EntitySqlDaoMetrics metrics, final Method method, final Object[] args)
+            throws IllegalAccessException, InvocationTargetException, ClassNotFoundException, InstantiationException {
+        final ChangeType changeType = methodMetadata.getAuditedAnnotation().value();
+        final InternalCallContext context = retrieveContextFromArguments(methodMetadata, args);
 
-            if (EntitySqlDao.class.getName().equals(((Class) ((java.lang.reflect.ParameterizedType) type).getRawType()).getName())) {
-                foundIndexForEntitySqlDao = i;
-                break;
-            }
+        // For inserts, the model objects to insert are the arguments: they are used as is for the history rows
+        final List<M> insertedEntities = ChangeType.INSERT.equals(changeType) ? retrieveEntitiesFromArguments(args) : null;
+        if (insertedEntities != null) {
+            return invokeInsertWithAuditAndHistory(insertedEntities, metrics, method, args, context);
         }
-        // Find out from the parameters of the EntitySqlDao which one is the EntityModelDao, and extract his (sub)type to finally return the ObjectType
-        if (foundIndexForEntitySqlDao >= 0) {
-            final Type[] types = ((java.lang.reflect.ParameterizedType) sqlDaoClass.getGenericInterfaces()[foundIndexForEntitySqlDao]).getActualTypeArguments();
-            int foundIndexForEntityModelDao = -1;
-            for (int i = 0; i < types.length; i++) {
-                final Class clz = ((Class) types[i]);
-                if (EntityModelDao.class.getName().equals(((Class) ((java.lang.reflect.ParameterizedType) clz.getGenericInterfaces()[0]).getRawType()).getName())) {
-                    foundIndexForEntityModelDao = i;
-                    break;
-                }
+
+        final long startTime = metrics == null ? 0 : System.nanoTime();
+
+        // There will be some work required after the statement is executed: get the record ids before in case the
+        // change is a delete, as well as the entities themselves (for deletes only, to be able to record hard deletes)
+        final List<String> entityIds = retrieveEntityIdsFromArguments(methodMetadata, args);
+        final Map<String, M> entities = new HashMap<String, M>();
+        final Map<String, Long> entityRecordIds = new HashMap<String, Long>();
+        for (final String entityId : entityIds) {
+            if (ChangeType.DELETE.equals(changeType)) {
+                entities.put(entityId, sqlDao.getById(entityId, context));
             }
+            entityRecordIds.put(entityId, (Long) invokeWithCaching(sqlDaoMetadata.getMethodMetadata(GET_RECORD_ID_METHOD), null, GET_RECORD_ID_METHOD, new Object[]{entityId, context}));
+        }
 
-            if (foundIndexForEntityModelDao >= 0) {
-                final String modelClassName = ((Class) types[foundIndexForEntityModelDao]).getName();
+        // Real jdbc call
+        final long jdbcStartTime = metrics == null ? 0 : System.nanoTime();
+        final Object obj = method.invoke(sqlDao, args);
+        final long jdbcDuration = metrics == null ? 0 : System.nanoTime() - jdbcStartTime;
 
-                final Class<? extends EntityModelDao<?>> clz = (Class<? extends EntityModelDao<?>>) Class.forName(modelClassName);
+        final List<Long> auditedEntityRecordIds = new LinkedList<Long>();
+        final List<Long> historyRecordIds = new LinkedList<Long>();
+        TableName tableName = null;
+        for (final String entityId : entityIds) {
+            // Re-hydrate the object to record its new state (soft deletes included)
+            final M reHydratedEntity = sqlDao.getById(entityId, context);
+            final M entity = Objects.firstNonNull(reHydratedEntity, entities.get(entityId));
+            final Long entityRecordId = entityRecordIds.get(entityId);
+            tableName = entity.getTableName();
+
+            auditedEntityRecordIds.add(entityRecordId);
+            historyRecordIds.add(updateHistory(entityRecordId, entity, changeType, context));
+        }
+        insertAudits(tableName, auditedEntityRecordIds, historyRecordIds, changeType, context);
 
-                final EntityModelDao<?> modelDao = (EntityModelDao<?>) clz.newInstance();
-                return modelDao.getTableName().getObjectType();
+        if (metrics != null) {
+            metrics.recordAuditAndHistory(System.nanoTime() - startTime - jdbcDuration);
+        }
+        return obj;
+    }
+
+    private Object invokeInsertWithAuditAndHistory(final List<M> entities, final EntitySqlDaoMetrics metrics, final Method method, final Object[] args, final InternalCallContext context) throws IllegalAccessException, InvocationTargetException {
+        // Real jdbc call: single creates return the generated record id
+        final Object obj = method.invoke(sqlDao, args);
+
+        final long startTime = metrics == null ? 0 : System.nanoTime();
+
+        if (entities.isEmpty()) {
+            return obj;
+        }
+
+        final TableName tableName = entities.get(0).getTableName();
+        final List<Long> entityRecordIds;
+        final List<Long> historyRecordIds;
+        if (entities.size() == 1) {
+            final M entity = entities.get(0);
+            Long entityRecordId = obj instanceof Long ? (Long) obj : null;
+            if (entityRecordId == null) {
+                // No generated key returned by the driver
+                entityRecordId = sqlDao.getRecordId(entity.getId().toString(), context);
+            }
+            entityRecordIds = new LinkedList<Long>();
+            entityRecordIds.add(entityRecordId);
+            historyRecordIds = new LinkedList<Long>();
+            historyRecordIds.add(updateHistory(entityRecordId, entity, ChangeType.INSERT, context));
+        } else {
+            // Batch call: look up the record ids and insert the history rows in bulk, instead of a few statements per entity
+            entityRecordIds = retrieveRecordIdsForBatch(entities, context);
+            if (tableName.getHistoryTableName() != null) {
+                historyRecordIds = insertHistoriesForBatch(entityRecordIds, entities, context);
+            } else {
+                historyRecordIds = entityRecordIds;
             }
         }
-        return null;
+        insertAudits(tableName, entityRecordIds, historyRecordIds, ChangeType.INSERT, context);
+
+        if (metrics != null) {
+            metrics.recordAuditAndHistory(System.nanoTime() - startTime);
+        }
+        return obj;
     }
 
+    private List<Long> retrieveRecordIdsForBatch(final List<M> entities, final InternalCallContext context) {
+        final List<UUID> ids = new ArrayList<UUID>(entities.size());
+        for (final M entity : entities) {
+            ids.add(entity.getId());
+        }
 
-    private Object invokeWithAuditAndHistory(final Audited auditedAnnotation, final Method method, final Object[] args) throws IllegalAccessException, InvocationTargetException {
-        InternalCallContext context = null;
-        List<String> entityIds = null;
-        final Map<String, M> entities = new HashMap<String, M>();
-        final Map<String, Long> entityRecordIds = new HashMap<String, Long>();
-        if (auditedAnnotation != null) {
-            // There will be some work required after the statement is executed,
-            // get the id before in case the change is a delete
-            context = retrieveContextFromArguments(args);
-            entityIds = retrieveEntityIdsFromArguments(method, args);
-            for (final String entityId : entityIds) {
-                entities.put(entityId, sqlDao.getById(entityId, context));
-                entityRecordIds.put(entityId, sqlDao.getRecordId(entityId, context));
+        final Map<UUID, Long> recordIdsPerId = new HashMap<UUID, Long>();
+        for (final List<UUID> chunk : Lists.partition(ids, MAX_IDS_PER_LOOKUP)) {
+            for (final RecordIdIdMappings mapping : sqlDao.getRecordIdIdMappingsByIds(toStrings(chunk), context)) {
+                recordIdsPerId.put(mapping.getId(), mapping.getRecordId());
             }
         }
 
-        // Real jdbc call
-        final Object obj = method.invoke(sqlDao, args);
+        final List<Long> recordIds = new ArrayList<Long>(entities.size());
+        for (final M entity : entities) {
+            Long recordId = recordIdsPerId.get(entity.getId());
+            if (recordId == null) {
+                // Shouldn't happen, but don't lose the audit trail
+                recordId = sqlDao.getRecordId(entity.getId().toString(), context);
+            }
+            recordIds.add(recordId);
+        }
+        return recordIds;
+    }
 
-        final ChangeType changeType = auditedAnnotation.value();
+    private List<Long> insertHistoriesForBatch(final List<Long> entityRecordIds, final List<M> entities, final InternalCallContext context) {
+        final List<EntityHistoryModelDao<M, E>> histories = new ArrayList<EntityHistoryModelDao<M, E>>(entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            histories.add(new EntityHistoryModelDao<M, E>(entities.get(i), entityRecordIds.get(i), ChangeType.INSERT, clock.getUTCNow()));
+        }
+        sqlDao.addHistoriesFromTransaction(histories, context);
 
-        for (final String entityId : entityIds) {
-            updateHistoryAndAudit(entityId, entities, entityRecordIds, changeType, context);
+        final List<UUID> historyIds = new ArrayList<UUID>(histories.size());
+        for (final EntityHistoryModelDao<M, E> history : histories) {
+            historyIds.add(history.getId());
         }
-        return obj;
+
+        final Map<UUID, Long> historyRecordIdsPerId = new HashMap<UUID, Long>();
+        for (final List<UUID> chunk : Lists.partition(historyIds, MAX_IDS_PER_LOOKUP)) {
+            for (final RecordIdIdMappings mapping : sqlDao.getHistoryRecordIdIdMappingsByIds(toStrings(chunk), context)) {
+                historyRecordIdsPerId.put(mapping.getId(), mapping.getRecordId());
+            }
+        }
+
+        final List<Long> historyRecordIds = new ArrayList<Long>(histories.size());
+        for (int i = 0; i < histories.size(); i++) {
+            Long historyRecordId = historyRecordIdsPerId.get(histories.get(i).getId());
+            if (historyRecordId == null) {
+                final NonEntitySqlDao transactional = sqlDao.become(NonEntitySqlDao.class);
+                historyRecordId = nonEntityDao.retrieveLastHistoryRecordIdFromTransaction(entityRecordIds.get(i), entities.get(i).getHistoryTableName(), transactional);
+            }
+            historyRecordIds.add(historyRecordId);
+        }
+        return historyRecordIds;
     }
 
-    private void updateHistoryAndAudit(final String entityId, final Map<String, M> entities, final Map<String, Long> entityRecordIds,
-                                       final ChangeType changeType, final InternalCallContext context) {
-        // Make sure to re-hydrate the object (especially needed for create calls)
-        final M reHydratedEntity = sqlDao.getById(entityId, context);
-        final Long reHydratedEntityRecordId = sqlDao.getRecordId(entityId, context);
-        final M entity = Objects.firstNonNull(reHydratedEntity, entities.get(entityId));
-        final Long entityRecordId = Objects.firstNonNull(reHydratedEntityRecordId, entityRecordIds.get(entityId));
+    private List<String> toStrings(final List<UUID> ids) {
+        final List<String> result = new ArrayList<String>(ids.size());
+        for (final UUID id : ids) {
+            result.add(id.toString());
+        }
+        return result;
+    }
+
+    // Insert the history row if needed and return the record id the audit entry should point to
+    private Long updateHistory(final Long entityRecordId, final M entity, final ChangeType changeType, final InternalCallContext context) {
         final TableName tableName = entity.getTableName();
 
         // Note: audit entries point to the history record id
-        final Long historyRecordId;
         if (tableName.getHistoryTableName() != null) {
-            historyRecordId = insertHistory(entityRecordId, entity, changeType, context);
+            return insertHistory(entityRecordId, entity, changeType, context);
         } else {
-            historyRecordId = entityRecordId;
+            return entityRecordId;
         }
+    }
 
-        insertAudits(tableName, entityRecordId, historyRecordId, changeType, context);
+    @SuppressWarnings("unchecked")
+    private List<M> retrieveEntitiesFromArguments(final Object[] args) {
+        for (final Object arg : args) {
+            // create calls
+            if (arg instanceof EntityModelDao) {
+                return ImmutableList.<M>of((M) arg);
+            }
+
+            // For Batch calls, the first argument will be of type List<EntityModelDao>
+            if (arg instanceof Iterable) {
+                final Builder<M> entities = new Builder<M>();
+                boolean allEntities = true;
+                for (final Object object : (Iterable) arg) {
+                    if (!(object instanceof EntityModelDao)) {
+                        allEntities = false;
+                        break;
+                    }
+                    entities.add((M) object);
+                }
+                if (allEntities) {
+                    return entities.build();
+                }
+            }
+        }
+        return null;
     }
 
-    private List<String> retrieveEntityIdsFromArguments(final Method method, final Object[] args) {
-        final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+    private List<String> retrieveEntityIdsFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
         int i = -1;
         for (final Object arg : args) {
             i++;
@@ -330,16 +481,10 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 }
             }
 
-            // Otherwise, use the first String argument, annotated with @Bind("id")
+            // Otherwise, use the first String argument, annotated with @Bind("id") or @BindUUID("id")
             // This is true for e.g. update calls
-            if (!(arg instanceof String)) {
-                continue;
-            }
-
-            for (final Annotation annotation : parameterAnnotations[i]) {
-                if (Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
-                    return ImmutableList.<String>of((String) arg);
-                }
+            if (i == methodMetadata.getIdArgumentIndex() && arg instanceof String) {
+                return ImmutableList.<String>of((String) arg);
             }
         }
 
@@ -363,7 +508,23 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     }
 
 
-    private InternalCallContext retrieveContextFromArguments(final Object[] args) {
+    private UUID retrieveUserTokenFromArguments(@Nullable final Object[] args) {
+        if (args != null) {
+            for (final Object arg : args) {
+                if (arg instanceof InternalCallContext) {
+                    return ((InternalCallContext) arg).getUserToken();
+                }
+            }
+        }
+        return null;
+    }
+
+    private InternalCallContext retrieveContextFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
+        final int index = methodMetadata.getCallContextArgumentIndex();
+        if (index >= 0 && args[index] != null) {
+            return (InternalCallContext) args[index];
+        }
+
         for (final Object arg : args) {
             if (!(arg instanceof InternalCallContext)) {
                 continue;
@@ -373,43 +534,71 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return null;
     }
 
+    private InternalTenantContext retrieveTenantContextFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
+        final int index = methodMetadata.getTenantContextArgumentIndex();
+        if (index >= 0 && args[index] != null) {
+            return (InternalTenantContext) args[index];
+        }
+
+        for (final Object arg : args) {
+            if (!(arg instanceof InternalTenantContext)) {
+                continue;
+            }
+            return (InternalTenantContext) arg;
+        }
+        return null;
+    }
+
     private Long insertHistory(final Long entityRecordId, final M entityModelDao, final ChangeType changeType, final InternalCallContext context) {
         final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entityModelDao, entityRecordId, changeType, clock.getUTCNow());
 
-        sqlDao.addHistoryFromTransaction(history, context);
+        final Long historyRecordId = sqlDao.addHistoryFromTransaction(history, context);
+        if (historyRecordId != null) {
+            return historyRecordId;
+        }
 
+        // No generated key returned by the driver
         final NonEntitySqlDao transactional = sqlDao.become(NonEntitySqlDao.class);
-
-        /* return transactional.getLastHistoryRecordId(entityRecordId, entityModelDao.getHistoryTableName().getTableName()); */
         return nonEntityDao.retrieveLastHistoryRecordIdFromTransaction(entityRecordId, entityModelDao.getHistoryTableName(), transactional);
     }
 
-    private void insertAudits(final TableName tableName, final Long entityRecordId, final Long historyRecordId, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
+    private void insertAudits(final TableName tableName, final List<Long> entityRecordIds, final List<Long> historyRecordIds, final ChangeType changeType, final InternalCallContext contextMaybeWithoutAccountRecordId) {
+        if (entityRecordIds.isEmpty()) {
+            return;
+        }
+
         final TableName destinationTableName = Objects.firstNonNull(tableName.getHistoryTableName(), tableName);
-        final EntityAudit audit = new EntityAudit(destinationTableName, historyRecordId, changeType, clock.getUTCNow());
+        final List<EntityAudit> audits = new LinkedList<EntityAudit>();
+        for (final Long historyRecordId : historyRecordIds) {
+            audits.add(new EntityAudit(destinationTableName, historyRecordId, changeType, clock.getUTCNow()));
+        }
 
-        final InternalCallContext context;
         // Populate the account record id when creating the account record
         if (TableName.ACCOUNT.equals(tableName) && ChangeType.INSERT.equals(changeType)) {
-            context = new InternalCallContext(contextMaybeWithoutAccountRecordId, entityRecordId);
+            for (int i = 0; i < audits.size(); i++) {
+                sqlDao.insertAuditFromTransaction(audits.get(i), new InternalCallContext(contextMaybeWithoutAccountRecordId, entityRecordIds.get(i)));
+            }
+        } else if (audits.size() == 1) {
+            sqlDao.insertAuditFromTransaction(audits.get(0), contextMaybeWithoutAccountRecordId);
         } else {
-            context = contextMaybeWithoutAccountRecordId;
+            sqlDao.insertAuditsFromTransaction(audits, contextMaybeWithoutAccountRecordId);
         }
-        sqlDao.insertAuditFromTransaction(audit, context);
 
         // We need to invalidate the caches. There is a small window of doom here where caches will be stale.
         // TODO Knowledge on how the key is constructed is also in AuditSqlDao
-        if (tableName.getHistoryTableName() != null) {
-            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
-                cacheController.remove(key);
-            }
-        } else {
-            final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
-            if (cacheController != null) {
-                final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
-                cacheController.remove(key);
+        for (final Long entityRecordId : entityRecordIds) {
+            if (tableName.getHistoryTableName() != null) {
+                final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG_VIA_HISTORY);
+                if (cacheController != null) {
+                    final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName.getHistoryTableName(), 1, tableName.getHistoryTableName(), 2, entityRecordId));
+                    cacheController.remove(key);
+                }
+            } else {
+                final CacheController<Object, Object> cacheController = cacheControllerDispatcher.getCacheController(CacheType.AUDIT_LOG);
+                if (cacheController != null) {
+                    final String key = buildCacheKey(ImmutableMap.<Integer, Object>of(0, tableName, 1, entityRecordId));
+                    cacheController.remove(key);
+                }
             }
         }
     }
@@ -417,15 +606,27 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     private String buildCacheKey(final Map<Integer, Object> keyPieces) {
         final StringBuilder cacheKey = new StringBuilder();
         for (int i = 0; i < keyPieces.size(); i++) {
-            // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
-            // Since the database engine may be case insensitive and we use arguments of the SQL method call
-            // to build the key, the key has to be case insensitive as well.
-            final String str = String.valueOf(keyPieces.get(i)).toUpperCase();
-            cacheKey.append(str);
-            if (i < keyPieces.size() - 1) {
-                cacheKey.append(CACHE_KEY_SEPARATOR);
-            }
+            appendCacheKeyPiece(cacheKey, keyPieces.get(i), i < keyPieces.size() - 1);
         }
         return cacheKey.toString();
     }
+
+    private String buildCacheKey(final int[] keyArgumentIndexes, final Object[] args) {
+        final StringBuilder cacheKey = new StringBuilder();
+        for (int i = 0; i < keyArgumentIndexes.length; i++) {
+            final Object keyPiece = keyArgumentIndexes[i] >= 0 ? args[keyArgumentIndexes[i]] : null;
+            appendCacheKeyPiece(cacheKey, keyPiece, i < keyArgumentIndexes.length - 1);
+        }
+        return cacheKey.toString();
+    }
+
+    private void appendCacheKeyPiece(final StringBuilder cacheKey, final Object keyPiece, final boolean appendSeparator) {
+        // To normalize the arguments and avoid casing issues, we make all pieces of the key uppercase.
+        // Since the database engine may be case insensitive and we use arguments of the SQL method call
+        // to build the key, the key has to be case insensitive as well.
+        cacheKey.append(String.valueOf(keyPiece).toUpperCase());
+        if (appendSeparator) {
+            cacheKey.append(CACHE_KEY_SEPARATOR);
+        }
+    }
 }
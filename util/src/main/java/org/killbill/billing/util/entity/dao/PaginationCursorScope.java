@@ -0,0 +1,121 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keyset pagination cursors of the current thread, for the duration of an API request (see DefaultPaginationSqlDaoHelper).
+ * <p/>
+ * Cursors are never kept server side: the client is handed the cursor of the next page (the id of the last entry of
+ * the current page) and sends it back along with the offset. Clients which don't (or which send a stale cursor) get
+ * limit/offset queries.
+ * <p/>
+ * Clients which already know the totals (from the first page) can also ask for the counts to be skipped: these
+ * queries scan the whole tenant table (or search results) and would otherwise be run for every page.
+ */
+public class PaginationCursorScope {
+
+    private static final ThreadLocal<PaginationCursorScope> scopePerThread = new ThreadLocal<PaginationCursorScope>();
+
+    private Long requestedOffset;
+    private String requestedLastId;
+    private Long nextOffset;
+    private String nextLastId;
+    private final boolean skipCounts;
+
+    private PaginationCursorScope(@Nullable final Long requestedOffset, @Nullable final String requestedLastId, final boolean skipCounts) {
+        this.requestedOffset = requestedOffset;
+        this.requestedLastId = requestedLastId;
+        this.skipCounts = skipCounts;
+    }
+
+    /**
+     * Open a scope for the current thread. Scopes don't nest: only the caller which opened it should close it.
+     *
+     * @param offset offset requested by the client
+     * @param lastId cursor sent back by the client for that offset, if any
+     * @return true if a scope was opened, false if one was already open
+     */
+    public static boolean open(@Nullable final Long offset, @Nullable final String lastId) {
+        return open(offset, lastId, false);
+    }
+
+    /**
+     * @param offset     offset requested by the client
+     * @param lastId     cursor sent back by the client for that offset, if any
+     * @param skipCounts whether the total and max number of records should not be computed
+     * @return true if a scope was opened, false if one was already open
+     */
+    public static boolean open(@Nullable final Long offset, @Nullable final String lastId, final boolean skipCounts) {
+        if (scopePerThread.get() != null) {
+            return false;
+        }
+        scopePerThread.set(new PaginationCursorScope(offset, lastId, skipCounts));
+        return true;
+    }
+
+    public static void close() {
+        scopePerThread.remove();
+    }
+
+    /**
+     * @param nextOffset offset of the next page
+     * @return the cursor to hand back to the client for that page, null if there is none
+     */
+    public static String getNextLastId(@Nullable final Long nextOffset) {
+        final PaginationCursorScope scope = scopePerThread.get();
+        if (scope == null || nextOffset == null || !nextOffset.equals(scope.nextOffset)) {
+            return null;
+        }
+        return scope.nextLastId;
+    }
+
+    /**
+     * @return true if the client asked for the counts to be skipped (the next page URI should then ask for it as well)
+     */
+    public static boolean isSkipCounts() {
+        final PaginationCursorScope scope = scopePerThread.get();
+        return scope != null && scope.skipCounts;
+    }
+
+    static boolean isOpen() {
+        return scopePerThread.get() != null;
+    }
+
+    // The cursor is only used once, for the first page retrieved at the requested offset
+    static String consumeRequestedLastId(final Long offset) {
+        final PaginationCursorScope scope = scopePerThread.get();
+        if (scope == null || scope.requestedLastId == null || !offset.equals(scope.requestedOffset)) {
+            return null;
+        }
+
+        final String lastId = scope.requestedLastId;
+        scope.requestedOffset = null;
+        scope.requestedLastId = null;
+        return lastId;
+    }
+
+    static void setNextCursor(final Long nextOffset, @Nullable final String nextLastId) {
+        final PaginationCursorScope scope = scopePerThread.get();
+        if (scope != null) {
+            scope.nextOffset = nextOffset;
+            scope.nextLastId = nextLastId;
+        }
+    }
+}
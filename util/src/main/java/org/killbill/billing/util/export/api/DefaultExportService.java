@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.export.api;
+
+import java.util.concurrent.ExecutorService;
+
+import javax.inject.Named;
+
+import org.killbill.billing.platform.api.LifecycleHandlerType;
+import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.glue.ExportModule;
+
+public class DefaultExportService implements ExportService {
+
+    public static final String EXPORT_SERVICE_NAME = "export-service";
+
+    private ExecutorService exportExecutor;
+
+    // The executor is only bound when tables are read in parallel
+    @com.google.inject.Inject(optional = true)
+    public void setExportExecutor(@Named(ExportModule.EXPORT_EXECUTOR_NAMED) final ExecutorService exportExecutor) {
+        this.exportExecutor = exportExecutor;
+    }
+
+    @Override
+    public String getName() {
+        return EXPORT_SERVICE_NAME;
+    }
+
+    @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
+    public void stop() {
+        if (exportExecutor != null) {
+            // Interrupts the readers of in-flight exports
+            exportExecutor.shutdownNow();
+        }
+    }
+}
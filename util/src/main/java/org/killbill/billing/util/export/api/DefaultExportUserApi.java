@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.export.api;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.UUID;
 
@@ -49,6 +50,13 @@ public class DefaultExportUserApi implements ExportUserApi {
 
     @Override
     public void exportDataAsCSVForAccount(final UUID accountId, final OutputStream out, final CallContext context) {
-        exportDataForAccount(accountId, new CSVExportOutputStream(out), context);
+        final CSVExportOutputStream csvOut = new CSVExportOutputStream(out);
+        exportDataForAccount(accountId, csvOut, context);
+        try {
+            // The rows are buffered by the CSV generator
+            csvOut.flush();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
@@ -18,74 +18,145 @@ package org.killbill.billing.util.export.dao;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
 
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema.ColumnType;
 
+/**
+ * Rows are written through a single CSV generator per table, which buffers the output: no intermediate byte[] is
+ * allocated per row, and rows can be written straight from a ResultSet (see DatabaseExportDao).
+ */
 public class CSVExportOutputStream extends OutputStream implements DatabaseExportOutputStream {
 
     private static final CsvMapper mapper = new CsvMapper();
 
+    static {
+        // To be mysqlimport friendly with datetime type
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        // The delegate is owned by the caller
+        mapper.getFactory().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        mapper.getFactory().configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+    }
+
     private final OutputStream delegate;
+    private final List<String> currentColumnNames = new ArrayList<String>();
 
     private String currentTableName;
     private CsvSchema currentCSVSchema;
-    private ObjectWriter writer;
-    private boolean shouldWriteHeader = false;
+    private JsonGenerator generator;
 
     public CSVExportOutputStream(final OutputStream delegate) {
         this.delegate = delegate;
-
-        // To be mysqlimport friendly with datetime type
-        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
     }
 
     @Override
     public void write(final int b) throws IOException {
+        flushGenerator();
         delegate.write(b);
     }
 
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        flushGenerator();
+        delegate.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushGenerator();
+        delegate.flush();
+    }
+
     @Override
     public String toString() {
+        try {
+            flushGenerator();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
         return delegate.toString();
     }
 
     @Override
     public void newTable(final String tableName, final List<ColumnInfo> columnsForTable) {
+        try {
+            closeGenerator();
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+
         currentTableName = tableName;
+        currentColumnNames.clear();
 
         final CsvSchema.Builder builder = CsvSchema.builder();
         for (final ColumnInfo columnInfo : columnsForTable) {
             builder.addColumn(columnInfo.getColumnName(), getColumnTypeFromSqlType(columnInfo.getDataType()));
+            currentColumnNames.add(columnInfo.getColumnName());
         }
         currentCSVSchema = builder.build();
-
-        writer = mapper.writer(currentCSVSchema);
-        shouldWriteHeader = true;
     }
 
     @Override
     public void write(final Map<String, Object> row) throws IOException {
-        final byte[] bytes;
-        if (shouldWriteHeader) {
-            // Write the header once (mapper.writer will clone the writer). Add a small marker in front of the header
-            // to easily split it
-            write(String.format("-- %s ", currentTableName).getBytes());
-            bytes = mapper.writer(currentCSVSchema.withHeader()).writeValueAsBytes(row);
-            shouldWriteHeader = false;
-        } else {
-            bytes = writer.writeValueAsBytes(row);
+        final JsonGenerator generator = getGenerator();
+        generator.writeStartObject();
+        for (final String columnName : currentColumnNames) {
+            generator.writeFieldName(columnName);
+            generator.writeObject(row.get(columnName));
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the current row of the ResultSet, whose columns are expected in the order given to newTable
+     *
+     * @param resultSet the ResultSet, positioned on the row to write
+     * @throws IOException
+     * @throws SQLException
+     */
+    public void write(final ResultSet resultSet) throws IOException, SQLException {
+        final JsonGenerator generator = getGenerator();
+        generator.writeStartObject();
+        for (int i = 0; i < currentColumnNames.size(); i++) {
+            generator.writeFieldName(currentColumnNames.get(i));
+            generator.writeObject(resultSet.getObject(i + 1));
         }
+        generator.writeEndObject();
+    }
+
+    private JsonGenerator getGenerator() throws IOException {
+        if (generator == null) {
+            // First row for that table: add a small marker in front of the header to easily split it
+            delegate.write(String.format("-- %s ", currentTableName).getBytes());
 
-        write(bytes);
+            generator = mapper.getFactory().createGenerator(delegate);
+            generator.setSchema(currentCSVSchema.withHeader());
+        }
+        return generator;
+    }
+
+    private void flushGenerator() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+    }
+
+    private void closeGenerator() throws IOException {
+        if (generator != null) {
+            generator.close();
+            generator = null;
+        }
     }
 
     private ColumnType getColumnTypeFromSqlType(final String dataType) {
@@ -16,36 +16,70 @@
 
 package org.killbill.billing.util.export.dao;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
-import org.skife.jdbi.v2.ResultIterator;
-import org.skife.jdbi.v2.tweak.HandleCallback;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.TransactionStatus;
 
 import org.killbill.billing.util.api.ColumnInfo;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.config.ExportConfig;
 import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.glue.ExportModule;
 import org.killbill.billing.util.validation.DefaultColumnInfo;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 
 @Singleton
 public class DatabaseExportDao {
 
+    // Size of the chunks handed over by the parallel table readers
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+    private static final byte[] END_OF_SECTION = new byte[0];
+
     private final DatabaseSchemaDao databaseSchemaDao;
     private final IDBI dbi;
+    private final ExportConfig exportConfig;
+
+    private ExecutorService exportExecutor;
 
     @Inject
     public DatabaseExportDao(final DatabaseSchemaDao databaseSchemaDao,
-                             final IDBI dbi) {
+                             final IDBI dbi,
+                             final ExportConfig exportConfig) {
         this.databaseSchemaDao = databaseSchemaDao;
         this.dbi = dbi;
+        this.exportConfig = exportConfig;
+    }
+
+    // The executor is only bound when tables should be read in parallel
+    @com.google.inject.Inject(optional = true)
+    public void setExportExecutor(@Named(ExportModule.EXPORT_EXECUTOR_NAMED) final ExecutorService exportExecutor) {
+        this.exportExecutor = exportExecutor;
     }
 
     public void exportDataForAccount(final DatabaseExportOutputStream out, final InternalTenantContext context) {
@@ -58,22 +92,95 @@ public class DatabaseExportDao {
             return;
         }
 
-        final List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
+        final List<List<ColumnInfo>> tables = new LinkedList<List<ColumnInfo>>();
+        List<ColumnInfo> columnsForTable = new ArrayList<ColumnInfo>();
         // The list of columns is ordered by table name first
         String lastSeenTableName = columns.get(0).getTableName();
         for (final ColumnInfo column : columns) {
             if (!column.getTableName().equals(lastSeenTableName)) {
-                exportDataForAccountAndTable(out, columnsForTable, context);
+                addTableIfAccountSpecific(tables, columnsForTable);
                 lastSeenTableName = column.getTableName();
-                columnsForTable.clear();
+                columnsForTable = new ArrayList<ColumnInfo>();
             }
             columnsForTable.add(column);
         }
-        exportDataForAccountAndTable(out, columnsForTable, context);
+        addTableIfAccountSpecific(tables, columnsForTable);
+
+        if (exportExecutor != null && out instanceof CSVExportOutputStream) {
+            exportDataForAccountInParallel((CSVExportOutputStream) out, tables, context);
+        } else {
+            for (final List<ColumnInfo> columnsForAccountTable : tables) {
+                exportDataForAccountAndTable(out, columnsForAccountTable, context);
+            }
+        }
     }
 
-    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out, final List<ColumnInfo> columnsForTable, final InternalTenantContext context) {
+    private void addTableIfAccountSpecific(final List<List<ColumnInfo>> tables, final List<ColumnInfo> columnsForTable) {
         boolean hasAccountRecordIdColumn = false;
+        for (final ColumnInfo column : columnsForTable) {
+            if (column.getColumnName().equals("account_record_id")) {
+                hasAccountRecordIdColumn = true;
+                break;
+            }
+        }
+
+        // Don't export non-account specific tables
+        if (hasAccountRecordIdColumn || TableName.ACCOUNT.getTableName().equals(columnsForTable.get(0).getTableName())) {
+            tables.add(columnsForTable);
+        }
+    }
+
+    // Each table is read by its own thread into a bounded section, the sections are written in the table order as they fill up.
+    // The section being written is always the oldest one submitted, so its reader is running (or done) and can't be starved.
+    private void exportDataForAccountInParallel(final CSVExportOutputStream out, final List<List<ColumnInfo>> tables, final InternalTenantContext context) {
+        final int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, exportConfig.getExportBufferSize()));
+        final int maxChunks = Math.max(1, exportConfig.getExportBufferSize() / chunkSize);
+
+        final List<SectionOutputStream> sections = new ArrayList<SectionOutputStream>(tables.size());
+        final List<Future<Void>> readers = new ArrayList<Future<Void>>(tables.size());
+        for (final List<ColumnInfo> columnsForTable : tables) {
+            final SectionOutputStream section = new SectionOutputStream(chunkSize, maxChunks);
+            sections.add(section);
+            readers.add(exportExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    try {
+                        final CSVExportOutputStream sectionOut = new CSVExportOutputStream(section);
+                        exportDataForAccountAndTable(sectionOut, columnsForTable, context);
+                        sectionOut.flush();
+                    } finally {
+                        // Always unblock the writer, which then checks how the reader completed
+                        section.end();
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < sections.size(); i++) {
+                byte[] chunk;
+                while ((chunk = sections.get(i).take()) != END_OF_SECTION) {
+                    out.write(chunk);
+                }
+                readers.get(i).get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // No-op for the completed readers, interrupts the ones waiting for room in their section
+            for (final Future<Void> reader : readers) {
+                reader.cancel(true);
+            }
+        }
+    }
+
+    private void exportDataForAccountAndTable(final DatabaseExportOutputStream out, final List<ColumnInfo> columnsForTable, final InternalTenantContext context) {
         boolean firstColumn = true;
         final StringBuilder queryBuilder = new StringBuilder("select ");
         for (final ColumnInfo column : columnsForTable) {
@@ -84,49 +191,130 @@ public class DatabaseExportDao {
             }
 
             queryBuilder.append(column.getColumnName());
-            if (column.getColumnName().equals("account_record_id")) {
-                hasAccountRecordIdColumn = true;
-            }
         }
 
         final String tableName = columnsForTable.get(0).getTableName();
         final boolean isAccountTable = TableName.ACCOUNT.getTableName().equals(tableName);
 
-        // Don't export non-account specific tables
-        if (!isAccountTable && !hasAccountRecordIdColumn) {
-            return;
-        }
-
         // Build the query - make sure to filter by account and tenant!
         queryBuilder.append(" from ")
                     .append(tableName);
         if (isAccountTable) {
-            queryBuilder.append(" where record_id = :accountRecordId and tenant_record_id = :tenantRecordId");
+            queryBuilder.append(" where record_id = ? and tenant_record_id = ?");
         } else {
-            queryBuilder.append(" where account_record_id = :accountRecordId and tenant_record_id = :tenantRecordId");
+            queryBuilder.append(" where account_record_id = ? and tenant_record_id = ?");
         }
 
         // Notify the stream that we're about to write data for a different table
         out.newTable(tableName, columnsForTable);
 
-        dbi.withHandle(new HandleCallback<Void>() {
+        // Run in a transaction as some drivers (e.g. PostgreSQL) only use a server-side cursor when auto-commit is off
+        dbi.inTransaction(new TransactionCallback<Void>() {
             @Override
-            public Void withHandle(final Handle handle) throws Exception {
-                final ResultIterator<Map<String, Object>> iterator = handle.createQuery(queryBuilder.toString())
-                                                                           .bind("accountRecordId", context.getAccountRecordId())
-                                                                           .bind("tenantRecordId", context.getTenantRecordId())
-                                                                           .iterator();
+            public Void inTransaction(final Handle handle, final TransactionStatus status) throws Exception {
+                final PreparedStatement statement = handle.getConnection().prepareStatement(queryBuilder.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
                 try {
-                    while (iterator.hasNext()) {
-                        final Map<String, Object> row = iterator.next();
-                        out.write(row);
+                    statement.setFetchSize(getFetchSize(handle));
+                    statement.setLong(1, context.getAccountRecordId());
+                    statement.setLong(2, context.getTenantRecordId());
+
+                    final ResultSet resultSet = statement.executeQuery();
+                    try {
+                        while (resultSet.next()) {
+                            if (out instanceof CSVExportOutputStream) {
+                                // Write the row straight from the ResultSet
+                                ((CSVExportOutputStream) out).write(resultSet);
+                            } else {
+                                out.write(toRow(resultSet));
+                            }
+                        }
+                    } finally {
+                        resultSet.close();
                     }
                 } finally {
-                    iterator.close();
+                    statement.close();
                 }
 
                 return null;
             }
         });
     }
+
+    private int getFetchSize(final Handle handle) throws SQLException {
+        // Connector/J buffers the full result set in memory unless asked to stream the rows
+        if (handle.getConnection().getMetaData().getDatabaseProductName().contains("MySQL")) {
+            return Integer.MIN_VALUE;
+        } else {
+            return exportConfig.getFetchSize();
+        }
+    }
+
+    // Rows of a table read by an export thread, handed over to the writing thread in chunks through a bounded queue
+    private static final class SectionOutputStream extends OutputStream {
+
+        private final int chunkSize;
+        private final BlockingQueue<byte[]> chunks;
+        private final ByteArrayOutputStream currentChunk;
+
+        private SectionOutputStream(final int chunkSize, final int maxChunks) {
+            this.chunkSize = chunkSize;
+            // One extra slot for the end marker
+            this.chunks = new ArrayBlockingQueue<byte[]>(maxChunks + 1);
+            this.currentChunk = new ByteArrayOutputStream(chunkSize);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            currentChunk.write(b);
+            if (currentChunk.size() >= chunkSize) {
+                handOver();
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            currentChunk.write(b, off, len);
+            if (currentChunk.size() >= chunkSize) {
+                handOver();
+            }
+        }
+
+        public void end() throws IOException {
+            handOver();
+            put(END_OF_SECTION);
+        }
+
+        public byte[] take() throws InterruptedException {
+            return chunks.take();
+        }
+
+        private void handOver() throws IOException {
+            if (currentChunk.size() == 0) {
+                return;
+            }
+            put(currentChunk.toByteArray());
+            currentChunk.reset();
+        }
+
+        private void put(final byte[] chunk) throws IOException {
+            try {
+                // Blocks until the writing thread catches up
+                chunks.put(chunk);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export aborted");
+            }
+        }
+    }
+
+    // Same format as the JDBI default mapper
+    private Map<String, Object> toRow(final ResultSet resultSet) throws SQLException {
+        final ResultSetMetaData metaData = resultSet.getMetaData();
+        final Map<String, Object> row = new HashMap<String, Object>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            final String label = metaData.getColumnLabel(i) != null ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+            row.put(label.toLowerCase(), resultSet.getObject(i));
+        }
+        return row;
+    }
 }
@@ -23,6 +23,7 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheControllerDispatcherProvider;
 import org.killbill.billing.util.cache.EhCacheCacheManagerProvider;
 import org.killbill.billing.util.config.CacheConfig;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoRequestCache;
 import org.skife.config.ConfigurationObjectFactory;
 
 import net.sf.ehcache.CacheManager;
@@ -43,5 +44,8 @@ public class CacheModule extends KillBillModule {
 
         // Kill Bill generic cache dispatcher
         bind(CacheControllerDispatcher.class).toProvider(CacheControllerDispatcherProvider.class).asEagerSingleton();
+
+        // Request scoped reads memoization, see EntitySqlDaoRequestCache
+        requestStaticInjection(EntitySqlDaoRequestCache.class);
     }
 }
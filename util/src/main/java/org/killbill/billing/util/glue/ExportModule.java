@@ -18,12 +18,26 @@
 
 package org.killbill.billing.util.glue;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import org.killbill.billing.platform.api.KillbillConfigSource;
 import org.killbill.billing.util.api.ExportUserApi;
+import org.killbill.billing.util.config.ExportConfig;
+import org.killbill.billing.util.export.api.DefaultExportService;
 import org.killbill.billing.util.export.api.DefaultExportUserApi;
+import org.killbill.billing.util.export.api.ExportService;
+import org.skife.config.ConfigurationObjectFactory;
+
+import com.google.inject.name.Names;
 
 public class ExportModule extends KillBillModule {
 
+    public static final String EXPORT_EXECUTOR_NAMED = "ExportExecutor";
+
+    private static final String EXPORT_THREAD_PREFIX = "Export-th-";
+
     public ExportModule(final KillbillConfigSource configSource) {
         super(configSource);
     }
@@ -32,8 +46,34 @@ public class ExportModule extends KillBillModule {
         bind(ExportUserApi.class).to(DefaultExportUserApi.class).asEagerSingleton();
     }
 
+    protected void installExportService() {
+        // Shuts down the export executor
+        bind(ExportService.class).to(DefaultExportService.class).asEagerSingleton();
+    }
+
+    protected void installExportExecutor() {
+        final ExportConfig exportConfig = new ConfigurationObjectFactory(skifeConfigSource).build(ExportConfig.class);
+        bind(ExportConfig.class).toInstance(exportConfig);
+
+        // Tables are read sequentially unless configured otherwise
+        if (exportConfig.getExportThreadNb() > 1) {
+            final ExecutorService exportExecutorService = Executors.newFixedThreadPool(exportConfig.getExportThreadNb(), new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread th = new Thread(r);
+                    th.setName(EXPORT_THREAD_PREFIX + th.getId());
+                    return th;
+                }
+            });
+            bind(ExecutorService.class).annotatedWith(Names.named(EXPORT_EXECUTOR_NAMED)).toInstance(exportExecutorService);
+        }
+    }
+
     @Override
     protected void configure() {
+        installExportExecutor();
         installUserApi();
+        installExportService();
     }
 }
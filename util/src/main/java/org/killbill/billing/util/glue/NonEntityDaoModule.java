@@ -19,8 +19,11 @@
 package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.ReadReplicaConfig;
+import org.killbill.billing.util.dao.DBRouter;
 import org.killbill.billing.util.dao.DefaultNonEntityDao;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class NonEntityDaoModule extends KillBillModule {
 
@@ -31,5 +34,9 @@ public class NonEntityDaoModule extends KillBillModule {
     @Override
     protected void configure() {
         bind(NonEntityDao.class).to(DefaultNonEntityDao.class).asEagerSingleton();
+
+        final ReadReplicaConfig readReplicaConfig = new ConfigurationObjectFactory(skifeConfigSource).build(ReadReplicaConfig.class);
+        bind(ReadReplicaConfig.class).toInstance(readReplicaConfig);
+        bind(DBRouter.class).asEagerSingleton();
     }
 }
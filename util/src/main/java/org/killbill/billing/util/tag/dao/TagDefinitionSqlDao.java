@@ -27,6 +27,7 @@ import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -41,11 +42,11 @@ public interface TagDefinitionSqlDao extends EntitySqlDao<TagDefinitionModelDao,
 
     @SqlUpdate
     @Audited(ChangeType.DELETE)
-    public void markTagDefinitionAsDeleted(@Bind("id") final String definitionId,
+    public void markTagDefinitionAsDeleted(@BindUUID("id") final String definitionId,
                                            @BindBean final InternalCallContext context);
 
     @SqlQuery
-    public int tagDefinitionUsageCount(@Bind("id") final String definitionId,
+    public int tagDefinitionUsageCount(@BindUUID("id") final String definitionId,
                                        @BindBean final InternalTenantContext context);
 
     @SqlQuery
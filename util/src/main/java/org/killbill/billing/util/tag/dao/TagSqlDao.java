@@ -28,6 +28,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.BindUUID;
 import org.killbill.billing.util.entity.dao.Audited;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoStringTemplate;
@@ -38,7 +39,7 @@ public interface TagSqlDao extends EntitySqlDao<TagModelDao, Tag> {
 
     @SqlUpdate
     @Audited(ChangeType.DELETE)
-    void markTagAsDeleted(@Bind("id") String tagId,
+    void markTagAsDeleted(@BindUUID("id") String tagId,
                           @BindBean InternalCallContext context);
 
     @SqlQuery
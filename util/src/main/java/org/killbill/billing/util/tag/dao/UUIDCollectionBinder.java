@@ -27,11 +27,17 @@ import org.skife.jdbi.v2.sqlobject.Binder;
 import org.skife.jdbi.v2.sqlobject.BinderFactory;
 import org.skife.jdbi.v2.sqlobject.BindingAnnotation;
 
+import org.killbill.billing.util.dao.BinaryUUIDs;
+
 
 @BindingAnnotation(UUIDCollectionBinder.UUIDCollectionBinderFactory.class)
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.PARAMETER})
 public @interface UUIDCollectionBinder {
+
+    // Name of the template attribute holding the ids
+    String value() default "tag_definition_ids";
+
     public static class UUIDCollectionBinderFactory implements BinderFactory {
         @Override
         public Binder build(Annotation annotation) {
@@ -39,11 +45,11 @@ public @interface UUIDCollectionBinder {
 
                 @Override
                 public void bind(SQLStatement<?> query, UUIDCollectionBinder bind, Collection<String> ids) {
-                    query.define("tag_definition_ids", ids);
+                    query.define(bind.value(), ids);
 
                     int idx = 0;
                     for (String id : ids) {
-                        query.bind("id_" + idx, id);
+                        query.bind("id_" + idx, BinaryUUIDs.toBindableId(id));
                         idx++;
                     }
 
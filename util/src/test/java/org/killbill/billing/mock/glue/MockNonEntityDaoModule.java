@@ -20,8 +20,10 @@ package org.killbill.billing.mock.glue;
 
 import org.killbill.billing.dao.MockNonEntityDao;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.ReadReplicaConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class MockNonEntityDaoModule extends KillBillModule {
 
@@ -32,5 +34,9 @@ public class MockNonEntityDaoModule extends KillBillModule {
     @Override
     protected void configure() {
         bind(NonEntityDao.class).to(MockNonEntityDao.class);
+
+        final ReadReplicaConfig readReplicaConfig = new ConfigurationObjectFactory(skifeConfigSource).build(ReadReplicaConfig.class);
+        // For the DBRouter of the DAOs not mocked
+        bind(ReadReplicaConfig.class).toInstance(readReplicaConfig);
     }
 }
@@ -93,4 +93,40 @@ public class TestCache extends UtilTestSuiteWithEmbeddedDB {
 
         Assert.assertEquals(getCacheSize(), 1);
     }
+
+    @Test(groups = "slow")
+    public void testCacheMissReporting() throws Exception {
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+        final TagModelDao tag = new TagModelDao(clock.getUTCNow(), UUID.randomUUID(), UUID.randomUUID(), ObjectType.TAG);
+        insertTag(tag);
+
+        final CacheController<Object, Object> cache = controlCacheDispatcher.getCacheController(CacheType.RECORD_ID);
+
+        // The loader flags the argument of the lookups it serves
+        final CacheLoaderArgument firstLookup = new CacheLoaderArgument(ObjectType.TAG);
+        Assert.assertNotNull(cache.get(tag.getId().toString().toUpperCase(), firstLookup));
+        Assert.assertTrue(firstLookup.isLoaded());
+
+        final CacheLoaderArgument secondLookup = new CacheLoaderArgument(ObjectType.TAG);
+        Assert.assertNotNull(cache.get(tag.getId().toString().toUpperCase(), secondLookup));
+        Assert.assertFalse(secondLookup.isLoaded());
+    }
+
+    @Test(groups = "slow")
+    public void testCacheObjectId() throws Exception {
+        this.transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+        final TagModelDao tag = new TagModelDao(clock.getUTCNow(), UUID.randomUUID(), UUID.randomUUID(), ObjectType.TAG);
+        insertTag(tag);
+        final Long tagRecordId = getTagRecordId(tag.getId());
+
+        final CacheController<Object, Object> cache = controlCacheDispatcher.getCacheController(CacheType.OBJECT_ID);
+        Assert.assertEquals(cache.size(), 0);
+
+        Assert.assertEquals(nonEntityDao.retrieveIdFromObject(tagRecordId, ObjectType.TAG, cache), tag.getId());
+        Assert.assertEquals(cache.size(), 1);
+
+        // Served from the cache
+        Assert.assertEquals(nonEntityDao.retrieveIdFromObject(tagRecordId, ObjectType.TAG, cache), tag.getId());
+        Assert.assertEquals(cache.size(), 1);
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestRecordIdCacheController extends UtilTestSuiteNoDB {
+
+    private static final CacheLoaderArgument ARGUMENT = new CacheLoaderArgument(ObjectType.ACCOUNT);
+
+    @Test(groups = "fast")
+    public void testLoadAndHit() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        final RecordIdCacheController cache = new RecordIdCacheController(cacheLoader, 100, false);
+
+        final UUID objectId = UUID.randomUUID();
+        cacheLoader.recordIds.put(objectId, 12L);
+
+        Assert.assertEquals(cache.get(objectId, ARGUMENT), 12L);
+        Assert.assertEquals(cache.get(objectId, ARGUMENT), 12L);
+        // String keys, whatever their case, map to the same entry
+        Assert.assertEquals(cache.get(objectId.toString().toUpperCase(), ARGUMENT), 12L);
+
+        Assert.assertEquals(cacheLoader.nbLoads, 1);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.getMissCount(), 1);
+        Assert.assertEquals(cache.getHitCount(), 2);
+
+        // Unknown objects aren't cached
+        final UUID unknownObjectId = UUID.randomUUID();
+        Assert.assertNull(cache.get(unknownObjectId, ARGUMENT));
+        Assert.assertNull(cache.get(unknownObjectId, ARGUMENT));
+        Assert.assertEquals(cacheLoader.nbLoads, 3);
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testRemove() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        final RecordIdCacheController cache = new RecordIdCacheController(cacheLoader, 1000, true);
+
+        final List<UUID> objectIds = new LinkedList<UUID>();
+        for (long i = 0; i < 500; i++) {
+            final UUID objectId = UUID.randomUUID();
+            cacheLoader.recordIds.put(objectId, i);
+            objectIds.add(objectId);
+            Assert.assertEquals(cache.get(objectId, ARGUMENT), i);
+        }
+        Assert.assertEquals(cache.size(), 500);
+
+        // Remove every other entry, the remaining ones must still be found despite the shifted probe sequences
+        boolean remove = true;
+        for (final UUID objectId : objectIds) {
+            if (remove) {
+                Assert.assertTrue(cache.remove(objectId));
+                Assert.assertFalse(cache.remove(objectId));
+            }
+            remove = !remove;
+        }
+        Assert.assertEquals(cache.size(), 250);
+
+        final int nbLoads = cacheLoader.nbLoads;
+        remove = true;
+        for (final UUID objectId : objectIds) {
+            if (!remove) {
+                Assert.assertEquals(cache.get(objectId, ARGUMENT), cacheLoader.recordIds.get(objectId));
+            }
+            remove = !remove;
+        }
+        Assert.assertEquals(cacheLoader.nbLoads, nbLoads);
+
+        cache.removeAll();
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testEviction() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        final RecordIdCacheController cache = new RecordIdCacheController(cacheLoader, 160, false);
+
+        for (long i = 0; i < 10000; i++) {
+            final UUID objectId = UUID.randomUUID();
+            cacheLoader.recordIds.put(objectId, i);
+            Assert.assertEquals(cache.get(objectId, ARGUMENT), i);
+        }
+
+        Assert.assertTrue(cache.size() <= 160);
+        Assert.assertEquals(cache.getEvictionCount(), 10000 - cache.size());
+        Assert.assertEquals(cache.getMissCount(), 10000);
+    }
+
+    @Test(groups = "fast")
+    public void testMetrics() throws Exception {
+        final MapCacheLoader cacheLoader = new MapCacheLoader();
+        final RecordIdCacheController cache = new RecordIdCacheController(cacheLoader, 16, false);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        cache.registerMetrics(metricRegistry, "record-id");
+
+        for (long i = 0; i < 100; i++) {
+            final UUID objectId = UUID.randomUUID();
+            cacheLoader.recordIds.put(objectId, i);
+            Assert.assertEquals(cache.get(objectId, ARGUMENT), i);
+            Assert.assertEquals(cache.get(objectId, ARGUMENT), i);
+        }
+
+        final String prefix = RecordIdCacheController.class.getName() + ".record-id.";
+        Assert.assertEquals(metricRegistry.getGauges().get(prefix + "hits").getValue(), 100L);
+        Assert.assertEquals(metricRegistry.getGauges().get(prefix + "misses").getValue(), 100L);
+        Assert.assertEquals(metricRegistry.getGauges().get(prefix + "evictions").getValue(), cache.getEvictionCount());
+        Assert.assertEquals(metricRegistry.getGauges().get(prefix + "size").getValue(), cache.size());
+        Assert.assertEquals(cache.getEvictionCount(), 100 - cache.size());
+
+        // A new controller for the same cache replaces the gauges
+        final RecordIdCacheController newCache = new RecordIdCacheController(cacheLoader, 16, false);
+        newCache.registerMetrics(metricRegistry, "record-id");
+        Assert.assertEquals(metricRegistry.getGauges().get(prefix + "hits").getValue(), 0L);
+    }
+
+    private static final class MapCacheLoader extends BaseCacheLoader {
+
+        private final Map<UUID, Long> recordIds = new HashMap<UUID, Long>();
+        private int nbLoads = 0;
+
+        private MapCacheLoader() {
+            super(null, null);
+            init();
+        }
+
+        @Override
+        public CacheType getCacheType() {
+            return CacheType.RECORD_ID;
+        }
+
+        @Override
+        public Object load(final Object key, final Object argument) {
+            checkCacheLoaderStatus();
+            nbLoads++;
+            return recordIds.get(toObjectId(key));
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.ObjectType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.PreparedBatch;
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.ResultSetMapper;
+
+import com.google.common.base.CaseFormat;
+
+/**
+ * Cost of mapping a multi-thousand rows ResultSet (H2, in memory): with the former, fully reflective, LowerToCamelBeanMapper
+ * (bean introspection per query, metadata lookups and type dispatch per column and per row) vs with the current one.
+ * Both run the same query: the difference is the mapping. As with LowerToCamelBeanMapperFactory, a mapper is created per query.
+ * <p/>
+ * Run it with: mvn -pl util test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.killbill.billing.util.dao.LowerToCamelBeanMapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LowerToCamelBeanMapperBenchmark {
+
+    private static final String QUERY = "select id, account_id, object_type, name, amount, is_active, effective_date, created_by, created_date, updated_date, record_id, tenant_record_id from benchmark_models";
+
+    @Param({"5000"})
+    private int nbRows;
+
+    private Handle handle;
+
+    @Setup
+    public void setUp() {
+        final DBI dbi = new DBI("jdbc:h2:mem:mapper_benchmark_" + UUID.randomUUID() + ";MODE=MYSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        handle = dbi.open();
+        handle.execute("create table benchmark_models (record_id int not null auto_increment, id char(36) not null, account_id char(36) not null, " +
+                       "object_type varchar(30) not null, name varchar(50), amount decimal(15,9), is_active bool not null, effective_date date, " +
+                       "created_by varchar(50) not null, created_date datetime not null, updated_date datetime, tenant_record_id int not null, primary key(record_id))");
+
+        final UUID accountId = UUID.randomUUID();
+        final DateTime createdDate = new DateTime(2014, 1, 1, 0, 0, DateTimeZone.UTC);
+        final PreparedBatch batch = handle.prepareBatch("insert into benchmark_models (id, account_id, object_type, name, amount, is_active, effective_date, created_by, created_date, updated_date, tenant_record_id) " +
+                                                        "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        for (int i = 0; i < nbRows; i++) {
+            batch.add(UUID.randomUUID().toString(), accountId.toString(), ObjectType.INVOICE_ITEM.toString(), "item-" + i, new BigDecimal("12.5"), i % 2 == 0,
+                      new Date(createdDate.plusDays(i).getMillis()), "benchmark", new Timestamp(createdDate.plusMinutes(i).getMillis()),
+                      i % 3 == 0 ? null : new Timestamp(createdDate.plusHours(i).getMillis()), 1);
+        }
+        batch.execute();
+    }
+
+    @TearDown
+    public void tearDown() {
+        handle.close();
+    }
+
+    @Benchmark
+    public List<BenchmarkModel> reflectiveMapper() {
+        return handle.createQuery(QUERY).map(new ReflectiveLowerToCamelBeanMapper<BenchmarkModel>(BenchmarkModel.class)).list();
+    }
+
+    @Benchmark
+    public List<BenchmarkModel> lowerToCamelBeanMapper() {
+        return handle.createQuery(QUERY).map(new LowerToCamelBeanMapper<BenchmarkModel>(BenchmarkModel.class)).list();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(LowerToCamelBeanMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    // LowerToCamelBeanMapper before the property and column mappings were resolved once (error handling trimmed)
+    private static final class ReflectiveLowerToCamelBeanMapper<T> implements ResultSetMapper<T> {
+
+        private final Class<T> type;
+        private final Map<String, PropertyDescriptor> properties = new HashMap<String, PropertyDescriptor>();
+
+        private ReflectiveLowerToCamelBeanMapper(final Class<T> type) {
+            this.type = type;
+            try {
+                final BeanInfo info = Introspector.getBeanInfo(type);
+                for (final PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+                    properties.put(CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, descriptor.getName()).toLowerCase(), descriptor);
+                }
+            } catch (IntrospectionException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        @Override
+        public T map(final int row, final ResultSet rs, final StatementContext ctx) throws SQLException {
+            final T bean;
+            try {
+                bean = type.newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e);
+            }
+
+            final ResultSetMetaData metadata = rs.getMetaData();
+            for (int i = 1; i <= metadata.getColumnCount(); ++i) {
+                final String name = metadata.getColumnLabel(i).toLowerCase();
+                final PropertyDescriptor descriptor = properties.get(name);
+                if (descriptor == null) {
+                    continue;
+                }
+
+                final Class<?> type = descriptor.getPropertyType();
+                Object value;
+                if (type.isAssignableFrom(Boolean.class) || type.isAssignableFrom(boolean.class)) {
+                    value = rs.getBoolean(i);
+                } else if (type.isAssignableFrom(Byte.class) || type.isAssignableFrom(byte.class)) {
+                    value = rs.getByte(i);
+                } else if (type.isAssignableFrom(Short.class) || type.isAssignableFrom(short.class)) {
+                    value = rs.getShort(i);
+                } else if (type.isAssignableFrom(Integer.class) || type.isAssignableFrom(int.class)) {
+                    value = rs.getInt(i);
+                } else if (type.isAssignableFrom(Long.class) || type.isAssignableFrom(long.class)) {
+                    value = rs.getLong(i);
+                } else if (type.isAssignableFrom(Float.class) || type.isAssignableFrom(float.class)) {
+                    value = rs.getFloat(i);
+                } else if (type.isAssignableFrom(Double.class) || type.isAssignableFrom(double.class)) {
+                    value = rs.getDouble(i);
+                } else if (type.isAssignableFrom(BigDecimal.class)) {
+                    value = rs.getBigDecimal(i);
+                } else if (type.isAssignableFrom(DateTime.class)) {
+                    final Timestamp timestamp = rs.getTimestamp(i);
+                    value = timestamp == null ? null : new DateTime(timestamp).toDateTime(DateTimeZone.UTC);
+                } else if (type.isAssignableFrom(LocalDate.class)) {
+                    final Date date = rs.getDate(i);
+                    value = date == null ? null : new LocalDate(date, DateTimeZone.UTC);
+                } else if (type.isAssignableFrom(String.class)) {
+                    value = rs.getString(i);
+                } else if (type.isAssignableFrom(UUID.class)) {
+                    final String uuidString = rs.getString(i);
+                    value = uuidString == null ? null : UUID.fromString(uuidString);
+                } else if (type.isEnum()) {
+                    final String enumString = rs.getString(i);
+                    //noinspection unchecked
+                    value = enumString == null ? null : Enum.valueOf((Class<Enum>) type, enumString);
+                } else {
+                    value = rs.getObject(i);
+                }
+
+                if (rs.wasNull() && !type.isPrimitive()) {
+                    value = null;
+                }
+
+                try {
+                    if (descriptor.getWriteMethod() != null) {
+                        descriptor.getWriteMethod().invoke(bean, value);
+                    } else {
+                        final Field field = bean.getClass().getDeclaredField(CaseFormat.LOWER_UNDERSCORE.to(CaseFormat.LOWER_CAMEL, name));
+                        field.setAccessible(true);
+                        field.set(bean, value);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }
+
+            return bean;
+        }
+    }
+
+    public static class BenchmarkModel {
+
+        private UUID id;
+        private UUID accountId;
+        private ObjectType objectType;
+        private String name;
+        private BigDecimal amount;
+        private boolean isActive;
+        private LocalDate effectiveDate;
+        private String createdBy;
+        private DateTime createdDate;
+        private DateTime updatedDate;
+        private Long recordId;
+        private Long tenantRecordId;
+
+        public UUID getId() {
+            return id;
+        }
+
+        public void setId(final UUID id) {
+            this.id = id;
+        }
+
+        public UUID getAccountId() {
+            return accountId;
+        }
+
+        public void setAccountId(final UUID accountId) {
+            this.accountId = accountId;
+        }
+
+        public ObjectType getObjectType() {
+            return objectType;
+        }
+
+        public void setObjectType(final ObjectType objectType) {
+            this.objectType = objectType;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(final String name) {
+            this.name = name;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(final BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        // No setter (as for some model daos): set through the field
+        public boolean getIsActive() {
+            return isActive;
+        }
+
+        public LocalDate getEffectiveDate() {
+            return effectiveDate;
+        }
+
+        public void setEffectiveDate(final LocalDate effectiveDate) {
+            this.effectiveDate = effectiveDate;
+        }
+
+        public String getCreatedBy() {
+            return createdBy;
+        }
+
+        public void setCreatedBy(final String createdBy) {
+            this.createdBy = createdBy;
+        }
+
+        public DateTime getCreatedDate() {
+            return createdDate;
+        }
+
+        public void setCreatedDate(final DateTime createdDate) {
+            this.createdDate = createdDate;
+        }
+
+        public DateTime getUpdatedDate() {
+            return updatedDate;
+        }
+
+        public void setUpdatedDate(final DateTime updatedDate) {
+            this.updatedDate = updatedDate;
+        }
+
+        public Long getRecordId() {
+            return recordId;
+        }
+
+        public void setRecordId(final Long recordId) {
+            this.recordId = recordId;
+        }
+
+        public Long getTenantRecordId() {
+            return tenantRecordId;
+        }
+
+        public void setTenantRecordId(final Long tenantRecordId) {
+            this.tenantRecordId = tenantRecordId;
+        }
+    }
+}
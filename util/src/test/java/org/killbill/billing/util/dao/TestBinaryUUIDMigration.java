@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.config.UUIDStorageConfig;
+import org.killbill.commons.embeddeddb.EmbeddedDB.DBEngine;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+public class TestBinaryUUIDMigration extends UtilTestSuiteWithEmbeddedDB {
+
+    @Test(groups = "slow")
+    public void testMigration() throws Exception {
+        // The migration relies on MySQL's information_schema and unhex
+        if (!DBEngine.MYSQL.equals(helper.getDBEngine()) || Boolean.valueOf(System.getProperty(UUIDStorageConfig.BINARY_UUIDS_PROPERTY, "false"))) {
+            throw new SkipException("Requires the default char(36) storage on MySQL");
+        }
+
+        final UUID accountId = UUID.randomUUID();
+        final UUID parentId = UUID.randomUUID();
+        final UUID userToken = UUID.randomUUID();
+
+        // Run it in a scratch schema, as all the char(36) columns of the current schema are converted
+        final String schemaName = "kb_uuid_migration_" + System.currentTimeMillis();
+        final Connection connection = dataSource.getConnection();
+        final String originalCatalog = connection.getCatalog();
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute("create database " + schemaName);
+            connection.setCatalog(schemaName);
+
+            statement.execute("create table accounts (record_id int(11) unsigned not null auto_increment, id char(36) not null, parent_account_id char(36) null, " +
+                              "currency char(3) null, primary key(record_id))");
+            statement.execute("create table bus_events (record_id int(11) unsigned not null auto_increment, user_token char(36), primary key(record_id))");
+            statement.execute("create table notifications (record_id int(11) unsigned not null auto_increment, user_token char(36), future_user_token char(36), " +
+                              "primary key(record_id))");
+            statement.execute("insert into accounts (id, parent_account_id, currency) values ('" + accountId + "', '" + parentId + "', 'USD')");
+            statement.execute("insert into accounts (id, parent_account_id, currency) values ('" + UUID.randomUUID() + "', null, 'EUR')");
+            statement.execute("insert into bus_events (user_token) values ('" + userToken + "')");
+            statement.execute("insert into notifications (user_token, future_user_token) values ('" + userToken + "', '" + userToken + "')");
+
+            new BinaryUUIDMigration(connection).migrate();
+
+            final ResultSet accounts = statement.executeQuery("select id, parent_account_id, currency from accounts order by record_id");
+            Assert.assertTrue(accounts.next());
+            Assert.assertEquals(accounts.getBytes(1), BinaryUUIDs.toBytes(accountId));
+            Assert.assertEquals(accounts.getBytes(2), BinaryUUIDs.toBytes(parentId));
+            Assert.assertEquals(accounts.getString(3), "USD");
+            Assert.assertTrue(accounts.next());
+            Assert.assertNull(accounts.getObject(2));
+            Assert.assertFalse(accounts.next());
+            accounts.close();
+
+            // The queue tables are left as is
+            final ResultSet busEvents = statement.executeQuery("select user_token from bus_events");
+            Assert.assertTrue(busEvents.next());
+            Assert.assertEquals(busEvents.getString(1), userToken.toString());
+            busEvents.close();
+            final ResultSet notifications = statement.executeQuery("select user_token, future_user_token from notifications");
+            Assert.assertTrue(notifications.next());
+            Assert.assertEquals(notifications.getString(1), userToken.toString());
+            Assert.assertEquals(notifications.getString(2), userToken.toString());
+            notifications.close();
+
+            final ResultSet columnTypes = statement.executeQuery("select table_name, column_name, column_type from information_schema.columns" +
+                                                                " where table_schema = database() and column_name in ('id', 'parent_account_id', 'user_token', 'future_user_token')");
+            int nbColumns = 0;
+            while (columnTypes.next()) {
+                final String expectedType = "accounts".equals(columnTypes.getString(1)) ? "binary(16)" : "char(36)";
+                Assert.assertEquals(columnTypes.getString(3), expectedType, columnTypes.getString(1) + "." + columnTypes.getString(2));
+                nbColumns++;
+            }
+            columnTypes.close();
+            Assert.assertEquals(nbColumns, 5);
+        } finally {
+            statement.execute("drop database if exists " + schemaName);
+            statement.close();
+            connection.setCatalog(originalCatalog);
+            connection.close();
+        }
+    }
+}
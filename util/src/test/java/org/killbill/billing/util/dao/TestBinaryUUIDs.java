@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.util.UUID;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBinaryUUIDs extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testRoundTrip() throws Exception {
+        final UUID uuid = UUID.randomUUID();
+        final byte[] bytes = BinaryUUIDs.toBytes(uuid);
+        Assert.assertEquals(bytes.length, 16);
+        Assert.assertEquals(BinaryUUIDs.fromBytes(bytes), uuid);
+    }
+
+    @Test(groups = "fast")
+    public void testFromColumnValue() throws Exception {
+        final UUID uuid = UUID.randomUUID();
+        Assert.assertNull(BinaryUUIDs.fromColumnValue(null));
+        Assert.assertEquals(BinaryUUIDs.fromColumnValue(uuid.toString()), uuid);
+        Assert.assertEquals(BinaryUUIDs.fromColumnValue(BinaryUUIDs.toBytes(uuid)), uuid);
+        Assert.assertEquals(BinaryUUIDs.fromColumnValue(uuid), uuid);
+    }
+
+    @Test(groups = "fast")
+    public void testToBindableId() throws Exception {
+        final UUID uuid = UUID.randomUUID();
+        Assert.assertNull(BinaryUUIDs.toBindableId(null));
+        Assert.assertEquals(BinaryUUIDs.toBindableId(uuid.toString()), uuid);
+        Assert.assertEquals(BinaryUUIDs.toBindableId("not-an-id"), "not-an-id");
+    }
+
+    @Test(groups = "fast")
+    public void testToBinaryDDL() throws Exception {
+        final String ddl = "CREATE TABLE accounts (\n" +
+                           "    id char(36) NOT NULL,\n" +
+                           "    external_key varchar(128) NULL,\n" +
+                           "    parent_id CHAR(36) NULL,\n" +
+                           "    currency varchar(36) NULL\n" +
+                           ");";
+        Assert.assertEquals(BinaryUUIDs.toBinaryDDL(ddl), "CREATE TABLE accounts (\n" +
+                                                          "    id binary(16) NOT NULL,\n" +
+                                                          "    external_key varchar(128) NULL,\n" +
+                                                          "    parent_id binary(16) NULL,\n" +
+                                                          "    currency varchar(36) NULL\n" +
+                                                          ");");
+    }
+
+    @Test(groups = "fast")
+    public void testToBinaryDDLWithQueueTables() throws Exception {
+        final String ddl = "DROP TABLE IF EXISTS bus_events;\n" +
+                           "CREATE TABLE bus_events (\n" +
+                           "    user_token char(36)\n" +
+                           ");\n" +
+                           "CREATE TABLE `notifications_history` (\n" +
+                           "    user_token char(36),\n" +
+                           "    future_user_token char(36)\n" +
+                           ");\n" +
+                           "CREATE TABLE bundles (\n" +
+                           "    id char(36) NOT NULL\n" +
+                           ");\n";
+        Assert.assertEquals(BinaryUUIDs.toBinaryDDL(ddl), "DROP TABLE IF EXISTS bus_events;\n" +
+                                                          "CREATE TABLE bus_events (\n" +
+                                                          "    user_token char(36)\n" +
+                                                          ");\n" +
+                                                          "CREATE TABLE `notifications_history` (\n" +
+                                                          "    user_token char(36),\n" +
+                                                          "    future_user_token char(36)\n" +
+                                                          ");\n" +
+                                                          "CREATE TABLE bundles (\n" +
+                                                          "    id binary(16) NOT NULL\n" +
+                                                          ");\n");
+    }
+}
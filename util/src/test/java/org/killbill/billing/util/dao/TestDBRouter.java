@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.config.ReadReplicaConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.skife.jdbi.v2.IDBI;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestDBRouter extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testWithoutReplica() throws Exception {
+        final IDBI dbi = Mockito.mock(IDBI.class);
+        final DBRouter dbRouter = new DBRouter(dbi, createConfig(new TimeSpan(5, TimeUnit.SECONDS)), clock);
+
+        Assert.assertSame(dbRouter.getDBI(false, internalCallContext), dbi);
+        Assert.assertSame(dbRouter.getDBI(true, internalCallContext), dbi);
+    }
+
+    @Test(groups = "fast")
+    public void testReadYourWrites() throws Exception {
+        final IDBI dbi = Mockito.mock(IDBI.class);
+        final IDBI roDbi = Mockito.mock(IDBI.class);
+        final DBRouter dbRouter = new DBRouter(dbi, createConfig(new TimeSpan(1, TimeUnit.HOURS)), clock);
+        dbRouter.setReadOnlyDBI(roDbi);
+
+        Assert.assertSame(dbRouter.getDBI(false, internalCallContext), dbi);
+        Assert.assertSame(dbRouter.getDBI(true, internalCallContext), roDbi);
+
+        // Once the user token has written, its reads go to the primary
+        dbRouter.onWrite(internalCallContext.getUserToken());
+        Assert.assertSame(dbRouter.getDBI(true, internalCallContext), dbi);
+        Assert.assertSame(dbRouter.getPrimaryDBI(), dbi);
+
+        // Whichever thread they are made from (e.g. bus handlers)
+        final IDBI[] otherThreadDbi = new IDBI[1];
+        final Thread otherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                otherThreadDbi[0] = dbRouter.getDBI(true, internalCallContext);
+            }
+        });
+        otherThread.start();
+        otherThread.join();
+        Assert.assertSame(otherThreadDbi[0], dbi);
+
+        // Other user tokens aren't affected, even on the same thread
+        Assert.assertSame(dbRouter.getDBI(true, createCallContext(UUID.randomUUID())), roDbi);
+        // Neither are reads without user token
+        Assert.assertSame(dbRouter.getDBI(true, new InternalTenantContext(internalCallContext.getTenantRecordId(), internalCallContext.getAccountRecordId())), roDbi);
+        Assert.assertSame(dbRouter.getDBI(true, null), roDbi);
+
+        // Writes without user token aren't tracked
+        dbRouter.onWrite(null);
+        Assert.assertSame(dbRouter.getDBI(true, createCallContext(null)), roDbi);
+    }
+
+    @Test(groups = "fast")
+    public void testReadYourWritesWindowExpiration() throws Exception {
+        final IDBI dbi = Mockito.mock(IDBI.class);
+        final IDBI roDbi = Mockito.mock(IDBI.class);
+        final DBRouter dbRouter = new DBRouter(dbi, createConfig(new TimeSpan(0, TimeUnit.SECONDS)), clock);
+        dbRouter.setReadOnlyDBI(roDbi);
+
+        dbRouter.onWrite(internalCallContext.getUserToken());
+        Assert.assertSame(dbRouter.getDBI(true, internalCallContext), roDbi);
+    }
+
+    @Test(groups = "fast")
+    public void testReadYourWritesWindowWithClock() throws Exception {
+        final IDBI dbi = Mockito.mock(IDBI.class);
+        final IDBI roDbi = Mockito.mock(IDBI.class);
+        final DBRouter dbRouter = new DBRouter(dbi, createConfig(new TimeSpan(1, TimeUnit.HOURS)), clock);
+        dbRouter.setReadOnlyDBI(roDbi);
+
+        clock.resetDeltaFromReality();
+        try {
+            dbRouter.onWrite(internalCallContext.getUserToken());
+            Assert.assertSame(dbRouter.getDBI(true, internalCallContext), dbi);
+
+            clock.addDeltaFromReality(TimeUnit.HOURS.toMillis(2));
+            Assert.assertSame(dbRouter.getDBI(true, internalCallContext), roDbi);
+        } finally {
+            clock.resetDeltaFromReality();
+        }
+    }
+
+    private InternalCallContext createCallContext(final UUID userToken) {
+        return new InternalCallContext(internalCallContext.getTenantRecordId(), internalCallContext.getAccountRecordId(), userToken, internalCallContext.getCreatedBy(),
+                                       internalCallContext.getCallOrigin(), internalCallContext.getContextUserType(), internalCallContext.getReasonCode(),
+                                       internalCallContext.getComments(), internalCallContext.getCreatedDate(), internalCallContext.getUpdatedDate());
+    }
+
+    private ReadReplicaConfig createConfig(final TimeSpan readYourWritesWindow) {
+        final ReadReplicaConfig config = Mockito.mock(ReadReplicaConfig.class);
+        Mockito.when(config.isReadReplicaEnabled()).thenReturn(true);
+        Mockito.when(config.getReadYourWritesWindow()).thenReturn(readYourWritesWindow);
+        return config;
+    }
+}
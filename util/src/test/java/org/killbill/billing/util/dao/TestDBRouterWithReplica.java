@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.api.TestApiListener.NextEvent;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.config.ReadReplicaConfig;
+import org.killbill.billing.util.customfield.StringCustomField;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.killbill.billing.util.customfield.dao.DefaultCustomFieldDao;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.skife.jdbi.v2.DBI;
+import org.skife.jdbi.v2.Handle;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+// The primary is the embedded database (H2 by default), the replica a separate in-memory H2 database which never catches up
+public class TestDBRouterWithReplica extends UtilTestSuiteWithEmbeddedDB {
+
+    private Handle replicaHandle;
+    private DefaultCustomFieldDao routedCustomFieldDao;
+
+    @Override
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+
+        final DBI replicaDbi = new DBI("jdbc:h2:mem:replica_" + UUID.randomUUID() + ";MODE=MYSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        // Keep the in-memory database alive for the duration of the test
+        replicaHandle = replicaDbi.open();
+        replicaHandle.execute("CREATE TABLE custom_fields (\n" +
+                              "    record_id int(11) unsigned NOT NULL AUTO_INCREMENT,\n" +
+                              "    id char(36) NOT NULL,\n" +
+                              "    object_id char(36) NOT NULL,\n" +
+                              "    object_type varchar(30) NOT NULL,\n" +
+                              "    is_active bool DEFAULT true,\n" +
+                              "    field_name varchar(30) NOT NULL,\n" +
+                              "    field_value varchar(255),\n" +
+                              "    created_by varchar(50) NOT NULL,\n" +
+                              "    created_date datetime NOT NULL,\n" +
+                              "    updated_by varchar(50) DEFAULT NULL,\n" +
+                              "    updated_date datetime DEFAULT NULL,\n" +
+                              "    account_record_id int(11) unsigned default null,\n" +
+                              "    tenant_record_id int(11) unsigned default null,\n" +
+                              "    PRIMARY KEY(record_id)\n" +
+                              ");");
+
+        final ReadReplicaConfig config = Mockito.mock(ReadReplicaConfig.class);
+        Mockito.when(config.isReadReplicaEnabled()).thenReturn(true);
+        Mockito.when(config.getReadYourWritesWindow()).thenReturn(new TimeSpan(1, TimeUnit.HOURS));
+        final DBRouter dbRouter = new DBRouter(dbi, config, clock);
+        dbRouter.setReadOnlyDBI(replicaDbi);
+
+        routedCustomFieldDao = new DefaultCustomFieldDao(dbRouter, clock, controlCacheDispatcher, nonEntityDao, eventBus, new MetricRegistry());
+    }
+
+    @Override
+    @AfterMethod(groups = "slow")
+    public void afterMethod() throws Exception {
+        replicaHandle.close();
+        super.afterMethod();
+    }
+
+    @Test(groups = "slow")
+    public void testReadYourWrites() throws Exception {
+        final InternalCallContext writerContext = createCallContext(UUID.randomUUID());
+        final InternalCallContext otherContext = createCallContext(UUID.randomUUID());
+        final InternalTenantContext tenantContext = new InternalTenantContext(writerContext.getTenantRecordId(), writerContext.getAccountRecordId());
+
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        routedCustomFieldDao.create(new CustomFieldModelDao(new StringCustomField("Field", "Value", ObjectType.ACCOUNT, UUID.randomUUID(), clock.getUTCNow())), writerContext);
+        assertListenerStatus();
+
+        // The write went to the primary only
+        Assert.assertEquals(routedCustomFieldDao.getCount(writerContext), (Long) 1L);
+        Assert.assertEquals(routedCustomFieldDao.getCount(tenantContext), (Long) 0L);
+        Assert.assertEquals(routedCustomFieldDao.getCount(otherContext), (Long) 0L);
+        Assert.assertEquals(routedCustomFieldDao.get(0L, 10L, writerContext).getTotalNbRecords(), (Long) 1L);
+        Assert.assertEquals(routedCustomFieldDao.get(0L, 10L, otherContext).getTotalNbRecords(), (Long) 0L);
+    }
+
+    @Test(groups = "slow")
+    public void testTransactionsWithoutWrites() throws Exception {
+        final InternalCallContext writerContext = createCallContext(UUID.randomUUID());
+        final InternalCallContext readerContext = createCallContext(UUID.randomUUID());
+
+        final UUID objectId = UUID.randomUUID();
+        eventsListener.pushExpectedEvent(NextEvent.CUSTOM_FIELD);
+        routedCustomFieldDao.create(new CustomFieldModelDao(new StringCustomField("Field", "Value", ObjectType.ACCOUNT, objectId, clock.getUTCNow())), writerContext);
+        assertListenerStatus();
+
+        // Read-write transaction (sent to the primary) which only reads: subsequent reads can still go to the replica
+        Assert.assertEquals(routedCustomFieldDao.getCustomFieldsForObject(objectId, ObjectType.ACCOUNT, readerContext).size(), 1);
+        Assert.assertEquals(routedCustomFieldDao.getCount(readerContext), (Long) 0L);
+    }
+
+    private InternalCallContext createCallContext(final UUID userToken) {
+        return new InternalCallContext(internalCallContext.getTenantRecordId(), internalCallContext.getAccountRecordId(), userToken, internalCallContext.getCreatedBy(),
+                                       internalCallContext.getCallOrigin(), internalCallContext.getContextUserType(), internalCallContext.getReasonCode(),
+                                       internalCallContext.getComments(), internalCallContext.getCreatedDate(), internalCallContext.getUpdatedDate());
+    }
+}
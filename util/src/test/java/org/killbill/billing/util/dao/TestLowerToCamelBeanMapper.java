@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.skife.jdbi.v2.StatementContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestLowerToCamelBeanMapper extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testMapRows() throws Exception {
+        final UUID id1 = UUID.randomUUID();
+        final UUID id2 = UUID.randomUUID();
+        final DateTime createdDate = new DateTime(2014, 3, 4, 5, 6, 7, DateTimeZone.UTC);
+
+        final ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metaData.getColumnCount()).thenReturn(5);
+        Mockito.when(metaData.getColumnLabel(1)).thenReturn("ID");
+        Mockito.when(metaData.getColumnLabel(2)).thenReturn("object_type");
+        Mockito.when(metaData.getColumnLabel(3)).thenReturn("created_date");
+        Mockito.when(metaData.getColumnLabel(4)).thenReturn("record_count");
+        Mockito.when(metaData.getColumnLabel(5)).thenReturn("unknown_column");
+
+        final ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getMetaData()).thenReturn(metaData);
+        Mockito.when(rs.getString(1)).thenReturn(id1.toString(), id2.toString());
+        Mockito.when(rs.getString(2)).thenReturn(ObjectType.ACCOUNT.toString(), (String) null);
+        Mockito.when(rs.getTimestamp(3)).thenReturn(new Timestamp(createdDate.getMillis()), (Timestamp) null);
+        Mockito.when(rs.getLong(4)).thenReturn(12L, 0L);
+        Mockito.when(rs.wasNull()).thenReturn(false, false, false, false, false, true, true, true);
+
+        final StatementContext ctx = createStatementContext();
+        final LowerToCamelBeanMapper<TestModel> mapper = new LowerToCamelBeanMapper<TestModel>(TestModel.class);
+
+        final TestModel model1 = mapper.map(0, rs, ctx);
+        Assert.assertEquals(model1.getId(), id1);
+        Assert.assertEquals(model1.getObjectType(), ObjectType.ACCOUNT);
+        Assert.assertEquals(model1.getCreatedDate().compareTo(createdDate), 0);
+        Assert.assertEquals(model1.getRecordCount(), (Long) 12L);
+
+        final TestModel model2 = mapper.map(1, rs, ctx);
+        Assert.assertEquals(model2.getId(), id2);
+        Assert.assertNull(model2.getObjectType());
+        Assert.assertNull(model2.getCreatedDate());
+        Assert.assertNull(model2.getRecordCount());
+
+        // The column layout is only resolved once per statement
+        Mockito.verify(rs, Mockito.times(1)).getMetaData();
+    }
+
+    private StatementContext createStatementContext() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        final StatementContext ctx = Mockito.mock(StatementContext.class);
+        Mockito.when(ctx.getAttribute(Mockito.anyString())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                return attributes.get((String) invocation.getArguments()[0]);
+            }
+        });
+        Mockito.when(ctx.setAttribute(Mockito.anyString(), Mockito.anyObject())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                return attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+            }
+        });
+        return ctx;
+    }
+
+    public static class TestModel {
+
+        private UUID id;
+        private ObjectType objectType;
+        private DateTime createdDate;
+        private Long recordCount;
+
+        public UUID getId() {
+            return id;
+        }
+
+        public void setId(final UUID id) {
+            this.id = id;
+        }
+
+        public ObjectType getObjectType() {
+            return objectType;
+        }
+
+        public void setObjectType(final ObjectType objectType) {
+            this.objectType = objectType;
+        }
+
+        public DateTime getCreatedDate() {
+            return createdDate;
+        }
+
+        public void setCreatedDate(final DateTime createdDate) {
+            this.createdDate = createdDate;
+        }
+
+        public Long getRecordCount() {
+            return recordCount;
+        }
+
+        public void setRecordCount(final Long recordCount) {
+            this.recordCount = recordCount;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.LinkedList;
 import java.util.List;
 
 import org.testng.Assert;
@@ -23,6 +24,8 @@ import org.testng.annotations.Test;
 
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.PaginationCursorScope;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagDefinitionSqlDao;
 
@@ -74,4 +77,105 @@ public class TestPagination extends UtilTestSuiteWithEmbeddedDB {
             }
         }
     }
+
+    @Test(groups = "slow", description = "Test Pagination: subsequent pages are retrieved using keyset pagination")
+    public void testKeysetPagination() throws Exception {
+        final List<TagDefinitionModelDao> createdTagDefinitions = new LinkedList<TagDefinitionModelDao>();
+        for (int i = 0; i < 10; i++) {
+            eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
+            createdTagDefinitions.add(tagDefinitionDao.create("keyset-" + i, "description-" + i, internalCallContext));
+            assertListenerStatus();
+        }
+
+        final String secondPageLastId;
+        PaginationCursorScope.open(0L, null);
+        try {
+            final Pagination<TagDefinitionModelDao> firstPage = tagDefinitionDao.get(0L, 4L, internalCallContext);
+            final List<TagDefinitionModelDao> firstPageResults = ImmutableList.<TagDefinitionModelDao>copyOf(firstPage);
+            Assert.assertEquals(firstPageResults.size(), 4);
+            Assert.assertEquals(firstPage.getMaxNbRecords(), (Long) 10L);
+            Assert.assertEquals(firstPage.getNextOffset(), (Long) 4L);
+            // The cursor handed back to the client is the id of the last entry of the page
+            secondPageLastId = PaginationCursorScope.getNextLastId(4L);
+            Assert.assertEquals(secondPageLastId, firstPageResults.get(3).getId().toString());
+            Assert.assertNull(PaginationCursorScope.getNextLastId(5L));
+        } finally {
+            PaginationCursorScope.close();
+        }
+
+        // Delete an entry of the first page: the second page should start right after the last entry seen
+        // (a limit/offset query would skip keyset-4)
+        eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
+        tagDefinitionDao.deleteById(createdTagDefinitions.get(0).getId(), internalCallContext);
+        assertListenerStatus();
+
+        final String thirdPageLastId;
+        PaginationCursorScope.open(4L, secondPageLastId);
+        try {
+            final List<TagDefinitionModelDao> secondPageResults = ImmutableList.<TagDefinitionModelDao>copyOf(tagDefinitionDao.get(4L, 4L, internalCallContext));
+            Assert.assertEquals(secondPageResults.size(), 4);
+            for (int i = 0; i < 4; i++) {
+                Assert.assertEquals(secondPageResults.get(i).getName(), "keyset-" + (i + 4));
+            }
+            thirdPageLastId = PaginationCursorScope.getNextLastId(8L);
+            Assert.assertEquals(thirdPageLastId, secondPageResults.get(3).getId().toString());
+        } finally {
+            PaginationCursorScope.close();
+        }
+
+        PaginationCursorScope.open(8L, thirdPageLastId);
+        try {
+            final List<TagDefinitionModelDao> thirdPageResults = ImmutableList.<TagDefinitionModelDao>copyOf(tagDefinitionDao.get(8L, 4L, internalCallContext));
+            Assert.assertEquals(thirdPageResults.size(), 2);
+            Assert.assertEquals(thirdPageResults.get(0).getName(), "keyset-8");
+            Assert.assertEquals(thirdPageResults.get(1).getName(), "keyset-9");
+        } finally {
+            PaginationCursorScope.close();
+        }
+
+        // Without cursor, we fall back to limit/offset
+        final List<TagDefinitionModelDao> otherPageResults = ImmutableList.<TagDefinitionModelDao>copyOf(tagDefinitionDao.get(4L, 2L, internalCallContext));
+        Assert.assertEquals(otherPageResults.size(), 2);
+        Assert.assertEquals(otherPageResults.get(0).getName(), "keyset-5");
+        Assert.assertEquals(otherPageResults.get(1).getName(), "keyset-6");
+    }
+
+    @Test(groups = "slow", description = "Test Pagination: counts can be skipped once known by the client")
+    public void testPaginationWithoutCounts() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            eventsListener.pushExpectedEvent(NextEvent.TAG_DEFINITION);
+            tagDefinitionDao.create("nocount-" + i, "description-" + i, internalCallContext);
+            assertListenerStatus();
+        }
+
+        final String secondPageLastId;
+        PaginationCursorScope.open(0L, null, true);
+        try {
+            final Pagination<TagDefinitionModelDao> firstPage = tagDefinitionDao.get(0L, 4L, internalCallContext);
+            Assert.assertEquals(ImmutableList.<TagDefinitionModelDao>copyOf(firstPage).size(), 4);
+            Assert.assertNull(firstPage.getTotalNbRecords());
+            Assert.assertNull(firstPage.getMaxNbRecords());
+            Assert.assertEquals(firstPage.getNextOffset(), (Long) 4L);
+            Assert.assertTrue(PaginationCursorScope.isSkipCounts());
+            secondPageLastId = PaginationCursorScope.getNextLastId(4L);
+            Assert.assertNotNull(secondPageLastId);
+        } finally {
+            PaginationCursorScope.close();
+        }
+
+        PaginationCursorScope.open(4L, secondPageLastId, true);
+        try {
+            final Pagination<TagDefinitionModelDao> secondPage = tagDefinitionDao.get(4L, 4L, internalCallContext);
+            final List<TagDefinitionModelDao> secondPageResults = ImmutableList.<TagDefinitionModelDao>copyOf(secondPage);
+            Assert.assertEquals(secondPageResults.size(), 2);
+            Assert.assertEquals(secondPageResults.get(0).getName(), "nocount-4");
+            Assert.assertNull(secondPage.getMaxNbRecords());
+            // The partial page tells us this was the last one
+            Assert.assertNull(secondPage.getNextOffset());
+        } finally {
+            PaginationCursorScope.close();
+        }
+
+        Assert.assertFalse(PaginationCursorScope.isSkipCounts());
+    }
 }
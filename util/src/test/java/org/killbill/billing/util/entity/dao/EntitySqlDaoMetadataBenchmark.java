@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoMetadata.MethodMetadata;
+import org.killbill.billing.util.tag.dao.TagSqlDao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of the reflection metadata needed by EntitySqlDaoWrapperInvocationHandler for a cached call (TagSqlDao#getRecordId):
+ * computed on each call (what the handler used to do) vs looked up from EntitySqlDaoMetadata.
+ * <p/>
+ * Run it with: mvn -pl util test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.killbill.billing.util.entity.dao.EntitySqlDaoMetadataBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntitySqlDaoMetadataBenchmark {
+
+    private Constructor<EntitySqlDaoMetadata> metadataConstructor;
+    private Method method;
+
+    @Setup
+    public void setUp() throws Exception {
+        metadataConstructor = EntitySqlDaoMetadata.class.getDeclaredConstructor(Class.class);
+        metadataConstructor.setAccessible(true);
+        method = TagSqlDao.class.getMethod("getRecordId", String.class, InternalTenantContext.class);
+    }
+
+    @Benchmark
+    public void computedOnEachCall(final Blackhole blackhole) throws Exception {
+        final EntitySqlDaoMetadata metadata = metadataConstructor.newInstance(TagSqlDao.class);
+        consume(metadata, blackhole);
+    }
+
+    @Benchmark
+    public void sharedMetadata(final Blackhole blackhole) throws Exception {
+        final EntitySqlDaoMetadata metadata = EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class);
+        consume(metadata, blackhole);
+    }
+
+    private void consume(final EntitySqlDaoMetadata metadata, final Blackhole blackhole) throws Exception {
+        final MethodMetadata methodMetadata = metadata.getMethodMetadata(method);
+        blackhole.consume(methodMetadata.getAuditedAnnotation());
+        blackhole.consume(methodMetadata.getCachableAnnotation());
+        blackhole.consume(methodMetadata.getCacheKeyArgumentIndexes());
+        final ObjectType objectType = metadata.getObjectType();
+        blackhole.consume(objectType);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(EntitySqlDaoMetadataBenchmark.class.getSimpleName()).build()).run();
+    }
+}
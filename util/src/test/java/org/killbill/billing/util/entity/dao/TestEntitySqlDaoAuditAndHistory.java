@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.killbill.billing.util.customfield.dao.CustomFieldSqlDao;
+import org.killbill.billing.util.dao.TableName;
+import org.skife.jdbi.v2.Handle;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+// Verify the rows written around audited statements by EntitySqlDaoWrapperInvocationHandler
+public class TestEntitySqlDaoAuditAndHistory extends UtilTestSuiteWithEmbeddedDB {
+
+    private EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
+
+    @Override
+    @BeforeMethod(groups = "slow")
+    public void beforeMethod() throws Exception {
+        super.beforeMethod();
+        transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+    }
+
+    @Test(groups = "slow")
+    public void testSingleInsert() throws Exception {
+        final CustomFieldModelDao customField = createCustomFieldModelDao(UUID.randomUUID());
+        final Long recordId = transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Long>() {
+            @Override
+            public Long inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                return entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class).create(customField, internalCallContext);
+            }
+        });
+
+        // The generated key is the record id of the entity
+        Assert.assertEquals(recordId, getRecordId(customField));
+
+        final List<Long> historyRecordIds = checkHistoryRows(recordId, ChangeType.INSERT);
+        checkAuditRow(historyRecordIds.get(0), ChangeType.INSERT);
+    }
+
+    @Test(groups = "slow")
+    public void testBatchInsert() throws Exception {
+        final UUID objectId = UUID.randomUUID();
+        final List<CustomFieldModelDao> customFields = ImmutableList.<CustomFieldModelDao>of(createCustomFieldModelDao(objectId),
+                                                                                             createCustomFieldModelDao(objectId),
+                                                                                             createCustomFieldModelDao(objectId));
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class).batchCreateFromTransaction(customFields, internalCallContext);
+                return null;
+            }
+        });
+
+        // Each entity has its own history row, pointing to its record id, and its own audit row, pointing to that history row
+        final List<Long> allHistoryRecordIds = new ArrayList<Long>();
+        for (final CustomFieldModelDao customField : customFields) {
+            final List<Long> historyRecordIds = checkHistoryRows(getRecordId(customField), ChangeType.INSERT);
+            checkAuditRow(historyRecordIds.get(0), ChangeType.INSERT);
+            Assert.assertFalse(allHistoryRecordIds.contains(historyRecordIds.get(0)));
+            allHistoryRecordIds.add(historyRecordIds.get(0));
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testUpdate() throws Exception {
+        final CustomFieldModelDao customField = createCustomFieldModelDao(UUID.randomUUID());
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class).create(customField, internalCallContext);
+                return null;
+            }
+        });
+        final Long recordId = getRecordId(customField);
+
+        // Soft deletion, i.e. an update of the row (which isn't found by id anymore)
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class).markTagAsDeleted(customField.getId().toString(), internalCallContext);
+                return null;
+            }
+        });
+
+        // The record id doesn't change, and both history rows point to it
+        final List<Long> historyRecordIds = checkHistoryRows(recordId, ChangeType.INSERT, ChangeType.DELETE);
+        checkAuditRow(historyRecordIds.get(0), ChangeType.INSERT);
+        checkAuditRow(historyRecordIds.get(1), ChangeType.DELETE);
+    }
+
+    private CustomFieldModelDao createCustomFieldModelDao(final UUID objectId) {
+        return new CustomFieldModelDao(UUID.randomUUID(), clock.getUTCNow(), clock.getUTCNow(), "field-" + UUID.randomUUID().toString().substring(0, 8), "value", objectId, ObjectType.ACCOUNT);
+    }
+
+    private Long getRecordId(final CustomFieldModelDao customField) {
+        return dbi.onDemand(CustomFieldSqlDao.class).getRecordId(customField.getId().toString(), internalCallContext);
+    }
+
+    // Returns the history record ids
+    private List<Long> checkHistoryRows(final Long targetRecordId, final ChangeType... expectedChangeTypes) throws Exception {
+        final List<List<Object>> rows = query("select record_id, target_record_id, change_type from " + TableName.CUSTOM_FIELD_HISTORY.getTableName() +
+                                              " where target_record_id = ? order by record_id", targetRecordId);
+        Assert.assertEquals(rows.size(), expectedChangeTypes.length);
+
+        final List<Long> historyRecordIds = new ArrayList<Long>();
+        for (int i = 0; i < rows.size(); i++) {
+            Assert.assertEquals(toLong(rows.get(i).get(1)), targetRecordId);
+            Assert.assertEquals(rows.get(i).get(2), expectedChangeTypes[i].toString());
+            historyRecordIds.add(toLong(rows.get(i).get(0)));
+        }
+        return historyRecordIds;
+    }
+
+    private void checkAuditRow(final Long historyRecordId, final ChangeType expectedChangeType) throws Exception {
+        final List<List<Object>> rows = query("select target_record_id, change_type, account_record_id, tenant_record_id from audit_log" +
+                                              " where table_name = ? and target_record_id = ?", TableName.CUSTOM_FIELD_HISTORY.name(), historyRecordId);
+        Assert.assertEquals(rows.size(), 1);
+        Assert.assertEquals(toLong(rows.get(0).get(0)), historyRecordId);
+        Assert.assertEquals(rows.get(0).get(1), expectedChangeType.toString());
+        Assert.assertEquals(toLong(rows.get(0).get(2)), internalCallContext.getAccountRecordId());
+        Assert.assertEquals(toLong(rows.get(0).get(3)), internalCallContext.getTenantRecordId());
+    }
+
+    private List<List<Object>> query(final String sql, final Object... args) throws Exception {
+        final Handle handle = dbi.open();
+        try {
+            final PreparedStatement statement = handle.getConnection().prepareStatement(sql);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+
+            final List<List<Object>> rows = new ArrayList<List<Object>>();
+            final ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                final List<Object> row = new ArrayList<Object>();
+                for (int i = 1; i <= resultSet.getMetaData().getColumnCount(); i++) {
+                    row.add(resultSet.getObject(i));
+                }
+                rows.add(row);
+            }
+            resultSet.close();
+            statement.close();
+            return rows;
+        } finally {
+            handle.close();
+        }
+    }
+
+    private Long toLong(final Object value) {
+        return value == null ? null : ((Number) value).longValue();
+    }
+}
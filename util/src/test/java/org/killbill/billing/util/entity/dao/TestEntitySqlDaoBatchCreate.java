@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.killbill.billing.util.customfield.dao.CustomFieldSqlDao;
+import org.killbill.billing.util.dao.TableName;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestEntitySqlDaoBatchCreate extends UtilTestSuiteWithEmbeddedDB {
+
+    @Test(groups = "slow", description = "Verify batch inserts record one history and one audit row per entity")
+    public void testBatchCreateWithHistory() throws Exception {
+        final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, clock, controlCacheDispatcher, nonEntityDao);
+
+        // More than one lookup chunk
+        final UUID objectId = UUID.randomUUID();
+        final List<CustomFieldModelDao> customFields = new ArrayList<CustomFieldModelDao>();
+        for (int i = 0; i < 1500; i++) {
+            customFields.add(new CustomFieldModelDao(UUID.randomUUID(), clock.getUTCNow(), clock.getUTCNow(), "field" + i, "value" + i, objectId, ObjectType.ACCOUNT));
+        }
+
+        transactionalSqlDao.execute(new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory<EntitySqlDao> entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(CustomFieldSqlDao.class).batchCreateFromTransaction(customFields, internalCallContext);
+                return null;
+            }
+        });
+
+        for (int i = 0; i < customFields.size(); i += 99) {
+            final CustomFieldModelDao customField = customFields.get(i);
+            final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.CUSTOM_FIELD, customField.getId(), AuditLevel.FULL, internalCallContext);
+            Assert.assertEquals(auditLogs.size(), 1);
+            Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        }
+    }
+}
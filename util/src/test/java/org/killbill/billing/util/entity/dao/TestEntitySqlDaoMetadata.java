@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.lang.reflect.Method;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoMetadata.MethodMetadata;
+import org.killbill.billing.util.tag.Tag;
+import org.killbill.billing.util.tag.dao.TagModelDao;
+import org.killbill.billing.util.tag.dao.TagSqlDao;
+import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class TestEntitySqlDaoMetadata extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testMetadataIsSharedPerClass() throws Exception {
+        final EntitySqlDaoMetadata metadata = EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class);
+        Assert.assertSame(EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class), metadata);
+
+        final Method method = TagSqlDao.class.getMethod("getRecordId", String.class, InternalTenantContext.class);
+        Assert.assertSame(metadata.getMethodMetadata(method), metadata.getMethodMetadata(method));
+
+        Assert.assertEquals(metadata.getObjectType(), ObjectType.TAG);
+        Assert.assertEquals(metadata.getObjectType(), ObjectType.TAG);
+    }
+
+    @Test(groups = "fast")
+    public void testObjectTypeWhenEntitySqlDaoIsNotTheFirstInterface() throws Exception {
+        Assert.assertEquals(EntitySqlDaoMetadata.forSqlDaoClass(CloseableTagSqlDao.class).getObjectType(), ObjectType.TAG);
+        Assert.assertEquals(EntitySqlDaoMetadata.forSqlDaoClass(ComparableTagSqlDao.class).getObjectType(), ObjectType.TAG);
+        Assert.assertNull(EntitySqlDaoMetadata.forSqlDaoClass(CloseMe.class).getObjectType());
+    }
+
+    @Test(groups = "fast")
+    public void testCachableMethod() throws Exception {
+        final Method method = TagSqlDao.class.getMethod("getRecordId", String.class, InternalTenantContext.class);
+        final MethodMetadata metadata = EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class).getMethodMetadata(method);
+
+        Assert.assertNull(metadata.getAuditedAnnotation());
+        Assert.assertEquals(metadata.getCachableAnnotation().value(), CacheType.RECORD_ID);
+        Assert.assertEquals(metadata.getCacheKeyArgumentIndexes().length, 1);
+        Assert.assertEquals(metadata.getCacheKeyArgumentIndexes()[0], 0);
+        Assert.assertEquals(metadata.getIdArgumentIndex(), 0);
+        Assert.assertEquals(metadata.getTenantContextArgumentIndex(), 1);
+        Assert.assertEquals(metadata.getCallContextArgumentIndex(), -1);
+        // Already cached
+        Assert.assertFalse(metadata.isMemoizable());
+        Assert.assertFalse(metadata.isWrite());
+    }
+
+    @Test(groups = "fast")
+    public void testAuditedMethod() throws Exception {
+        final Method method = TagSqlDao.class.getMethod("create", EntityModelDao.class, InternalCallContext.class);
+        final MethodMetadata metadata = EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class).getMethodMetadata(method);
+
+        Assert.assertEquals(metadata.getAuditedAnnotation().value(), ChangeType.INSERT);
+        Assert.assertNull(metadata.getCachableAnnotation());
+        Assert.assertEquals(metadata.getCacheKeyArgumentIndexes().length, 0);
+        Assert.assertEquals(metadata.getIdArgumentIndex(), -1);
+        Assert.assertEquals(metadata.getTenantContextArgumentIndex(), 1);
+        Assert.assertEquals(metadata.getCallContextArgumentIndex(), 1);
+        Assert.assertFalse(metadata.isMemoizable());
+        Assert.assertTrue(metadata.isWrite());
+    }
+
+    @Test(groups = "fast")
+    public void testQueryMethod() throws Exception {
+        final Method method = TagSqlDao.class.getMethod("getById", String.class, InternalTenantContext.class);
+        final MethodMetadata metadata = EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class).getMethodMetadata(method);
+
+        Assert.assertNull(metadata.getAuditedAnnotation());
+        Assert.assertNull(metadata.getCachableAnnotation());
+        Assert.assertTrue(metadata.isMemoizable());
+        Assert.assertFalse(metadata.isWrite());
+    }
+
+    @Test(groups = "fast")
+    public void testMetrics() throws Exception {
+        final Method method = TagSqlDao.class.getMethod("getRecordId", String.class, InternalTenantContext.class);
+        final MethodMetadata metadata = EntitySqlDaoMetadata.forSqlDaoClass(TagSqlDao.class).getMethodMetadata(method);
+
+        final MetricRegistry registry = new MetricRegistry();
+        Assert.assertNull(metadata.getMetrics(null));
+
+        final EntitySqlDaoMetrics metrics = metadata.getMetrics(registry);
+        Assert.assertSame(metadata.getMetrics(registry), metrics);
+
+        metrics.recordLatency(1000L);
+        metrics.recordCacheLookup(true);
+        metrics.recordCacheLookup(true);
+        metrics.recordCacheLookup(true);
+        metrics.recordCacheLookup(false);
+        // Neither audited nor returning a List
+        metrics.recordAuditAndHistory(1000L);
+        metrics.recordRows(10);
+
+        final String prefix = TagSqlDao.class.getName() + ".getRecordId.";
+        Assert.assertEquals(registry.getTimers().get(prefix + "latency").getCount(), 1);
+        Assert.assertEquals(registry.getCounters().get(prefix + "cacheHits").getCount(), 3);
+        Assert.assertEquals(registry.getCounters().get(prefix + "cacheMisses").getCount(), 1);
+        Assert.assertEquals(registry.getGauges().get(prefix + "cacheHitRatio").getValue(), 0.75);
+        Assert.assertNull(registry.getTimers().get(prefix + "auditAndHistory"));
+        Assert.assertNull(registry.getHistograms().get(prefix + "rows"));
+    }
+
+    private interface CloseableTagSqlDao extends CloseMe, EntitySqlDao<TagModelDao, Tag> {}
+
+    private interface ComparableTagSqlDao extends Comparable<ComparableTagSqlDao>, EntitySqlDao<TagModelDao, Tag> {}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 Groupon, Inc
+ * Copyright 2014 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.killbill.billing.util.config.CacheConfig;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestEntitySqlDaoRequestCache extends UtilTestSuiteNoDB {
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        EntitySqlDaoRequestCache.close();
+        setEnabled(false);
+    }
+
+    @Test(groups = "fast")
+    public void testDisabled() throws Exception {
+        setEnabled(false);
+        Assert.assertFalse(EntitySqlDaoRequestCache.open());
+        Assert.assertFalse(EntitySqlDaoRequestCache.isOpen());
+
+        final List<Object> key = ImmutableList.<Object>of("getById", 1L);
+        EntitySqlDaoRequestCache.put(key, "account");
+        Assert.assertFalse(EntitySqlDaoRequestCache.contains(key));
+    }
+
+    @Test(groups = "fast")
+    public void testMemoization() throws Exception {
+        setEnabled(true);
+        Assert.assertTrue(EntitySqlDaoRequestCache.open());
+        // Nested scopes are part of the outer one
+        Assert.assertFalse(EntitySqlDaoRequestCache.open());
+
+        final List<Object> key = ImmutableList.<Object>of("getById", 1L);
+        final List<Object> nullKey = ImmutableList.<Object>of("getById", 2L);
+        final List<Object> listKey = ImmutableList.<Object>of("getByAccountRecordId", 1L);
+        Assert.assertFalse(EntitySqlDaoRequestCache.contains(key));
+
+        EntitySqlDaoRequestCache.put(key, "account");
+        EntitySqlDaoRequestCache.put(nullKey, null);
+        EntitySqlDaoRequestCache.put(listKey, ImmutableList.<String>of("tag1", "tag2"));
+        Assert.assertEquals(EntitySqlDaoRequestCache.get(key), "account");
+        Assert.assertTrue(EntitySqlDaoRequestCache.contains(nullKey));
+        Assert.assertNull(EntitySqlDaoRequestCache.get(nullKey));
+
+        // Callers get their own copy of lists
+        final List<String> tags = (List<String>) EntitySqlDaoRequestCache.get(listKey);
+        tags.clear();
+        Assert.assertEquals(EntitySqlDaoRequestCache.get(listKey), ImmutableList.<String>of("tag1", "tag2"));
+
+        // Writes clear everything
+        EntitySqlDaoRequestCache.invalidate();
+        Assert.assertFalse(EntitySqlDaoRequestCache.contains(key));
+        Assert.assertFalse(EntitySqlDaoRequestCache.contains(nullKey));
+        Assert.assertTrue(EntitySqlDaoRequestCache.isOpen());
+
+        EntitySqlDaoRequestCache.close();
+        Assert.assertFalse(EntitySqlDaoRequestCache.isOpen());
+    }
+
+    @Test(groups = "fast")
+    public void testModelObjectsAreCopied() throws Exception {
+        setEnabled(true);
+        Assert.assertTrue(EntitySqlDaoRequestCache.open());
+
+        final List<Object> key = ImmutableList.<Object>of("getByAccountRecordId", 1L);
+        final MutableModel model = new MutableModel();
+        Assert.assertTrue(EntitySqlDaoRequestCache.put(key, ImmutableList.<MutableModel>of(model)));
+
+        // Neither the caller which ran the query, nor the ones served from the cache, can modify the memoized result
+        model.children.add("child1");
+        final List<MutableModel> firstRead = (List<MutableModel>) EntitySqlDaoRequestCache.get(key);
+        firstRead.get(0).children.add("child2");
+        final List<MutableModel> secondRead = (List<MutableModel>) EntitySqlDaoRequestCache.get(key);
+        Assert.assertNotSame(secondRead.get(0), firstRead.get(0));
+        Assert.assertTrue(secondRead.get(0).children.isEmpty());
+        Assert.assertEquals(secondRead.get(0).name, "model");
+
+        // Results which can't be copied aren't memoized
+        final List<Object> otherKey = ImmutableList.<Object>of("getByAccountRecordId", 2L);
+        Assert.assertFalse(EntitySqlDaoRequestCache.put(otherKey, ImmutableList.<NotCopyableModel>of(new NotCopyableModel("model"))));
+        Assert.assertFalse(EntitySqlDaoRequestCache.contains(otherKey));
+    }
+
+    private static final class MutableModel {
+
+        private final List<String> children = new LinkedList<String>();
+        private String name = "model";
+    }
+
+    private static final class NotCopyableModel {
+
+        private final String name;
+
+        private NotCopyableModel(final String name) {
+            this.name = name;
+        }
+    }
+
+    private void setEnabled(final boolean enabled) {
+        final CacheConfig cacheConfig = Mockito.mock(CacheConfig.class);
+        Mockito.when(cacheConfig.isRequestCacheEnabled()).thenReturn(enabled);
+        EntitySqlDaoRequestCache.setCacheConfig(cacheConfig);
+    }
+}
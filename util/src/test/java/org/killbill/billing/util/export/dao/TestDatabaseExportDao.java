@@ -19,7 +19,12 @@ package org.killbill.billing.util.export.dao;
 import java.io.ByteArrayOutputStream;
 import java.util.Date;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.inject.Inject;
+
+import org.mockito.Mockito;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.tweak.HandleCallback;
 import org.testng.Assert;
@@ -28,10 +33,14 @@ import org.testng.annotations.Test;
 
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.DatabaseExportOutputStream;
+import org.killbill.billing.util.config.ExportConfig;
 import org.killbill.billing.util.validation.dao.DatabaseSchemaDao;
 
 public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
 
+    @Inject
+    private DatabaseSchemaDao databaseSchemaDao;
+
     @Test(groups = "slow")
     public void testExportSimpleData() throws Exception {
         // Empty database
@@ -88,6 +97,59 @@ public class TestDatabaseExportDao extends UtilTestSuiteWithEmbeddedDB {
                                      "1,a," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n" +
                                      "-- " + tableNameB + " record_id,b_column,account_record_id,tenant_record_id\n" +
                                      "1,b," + internalCallContext.getAccountRecordId() + "," + internalCallContext.getTenantRecordId() + "\n");
+
+        // Tables read in parallel must be written in the same order
+        final ExecutorService exportExecutor = Executors.newFixedThreadPool(3);
+        dao.setExportExecutor(exportExecutor);
+        try {
+            Assert.assertEquals(getDump(), newDump);
+        } finally {
+            dao.setExportExecutor(null);
+            exportExecutor.shutdownNow();
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testExportInParallelWithSmallBuffer() throws Exception {
+        final String tableNameC = "test_database_export_dao_c";
+        final String tableNameD = "test_database_export_dao_d";
+        dbi.withHandle(new HandleCallback<Void>() {
+            @Override
+            public Void withHandle(final Handle handle) throws Exception {
+                for (final String tableName : new String[]{tableNameC, tableNameD}) {
+                    handle.execute("drop table if exists " + tableName);
+                    handle.execute("create table " + tableName + "(record_id int(11) unsigned not null auto_increment," +
+                                   "value_column varchar(36)," +
+                                   "account_record_id int(11) unsigned not null," +
+                                   "tenant_record_id int(11) unsigned default 0," +
+                                   "primary key(record_id));");
+                    for (int i = 0; i < 200; i++) {
+                        handle.execute("insert into " + tableName + " (value_column, account_record_id, tenant_record_id) values (?, ?, ?)",
+                                       UUID.randomUUID().toString(), internalCallContext.getAccountRecordId(), internalCallContext.getTenantRecordId());
+                    }
+                }
+                return null;
+            }
+        });
+
+        final String dump = getDump();
+        Assert.assertTrue(dump.contains("-- " + tableNameC + " "));
+        Assert.assertTrue(dump.contains("-- " + tableNameD + " "));
+
+        final ExportConfig exportConfig = Mockito.mock(ExportConfig.class);
+        Mockito.when(exportConfig.getFetchSize()).thenReturn(10);
+        // Much smaller than each table: the readers have to wait for the previous tables to be written
+        Mockito.when(exportConfig.getExportBufferSize()).thenReturn(64);
+        final DatabaseExportDao parallelDao = new DatabaseExportDao(databaseSchemaDao, dbi, exportConfig);
+        final ExecutorService exportExecutor = Executors.newFixedThreadPool(2);
+        parallelDao.setExportExecutor(exportExecutor);
+        try {
+            final DatabaseExportOutputStream out = new CSVExportOutputStream(new ByteArrayOutputStream());
+            parallelDao.exportDataForAccount(out, internalCallContext);
+            Assert.assertEquals(out.toString(), dump);
+        } finally {
+            exportExecutor.shutdownNow();
+        }
     }
 
     private String getDump() {